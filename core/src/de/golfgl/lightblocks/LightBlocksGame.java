@@ -7,10 +7,12 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.ParticleEffectLoader;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.controllers.Controllers;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.FPSLogger;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.pay.PurchaseManager;
 import com.badlogic.gdx.scenes.scene2d.Group;
@@ -37,6 +39,7 @@ import de.golfgl.lightblocks.model.TutorialModel;
 import de.golfgl.lightblocks.multiplayer.AbstractMultiplayerRoom;
 import de.golfgl.lightblocks.multiplayer.INsdHelper;
 import de.golfgl.lightblocks.screen.AbstractScreen;
+import de.golfgl.lightblocks.screen.LoadingScreen;
 import de.golfgl.lightblocks.screen.MainMenuScreen;
 import de.golfgl.lightblocks.screen.PlayScreen;
 import de.golfgl.lightblocks.input.PlayScreenInput;
@@ -98,6 +101,7 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
     public LocalPrefs localPrefs;
     public GameStateHandler savegame;
     public BackendManager backendManager;
+    public StartupTimings startupTimings;
     // these resources are used in the whole game... so we are loading them here
     public TextureRegion trBlock;
     public TextureRegion trGhostBlock;
@@ -105,6 +109,7 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
     public TextureRegion trGlowingLine;
     public TextureRegion trPreviewOsb;
     public TextureRegion trPreviewOsg;
+    public ParticleEffect explodeEffect;
     public Sound dropSound;
     public Sound rotateSound;
     public Sound removeSound;
@@ -125,7 +130,17 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
     public GameAnalytics gameAnalytics;
     public PurchaseManager purchaseManager;
     public IPushMessageProvider pushMessageProvider;
+    private static final int ASSET_LOADING_MS_PER_FRAME = 15;
+    private static final int STARTUP_LOAD_UI = 0;
+    private static final int STARTUP_THEME = 1;
+    private static final int STARTUP_LOAD_THEME = 2;
+    private static final int STARTUP_MENU = 3;
+    private static final int STARTUP_LOAD_SOUNDS = 4;
+    private static final int STARTUP_DONE = 5;
+    // Anteil des Ladens am Fortschrittsbalken, der Rest sind die Schritte danach
+    private static final float STARTUP_LOAD_UI_SHARE = .8f;
     private FPSLogger fpsLogger;
+    private int startupStep = STARTUP_LOAD_UI;
     private List<Mission> missionList;
     private HashMap<String, Mission> missionMap;
     private boolean openWeblinks = true;
@@ -155,6 +170,8 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
 
     @Override
     public void create() {
+        startupTimings = new StartupTimings();
+
         if (GAME_DEVMODE) {
             fpsLogger = new FPSLogger();
             Gdx.app.setLogLevel(Application.LOG_INFO);
@@ -164,17 +181,20 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
 
         Preferences lbPrefs = app.getPreferences("lightblocks");
         localPrefs = new LocalPrefs(lbPrefs);
+        startupTimings.mark(StartupTimings.PHASE_PREFS);
 
         // bevor gpgs angemeldet wird (wegen Cloud save)
         backendManager = new BackendManager(localPrefs);
 
         if (pushMessageProvider != null && backendManager.hasUserId())
             pushMessageProvider.initService(this);
+        startupTimings.mark(StartupTimings.PHASE_BACKEND);
 
         if (share == null)
             share = new ShareHandler();
 
         initGameAnalytics(lbPrefs);
+        startupTimings.mark(StartupTimings.PHASE_ANALYTICS);
 
         player = new MyOwnPlayer();
 
@@ -186,10 +206,22 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
             if (localPrefs.getGpgsAutoLogin())
                 gpgsClient.resumeSession();
         }
+        startupTimings.mark(StartupTimings.PHASE_GAME_SERVICES);
 
         I18NBundle.setSimpleFormatter(true);
 
-        loadAndInitAssets();
+        // Assets werden in render() geladen, bis dahin zeigt der LoadingScreen den Fortschritt
+        queueUiAssets();
+        setScreen(new LoadingScreen(this));
+    }
+
+    /**
+     * last step of the startup, called when the assets needed for the menu are loaded
+     */
+    private void finishStartup() {
+        // wird vom Menü sowieso geladen, hier nur um es getrennt zu messen
+        savegame.getTotalScore();
+        startupTimings.mark(StartupTimings.PHASE_SAVEGAME);
 
         try {
             controllerMappings = new MyControllerMapping(this);
@@ -246,43 +278,36 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
         return "sound/" + name + ".ogg";
     }
 
-    private void loadAndInitAssets() {
+    /**
+     * queues what is needed to show the menu. The sounds needed for playing are queued afterwards
+     */
+    private void queueUiAssets() {
         assetManager = new AssetManager();
-        // den Sound als erstes und danach finish, damit er möglichst auf allen Geräten rechtzeitig zur Verfügung steht
+        // den Sound als erstes, damit er möglichst auf allen Geräten rechtzeitig zur Verfügung steht
         assetManager.load(getSoundAssetFilename("cleanspecial"), Sound.class);
-        assetManager.finishLoading();
-
-        assetManager.load(getSoundAssetFilename("cleanfreeze"), Sound.class);
         assetManager.load(getSoundAssetFilename("swosh"), Sound.class);
-        assetManager.load("i18n/strings", I18NBundle.class);
-        assetManager.load(getSoundAssetFilename("switchon"), Sound.class);
         assetManager.load(getSoundAssetFilename("switchflip"), Sound.class);
-        assetManager.load(getSoundAssetFilename("glow05"), Sound.class);
-        assetManager.load(getSoundAssetFilename("gameover"), Sound.class);
-        assetManager.load(getSoundAssetFilename("unlocked"), Sound.class);
-        assetManager.load(getSoundAssetFilename("garbage"), Sound.class);
-        assetManager.load(getSoundAssetFilename("freezestart"), Sound.class);
+        assetManager.load("i18n/strings", I18NBundle.class);
         assetManager.load("skin/lb.json", Skin.class);
-        assetManager.finishLoading();
+        // der Effekt nutzt den Atlas des Skins
+        ParticleEffectLoader.ParticleEffectParameter effectParameter = new ParticleEffectLoader.ParticleEffectParameter();
+        effectParameter.atlasFile = "skin/lb.atlas";
+        assetManager.load("raw/explode.p", ParticleEffect.class, effectParameter);
+    }
 
+    private void initUiAssets() {
         skin = assetManager.get("skin/lb.json", Skin.class);
         TEXTS = assetManager.get("i18n/strings", I18NBundle.class);
         trBlock = skin.getRegion("block-deactivated");
         trGhostBlock = skin.getRegion("block-ghost");
         trBlockEnlightened = skin.getRegion("block-light");
         trGlowingLine = skin.getRegion("lineglow");
-        dropSound = assetManager.get(getSoundAssetFilename("switchon"), Sound.class);
         rotateSound = assetManager.get(getSoundAssetFilename("switchflip"), Sound.class);
-        removeSound = assetManager.get(getSoundAssetFilename("glow05"), Sound.class);
-        gameOverSound = assetManager.get(getSoundAssetFilename("gameover"), Sound.class);
-        unlockedSound = assetManager.get(getSoundAssetFilename("unlocked"), Sound.class);
-        garbageSound = assetManager.get(getSoundAssetFilename("garbage"), Sound.class);
         cleanSpecialSound = assetManager.get(getSoundAssetFilename("cleanspecial"), Sound.class);
-        cleanFreezedSound = assetManager.get(getSoundAssetFilename("cleanfreeze"), Sound.class);
-        freezeBeginSound = assetManager.get(getSoundAssetFilename("freezestart"), Sound.class);
         swoshSound = assetManager.get(getSoundAssetFilename("swosh"), Sound.class);
         trPreviewOsb = skin.getRegion("playscreen-osb");
         trPreviewOsg = skin.getRegion("playscreen-osg");
+        explodeEffect = assetManager.get("raw/explode.p", ParticleEffect.class);
 
         COLOR_DISABLED = skin.getColor("disabled");
         COLOR_FOCUSSED_ACTOR = skin.getColor("lightselection");
@@ -292,13 +317,119 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
         skin.get(SKIN_FONT_TITLE, Label.LabelStyle.class).font.setFixedWidthGlyphs("0123456789-+X");
         skin.get(SKIN_FONT_TITLE, Label.LabelStyle.class).font.setUseIntegerPositions(false);
 
-        // Theme aktiviert?
-        theme = new Theme(this);
+        // die Sounds zum Spielen werden geladen, während das Menü schon angezeigt wird
+        assetManager.load(getSoundAssetFilename("cleanfreeze"), Sound.class);
+        assetManager.load(getSoundAssetFilename("switchon"), Sound.class);
+        assetManager.load(getSoundAssetFilename("glow05"), Sound.class);
+        assetManager.load(getSoundAssetFilename("gameover"), Sound.class);
+        assetManager.load(getSoundAssetFilename("unlocked"), Sound.class);
+        assetManager.load(getSoundAssetFilename("garbage"), Sound.class);
+        assetManager.load(getSoundAssetFilename("freezestart"), Sound.class);
+    }
+
+    private void initGameSounds() {
+        dropSound = assetManager.get(getSoundAssetFilename("switchon"), Sound.class);
+        removeSound = assetManager.get(getSoundAssetFilename("glow05"), Sound.class);
+        gameOverSound = assetManager.get(getSoundAssetFilename("gameover"), Sound.class);
+        unlockedSound = assetManager.get(getSoundAssetFilename("unlocked"), Sound.class);
+        garbageSound = assetManager.get(getSoundAssetFilename("garbage"), Sound.class);
+        cleanFreezedSound = assetManager.get(getSoundAssetFilename("cleanfreeze"), Sound.class);
+        freezeBeginSound = assetManager.get(getSoundAssetFilename("freezestart"), Sound.class);
+
+        theme.setDefaultSounds();
+        startupTimings.mark(StartupTimings.PHASE_GAME_SOUNDS);
+    }
+
+    /**
+     * loads the queued assets for a part of the frame and does the next startup step when ready. One step per frame,
+     * so the LoadingScreen keeps being drawn
+     */
+    private void updateAssetLoading() {
+        // solange das Theme lädt, bekommt es die Zeit des Frames
+        boolean allLoaded = startupStep == STARTUP_LOAD_THEME ? theme.updateLoading(ASSET_LOADING_MS_PER_FRAME)
+                : assetManager.update(ASSET_LOADING_MS_PER_FRAME);
+
+        switch (startupStep) {
+            case STARTUP_LOAD_UI:
+                if (allLoaded) {
+                    startupTimings.mark(StartupTimings.PHASE_UI_ASSETS);
+                    initUiAssets();
+                    startupTimings.mark(StartupTimings.PHASE_SKIN);
+                    startupStep = STARTUP_THEME;
+                }
+                break;
+            case STARTUP_THEME:
+                // Theme aktiviert?
+                theme = new Theme(this);
+                theme.queueThemeIfPresent();
+                startupStep = STARTUP_LOAD_THEME;
+                break;
+            case STARTUP_LOAD_THEME:
+                if (allLoaded) {
+                    startupTimings.mark(StartupTimings.PHASE_THEME);
+                    startupStep = STARTUP_MENU;
+                }
+                break;
+            case STARTUP_MENU:
+                finishStartup();
+                startupTimings.mark(StartupTimings.PHASE_MENU);
+                startupStep = STARTUP_LOAD_SOUNDS;
+                break;
+            case STARTUP_LOAD_SOUNDS:
+                if (allLoaded) {
+                    initGameSounds();
+                    startupStep = STARTUP_DONE;
+                }
+                break;
+        }
+    }
+
+    /**
+     * marks the phases that end outside of the startup steps
+     */
+    private void updateStartupTimings() {
+        if (startupStep <= STARTUP_MENU)
+            return;
+
+        // vor der Prüfung auf die Antwort lesen, damit eine gerade eingetroffene nicht verpasst wird
+        boolean fetchingWelcomes = backendManager.isFetchingWelcomes();
+
+        // der Frame, in dem das Menü angezeigt wurde, ist gerade gezeichnet
+        if (!startupTimings.hasPhase(StartupTimings.PHASE_FIRST_FRAME))
+            startupTimings.mark(StartupTimings.PHASE_FIRST_FRAME);
+        // wird nur vom Callback einer erfolgreichen Anfrage gesetzt. Gemessen auf den Frame genau
+        else if (!startupTimings.hasPhase(StartupTimings.PHASE_WELCOME) && backendManager.hasLastWelcomeResponse())
+            startupTimings.mark(StartupTimings.PHASE_WELCOME);
+
+        // ohne laufende Anfrage kommt keine Antwort mehr, die Phase fehlt dann
+        if (startupStep == STARTUP_DONE && startupTimings.hasPhase(StartupTimings.PHASE_FIRST_FRAME)
+                && !fetchingWelcomes) {
+            startupTimings.finish();
+            Gdx.app.log(StartupTimings.LOG_TAG, startupTimings.toString());
+        }
+    }
+
+    /**
+     * @return progress of the startup until the menu is shown, 0..1
+     */
+    public float getStartupProgress() {
+        if (startupStep == STARTUP_LOAD_UI)
+            return assetManager.getProgress() * STARTUP_LOAD_UI_SHARE;
+
+        float stepsDone = (float) (startupStep - STARTUP_LOAD_UI) / (STARTUP_LOAD_SOUNDS - STARTUP_LOAD_UI);
+        return Math.min(1f, STARTUP_LOAD_UI_SHARE + (1f - STARTUP_LOAD_UI_SHARE) * stepsDone);
     }
 
     @Override
     public void render() {
+        if (startupStep != STARTUP_DONE)
+            updateAssetLoading();
+
         super.render(); //important!
+
+        if (!startupTimings.isFinished())
+            updateStartupTimings();
+        localPrefs.update();
         if (GAME_DEVMODE && fpsLogger != null)
             fpsLogger.log();
     }
@@ -306,6 +437,8 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
     @Override
     public void pause() {
         super.pause();
+        localPrefs.commit();
+        localPrefs.waitForPendingWrites();
 
         if (gpgsClient != null)
             gpgsClient.pauseSession();
@@ -337,12 +470,19 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
                 e.printStackTrace();
             }
 
-        mainMenuScreen.dispose();
-        skin.dispose();
+        if (mainMenuScreen != null)
+            mainMenuScreen.dispose();
+        if (skin != null)
+            skin.dispose();
+        if (theme != null)
+            theme.dispose();
 
         if (purchaseManager != null) {
             purchaseManager.dispose();
         }
+
+        localPrefs.commit();
+        localPrefs.dispose();
     }
 
     @Override
@@ -355,7 +495,9 @@ public class LightBlocksGame extends Game implements IGameServiceListener, IPush
         Gdx.app.postRunnable(new Runnable() {
             @Override
             public void run() {
-                mainMenuScreen.refreshAccountInfo();
+                // während des Starts noch kein Menü vorhanden
+                if (mainMenuScreen != null)
+                    mainMenuScreen.refreshAccountInfo();
                 //beim ersten Connect Spielstand laden (wenn vorhanden)
                 // War zuerst in GpgsConnect, es wurde aber der allerste Login nicht mehr automatisch gesetzt.
                 // (obwohl das Willkommen... Schild kam)
@@ -0,0 +1,93 @@
+package de.golfgl.lightblocks;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Timestamps the phases of the startup, from {@link LightBlocksGame#create()} until the first menu frame is drawn and
+ * the assets and welcome messages loaded in the background are there. A phase's duration is the time since the
+ * previous phase ended.
+ * <p>
+ * Logged when finished, measured repeatedly by the desktop StartupBenchmark.
+ */
+public class StartupTimings {
+    public static final String LOG_TAG = "Startup";
+    public static final String PHASE_PREFS = "prefs";
+    public static final String PHASE_BACKEND = "backend";
+    public static final String PHASE_ANALYTICS = "analytics";
+    public static final String PHASE_GAME_SERVICES = "gameServices";
+    public static final String PHASE_UI_ASSETS = "uiAssets";
+    public static final String PHASE_SKIN = "skin";
+    public static final String PHASE_THEME = "theme";
+    public static final String PHASE_SAVEGAME = "savegame";
+    public static final String PHASE_MENU = "menu";
+    public static final String PHASE_FIRST_FRAME = "firstFrame";
+    public static final String PHASE_GAME_SOUNDS = "gameSounds";
+    // only recorded when a welcome request was answered successfully
+    public static final String PHASE_WELCOME = "welcome";
+
+    private final long startNanos = TimeUtils.nanoTime();
+    private final Array<String> phases = new Array<>();
+    private final LongArray phaseEndNanos = new LongArray();
+    private boolean finished;
+
+    /**
+     * ends the given phase now
+     */
+    public void mark(String phase) {
+        if (finished)
+            return;
+
+        phases.add(phase);
+        phaseEndNanos.add(TimeUtils.nanoTime() - startNanos);
+    }
+
+    public boolean hasPhase(String phase) {
+        return phases.contains(phase, false);
+    }
+
+    /**
+     * no more phases are recorded afterwards
+     */
+    public void finish() {
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getPhaseCount() {
+        return phases.size;
+    }
+
+    public String getPhaseName(int i) {
+        return phases.get(i);
+    }
+
+    /**
+     * @return duration of the phase in ms
+     */
+    public float getPhaseMs(int i) {
+        return (phaseEndNanos.get(i) - (i > 0 ? phaseEndNanos.get(i - 1) : 0)) / 1000000f;
+    }
+
+    /**
+     * @return time from the start until the phase ended in ms
+     */
+    public float getElapsedMs(int i) {
+        return phaseEndNanos.get(i) / 1000000f;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < phases.size; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(phases.get(i)).append(' ').append((int) getPhaseMs(i)).append("ms");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,279 @@
+package de.golfgl.lightblocks.backend;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/**
+ * Size-bounded disk cache for backend GET responses, least recently used entries are removed first. ETag and
+ * Last-Modified of a response are kept for revalidation.
+ * <p>
+ * All disk access runs on the cache's own thread in the order the calls were made, so neither the render thread nor
+ * the network thread waits for the files. Lookups answer on that thread. Without local storage (web) the cache is
+ * disabled.
+ */
+class BackendCache {
+    private static final String LOG_TAG = "BACKEND";
+    private static final String CACHE_DIR = "cache/backend/";
+    private static final String INDEX_FILE = CACHE_DIR + "index.json";
+
+    private final long maxBytes;
+    private final AsyncExecutor executor = new AsyncExecutor(1, "BackendCache");
+    // only accessed on the executor's thread
+    private ObjectMap<String, Entry> entries;
+    private long totalBytes;
+    // access order changed by lookups, saved once for all lookups waiting in the queue
+    private boolean indexSaveScheduled;
+
+    BackendCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    boolean isEnabled() {
+        return Gdx.files != null && Gdx.files.isLocalStorageAvailable();
+    }
+
+    /**
+     * looks up the cached response for the key in background. Counts as an access for the LRU order.
+     */
+    void lookup(final String key, final LookupListener listener) {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                Entry entry = get(key);
+                String response = entry != null ? read(entry) : null;
+                listener.onLookup(response != null ? entry : null, response);
+            }
+        });
+    }
+
+    void put(final String key, final String response, final String eTag, final String lastModified) {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                store(key, response, eTag, lastModified);
+            }
+        });
+    }
+
+    /**
+     * the backend confirmed the cached response is still valid
+     */
+    void touch(final String key) {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                loadIndex();
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    entry.storedMs = TimeUtils.millis();
+                    saveIndex();
+                }
+            }
+        });
+    }
+
+    void remove(final String key) {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                loadIndex();
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    removeEntry(entry);
+                    saveIndex();
+                }
+            }
+        });
+    }
+
+    private void submit(final Runnable runnable) {
+        executor.submit(new AsyncTask<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    Gdx.app.error(LOG_TAG, "Error in backend cache", t);
+                }
+                return null;
+            }
+        });
+    }
+
+    private Entry get(String key) {
+        loadIndex();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.lastAccessMs = TimeUtils.millis();
+            scheduleIndexSave();
+        }
+        return entry;
+    }
+
+    private void scheduleIndexSave() {
+        if (indexSaveScheduled)
+            return;
+
+        indexSaveScheduled = true;
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                if (indexSaveScheduled)
+                    saveIndex();
+            }
+        });
+    }
+
+    /**
+     * @return the cached response, or null if it could not be read
+     */
+    private String read(Entry entry) {
+        try {
+            return getFile(entry).readString("UTF-8");
+        } catch (Throwable t) {
+            Gdx.app.error(LOG_TAG, "Could not read cached response " + entry.key, t);
+            removeEntry(entry);
+            saveIndex();
+            return null;
+        }
+    }
+
+    private void store(String key, String response, String eTag, String lastModified) {
+        loadIndex();
+        Entry entry = entries.get(key);
+        if (entry != null)
+            removeEntry(entry);
+
+        int length = response.length();
+        // very large responses (replays) would flush the whole cache
+        if (length > maxBytes / 4) {
+            saveIndex();
+            return;
+        }
+
+        entry = new Entry();
+        entry.key = key;
+        entry.fileName = Integer.toHexString(key.hashCode()) + "_" + Integer.toHexString(key.length());
+        entry.eTag = eTag;
+        entry.lastModified = lastModified;
+        entry.storedMs = TimeUtils.millis();
+        entry.lastAccessMs = entry.storedMs;
+        entry.length = length;
+
+        try {
+            getFile(entry).writeString(response, false, "UTF-8");
+        } catch (Throwable t) {
+            Gdx.app.error(LOG_TAG, "Could not write cached response " + key, t);
+            saveIndex();
+            return;
+        }
+
+        // a hash collision overwrites the other entry's file
+        for (ObjectMap.Entries<String, Entry> it = entries.entries(); it.hasNext(); ) {
+            Entry other = it.next().value;
+            if (other.fileName.equals(entry.fileName)) {
+                totalBytes -= other.length;
+                it.remove();
+            }
+        }
+
+        entries.put(key, entry);
+        totalBytes += length;
+        evict();
+        saveIndex();
+    }
+
+    private void evict() {
+        while (totalBytes > maxBytes && entries.size > 0) {
+            Entry oldest = null;
+            for (Entry entry : entries.values()) {
+                if (oldest == null || entry.lastAccessMs < oldest.lastAccessMs)
+                    oldest = entry;
+            }
+            removeEntry(oldest);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        entries.remove(entry.key);
+        totalBytes -= entry.length;
+        try {
+            getFile(entry).delete();
+        } catch (Throwable t) {
+            // not critical, will be overwritten by the next put
+        }
+    }
+
+    private FileHandle getFile(Entry entry) {
+        return Gdx.files.local(CACHE_DIR + entry.fileName);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadIndex() {
+        if (entries != null)
+            return;
+
+        entries = new ObjectMap<String, Entry>();
+        totalBytes = 0;
+        FileHandle indexFile = Gdx.files.local(INDEX_FILE);
+        if (!indexFile.exists())
+            return;
+
+        try {
+            Array<Entry> loaded = new Json().fromJson(Array.class, Entry.class, indexFile);
+            for (Entry entry : loaded) {
+                entries.put(entry.key, entry);
+                totalBytes += entry.length;
+            }
+        } catch (Throwable t) {
+            Gdx.app.error(LOG_TAG, "Could not read cache index - resetting.", t);
+            entries.clear();
+            totalBytes = 0;
+            Gdx.files.local(CACHE_DIR).deleteDirectory();
+        }
+    }
+
+    private void saveIndex() {
+        // includes the access order of lookups so far
+        indexSaveScheduled = false;
+        Array<Entry> toSave = entries.values().toArray();
+        try {
+            Json json = new Json();
+            json.setOutputType(JsonWriter.OutputType.minimal);
+            json.toJson(toSave, Array.class, Entry.class, Gdx.files.local(INDEX_FILE));
+        } catch (Throwable t) {
+            Gdx.app.error(LOG_TAG, "Could not write cache index", t);
+        }
+    }
+
+    interface LookupListener {
+        /**
+         * called on the cache's thread
+         *
+         * @param entry    null if nothing is cached for the key
+         * @param response null if nothing is cached for the key
+         */
+        void onLookup(Entry entry, String response);
+    }
+
+    static class Entry {
+        String key;
+        String fileName;
+        String eTag;
+        String lastModified;
+        long storedMs;
+        long lastAccessMs;
+        int length;
+
+        long getAgeMs() {
+            return TimeUtils.timeSinceMillis(storedMs);
+        }
+    }
+}
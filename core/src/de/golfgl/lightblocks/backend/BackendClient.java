@@ -28,9 +28,31 @@ public class BackendClient {
     public static final int SC_NO_CONNECTION = 0;
     private static final String BASE_URL = "https://lightblocks-backend.golfgl.de";
     private static final String LOG_TAG = "BACKEND";
+    private static final long CACHE_MAX_BYTES = 1024 * 1024;
+    // cached responses older than this are not shown before revalidation
+    private static final long CACHE_MAX_STALE_MS = 1000L * 60 * 60 * 24 * 7;
+    private static final int CACHE_MAX_AGE_SECONDS_PLAYER = 60;
+    private static final int CACHE_MAX_AGE_SECONDS_SCORES = 60 * 5;
+    private static final int CACHE_MAX_AGE_SECONDS_REPLAY = 60 * 60 * 24;
+    // more parallel requests only slow each other down on mobile networks
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+    private final BackendCache cache = new BackendCache(CACHE_MAX_BYTES);
+    private final BackendRequestQueue requestQueue = new BackendRequestQueue(MAX_CONCURRENT_REQUESTS);
+    private final String baseUrl;
     private String userId;
     private String userPass;
 
+    public BackendClient() {
+        this(BASE_URL);
+    }
+
+    /**
+     * @param baseUrl backend to use instead of the real one, e.g. a local stand-in for tests
+     */
+    public BackendClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -70,7 +92,7 @@ public class BackendClient {
         final Net.HttpRequest httpRequest = buildRequest("v1/player/" + playerId, params);
         httpRequest.setMethod(Net.HttpMethods.GET);
 
-        Gdx.net.sendHttpRequest(httpRequest, new HttpResponseHandler<PlayerDetails>(callback) {
+        sendCachedRequest(httpRequest, CACHE_MAX_AGE_SECONDS_PLAYER, new HttpResponseHandler<PlayerDetails>(callback) {
             @Override
             PlayerDetails parseJsonResponse(JsonValue json) {
                 return new PlayerDetails(json);
@@ -82,7 +104,7 @@ public class BackendClient {
         final Net.HttpRequest httpRequest = buildRequest("v1/replay/" + replayUri, null);
         httpRequest.setMethod(Net.HttpMethods.GET);
 
-        Gdx.net.sendHttpRequest(httpRequest, new HttpResponseHandler<String>(callback) {
+        sendCachedRequest(httpRequest, CACHE_MAX_AGE_SECONDS_REPLAY, new HttpResponseHandler<String>(callback) {
             @Override
             String parseJsonResponse(JsonValue json) {
                 return json.getString("replay", null);
@@ -95,7 +117,7 @@ public class BackendClient {
         final Net.HttpRequest httpRequest = buildRequest("v1/nickname/" + nickname, null);
         httpRequest.setMethod(Net.HttpMethods.GET);
 
-        Gdx.net.sendHttpRequest(httpRequest, new HttpResponseHandler<List<PlayerDetails>>(callback) {
+        sendRequest(httpRequest, new HttpResponseHandler<List<PlayerDetails>>(callback) {
             @Override
             List<PlayerDetails> parseJsonResponse(JsonValue json) {
                 List<PlayerDetails> playersList = new ArrayList<PlayerDetails>();
@@ -113,7 +135,8 @@ public class BackendClient {
         final Net.HttpRequest httpRequest = buildRequest("v1/matches/strongestPlayers", null);
         httpRequest.setMethod(Net.HttpMethods.GET);
 
-        Gdx.net.sendHttpRequest(httpRequest, new HttpResponseHandler<List<PlayerDetails>>(callback) {
+        sendCachedRequest(httpRequest, CACHE_MAX_AGE_SECONDS_SCORES,
+                new HttpResponseHandler<List<PlayerDetails>>(callback) {
             @Override
             List<PlayerDetails> parseJsonResponse(JsonValue json) {
                 List<PlayerDetails> playersList = new ArrayList<PlayerDetails>();
@@ -131,7 +154,7 @@ public class BackendClient {
         final Net.HttpRequest httpRequest = buildRequest("v1/matches/similarStrengthPlayers/" + userId, null);
         httpRequest.setMethod(Net.HttpMethods.GET);
 
-        Gdx.net.sendHttpRequest(httpRequest, new HttpResponseHandler<List<RankedPlayerDetails>>(callback) {
+        sendRequest(httpRequest, new HttpResponseHandler<List<RankedPlayerDetails>>(callback) {
             @Override
             List<RankedPlayerDetails> parseJsonResponse(JsonValue json) {
                 List<RankedPlayerDetails> playersList = new ArrayList<>();
@@ -155,11 +178,11 @@ public class BackendClient {
 
     private void fetchScores(final String gameMode, final boolean latest, IBackendResponse<List<ScoreListEntry>>
             callback) {
-        final Net.HttpRequest httpRequest = buildRequest("v1/scores/" + gameMode + (latest ? "/latest" : "/best"),
-                null);
+        final Net.HttpRequest httpRequest = buildRequest(getScoresUri(gameMode, latest), null);
         httpRequest.setMethod(Net.HttpMethods.GET);
 
-        Gdx.net.sendHttpRequest(httpRequest, new HttpResponseHandler<List<ScoreListEntry>>(callback) {
+        sendCachedRequest(httpRequest, CACHE_MAX_AGE_SECONDS_SCORES,
+                new HttpResponseHandler<List<ScoreListEntry>>(callback) {
             @Override
             List<ScoreListEntry> parseJsonResponse(JsonValue json) {
                 List<ScoreListEntry> scoreList = new ArrayList<ScoreListEntry>();
@@ -176,6 +199,20 @@ public class BackendClient {
 
     }
 
+    private static String getScoresUri(String gameMode, boolean latest) {
+        return "v1/scores/" + gameMode + (latest ? "/latest" : "/best");
+    }
+
+    /**
+     * removes the cached scoreboards of the game mode, e.g. after an own score was posted
+     */
+    public void invalidateCachedScores(String gameMode) {
+        if (cache.isEnabled()) {
+            cache.remove(buildUrl(getScoresUri(gameMode, true), null));
+            cache.remove(buildUrl(getScoresUri(gameMode, false), null));
+        }
+    }
+
     public void fetchWelcomeMessages(int clientVersion, String logicalPlatform, String operatingSystem, long
             drawnBlocks, int donatorState, long lastRequestMs, String pushPlatformId, String pushToken,
                                      IBackendResponse<BackendWelcomeResponse> callback) {
@@ -200,7 +237,7 @@ public class BackendClient {
         final Net.HttpRequest httpRequest = buildRequest("v1/listservers", params);
         httpRequest.setMethod(Net.HttpMethods.GET);
 
-        Gdx.net.sendHttpRequest(httpRequest, new HttpResponseHandler<List<ServerAddress>>(callback) {
+        sendRequest(httpRequest, new HttpResponseHandler<List<ServerAddress>>(callback) {
             @Override
             List<ServerAddress> parseJsonResponse(JsonValue json) {
                 List<ServerAddress> serverList = new ArrayList<>();
@@ -224,6 +261,18 @@ public class BackendClient {
         }).cancelled();
     }
 
+    /**
+     * posts several scores with one request. The backend accepts or rejects them together.
+     */
+    public void postScores(Array<BackendScore> scores, IBackendResponse<Void> callback) {
+        (new HttpResponseHandler<Void>(callback) {
+            @Override
+            Void parseJsonResponse(JsonValue json) {
+                return null;
+            }
+        }).cancelled();
+    }
+
     /**
      * Ein Parameter sollte nicht null sein, alle anderen können null sein
      */
@@ -333,17 +382,82 @@ public class BackendClient {
     }
 
     protected Net.HttpRequest buildRequest(String uri, @Nullable Map<String, String> params) {
+        final Net.HttpRequest http = new Net.HttpRequest();
+        String url = buildUrl(uri, params);
+        http.setUrl(url);
+        Gdx.app.debug(LOG_TAG, url.substring(baseUrl.length()));
+        return http;
+    }
+
+    private String buildUrl(String uri, @Nullable Map<String, String> params) {
         if (!uri.startsWith("/"))
             uri = "/" + uri;
 
-        final Net.HttpRequest http = new Net.HttpRequest();
         String paramString = params != null ? HttpParametersUtils.convertHttpParameters(params) : "";
         if (paramString.length() > 0)
             uri = uri + "?" + paramString;
 
-        http.setUrl(BASE_URL + uri);
-        Gdx.app.debug(LOG_TAG, uri);
-        return http;
+        return baseUrl + uri;
+    }
+
+    private void sendRequest(Net.HttpRequest httpRequest, Net.HttpResponseListener listener) {
+        requestQueue.send(httpRequest, BackendRequestQueue.PRIORITY_NORMAL, listener);
+    }
+
+    /**
+     * Sends a GET request, answered from the disk cache when possible (stale-while-revalidate): A cached response
+     * younger than maxAgeSeconds is used without a request. An older one is used as well and revalidated in
+     * background for the next call. Cached responses older than a week are only used when the backend is not
+     * reachable.
+     */
+    private <T> void sendCachedRequest(final Net.HttpRequest httpRequest, final int maxAgeSeconds,
+                                       final HttpResponseHandler<T> handler) {
+        if (!cache.isEnabled()) {
+            sendRequest(httpRequest, handler);
+            return;
+        }
+
+        // the cached response is read in background, the request is sent from there
+        final String cacheKey = httpRequest.getUrl();
+        cache.lookup(cacheKey, new BackendCache.LookupListener() {
+            @Override
+            public void onLookup(BackendCache.Entry entry, String cachedResponse) {
+                sendCachedRequest(httpRequest, maxAgeSeconds, handler, cacheKey, entry, cachedResponse);
+            }
+        });
+    }
+
+    private <T> void sendCachedRequest(Net.HttpRequest httpRequest, int maxAgeSeconds,
+                                       final HttpResponseHandler<T> handler, String cacheKey,
+                                       BackendCache.Entry entry, final String cachedResponse) {
+        if (cachedResponse == null) {
+            handler.cacheKey = cacheKey;
+            sendRequest(httpRequest, handler);
+            return;
+        }
+
+        if (entry.eTag != null)
+            httpRequest.setHeader("If-None-Match", entry.eTag);
+        if (entry.lastModified != null)
+            httpRequest.setHeader("If-Modified-Since", entry.lastModified);
+
+        if (entry.getAgeMs() <= CACHE_MAX_STALE_MS) {
+            // like a response from the network, on the render thread
+            Gdx.app.postRunnable(new Runnable() {
+                @Override
+                public void run() {
+                    handler.handleResponse(HttpStatus.SC_OK, cachedResponse);
+                }
+            });
+
+            if (entry.getAgeMs() > maxAgeSeconds * 1000L)
+                requestQueue.send(httpRequest, BackendRequestQueue.PRIORITY_LOW,
+                        new CacheRevalidationHandler(cacheKey));
+        } else {
+            handler.cacheKey = cacheKey;
+            handler.cachedResponse = cachedResponse;
+            sendRequest(httpRequest, handler);
+        }
     }
 
     public interface IBackendResponse<T> {
@@ -367,6 +481,12 @@ public class BackendClient {
 
     private abstract class HttpResponseHandler<T> implements Net.HttpResponseListener {
         private final IBackendResponse<T> callback;
+        // set for requests that should be stored in the cache
+        private String cacheKey;
+        // outdated cached response, used when the backend is not reachable or answers "not modified"
+        private String cachedResponse;
+        private String eTag;
+        private String lastModified;
 
         public HttpResponseHandler(IBackendResponse<T> callback) {
             this.callback = callback;
@@ -378,11 +498,30 @@ public class BackendClient {
         public void handleHttpResponse(Net.HttpResponse httpResponse) {
             String result = httpResponse.getResultAsString();
             int statusCode = httpResponse.getStatus().getStatusCode();
+
+            if (cacheKey != null && statusCode == HttpStatus.SC_OK) {
+                eTag = httpResponse.getHeader("ETag");
+                lastModified = httpResponse.getHeader("Last-Modified");
+            } else if (cachedResponse != null && (statusCode == HttpStatus.SC_NOT_MODIFIED || statusCode <= 0)) {
+                if (statusCode == HttpStatus.SC_NOT_MODIFIED)
+                    cache.touch(cacheKey);
+                cacheKey = null;
+                statusCode = HttpStatus.SC_OK;
+                result = cachedResponse;
+            }
+
+            handleResponse(statusCode, result);
+        }
+
+        void handleResponse(int statusCode, String result) {
             if (statusCode == HttpStatus.SC_OK) {
                 try {
                     JsonValue response = new JsonReader().parse(result);
+                    T parsed = parseJsonResponse(response);
+                    if (cacheKey != null)
+                        cache.put(cacheKey, result, eTag, lastModified);
                     if (callback != null)
-                        callback.onSuccess(parseJsonResponse(response));
+                        callback.onSuccess(parsed);
                 } catch (Throwable t) {
                     Gdx.app.log(LOG_TAG, "Could not parse answer: " + result, t);
                     if (callback != null)
@@ -412,7 +551,11 @@ public class BackendClient {
         @Override
         public void failed(Throwable t) {
             Gdx.app.error(LOG_TAG, t.getMessage(), t);
-            callback.onFail(SC_NO_CONNECTION, t.getMessage());
+            if (cachedResponse != null) {
+                cacheKey = null;
+                handleResponse(HttpStatus.SC_OK, cachedResponse);
+            } else
+                callback.onFail(SC_NO_CONNECTION, t.getMessage());
         }
 
         @Override
@@ -421,6 +564,45 @@ public class BackendClient {
         }
     }
 
+    /**
+     * stores the response of a revalidation request in the cache, without parsing it
+     */
+    private class CacheRevalidationHandler implements Net.HttpResponseListener {
+        private final String cacheKey;
+
+        CacheRevalidationHandler(String cacheKey) {
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        public void handleHttpResponse(Net.HttpResponse httpResponse) {
+            int statusCode = httpResponse.getStatus().getStatusCode();
+            if (statusCode == HttpStatus.SC_NOT_MODIFIED)
+                cache.touch(cacheKey);
+            else if (statusCode == HttpStatus.SC_OK) {
+                String result = httpResponse.getResultAsString();
+                try {
+                    new JsonReader().parse(result);
+                    cache.put(cacheKey, result, httpResponse.getHeader("ETag"),
+                            httpResponse.getHeader("Last-Modified"));
+                } catch (Throwable t) {
+                    Gdx.app.log(LOG_TAG, "Could not parse answer: " + result, t);
+                }
+            } else if (statusCode > 0)
+                cache.remove(cacheKey);
+        }
+
+        @Override
+        public void failed(Throwable t) {
+            // stays cached, will be revalidated next time
+        }
+
+        @Override
+        public void cancelled() {
+            // stays cached
+        }
+    }
+
     private class PlayerCreatedResponseHandler extends HttpResponseHandler<PlayerCreatedInfo> {
 
         public PlayerCreatedResponseHandler(IBackendResponse<PlayerCreatedInfo> callback) {
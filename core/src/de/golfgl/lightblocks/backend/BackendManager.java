@@ -36,6 +36,13 @@ public class BackendManager {
 
     public static final String PUSH_PAYLOAD_MULTIPLAYER = "multiplayer";
 
+    // nicht hochgeladene Scores werden so lange aufgehoben
+    private static final long SCORE_MAX_AGE_MS = 1000L * 60 * 60 * 24 * 7;
+    private static final int MAX_ENQUEUED_SCORES = 100;
+    private static final int MAX_SCORES_PER_REQUEST = 20;
+    private static final int SCORE_RETRY_MIN_SECONDS = 5;
+    private static final int SCORE_RETRY_MAX_SECONDS = 60 * 10;
+
     private final LocalPrefs prefs;
     private final Queue<BackendScore> enqueuedScores = new Queue<BackendScore>();
     private final String platformString;
@@ -45,7 +52,9 @@ public class BackendManager {
     private final HashMap<String, CachedScoreboard> bestScores = new HashMap<String, CachedScoreboard>();
     private Array<MatchEntity> multiplayerMatchesList;
     private boolean authenticated;
-    private BackendScore currentlySendingScore;
+    private final Array<BackendScore> currentlySendingScores = new Array<BackendScore>();
+    private int scoreUploadFailures;
+    private Timer.Task scoreRetryTask;
     private BackendWelcomeResponse lastWelcomeResponse;
     private boolean isFetchingWelcomes;
     private boolean isFetchingMultiplayerServers;
@@ -93,6 +102,20 @@ public class BackendManager {
         }
 
         fetchWelcomesSinceTime = prefs.getWelcomeMessagesTime();
+
+        // beim letzten Mal nicht hochgeladene Scores, im Hintergrund geladen
+        prefs.loadScoresToUpload(new LocalPrefs.ScoresToUploadListener() {
+            @Override
+            public void onScoresLoaded(Array<BackendScore> scores) {
+                synchronized (enqueuedScores) {
+                    // vor die inzwischen eingereihten, die sind neuer
+                    for (int i = scores.size - 1; i >= 0; i--)
+                        enqueuedScores.addFirst(scores.get(i));
+                }
+                if (scores.size > 0)
+                    sendEnqueuedScores();
+            }
+        });
     }
 
     @Nonnull
@@ -370,7 +393,7 @@ public class BackendManager {
 
     public boolean isSendingScore() {
         synchronized (enqueuedScores) {
-            return currentlySendingScore != null;
+            return currentlySendingScores.size > 0;
         }
     }
 
@@ -379,7 +402,7 @@ public class BackendManager {
      */
     public boolean hasScoreEnqueued() {
         synchronized (enqueuedScores) {
-            return (currentlySendingScore != null || enqueuedScores.size > 0);
+            return (currentlySendingScores.size > 0 || enqueuedScores.size > 0);
         }
     }
 
@@ -394,8 +417,12 @@ public class BackendManager {
             return;
 
         synchronized (enqueuedScores) {
-            enqueuedScores.addLast(score);
             score.scoreGainedMillis = TimeUtils.millis();
+            enqueuedScores.addLast(score);
+            prefs.addScoreToUpload(score);
+
+            while (enqueuedScores.size > MAX_ENQUEUED_SCORES)
+                prefs.removeScoreToUpload(enqueuedScores.removeFirst());
         }
         sendEnqueuedScores();
     }
@@ -421,38 +448,57 @@ public class BackendManager {
     }
 
     /**
+     * sendet die eingereihten Scores sofort, auch wenn ein erneuter Versuch nach Fehler geplant ist.
      * Nur im Main Thread!
      */
     public void sendEnqueuedScores() {
+        if (scoreRetryTask != null) {
+            scoreRetryTask.cancel();
+            scoreRetryTask = null;
+        }
+
         synchronized (enqueuedScores) {
-            // ältere als 4 Stunden nicht absenden, sondern aussortieren
+            // zu alte nicht absenden, sondern aussortieren
             while (enqueuedScores.size >= 1 && TimeUtils.timeSinceMillis(enqueuedScores.first()
-                    .scoreGainedMillis) / 1000 > 60 * 60 * 4)
-                enqueuedScores.removeFirst();
+                    .scoreGainedMillis) > SCORE_MAX_AGE_MS)
+                prefs.removeScoreToUpload(enqueuedScores.removeFirst());
 
-            if (backendClient.hasUserId() && currentlySendingScore == null && enqueuedScores.size >= 1) {
-                currentlySendingScore = enqueuedScores.removeFirst();
+            if (backendClient.hasUserId() && currentlySendingScores.size == 0 && enqueuedScores.size >= 1) {
+                while (enqueuedScores.size >= 1 && currentlySendingScores.size < MAX_SCORES_PER_REQUEST)
+                    currentlySendingScores.add(enqueuedScores.removeFirst());
 
-                backendClient.postScore(currentlySendingScore, new BackendClient.IBackendResponse<Void>() {
+                backendClient.postScores(currentlySendingScores, new BackendClient.IBackendResponse<Void>() {
                     @Override
                     public void onFail(int statusCode, String errorMsg) {
                         // Ein Fehler ist irgendeine Art von Server- oder Verbindungsfehler (das Backend nimmt alle
-                        // Scores mit 200 an). Daher wieder einreihen für den nächsten Versuch, aber ans Ende
-                        synchronized (enqueuedScores) {
-                            // wieder zurück in die Queue und ein andermal probieren
-                            enqueuedScores.addLast(currentlySendingScore);
-                            currentlySendingScore = null;
-                        }
+                        // Scores mit 200 an). Daher wieder einreihen und später erneut probieren
+                        Gdx.app.postRunnable(new Runnable() {
+                            @Override
+                            public void run() {
+                                synchronized (enqueuedScores) {
+                                    for (int i = currentlySendingScores.size - 1; i >= 0; i--)
+                                        enqueuedScores.addFirst(currentlySendingScores.get(i));
+                                    currentlySendingScores.clear();
+                                }
+                                scheduleScoreRetry();
+                            }
+                        });
                     }
 
                     @Override
                     public void onSuccess(Void retrievedData) {
-                        // und weiter mit dem nächsten Score in der Queue
+                        // und weiter mit den nächsten Scores in der Queue
                         Gdx.app.postRunnable(new Runnable() {
                             @Override
                             public void run() {
-                                invalidateScoreboardCache(currentlySendingScore.gameMode);
-                                currentlySendingScore = null;
+                                synchronized (enqueuedScores) {
+                                    for (BackendScore sentScore : currentlySendingScores) {
+                                        invalidateScoreboardCache(sentScore.gameMode);
+                                        prefs.removeScoreToUpload(sentScore);
+                                    }
+                                    currentlySendingScores.clear();
+                                    scoreUploadFailures = 0;
+                                }
                                 sendEnqueuedScores();
                             }
                         });
@@ -462,10 +508,27 @@ public class BackendManager {
         }
     }
 
+    private void scheduleScoreRetry() {
+        if (scoreRetryTask != null)
+            return;
+
+        // exponentielles Backoff, damit bei fehlender Verbindung nicht ständig gesendet wird
+        int delaySeconds = SCORE_RETRY_MIN_SECONDS << Math.min(scoreUploadFailures, 10);
+        scoreUploadFailures++;
+        scoreRetryTask = Timer.schedule(new Timer.Task() {
+            @Override
+            public void run() {
+                scoreRetryTask = null;
+                sendEnqueuedScores();
+            }
+        }, Math.min(delaySeconds, SCORE_RETRY_MAX_SECONDS));
+    }
+
     protected void invalidateScoreboardCache(String gameMode) {
         // invalidate eines caches
         getCachedScoreboard(gameMode, true).setExpired();
         getCachedScoreboard(gameMode, false).setExpired();
+        backendClient.invalidateCachedScores(gameMode);
     }
 
     public String getPlatformString() {
@@ -0,0 +1,231 @@
+package de.golfgl.lightblocks.backend;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Net;
+import com.badlogic.gdx.net.HttpStatus;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends the http requests of the {@link BackendClient}. Identical GET requests are sent only once while in flight and
+ * answered together, at most maxConcurrent requests run at the same time and waiting requests are sent by priority.
+ * <p>
+ * Responses arrive on the network thread, so the queue is synchronized.
+ */
+class BackendRequestQueue {
+    /**
+     * uploads that should not wait behind refreshes
+     */
+    static final int PRIORITY_HIGH = 2;
+    static final int PRIORITY_NORMAL = 1;
+    /**
+     * background requests nobody waits for
+     */
+    static final int PRIORITY_LOW = 0;
+
+    private final int maxConcurrent;
+    private final Array<QueuedRequest> waiting = new Array<QueuedRequest>();
+    // GET requests waiting or in flight, by url and headers
+    private final ObjectMap<String, QueuedRequest> coalescable = new ObjectMap<String, QueuedRequest>();
+    private int runningCount;
+
+    BackendRequestQueue(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    void send(Net.HttpRequest httpRequest, int priority, Net.HttpResponseListener listener) {
+        QueuedRequest toSend;
+        synchronized (this) {
+            String key = Net.HttpMethods.GET.equals(httpRequest.getMethod()) ? getKey(httpRequest) : null;
+            QueuedRequest queued = key != null ? coalescable.get(key) : null;
+
+            if (queued != null) {
+                queued.listeners.add(listener);
+                if (priority > queued.priority && !queued.running) {
+                    waiting.removeValue(queued, true);
+                    queued.priority = priority;
+                    addWaiting(queued);
+                }
+                return;
+            }
+
+            queued = new QueuedRequest(key, httpRequest, priority);
+            queued.listeners.add(listener);
+            if (key != null)
+                coalescable.put(key, queued);
+
+            if (runningCount >= maxConcurrent) {
+                addWaiting(queued);
+                return;
+            }
+
+            toSend = queued;
+            toSend.running = true;
+            runningCount++;
+        }
+
+        sendHttpRequest(toSend);
+    }
+
+    synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    synchronized int getWaitingCount() {
+        return waiting.size;
+    }
+
+    private static String getKey(Net.HttpRequest httpRequest) {
+        Map<String, String> headers = httpRequest.getHeaders();
+        if (headers.isEmpty())
+            return httpRequest.getUrl();
+
+        // conditional requests must not be answered with a response for an unconditional one
+        StringBuilder key = new StringBuilder(httpRequest.getUrl());
+        for (Map.Entry<String, String> header : headers.entrySet())
+            key.append('\n').append(header.getKey()).append(':').append(header.getValue());
+        return key.toString();
+    }
+
+    private void addWaiting(QueuedRequest queued) {
+        // same priority: first come, first served
+        int index = 0;
+        while (index < waiting.size && waiting.get(index).priority >= queued.priority)
+            index++;
+        waiting.insert(index, queued);
+    }
+
+    /**
+     * @return the listeners to answer
+     */
+    private Array<Net.HttpResponseListener> finish(QueuedRequest finished) {
+        QueuedRequest next = null;
+        Array<Net.HttpResponseListener> listeners;
+        synchronized (this) {
+            if (finished.key != null && coalescable.get(finished.key) == finished)
+                coalescable.remove(finished.key);
+            listeners = finished.listeners;
+            runningCount--;
+
+            if (waiting.size > 0 && runningCount < maxConcurrent) {
+                next = waiting.removeIndex(0);
+                next.running = true;
+                runningCount++;
+            }
+        }
+
+        if (next != null)
+            sendHttpRequest(next);
+
+        return listeners;
+    }
+
+    private void sendHttpRequest(QueuedRequest queued) {
+        try {
+            Gdx.net.sendHttpRequest(queued.httpRequest, queued);
+        } catch (Throwable t) {
+            // releases the slot and answers the listeners
+            queued.failed(t);
+        }
+    }
+
+    private class QueuedRequest implements Net.HttpResponseListener {
+        final String key;
+        final Net.HttpRequest httpRequest;
+        final Array<Net.HttpResponseListener> listeners = new Array<Net.HttpResponseListener>(1);
+        int priority;
+        boolean running;
+
+        QueuedRequest(String key, Net.HttpRequest httpRequest, int priority) {
+            this.key = key;
+            this.httpRequest = httpRequest;
+            this.priority = priority;
+        }
+
+        @Override
+        public void handleHttpResponse(Net.HttpResponse httpResponse) {
+            Array<Net.HttpResponseListener> listeners = finish(this);
+
+            // the response can only be read once
+            Net.HttpResponse response = listeners.size > 1 ? new BufferedHttpResponse(httpResponse) : httpResponse;
+            for (int i = 0; i < listeners.size; i++)
+                listeners.get(i).handleHttpResponse(response);
+        }
+
+        @Override
+        public void failed(Throwable t) {
+            Array<Net.HttpResponseListener> listeners = finish(this);
+            for (int i = 0; i < listeners.size; i++)
+                listeners.get(i).failed(t);
+        }
+
+        @Override
+        public void cancelled() {
+            Array<Net.HttpResponseListener> listeners = finish(this);
+            for (int i = 0; i < listeners.size; i++)
+                listeners.get(i).cancelled();
+        }
+    }
+
+    private static class BufferedHttpResponse implements Net.HttpResponse {
+        private final String result;
+        private final HttpStatus status;
+        private final Map<String, List<String>> headers;
+
+        BufferedHttpResponse(Net.HttpResponse httpResponse) {
+            result = httpResponse.getResultAsString();
+            status = httpResponse.getStatus();
+            headers = httpResponse.getHeaders();
+        }
+
+        @Override
+        public byte[] getResult() {
+            try {
+                return result != null ? result.getBytes("UTF-8") : null;
+            } catch (UnsupportedEncodingException e) {
+                throw new GdxRuntimeException(e);
+            }
+        }
+
+        @Override
+        public String getResultAsString() {
+            return result;
+        }
+
+        @Override
+        public InputStream getResultAsStream() {
+            return new ByteArrayInputStream(getResult());
+        }
+
+        @Override
+        public HttpStatus getStatus() {
+            return status;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (headers == null)
+                return null;
+
+            // header names are case insensitive
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (header.getKey() != null && header.getKey().equalsIgnoreCase(name)
+                        && !header.getValue().isEmpty())
+                    return header.getValue().get(0);
+            }
+            return null;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+    }
+}
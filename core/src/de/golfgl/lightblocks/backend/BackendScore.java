@@ -1,5 +1,7 @@
 package de.golfgl.lightblocks.backend;
 
+import com.badlogic.gdx.utils.JsonValue;
+
 import de.golfgl.lightblocks.model.GameScore;
 import de.golfgl.lightblocks.state.Replay;
 
@@ -41,6 +43,7 @@ public class BackendScore {
 
         String replayString = null;
         if (replay != null && replay.isValid()) {
+            // Version 1, solange nicht alle Clients und das Backend das kompakte Format lesen
             replayString = replay.toString();
             // Nicht hochladen, wenn über 5MB
             if (replayString != null && replayString.length() > 4900000)
@@ -48,4 +51,45 @@ public class BackendScore {
         }
         this.replay = replayString;
     }
+
+    private BackendScore(JsonValue fromJson) {
+        sortValue = fromJson.getLong("sortValue");
+        gameMode = fromJson.getString("gameMode");
+        platform = fromJson.getString("platform", null);
+        inputType = fromJson.getString("inputType", null);
+        params = fromJson.getString("params", null);
+        replay = fromJson.getString("replay", null);
+        drawnBlocks = fromJson.getInt("drawnBlocks");
+        lines = fromJson.getInt("lines");
+        score = fromJson.getInt("score");
+        timePlayedMs = fromJson.getInt("timePlayedMs");
+        scoreGainedMillis = fromJson.getLong("scoreGainedMillis");
+    }
+
+    /**
+     * @return null wenn nicht lesbar
+     */
+    public static BackendScore fromPersistJson(JsonValue fromJson) {
+        try {
+            return new BackendScore(fromJson);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    public JsonValue toPersistJson() {
+        JsonValue root = new JsonValue(JsonValue.ValueType.object);
+        root.addChild("sortValue", new JsonValue(sortValue));
+        root.addChild("gameMode", new JsonValue(gameMode));
+        root.addChild("platform", new JsonValue(platform));
+        root.addChild("inputType", new JsonValue(inputType));
+        root.addChild("params", new JsonValue(params));
+        root.addChild("replay", new JsonValue(replay));
+        root.addChild("drawnBlocks", new JsonValue(drawnBlocks));
+        root.addChild("lines", new JsonValue(lines));
+        root.addChild("score", new JsonValue(score));
+        root.addChild("timePlayedMs", new JsonValue(timePlayedMs));
+        root.addChild("scoreGainedMillis", new JsonValue(scoreGainedMillis));
+        return root;
+    }
 }
@@ -294,6 +294,7 @@ public class BackendBattleModel extends GameModel {
         super.submitGameEnded(success);
 
         infoForServer.droppedOut = !success;
+        // Version 1, der Gegner spielt eventuell eine ältere Version
         if (!getScore().isFraudDetected())
             infoForServer.replay = replay.toString();
         infoForServer.platform = app.backendManager.getPlatformString();
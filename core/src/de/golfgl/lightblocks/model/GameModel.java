@@ -86,6 +86,9 @@ public abstract class GameModel implements Json.Serializable, AiAcessibleGameMod
 
     // von removeLines geschrieben, für ui.clearAndInsertLines aufbewahrt
     private final IntArray removedLines;
+    // Puffer für die Blockpositionen bei Bewegung und Rotation, um Allokationen zu vermeiden
+    private final int[] blockPositions = new int[Tetromino.BLOCK_POSITIONS_SIZE];
+    private final int[] oldBlockPositions = new int[Tetromino.BLOCK_POSITIONS_SIZE];
     private int[] garbageLines;
     private boolean removeWasSpecial;
 
@@ -191,7 +194,7 @@ public abstract class GameModel implements Json.Serializable, AiAcessibleGameMod
 
         if (maxDistance > 0) {
             int ghostPieceDistance = gameboard.getGhostPieceDistance(activeTetromino, 0);
-            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(), 0, -maxDistance,
+            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(blockPositions), 0, -maxDistance,
                     ghostPieceDistance);
             activeTetromino.getPosition().y -= maxDistance;
             activeTetromino.setLastMovementType(0);
@@ -515,7 +518,7 @@ public abstract class GameModel implements Json.Serializable, AiAcessibleGameMod
 
         if (maxDistance != 0) {
             int ghostPieceDistance = gameboard.getGhostPieceDistance(activeTetromino, maxDistance);
-            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(), maxDistance, 0,
+            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(blockPositions), maxDistance, 0,
                     ghostPieceDistance);
             activeTetromino.getPosition().x += maxDistance;
             activeTetromino.setLastMovementType(0);
@@ -527,9 +530,10 @@ public abstract class GameModel implements Json.Serializable, AiAcessibleGameMod
         if (maxDistance != distance) {
             int signum = (distance > 0 ? 1 : -1);
 
-            for (Integer[] coord : activeTetromino.getCurrentBlockPositions()) {
-                if (gameboard.isValidCoordinate(coord[0] + signum, coord[1]) == 1)
-                    uiGameboard.markConflict(coord[0] + signum, coord[1]);
+            activeTetromino.getCurrentBlockPositions(blockPositions);
+            for (int i = 0; i < Tetromino.BLOCK_POSITIONS_SIZE; i = i + 2) {
+                if (gameboard.isValidCoordinate(blockPositions[i] + signum, blockPositions[i + 1]) == 1)
+                    uiGameboard.markConflict(blockPositions[i] + signum, blockPositions[i + 1]);
             }
         }
 
@@ -553,16 +557,15 @@ public abstract class GameModel implements Json.Serializable, AiAcessibleGameMod
 
         if (foundValidPosition) {
 
-            // Die Position und auch die Einzelteile darin muss geclonet werden, um nicht
-            // durch die Rotation verloren zu gehen
-            Integer[][] oldBlockPositionsNewArray = cloneDoubleIntegerArray(activeTetromino.getCurrentBlockPositions());
+            // Die Position muss vor der Rotation gesichert werden
+            activeTetromino.getCurrentBlockPositions(oldBlockPositions);
 
             if (wallkickPos != null)
                 activeTetromino.getPosition().set(wallkickPos);
             activeTetromino.setRotation(newRotation);
 
             int ghostPieceDistance = gameboard.getGhostPieceDistance(activeTetromino, 0);
-            uiGameboard.rotateTetro(oldBlockPositionsNewArray, activeTetromino.getCurrentBlockPositions(),
+            uiGameboard.rotateTetro(oldBlockPositions, activeTetromino.getCurrentBlockPositions(blockPositions),
                     ghostPieceDistance);
             lastMovementMs = score.getTimeMs();
             activeTetromino.incLockDelayCount(1);
@@ -961,7 +964,7 @@ public abstract class GameModel implements Json.Serializable, AiAcessibleGameMod
         json.writeValue("noDropSinceHold", noDropSinceHoldMove);
         json.writeValue("score", score);
         json.writeValue("inputType", inputTypeKey);
-        json.writeValue("replay", replay.toString());
+        json.writeValue("replay", replay.toCompactString());
     }
 
     @Override
@@ -2,6 +2,7 @@ package de.golfgl.lightblocks.model;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.Timer;
@@ -35,6 +36,8 @@ public class MultiplayerModel extends GameModel {
     public static final char GAMEBOARD_CHAR_ACTIVE_PIECE = '_';
     // Referee - aber auch die anderen pflegen die Werte, falls Übergabe erfolgt
     private static final byte DRAWYER_PACKAGESIZE = 3;
+    // every few messages the whole gameboard is sent, in case a receiver missed a message
+    private static final int GAMEBOARD_FULL_INTERVAL = 20;
     private final Object waitingGarbageLinesLock = new Object();
     private AbstractMultiplayerRoom playerRoom;
     private HashMap<String, MultiPlayerObjects.PlayerInGame> playerInGame;
@@ -54,6 +57,18 @@ public class MultiplayerModel extends GameModel {
     private boolean isInitialized = false;
     private boolean isCompletelyOver = false;
 
+    // zuletzt an die anderen gesendeter Stand, nur die geänderten Reihen werden gesendet
+    private final char[] gameboardChars = new char[Gameboard.GAMEBOARD_NORMALROWS * Gameboard.GAMEBOARD_COLUMNS];
+    private final char[] sentGameboardChars = new char[Gameboard.GAMEBOARD_NORMALROWS * Gameboard.GAMEBOARD_COLUMNS];
+    private int gameboardMessagesSent;
+    // für jede Nachricht wiederverwendet, sendToReferee serialisiert sie sofort
+    private final MultiPlayerObjects.GameboardRows gameboardMessage = new MultiPlayerObjects.GameboardRows();
+    private final IntArray changedRows = new IntArray(Gameboard.GAMEBOARD_NORMALROWS);
+    private final StringBuilder changedRowsChars = new StringBuilder(Gameboard.GAMEBOARD_NORMALROWS
+            * Gameboard.GAMEBOARD_COLUMNS);
+    // rowNumbers muss genau so lang sein wie die Anzahl geänderter Reihen, daher ein Array je Anzahl
+    private final int[][] rowNumbersBySize = new int[Gameboard.GAMEBOARD_NORMALROWS + 1][];
+
     // Merker für Achievements
     private boolean filledOver85Perc = false;
     private boolean achTurnaroundSent = false;
@@ -206,19 +221,12 @@ public class MultiplayerModel extends GameModel {
     }
 
     private void sendPlayersGameboard() {
-        MultiPlayerObjects.ChatMessage myGameboardMessage = new MultiPlayerObjects.ChatMessage();
-        myGameboardMessage.playerId = playerRoom.getMyPlayerId();
-
+        // only the rows shown on the other players' screens
         int[][] gameboardSquares = getGameboard().getGameboardSquares();
-        char[] gameboardChars = new char[Gameboard.GAMEBOARD_ALLROWS * Gameboard.GAMEBOARD_COLUMNS];
-        int lastChar = 0;
-        for (byte row = 0; row < Gameboard.GAMEBOARD_ALLROWS; row++) {
-            for (byte column = 0; column < Gameboard.GAMEBOARD_COLUMNS; column++) {
-                int pos = row * Gameboard.GAMEBOARD_COLUMNS + column;
-                gameboardChars[pos] = Gameboard.gameboardSquareToChar
+        for (int row = 0; row < Gameboard.GAMEBOARD_NORMALROWS; row++) {
+            for (int column = 0; column < Gameboard.GAMEBOARD_COLUMNS; column++) {
+                gameboardChars[row * Gameboard.GAMEBOARD_COLUMNS + column] = Gameboard.gameboardSquareToChar
                         (gameboardSquares[row][column]);
-                if (gameboardSquares[row][column] != Gameboard.SQUARE_EMPTY)
-                    lastChar = pos;
             }
         }
         Integer[][] currentBlockPositions = getActiveTetromino().getCurrentBlockPositions();
@@ -226,13 +234,48 @@ public class MultiplayerModel extends GameModel {
             for (int blockNum = 0; blockNum < currentBlockPositions.length; blockNum++) {
                 int pos = currentBlockPositions[blockNum][0] +
                         Gameboard.GAMEBOARD_COLUMNS * currentBlockPositions[blockNum][1];
-                gameboardChars[pos] = GAMEBOARD_CHAR_ACTIVE_PIECE;
-                lastChar = Math.max(lastChar, pos);
+                if (pos < gameboardChars.length)
+                    gameboardChars[pos] = GAMEBOARD_CHAR_ACTIVE_PIECE;
             }
-        myGameboardMessage.message = new String(gameboardChars);
-        if (lastChar < myGameboardMessage.message.length())
-            myGameboardMessage.message = myGameboardMessage.message.substring(0, lastChar + 1);
-        playerRoom.sendToReferee(myGameboardMessage);
+
+        boolean fullBoard = gameboardMessagesSent % GAMEBOARD_FULL_INTERVAL == 0;
+        changedRows.clear();
+        for (int row = 0; row < Gameboard.GAMEBOARD_NORMALROWS; row++) {
+            if (fullBoard || !rowEquals(gameboardChars, sentGameboardChars, row))
+                changedRows.add(row);
+        }
+
+        if (changedRows.size == 0)
+            return;
+
+        int[] rowNumbers = rowNumbersBySize[changedRows.size];
+        if (rowNumbers == null) {
+            rowNumbers = new int[changedRows.size];
+            rowNumbersBySize[changedRows.size] = rowNumbers;
+        }
+        changedRowsChars.setLength(0);
+        for (int i = 0; i < changedRows.size; i++) {
+            rowNumbers[i] = changedRows.get(i);
+            changedRowsChars.append(gameboardChars, changedRows.get(i) * Gameboard.GAMEBOARD_COLUMNS,
+                    Gameboard.GAMEBOARD_COLUMNS);
+        }
+
+        gameboardMessage.playerId = playerRoom.getMyPlayerId();
+        gameboardMessage.sequence = gameboardMessagesSent;
+        gameboardMessage.fullBoard = fullBoard;
+        gameboardMessage.rowNumbers = rowNumbers;
+        gameboardMessage.rows = changedRowsChars.toString();
+
+        System.arraycopy(gameboardChars, 0, sentGameboardChars, 0, gameboardChars.length);
+        gameboardMessagesSent++;
+        playerRoom.sendToReferee(gameboardMessage);
+    }
+
+    private static boolean rowEquals(char[] gameboard1, char[] gameboard2, int row) {
+        for (int pos = row * Gameboard.GAMEBOARD_COLUMNS; pos < (row + 1) * Gameboard.GAMEBOARD_COLUMNS; pos++)
+            if (gameboard1[pos] != gameboard2[pos])
+                return false;
+        return true;
     }
 
     @Override
@@ -302,8 +345,8 @@ public class MultiplayerModel extends GameModel {
         if (o instanceof MultiPlayerObjects.PlayerInGame)
             handlePlayerInGameChanged((MultiPlayerObjects.PlayerInGame) o);
 
-        if (o instanceof MultiPlayerObjects.ChatMessage)
-            handlePlayerGameboard((MultiPlayerObjects.ChatMessage) o);
+        if (o instanceof MultiPlayerObjects.GameboardRows)
+            handlePlayerGameboard((MultiPlayerObjects.GameboardRows) o);
 
         if (o instanceof MultiPlayerObjects.NextTetrosDrawn) {
             if (playerRoom.isOwner())
@@ -470,7 +513,7 @@ public class MultiplayerModel extends GameModel {
         }
     }
 
-    private void handlePlayerGameboard(final MultiPlayerObjects.ChatMessage gameboardInfo) {
+    private void handlePlayerGameboard(final MultiPlayerObjects.GameboardRows gameboardInfo) {
         if (playerRoom.isOwner()) {
             playerRoom.sendToAllPlayersExcept(gameboardInfo.playerId, gameboardInfo);
         }
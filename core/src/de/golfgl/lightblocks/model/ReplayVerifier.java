@@ -0,0 +1,397 @@
+package de.golfgl.lightblocks.model;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
+
+import de.golfgl.lightblocks.state.Replay;
+
+/**
+ * Prüft ein Replay gegen die Spielregeln, ohne UI: Die Bewegungen und Ablagen der Blöcke werden auf einem
+ * Gameboard nachgespielt und mit den im Replay gespeicherten Spielfeldern verglichen. Am Ende werden Punkte,
+ * Reihen und gezogene Blöcke mit den erwarteten Werten abgeglichen.
+ * <p>
+ * Die Zufallsfolge der Blöcke und die Eingaben stehen nicht im Replay, daher werden nicht die Eingaben
+ * nachgespielt, sondern die aufgezeichneten Positionen auf Gültigkeit geprüft. Drehungen müssen dabei eine
+ * Drehung desselben Blocks um einen Schritt sein, an derselben Stelle oder einer Wallkick-Position. Da das
+ * Rotationssystem nicht im Replay steht, sind beide erlaubt. Ein Hold darf nur den zuvor gehaltenen Block an die
+ * Startposition bringen. Die Punkte je Ablage können so nicht nachgerechnet werden, nur ihre Summe.
+ * <p>
+ * Eine Instanz kann für viele Replays wiederverwendet werden, aber nur von einem Thread gleichzeitig.
+ */
+public class ReplayVerifier {
+    // Typ für die nachgespielten Blöcke, es werden nur belegte Felder verglichen
+    private static final int PINNED_SQUARE = 0;
+
+    private static final int SPAWN_X = Gameboard.GAMEBOARD_COLUMNS / 2 - 2;
+    private static final int SPAWN_Y = Gameboard.GAMEBOARD_NORMALROWS - 2;
+
+    private final Gameboard gameboard = new Gameboard();
+    private final int[] activePiece = new int[Tetromino.BLOCK_POSITIONS_SIZE];
+    private final int[] templatePiece = new int[Tetromino.BLOCK_POSITIONS_SIZE];
+    // [0] klassisch, [1] SRS: liefern die Rotationsvorlagen und Wallkicks
+    private final Tetromino[][] templates = new Tetromino[2][Tetromino.TETROMINO_NUMBER];
+    private final IntArray fullLines = new IntArray(Tetromino.TETROMINO_BLOCKCOUNT);
+    private final Result result = new Result();
+    private boolean hasActivePiece;
+    private int heldType;
+    private boolean holdUsedSinceDrop;
+    // Position der Vorlage, die zuletzt in matchesActivePiece gepasst hat
+    private int matchedPosX;
+    private int matchedPosY;
+
+    public ReplayVerifier() {
+        for (int t = 0; t < Tetromino.TETROMINO_NUMBER; t++) {
+            templates[0][t] = new Tetromino(t, false);
+            templates[1][t] = new Tetromino(t, true);
+        }
+    }
+
+    /**
+     * @param expectedScore  -1 wenn nicht geprüft werden soll
+     * @param expectedLines  -1 wenn nicht geprüft werden soll
+     * @param expectedBlocks -1 wenn nicht geprüft werden soll
+     * @return das Ergebnis, wird beim nächsten Aufruf wiederverwendet
+     */
+    public Result verify(Replay replay, int expectedScore, int expectedLines, int expectedBlocks) {
+        result.reset();
+        hasActivePiece = false;
+        heldType = -1;
+        holdUsedSinceDrop = false;
+
+        if (replay == null || !replay.isValid())
+            return result.fail(-1, "replay not valid");
+
+        int stepNum = 0;
+        int lastTimeMs = 0;
+        boolean hasGameboard = false;
+        for (Replay.ReplayStep step = replay.seekToFirstStep(); step != null; step = replay.seekToNextStep()) {
+            if (step.timeMs < lastTimeMs)
+                return result.fail(stepNum, "time goes backwards");
+            lastTimeMs = step.timeMs;
+
+            if (step.isNextPieceStep()) {
+                byte[] recordedGameboard = replay.getCurrentGameboard();
+                if (hasGameboard && !matchesRecordedGameboard(recordedGameboard))
+                    return result.fail(stepNum, "gameboard differs from simulation");
+                gameboard.readFromReplay(recordedGameboard);
+                hasGameboard = true;
+
+                if (hasActivePiece) {
+                    // neuer Block ohne Ablage: der erste Hold legt den aktiven Block beiseite
+                    if (heldType >= 0 || holdUsedSinceDrop)
+                        return result.fail(stepNum, "invalid hold");
+                    heldType = getActivePieceType();
+                    holdUsedSinceDrop = true;
+                }
+
+                if (!setActivePiece(step.getActivePiecePosition()))
+                    return result.fail(stepNum, "new piece collides");
+                if (getActivePieceType() < 0)
+                    return result.fail(stepNum, "new piece is no tetromino");
+                result.drawnBlocks++;
+            } else if (!hasGameboard) {
+                return result.fail(stepNum, "replay does not start with a piece");
+            } else if (step.isDropStep()) {
+                if (!verifyDrop(step))
+                    return result.fail(stepNum, result.errorMessage);
+            } else if (step.isMovementStep()) {
+                if (!hasActivePiece || !moveActivePiece(step.getMoveX(), -step.getMoveY()))
+                    return result.fail(stepNum, "invalid move");
+            } else if (step.hasActivePiecePosition()) {
+                // Drehung oder Hold
+                if (!hasActivePiece || !verifyRotationOrHold(step.getActivePiecePosition()))
+                    return result.fail(stepNum, "invalid rotation");
+            }
+
+            stepNum++;
+        }
+
+        result.timeMs = lastTimeMs;
+
+        if (expectedScore >= 0 && expectedScore != result.score)
+            return result.fail(stepNum, "score " + result.score + " does not match " + expectedScore);
+        if (expectedLines >= 0 && expectedLines != result.clearedLines)
+            return result.fail(stepNum, "lines " + result.clearedLines + " do not match " + expectedLines);
+        if (expectedBlocks >= 0 && expectedBlocks != result.drawnBlocks)
+            return result.fail(stepNum, "blocks " + result.drawnBlocks + " do not match " + expectedBlocks);
+
+        return result;
+    }
+
+    private boolean verifyDrop(Replay.ReplayStep step) {
+        if (!hasActivePiece) {
+            result.errorMessage = "drop without piece";
+            return false;
+        }
+        // der letzte Fall nach unten ist nicht im Replay, wenn er vor dem Aufsetzen abgebrochen wurde
+        while (!isActivePieceAt(step.getActivePiecePosition())) {
+            if (!moveActivePiece(0, -1)) {
+                result.errorMessage = "drop position not reached by moves";
+                return false;
+            }
+        }
+        if (isValidPosition(0, -1)) {
+            result.errorMessage = "piece dropped in the air";
+            return false;
+        }
+
+        gameboard.pinTetromino(activePiece, PINNED_SQUARE);
+        hasActivePiece = false;
+        holdUsedSinceDrop = false;
+
+        fullLines.clear();
+        for (int row = 0; row < Gameboard.GAMEBOARD_ALLROWS; row++) {
+            if (gameboard.isRowFull(row))
+                fullLines.add(row);
+        }
+        gameboard.clearLines(fullLines);
+
+        int removedLines = step.getRemovedLines();
+        if (removedLines >= 0 && removedLines != fullLines.size) {
+            result.errorMessage = "removed lines " + removedLines + " differ from simulation";
+            return false;
+        }
+        result.clearedLines += fullLines.size;
+
+        int score = ((Replay.ReplayDropPieceStep) step).score;
+        if (score < result.score) {
+            result.errorMessage = "score decreased";
+            return false;
+        }
+        result.score = score;
+        return true;
+    }
+
+    /**
+     * vergleicht die belegten Felder des nachgespielten mit dem aufgezeichneten Spielfeld. Unten eingefügte
+     * Garbage-Reihen sind erlaubt.
+     */
+    private boolean matchesRecordedGameboard(byte[] recorded) {
+        for (int garbageRows = 0; garbageRows < Gameboard.GAMEBOARD_ALLROWS; garbageRows++) {
+            if (garbageRows > 0 && !isGarbageRow(recorded, garbageRows - 1))
+                return false;
+
+            boolean matches = true;
+            for (int row = garbageRows; row < Gameboard.GAMEBOARD_ALLROWS && matches; row++)
+                matches = getRowBits(recorded, row) == gameboard.getRowBits(row - garbageRows);
+
+            if (matches) {
+                result.garbageLines += garbageRows;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int getRowBits(byte[] recorded, int row) {
+        int bits = 0;
+        for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++)
+            if (recorded[row * Gameboard.GAMEBOARD_COLUMNS + x] != Gameboard.SQUARE_EMPTY)
+                bits = bits | (1 << x);
+        return bits;
+    }
+
+    private static boolean isGarbageRow(byte[] recorded, int row) {
+        int holes = 0;
+        for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++) {
+            byte square = recorded[row * Gameboard.GAMEBOARD_COLUMNS + x];
+            if (square == Gameboard.SQUARE_EMPTY)
+                holes++;
+            else if (square != Gameboard.SQUARE_GARBAGE)
+                return false;
+        }
+        return holes <= 1;
+    }
+
+    /**
+     * @param positions Positionen wie im Replay: x + y * GAMEBOARD_COLUMNS
+     */
+    private boolean setActivePiece(int[] positions) {
+        for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+            activePiece[i * 2] = positions[i] % Gameboard.GAMEBOARD_COLUMNS;
+            activePiece[i * 2 + 1] = positions[i] / Gameboard.GAMEBOARD_COLUMNS;
+        }
+        hasActivePiece = isValidPosition(0, 0);
+        return hasActivePiece;
+    }
+
+    /**
+     * @param positions neue Position wie im Replay: eine Drehung des aktiven Blocks oder nach einem Hold der zuvor
+     *                  gehaltene Block an der Startposition
+     */
+    private boolean verifyRotationOrHold(int[] positions) {
+        if (isReachableRotation(positions)) {
+            return setActivePiece(positions);
+        }
+
+        if (heldType < 0 || holdUsedSinceDrop)
+            return false;
+
+        for (int srs = 0; srs <= 1; srs++) {
+            templates[srs][heldType].getBlockPositions(SPAWN_X, SPAWN_Y, 0, templatePiece);
+            if (isSamePiece(positions, templatePiece)) {
+                heldType = getActivePieceType();
+                holdUsedSinceDrop = true;
+                return setActivePiece(positions);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return ob die Positionen aus dem aktiven Block durch eine Drehung um einen Schritt hervorgehen können
+     */
+    private boolean isReachableRotation(int[] positions) {
+        for (int srs = 0; srs <= 1; srs++) {
+            for (int t = 0; t < Tetromino.TETROMINO_NUMBER; t++) {
+                Tetromino template = templates[srs][t];
+                int rotationCount = Tetromino.getRotationTemplates(t, srs == 1).length;
+
+                for (int rotation = 0; rotation < rotationCount; rotation++) {
+                    if (!matchesActivePiece(template, rotation))
+                        continue;
+
+                    int posX = matchedPosX;
+                    int posY = matchedPosY;
+                    for (int direction = -1; direction <= 1; direction += 2) {
+                        template.getBlockPositions(posX, posY, rotation + direction, templatePiece);
+                        if (isSamePiece(positions, templatePiece))
+                            return true;
+
+                        if (srs == 0)
+                            continue;
+
+                        // die Wallkicks werden von der Position und Drehung vor der Drehung berechnet
+                        template.getPosition().set(posX, posY);
+                        template.setRotation(rotation);
+                        for (int i = 0; i <= 3; i++) {
+                            Vector2 kickPos = template.getWallkickPosition(i, direction > 0);
+                            template.getBlockPositions((int) kickPos.x, (int) kickPos.y, rotation + direction,
+                                    templatePiece);
+                            if (isSamePiece(positions, templatePiece))
+                                return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Typ des aktiven Blocks aus seiner Form, -1 wenn er kein Tetromino ist
+     */
+    private int getActivePieceType() {
+        for (int t = 0; t < Tetromino.TETROMINO_NUMBER; t++) {
+            int rotationCount = Tetromino.getRotationTemplates(t, false).length;
+            for (int rotation = 0; rotation < rotationCount; rotation++)
+                if (matchesActivePiece(templates[0][t], rotation))
+                    return t;
+        }
+        return -1;
+    }
+
+    /**
+     * prüft, ob der aktive Block die Form der Vorlage in der Drehung hat. Wenn ja, steht ihre Position in
+     * matchedPosX und matchedPosY
+     */
+    private boolean matchesActivePiece(Tetromino template, int rotation) {
+        template.getBlockPositions(0, 0, rotation, templatePiece);
+        matchedPosX = minCoordinate(activePiece, 0) - minCoordinate(templatePiece, 0);
+        matchedPosY = minCoordinate(activePiece, 1) - minCoordinate(templatePiece, 1);
+        template.getBlockPositions(matchedPosX, matchedPosY, rotation, templatePiece);
+
+        for (int i = 0; i < Tetromino.BLOCK_POSITIONS_SIZE; i += 2) {
+            boolean found = false;
+            for (int j = 0; j < Tetromino.BLOCK_POSITIONS_SIZE && !found; j += 2)
+                found = activePiece[i] == templatePiece[j] && activePiece[i + 1] == templatePiece[j + 1];
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
+    private static int minCoordinate(int[] piece, int offset) {
+        int min = Integer.MAX_VALUE;
+        for (int i = offset; i < Tetromino.BLOCK_POSITIONS_SIZE; i += 2)
+            min = Math.min(min, piece[i]);
+        return min;
+    }
+
+    private boolean isActivePieceAt(int[] positions) {
+        return isSamePiece(positions, activePiece);
+    }
+
+    /**
+     * @param positions Positionen wie im Replay: x + y * GAMEBOARD_COLUMNS
+     * @param piece     Positionen x0, y0, x1, y1...
+     */
+    private static boolean isSamePiece(int[] positions, int[] piece) {
+        // die Reihenfolge der Blöcke ist bei Drehungen nicht festgelegt
+        for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+            boolean found = false;
+            for (int j = 0; j < Tetromino.TETROMINO_BLOCKCOUNT && !found; j++)
+                found = positions[j] == piece[i * 2] + piece[i * 2 + 1] * Gameboard.GAMEBOARD_COLUMNS;
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
+    private boolean moveActivePiece(int moveX, int moveY) {
+        if (!isValidPosition(moveX, moveY))
+            return false;
+
+        for (int i = 0; i < Tetromino.BLOCK_POSITIONS_SIZE; i += 2) {
+            activePiece[i] += moveX;
+            activePiece[i + 1] += moveY;
+        }
+        return true;
+    }
+
+    private boolean isValidPosition(int moveX, int moveY) {
+        for (int i = 0; i < Tetromino.BLOCK_POSITIONS_SIZE; i += 2) {
+            if (gameboard.isValidCoordinate(activePiece[i] + moveX, activePiece[i + 1] + moveY) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    public static class Result {
+        public boolean valid;
+        // Step an dem die Prüfung fehlschlug, -1 wenn das Replay selbst ungültig ist
+        public int errorStep;
+        public String errorMessage;
+        public int score;
+        public int clearedLines;
+        public int garbageLines;
+        public int drawnBlocks;
+        public int timeMs;
+
+        private void reset() {
+            valid = true;
+            errorStep = 0;
+            errorMessage = null;
+            score = 0;
+            clearedLines = 0;
+            garbageLines = 0;
+            drawnBlocks = 0;
+            timeMs = 0;
+        }
+
+        private Result fail(int step, String message) {
+            valid = false;
+            errorStep = step;
+            errorMessage = message;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            if (valid)
+                return "valid: score " + score + ", lines " + clearedLines + ", blocks " + drawnBlocks;
+            else
+                return "invalid at step " + errorStep + ": " + errorMessage;
+        }
+    }
+}
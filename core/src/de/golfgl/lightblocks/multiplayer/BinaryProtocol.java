@@ -0,0 +1,187 @@
+package de.golfgl.lightblocks.multiplayer;
+
+import de.golfgl.lightblocks.model.Gameboard;
+import de.golfgl.lightblocks.model.Tetromino;
+
+/**
+ * Compact binary encoding of the in-game messages between Lightblocks server and client, sent as
+ * binary WebSocket frames when both sides support it. The text protocol is kept for older clients
+ * and servers.
+ * <p>
+ * A frame holds one or more messages. Each message starts with its opcode byte, the highest bit of
+ * the opcode is set if the message belongs to the opponent's gameboard. Numbers are zigzag varints,
+ * block positions are sent as one byte holding the gameboard cell index (y * columns + x).
+ * <p>
+ * Client input is sent as one opcode byte per input.
+ * <p>
+ * This class is shared between client and server, keep both copies in sync.
+ */
+public class BinaryProtocol {
+    public static final int VERSION = 1;
+
+    public static final int FLAG_OPPONENT = 0x80;
+
+    // server to client
+    public static final int OP_MOVE = 1;
+    public static final int OP_ROTATE = 2;
+    public static final int OP_CLEAR_INSERT = 3;
+    public static final int OP_GAME_OVER = 4;
+    public static final int OP_NEXT_PIECE = 5;
+    public static final int OP_ACTIVATE_NEXT = 6;
+    public static final int OP_HOLD = 7;
+    public static final int OP_PIN = 8;
+    public static final int OP_SCORE = 9;
+    public static final int OP_CONFLICT = 10;
+    public static final int OP_GARBAGE = 11;
+
+    // client to server, mapped to the text protocol's in-game messages
+    private static final String[] INPUT_MESSAGES = new String[]{null,
+            "SML", "SMR", "SMH", "HAT", "ROR", "ROL", "DRN", "DRS", "DRH"};
+
+    /**
+     * @return opcode for the in-game message of the text protocol, or 0 if it has none
+     */
+    public static byte getInputOpcode(String inGameMessage) {
+        for (int i = 1; i < INPUT_MESSAGES.length; i++) {
+            if (INPUT_MESSAGES[i].equals(inGameMessage))
+                return (byte) i;
+        }
+        return 0;
+    }
+
+    /**
+     * @return the in-game message of the text protocol for the opcode, or null if unknown
+     */
+    public static String getInputMessage(int opcode) {
+        if (opcode > 0 && opcode < INPUT_MESSAGES.length)
+            return INPUT_MESSAGES[opcode];
+        return null;
+    }
+
+    public static class Writer {
+        private byte[] buffer = new byte[64];
+        private int length;
+
+        public void reset() {
+            length = 0;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public byte[] getBuffer() {
+            return buffer;
+        }
+
+        public byte[] toArray() {
+            byte[] retVal = new byte[length];
+            System.arraycopy(buffer, 0, retVal, 0, length);
+            return retVal;
+        }
+
+        public Writer writeByte(int value) {
+            if (length == buffer.length) {
+                byte[] newBuffer = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, newBuffer, 0, length);
+                buffer = newBuffer;
+            }
+            buffer[length] = (byte) value;
+            length++;
+            return this;
+        }
+
+        public Writer writeBytes(byte[] bytes, int offset, int count) {
+            for (int i = 0; i < count; i++)
+                writeByte(bytes[offset + i]);
+            return this;
+        }
+
+        public Writer writeInt(int value) {
+            int zigzag = (value << 1) ^ (value >> 31);
+            while ((zigzag & ~0x7f) != 0) {
+                writeByte((zigzag & 0x7f) | 0x80);
+                zigzag = zigzag >>> 7;
+            }
+            return writeByte(zigzag);
+        }
+
+        public Writer writeBoolean(boolean value) {
+            return writeByte(value ? 1 : 0);
+        }
+
+        public Writer writePiecePositions(Integer[][] piecePos) {
+            for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+                writeByte(piecePos[i][1] * Gameboard.GAMEBOARD_COLUMNS + piecePos[i][0]);
+            }
+            return this;
+        }
+
+        /**
+         * @param piecePos x and y alternating, see Tetromino.getBlockPositions
+         */
+        public Writer writePiecePositions(int[] piecePos) {
+            for (int i = 0; i < Tetromino.BLOCK_POSITIONS_SIZE; i = i + 2) {
+                writeByte(piecePos[i + 1] * Gameboard.GAMEBOARD_COLUMNS + piecePos[i]);
+            }
+            return this;
+        }
+    }
+
+    public static class Reader {
+        private byte[] data;
+        private int pos;
+        private int end;
+
+        public Reader() {
+        }
+
+        public Reader(byte[] data) {
+            setData(data, 0, data.length);
+        }
+
+        public void setData(byte[] data, int offset, int length) {
+            this.data = data;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        public boolean hasRemaining() {
+            return pos < end;
+        }
+
+        public int readByte() {
+            if (pos >= end)
+                throw new IllegalArgumentException("Unexpected end of message");
+            int retVal = data[pos] & 0xff;
+            pos++;
+            return retVal;
+        }
+
+        public int readInt() {
+            int zigzag = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                zigzag = zigzag | ((b & 0x7f) << shift);
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        public boolean readBoolean() {
+            return readByte() != 0;
+        }
+
+        public Integer[][] readPiecePositions() {
+            Integer[][] piecePos = new Integer[Tetromino.TETROMINO_BLOCKCOUNT][2];
+            for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+                int cell = readByte();
+                piecePos[i][0] = cell % Gameboard.GAMEBOARD_COLUMNS;
+                piecePos[i][1] = cell / Gameboard.GAMEBOARD_COLUMNS;
+            }
+            return piecePos;
+        }
+    }
+}
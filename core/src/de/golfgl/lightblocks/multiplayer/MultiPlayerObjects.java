@@ -11,7 +11,7 @@ import de.golfgl.lightblocks.LightBlocksGame;
 public class MultiPlayerObjects {
 
     // *** BEI JEDER ÄNDERUNG HOCHZÄHLEN!!! ***
-    public static final int INTERFACE_VERSION = 4;
+    public static final int INTERFACE_VERSION = 5;
 
     public static final int CHANGE_ADD = 1;
     public static final int CHANGE_UPDATE = 2;
@@ -129,6 +129,19 @@ public class MultiPlayerObjects {
         public int score;
     }
 
+    /**
+     * the rows of a player's gameboard that changed since the player's last message, a full board every few messages
+     */
+    public static class GameboardRows {
+        public String playerId;
+        // counted per player. After a gap, the receiver waits for the next full board
+        public int sequence;
+        public boolean fullBoard;
+        public int[] rowNumbers;
+        // GAMEBOARD_COLUMNS characters per row in rowNumbers, see Gameboard.gameboardSquareToChar
+        public String rows;
+    }
+
     public static class LinesRemoved {
         public String playerId;
         public int linesRemoved;
@@ -12,6 +12,8 @@ public class ServerModels {
         public boolean authRequired;
         public boolean privateRooms;
         public List<String> modes;
+        public int binaryProtocol;
+        public boolean batching;
 
         // sent on ping pong
         public int activePlayers = -1;
@@ -18,6 +18,7 @@ public class ServerMultiplayerManager {
     public static final String ID_SERVERINFO = "HSH";
     public static final String ID_PLAYERINFO = "PIN";
     public static final String ID_MATCHINFO = "MCH";
+    public static final char BATCH_SEPARATOR = '\u001e';
     private static final long SECONDS_TIMEOUT = 3000L;
     private final LightBlocksGame app;
 
@@ -121,6 +122,12 @@ public class ServerMultiplayerManager {
         JsonValue playerInfo = new JsonValue(JsonValue.ValueType.object);
         playerInfo.addChild("nickName", new JsonValue(app.player.getName()));
         playerInfo.addChild("clientVersion", new JsonValue(LightBlocksGame.GAME_VERSIONNUMBER));
+        if (serverInfo.binaryProtocol > 0) {
+            playerInfo.addChild("binaryProtocol", new JsonValue(serverInfo.binaryProtocol));
+        }
+        if (serverInfo.batching) {
+            playerInfo.addChild("batching", new JsonValue(true));
+        }
         if (app.backendManager.hasUserId()) {
             playerInfo.addChild("userId", new JsonValue(app.backendManager.ownUserId()));
             if (serverInfo.authRequired) {
@@ -176,6 +183,8 @@ public class ServerMultiplayerManager {
         serverInfo.version = jsonValue.getInt("version");
         serverInfo.modes = new ArrayList<>();
         serverInfo.privateRooms = jsonValue.getBoolean("privateRooms", false);
+        serverInfo.binaryProtocol = Math.min(jsonValue.getInt("binaryProtocol", 0), BinaryProtocol.VERSION);
+        serverInfo.batching = jsonValue.getBoolean("batching", false);
 
         if (jsonValue.has("modes")) {
             for (JsonValue mode = jsonValue.get("modes").child; mode != null; mode = mode.next) {
@@ -193,7 +202,11 @@ public class ServerMultiplayerManager {
 
     public void doSendGameMessage(String message) {
         if (state == PlayState.IN_GAME) {
-            socket.send("IGM" + message);
+            byte opcode = serverInfo.binaryProtocol > 0 ? BinaryProtocol.getInputOpcode(message) : 0;
+            if (opcode != 0)
+                socket.send(new byte[]{opcode});
+            else
+                socket.send("IGM" + message);
             lastMessageSendMs = TimeUtils.millis();
         }
     }
@@ -224,15 +237,29 @@ public class ServerMultiplayerManager {
         public boolean onMessage(WebSocket webSocket, String packet) {
             Gdx.app.debug("WS", "Received: " + packet);
 
+            // batching servers join all messages of a tick into one frame
+            int start = 0;
+            int separator = packet.indexOf(BATCH_SEPARATOR);
+            while (separator >= 0) {
+                handleMessage(packet.substring(start, separator));
+                start = separator + 1;
+                separator = packet.indexOf(BATCH_SEPARATOR, start);
+            }
+            handleMessage(start == 0 ? packet : packet.substring(start));
+
+            return true;
+        }
+
+        private void handleMessage(String packet) {
             try {
                 if (pingMs < 0 && packet.startsWith("PONG")) {
                     handlePong(packet.length() > 4 ? packet.substring(4) : null);
-                    return true;
+                    return;
                 }
 
                 if (packet.startsWith(ID_SERVERINFO)) {
                     handleServerInfo(packet.substring(ID_SERVERINFO.length()));
-                    return true;
+                    return;
                 } else if (gameModel != null) {
                     gameModel.queueMessage(packet);
 
@@ -241,18 +268,28 @@ public class ServerMultiplayerManager {
                         gameModel.clearMessageQueue();
                     }
 
-                    return true;
+                    return;
                 }
                 Gdx.app.error("Server", "Unhandled message message: " + packet);
             } catch (Throwable t) {
                 Gdx.app.error("Server", "Error handling message: " + packet, t);
             }
-
-            return true;
         }
 
         @Override
         public boolean onMessage(WebSocket webSocket, byte[] packet) {
+            Gdx.app.debug("WS", "Received " + packet.length + " bytes");
+
+            if (gameModel != null) {
+                gameModel.queueMessage(packet);
+
+                if (TimeUtils.timeSinceMillis(lastQueueProcessedMs) > SECONDS_TIMEOUT) {
+                    socket.close(3000, "Timeout");
+                    gameModel.clearMessageQueue();
+                }
+
+                return true;
+            }
             return false;
         }
 
@@ -24,12 +24,16 @@ public class ServerMultiplayerModel extends GameModel {
     public static final String MODEL_ID = "serverMultiplayer";
     public static final String MSG_ID_PIN_TETRO = "PIN";
     public static final String MSG_ID_CLR_INS = "CLR";
-    private final Queue<String> messageQueue = new Queue<>();
+    private final Queue<Object> messageQueue = new Queue<>();
+    private final BinaryProtocol.Reader binaryReader = new BinaryProtocol.Reader();
     private final ServerMultiplayerModel secondModel;
     private ServerMultiplayerManager serverMultiplayerManager;
     private ServerScore serverScore;
     private String nickName;
     private Integer[][] activePiecePos;
+    // Puffer für die Listener-Aufrufe moveTetro und rotateTetro
+    private final int[] blockPositions = new int[Tetromino.BLOCK_POSITIONS_SIZE];
+    private final int[] oldBlockPositions = new int[Tetromino.BLOCK_POSITIONS_SIZE];
     private boolean gameOver;
     private boolean isFirst;
     private boolean isModern;
@@ -92,14 +96,14 @@ public class ServerMultiplayerModel extends GameModel {
     public void update(float delta) {
         synchronized (messageQueue) {
             while (messageQueue.notEmpty()) {
-                String packet = messageQueue.removeFirst();
+                Object packet = messageQueue.removeFirst();
                 try {
                     boolean processed = processMessage(packet);
                     if (!processed) {
-                        Gdx.app.error("Server", "Unhandled message: " + packet);
+                        Gdx.app.error("Server", "Unhandled message: " + describeMessage(packet));
                     }
                 } catch (Throwable t) {
-                    Gdx.app.error("Server", "Error handling message: " + packet, t);
+                    Gdx.app.error("Server", "Error handling message: " + describeMessage(packet), t);
                 }
             }
             serverMultiplayerManager.processedQueue();
@@ -161,8 +165,13 @@ public class ServerMultiplayerModel extends GameModel {
         final int dx = Integer.parseInt(sdx);
         final int dy = Integer.parseInt(sdy);
 
+        onTetroMoved(dx, dy, ghostPieceDistance);
+    }
+
+    private void onTetroMoved(int dx, int dy, int ghostPieceDistance) {
         if (!gameOver) {
-            uiGameboard.moveTetro(ServerMultiplayerModel.this.activePiecePos, dx, dy, ghostPieceDistance);
+            uiGameboard.moveTetro(Tetromino.toBlockPositions(ServerMultiplayerModel.this.activePiecePos, blockPositions),
+                    dx, dy, ghostPieceDistance);
 
             for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
                 ServerMultiplayerModel.this.activePiecePos[i][0] += dx;
@@ -281,8 +290,13 @@ public class ServerMultiplayerModel extends GameModel {
         final String strGhostDis = parseUntilNext(payload, pos, "-");
         final int ghostPieceDistance = Integer.parseInt(strGhostDis);
 
+        onRotateTetro(boardBlockPositions, ghostPieceDistance);
+    }
+
+    private void onRotateTetro(Integer[][] boardBlockPositions, int ghostPieceDistance) {
         if (!gameOver) {
-            uiGameboard.rotateTetro(ServerMultiplayerModel.this.activePiecePos, boardBlockPositions, ghostPieceDistance);
+            uiGameboard.rotateTetro(Tetromino.toBlockPositions(ServerMultiplayerModel.this.activePiecePos, oldBlockPositions),
+                    Tetromino.toBlockPositions(boardBlockPositions, blockPositions), ghostPieceDistance);
             ServerMultiplayerModel.this.activePiecePos = boardBlockPositions;
         }
     }
@@ -304,8 +318,11 @@ public class ServerMultiplayerModel extends GameModel {
             gapPos = new IntArray();
         }
 
+        onClearInsert(linesToRemove, isSpecial, gapPos.toArray());
+    }
+
+    private void onClearInsert(IntArray linesToRemove, boolean isSpecial, int[] garbageHolePosition) {
         if (!gameOver) {
-            int[] garbageHolePosition = gapPos.toArray();
             uiGameboard.clearAndInsertLines(linesToRemove, isSpecial, garbageHolePosition);
             gameboard.clearLines(linesToRemove);
             gameboard.insertLines(garbageHolePosition);
@@ -325,10 +342,13 @@ public class ServerMultiplayerModel extends GameModel {
     }
 
     private void handleGameOver(String payload) {
+        final String wonString = parseUntilNext(payload, 1, "-");
+        onGameOver(wonString.equals("1"));
+    }
+
+    private void onGameOver(boolean hasWon) {
         gameOver = true;
         if (isFirst) {
-            final String wonString = parseUntilNext(payload, 1, "-");
-            boolean hasWon = wonString.equals("1");
             playScreen.setMusicGameOver();
             GaHelper.endGameEvent(app.gameAnalytics, this, hasWon);
             totalScore.incMultiPlayerMatchesWon();
@@ -343,10 +363,13 @@ public class ServerMultiplayerModel extends GameModel {
         final String blockTypeString = parseUntilNext(payload, pos, "-");
         final int blockType = Integer.parseInt(blockTypeString);
 
+        onNextTetro(boardBlockPositions, blockType);
+    }
+
+    private void onNextTetro(Integer[][] boardBlockPositions, int blockType) {
         if (!gameOver) {
             uiGameboard.showNextTetro(boardBlockPositions, blockType);
         }
-
     }
 
     private void handleActivateNextTetro(final String payload) {
@@ -357,6 +380,10 @@ public class ServerMultiplayerModel extends GameModel {
         final String strGhostDis = parseUntilNext(payload, pos + strBlockType.length() + 1, "-");
         final int ghostPieceDistance = Integer.parseInt(strGhostDis);
 
+        onActivateNextTetro(boardBlockPositions, blockType, ghostPieceDistance);
+    }
+
+    private void onActivateNextTetro(Integer[][] boardBlockPositions, int blockType, int ghostPieceDistance) {
         if (!gameOver) {
             ServerMultiplayerModel.this.activePiecePos = boardBlockPositions;
             uiGameboard.activateNextTetro(boardBlockPositions, blockType, ghostPieceDistance);
@@ -397,6 +424,10 @@ public class ServerMultiplayerModel extends GameModel {
             activePiecePos = null;
         }
 
+        onSwapHoldAndActive(holdPiecePos, activePiecePos, ghostPieceDistance);
+    }
+
+    private void onSwapHoldAndActive(Integer[][] holdPiecePos, Integer[][] activePiecePos, int ghostPieceDistance) {
         if (!gameOver) {
             uiGameboard.swapHoldAndActivePiece(holdPiecePos, ServerMultiplayerModel.this.activePiecePos, activePiecePos,
                     ghostPieceDistance, 0);
@@ -424,9 +455,14 @@ public class ServerMultiplayerModel extends GameModel {
     }
 
     private void handleScore(final String payload) {
+        JsonValue scoreJson = new JsonReader().parse(payload);
+        onScore(scoreJson.getInt("score", 0), scoreJson.getInt("level", 0), scoreJson.getInt("lines", 0));
+    }
+
+    private void onScore(int score, int level, int lines) {
         if (!gameOver) {
             int removedLinesBefore = serverScore.lines;
-            int gainedScore = serverScore.setScoreInformation(new JsonReader().parse(payload));
+            int gainedScore = serverScore.setScoreInformation(score, level, lines);
             uiGameboard.updateScore(serverScore, gainedScore);
 
             if (isFirst && !gameOver) {
@@ -457,7 +493,7 @@ public class ServerMultiplayerModel extends GameModel {
         uiGameboard.showGarbageAmount(gbgAmount);
     }
 
-    public void queueMessage(String packet) {
+    public void queueMessage(Object packet) {
         synchronized (messageQueue) {
             messageQueue.addLast(packet);
         }
@@ -469,7 +505,23 @@ public class ServerMultiplayerModel extends GameModel {
         }
     }
 
-    private boolean processMessage(String packet) {
+    /**
+     * @return the text message, or opcode and length of a binary frame
+     */
+    private static String describeMessage(Object message) {
+        if (!(message instanceof byte[]))
+            return String.valueOf(message);
+
+        byte[] bytes = (byte[]) message;
+        return "binary frame, " + bytes.length + " bytes"
+                + (bytes.length > 0 ? ", first opcode " + (bytes[0] & 0xff & ~BinaryProtocol.FLAG_OPPONENT) : "");
+    }
+
+    private boolean processMessage(Object message) {
+        if (message instanceof byte[])
+            return processBinaryMessage((byte[]) message);
+
+        String packet = (String) message;
         Gdx.app.log("ServerMultiplayer", "Process message " + packet);
         if (packet.startsWith(ServerMultiplayerManager.ID_MATCHINFO)) {
             handleMatchInfo(packet.substring(ServerMultiplayerManager.ID_MATCHINFO.length()));
@@ -492,6 +544,77 @@ public class ServerMultiplayerModel extends GameModel {
         return false;
     }
 
+    private boolean processBinaryMessage(byte[] packet) {
+        binaryReader.setData(packet, 0, packet.length);
+        while (binaryReader.hasRemaining()) {
+            int opcode = binaryReader.readByte();
+            boolean other = (opcode & BinaryProtocol.FLAG_OPPONENT) != 0;
+            opcode = opcode & ~BinaryProtocol.FLAG_OPPONENT;
+
+            // the length of an unknown message is not known, so the rest of the frame is dropped
+            if (!other) {
+                if (!processBinaryModelMessage(opcode, binaryReader))
+                    return false;
+            } else {
+                if (!secondModel.processBinaryModelMessage(opcode, binaryReader))
+                    return false;
+                if (opcode == BinaryProtocol.OP_PIN || opcode == BinaryProtocol.OP_CLEAR_INSERT)
+                    updateFillLevelAmounts();
+            }
+        }
+        return true;
+    }
+
+    private boolean processBinaryModelMessage(int opcode, BinaryProtocol.Reader reader) {
+        switch (opcode) {
+            case BinaryProtocol.OP_MOVE:
+                onTetroMoved(reader.readInt(), reader.readInt(), reader.readInt());
+                return true;
+            case BinaryProtocol.OP_ROTATE:
+                onRotateTetro(reader.readPiecePositions(), reader.readInt());
+                return true;
+            case BinaryProtocol.OP_CLEAR_INSERT:
+                IntArray linesToRemove = new IntArray();
+                int linesToRemoveCount = reader.readInt();
+                for (int i = 0; i < linesToRemoveCount; i++)
+                    linesToRemove.add(reader.readInt());
+                boolean isSpecial = reader.readBoolean();
+                int[] garbageHolePosition = new int[reader.readInt()];
+                for (int i = 0; i < garbageHolePosition.length; i++)
+                    garbageHolePosition[i] = reader.readInt();
+                onClearInsert(linesToRemove, isSpecial, garbageHolePosition);
+                return true;
+            case BinaryProtocol.OP_GAME_OVER:
+                onGameOver(reader.readBoolean());
+                return true;
+            case BinaryProtocol.OP_NEXT_PIECE:
+                onNextTetro(reader.readPiecePositions(), reader.readInt());
+                return true;
+            case BinaryProtocol.OP_ACTIVATE_NEXT:
+                onActivateNextTetro(reader.readPiecePositions(), reader.readInt(), reader.readInt());
+                return true;
+            case BinaryProtocol.OP_HOLD:
+                Integer[][] holdPiecePos = reader.readPiecePositions();
+                int ghostPieceDistance = reader.readInt();
+                Integer[][] activePiecePos = reader.readBoolean() ? reader.readPiecePositions() : null;
+                onSwapHoldAndActive(holdPiecePos, activePiecePos, ghostPieceDistance);
+                return true;
+            case BinaryProtocol.OP_PIN:
+                handlePinTetro();
+                return true;
+            case BinaryProtocol.OP_SCORE:
+                onScore(reader.readInt(), reader.readInt(), reader.readInt());
+                return true;
+            case BinaryProtocol.OP_CONFLICT:
+                uiGameboard.markConflict(reader.readInt(), reader.readInt());
+                return true;
+            case BinaryProtocol.OP_GARBAGE:
+                uiGameboard.showGarbageAmount(reader.readInt());
+                return true;
+        }
+        return false;
+    }
+
     private void updateFillLevelAmounts() {
         if (isFirst) {
             int myGbFill = gameboard.calcGameboardFill();
@@ -584,11 +707,15 @@ public class ServerMultiplayerModel extends GameModel {
 
         public int setScoreInformation(JsonValue scoreJson) {
             // {"score":0,"level":0,"lines":0}
-            int newScore = scoreJson.getInt("score", 0);
+            return setScoreInformation(scoreJson.getInt("score", 0), scoreJson.getInt("level", 0),
+                    scoreJson.getInt("lines", 0));
+        }
+
+        public int setScoreInformation(int newScore, int level, int lines) {
             int gainedScore = Math.max(0, newScore - score);
             score = newScore;
-            level = scoreJson.getInt("level", 0);
-            lines = scoreJson.getInt("lines", 0);
+            this.level = level;
+            this.lines = lines;
             return gainedScore;
         }
 
@@ -4,10 +4,11 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.scenes.scene2d.Action;
 import com.badlogic.gdx.scenes.scene2d.Actor;
-import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.scenes.scene2d.actions.AlphaAction;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
+import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.Pool;
 
 import de.golfgl.lightblocks.LightBlocksGame;
 import de.golfgl.lightblocks.model.Tetromino;
@@ -16,7 +17,7 @@ import de.golfgl.lightblocks.model.Tetromino;
  * Created by Benjamin Schulte on 15.01.2017.
  */
 
-public class BlockActor extends Actor {
+public class BlockActor extends Actor implements Pool.Poolable {
     public static final int BLOCK_CENTER = 32;
     public static final int blockWidth = BLOCK_CENTER + 2;
     public static final int shapeSize = 20;
@@ -34,12 +35,14 @@ public class BlockActor extends Actor {
     private static Color COLOR_O;
     private static Color COLOR_T;
     private static Color COLOR_GARBAGE;
-    private final AlphaAction glowAction;
-    private final int blockType;
-    private float dislighentedAlpha = .4f;
-    private Image imBlock;
-
-    private Image imBlockEnlightened;
+    // not from the action pool: it is reused for the block's whole lifetime, even after it finished
+    private final AlphaAction glowAction = new AlphaAction();
+    private final RunEnlightenment enlightenAction = new RunEnlightenment(this, true);
+    private final RunEnlightenment dislightenAction = new RunEnlightenment(this, false);
+    private final Image imBlock;
+    private final Image imBlockEnlightened;
+    private int blockType;
+    private float dislighentedAlpha;
     /**
      * wenn der Stein gerade bewegt wird, ist dies hier die Action die ihn bewegt.
      * Das dient dazu, sie ggf. wieder zu entfernen wenn eine andere Bewegung nötig wird.
@@ -58,16 +61,33 @@ public class BlockActor extends Actor {
      * constructor adds the Textures and Images
      */
     public BlockActor(LightBlocksGame app, int blockType, boolean useTheme) {
+        imBlock = new Image();
+        imBlockEnlightened = new Image();
+        init(app, blockType, useTheme);
+    }
+
+    /**
+     * (re-)initializes the block for the given type, used by the constructor and by {@link BlockActorPool}
+     */
+    void init(LightBlocksGame app, int blockType, boolean useTheme) {
         if (COLOR_L == null) {
             initColor(app.localPrefs.getBlockColorMode());
         }
 
-        glowAction = Actions.action(AlphaAction.class);
         this.blockType = blockType;
 
-        imBlock = new Image(useTheme ? app.theme.getBlockTextureNormal(blockType) :
+        // actions of a pooled block may still be left from the remove animation
+        clearActions();
+        glowAction.reset();
+        imBlockEnlightened.clearActions();
+        isEnlightened = false;
+        drawGlow = false;
+        getColor().set(Color.WHITE);
+        setPosition(0, 0);
+
+        imBlock.setDrawable(useTheme ? app.theme.getBlockTextureNormal(blockType) :
                 new TextureRegionDrawable(app.trBlock));
-        imBlockEnlightened = new Image(useTheme ? app.theme.getBlockTextureEnlightened(blockType)
+        imBlockEnlightened.setDrawable(useTheme ? app.theme.getBlockTextureEnlightened(blockType)
                 : new TextureRegionDrawable(app.trBlockEnlightened));
         imBlock.setSize(BLOCK_IMAGE, BLOCK_IMAGE);
         imBlockEnlightened.setSize(BLOCK_IMAGE, BLOCK_IMAGE);
@@ -77,13 +97,21 @@ public class BlockActor extends Actor {
         if (useTheme && !app.theme.usesDefaultBlockPictures) {
             blockTypeColor = Color.WHITE;
             dislighentedAlpha = app.theme.activatedOverlayAlpha;
-        } else
+        } else {
             blockTypeColor = getBlockTypeColor(blockType);
+            dislighentedAlpha = .4f;
+        }
 
         imBlockEnlightened.setColor(blockTypeColor.r, blockTypeColor.g, blockTypeColor.b, dislighentedAlpha);
         imBlock.setColor(blockTypeColor);
     }
 
+    @Override
+    public void reset() {
+        // the block is freed by its own remove action, so actions are cleared on the next init
+        moveAction = null;
+    }
+
     public static void initColor(Integer blockColorMode) {
         switch (blockColorMode) {
             case COLOR_MODE_SHADEOFGREY:
@@ -137,17 +165,40 @@ public class BlockActor extends Actor {
      * accessor for getting enlightenment action (Main menu)
      */
     public RunEnlightenment getDislightenAction() {
-        return new RunEnlightenment(this, false);
+        return dislightenAction;
     }
 
     public RunEnlightenment getEnlightenAction() {
-        return new RunEnlightenment(this, true);
+        return enlightenAction;
     }
 
     public boolean isEnlightened() {
         return isEnlightened;
     }
 
+    /**
+     * @return true while the block or its glow is changed by an action
+     */
+    public boolean isAnimating() {
+        return hasActions() || imBlockEnlightened.hasActions();
+    }
+
+    Drawable getBlockDrawable() {
+        return imBlock.getDrawable();
+    }
+
+    Drawable getGlowDrawable() {
+        return imBlockEnlightened.getDrawable();
+    }
+
+    Color getBlockColor() {
+        return imBlock.getColor();
+    }
+
+    float getDislightenedAlpha() {
+        return dislighentedAlpha;
+    }
+
     public void setEnlightened(boolean sollwert) {
         setEnlightened(sollwert, false);
     }
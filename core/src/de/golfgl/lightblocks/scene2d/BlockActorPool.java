@@ -0,0 +1,65 @@
+package de.golfgl.lightblocks.scene2d;
+
+import com.badlogic.gdx.scenes.scene2d.Action;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Pool;
+
+import de.golfgl.lightblocks.LightBlocksGame;
+import de.golfgl.lightblocks.model.Gameboard;
+
+/**
+ * Recycles the BlockActors of a gameboard, so that long games do not allocate new blocks for every piece and
+ * garbage line.
+ * <p>
+ * Blocks are obtained by type and given back by ending their remove animation with {@link #freeAction()} instead of
+ * Actions.removeActor().
+ */
+public class BlockActorPool extends Pool<BlockActor> {
+    private final LightBlocksGame app;
+    private final boolean useTheme;
+    private final Pool<FreeBlockAction> freeActionPool = new Pool<FreeBlockAction>() {
+        @Override
+        protected FreeBlockAction newObject() {
+            return new FreeBlockAction();
+        }
+    };
+
+    public BlockActorPool(LightBlocksGame app, boolean useTheme) {
+        // a full gameboard is the most that can be freed at once
+        super(Gameboard.GAMEBOARD_COLUMNS * 4, Gameboard.GAMEBOARD_COLUMNS * Gameboard.GAMEBOARD_ALLROWS);
+        this.app = app;
+        this.useTheme = useTheme;
+    }
+
+    @Override
+    protected BlockActor newObject() {
+        return new BlockActor(app, Gameboard.SQUARE_GARBAGE, useTheme);
+    }
+
+    public BlockActor obtain(int blockType) {
+        BlockActor block = obtain();
+        block.init(app, blockType, useTheme);
+        return block;
+    }
+
+    /**
+     * @return action removing the block from its parent and giving it back to this pool
+     */
+    public Action freeAction() {
+        FreeBlockAction action = freeActionPool.obtain();
+        action.setPool(freeActionPool);
+        return action;
+    }
+
+    private class FreeBlockAction extends Action {
+        @Override
+        public boolean act(float delta) {
+            Actor block = target;
+            if (block != null) {
+                block.remove();
+                free((BlockActor) block);
+            }
+            return true;
+        }
+    }
+}
@@ -20,6 +20,7 @@ public class BlockGroup extends Group {
     protected final LightBlocksGame app;
     private final Group grid;
     private Image[] ghostpiece;
+    private GameboardRenderer gameboardRenderer;
 
     public BlockGroup() {
         // no grid - AnimatedLightblocksLogo
@@ -89,11 +90,26 @@ public class BlockGroup extends Group {
     protected void drawChildren(Batch batch, float parentAlpha) {
         //Wird zweimal durchgeführt: Erst die Steine, dann die Beleuchtung
         grid.setVisible(true);
+        if (gameboardRenderer != null)
+            gameboardRenderer.setDrawGlow(false);
         super.drawChildren(batch, parentAlpha);
         grid.setVisible(false);
+        if (gameboardRenderer != null)
+            gameboardRenderer.setDrawGlow(true);
         super.drawChildren(batch, parentAlpha);
     }
 
+    /**
+     * adds a renderer for resting blocks above the grid, so that only blocks in flight need to be BlockActors
+     */
+    public GameboardRenderer addGameboardRenderer() {
+        if (gameboardRenderer == null) {
+            gameboardRenderer = new GameboardRenderer();
+            addActorAfter(grid, gameboardRenderer);
+        }
+        return gameboardRenderer;
+    }
+
     public void addBlockAtBottom(BlockActor block) {
         // 1 to add it before grid. Would be better with addActorAfter(grid, ), but not necessary to calculate the pos
         // on every call
@@ -127,5 +143,9 @@ public class BlockGroup extends Group {
     public void removeAllBlocks() {
         clearChildren();
         addActor(grid);
+        if (gameboardRenderer != null) {
+            gameboardRenderer.clearCells();
+            addActor(gameboardRenderer);
+        }
     }
 }
@@ -0,0 +1,110 @@
+package de.golfgl.lightblocks.scene2d;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
+
+import java.util.Arrays;
+
+import de.golfgl.lightblocks.model.Gameboard;
+
+/**
+ * Draws the resting blocks of a gameboard from a flat cell array, instead of a BlockActor per block. Blocks are
+ * handed over with {@link #set(int, int, BlockActor)} when their animations are done and taken back with
+ * {@link #remove(int, int)} when they need to move again, so only pieces in flight remain actors.
+ * <p>
+ * Draws at most one quad per cell and layer. The {@link BlockGroup} switches the layer: base layer together with the
+ * BlockActors' blocks, glow layer together with their glow.
+ */
+public class GameboardRenderer extends Actor {
+    private static final int TYPE_COUNT = Gameboard.SQUARE_GARBAGE + 1;
+
+    private final int[] cells = new int[Gameboard.GAMEBOARD_COLUMNS * Gameboard.GAMEBOARD_ALLROWS];
+    // look of the block types, taken from the handed over blocks
+    private final Drawable[] blockDrawables = new Drawable[TYPE_COUNT];
+    private final Drawable[] glowDrawables = new Drawable[TYPE_COUNT];
+    private final Color[] blockColors = new Color[TYPE_COUNT];
+    private final float[] glowAlphas = new float[TYPE_COUNT];
+    private int cellCount;
+    private boolean drawGlow;
+
+    GameboardRenderer() {
+        Arrays.fill(cells, Gameboard.SQUARE_EMPTY);
+        for (int i = 0; i < TYPE_COUNT; i++)
+            blockColors[i] = new Color();
+    }
+
+    /**
+     * takes over the block's type and look for the cell. The block actor is not needed anymore afterwards.
+     */
+    public void set(int x, int y, BlockActor block) {
+        int blockType = block.getBlockType();
+        int idx = y * Gameboard.GAMEBOARD_COLUMNS + x;
+
+        if (cells[idx] == Gameboard.SQUARE_EMPTY)
+            cellCount++;
+        cells[idx] = blockType;
+
+        blockDrawables[blockType] = block.getBlockDrawable();
+        glowDrawables[blockType] = block.getGlowDrawable();
+        blockColors[blockType].set(block.getBlockColor());
+        glowAlphas[blockType] = block.getDislightenedAlpha();
+    }
+
+    /**
+     * @return the block type that was at the cell, or {@link Gameboard#SQUARE_EMPTY}
+     */
+    public int remove(int x, int y) {
+        int idx = y * Gameboard.GAMEBOARD_COLUMNS + x;
+        int blockType = cells[idx];
+        if (blockType != Gameboard.SQUARE_EMPTY) {
+            cells[idx] = Gameboard.SQUARE_EMPTY;
+            cellCount--;
+        }
+        return blockType;
+    }
+
+    public void clearCells() {
+        Arrays.fill(cells, Gameboard.SQUARE_EMPTY);
+        cellCount = 0;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    void setDrawGlow(boolean drawGlow) {
+        this.drawGlow = drawGlow;
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        if (cellCount == 0)
+            return;
+
+        // same offset as BlockActor.draw
+        float offsetX = getX() - BlockActor.shapeSize;
+        float offsetY = getY() - BlockActor.shapeSize;
+        float alpha = parentAlpha * getColor().a;
+        int lastType = Gameboard.SQUARE_EMPTY;
+        Drawable drawable = null;
+
+        for (int idx = 0; idx < cells.length; idx++) {
+            int blockType = cells[idx];
+            if (blockType == Gameboard.SQUARE_EMPTY)
+                continue;
+
+            if (blockType != lastType) {
+                Color color = blockColors[blockType];
+                batch.setColor(color.r, color.g, color.b, (drawGlow ? glowAlphas[blockType] : color.a) * alpha);
+                drawable = drawGlow ? glowDrawables[blockType] : blockDrawables[blockType];
+                lastType = blockType;
+            }
+
+            drawable.draw(batch, offsetX + (idx % Gameboard.GAMEBOARD_COLUMNS) * BlockActor.blockWidth,
+                    offsetY + (idx / Gameboard.GAMEBOARD_COLUMNS) * BlockActor.blockWidth,
+                    BlockActor.BLOCK_IMAGE, BlockActor.BLOCK_IMAGE);
+        }
+    }
+}
@@ -4,11 +4,13 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
-import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
 
 import de.golfgl.lightblocks.LightBlocksGame;
 import de.golfgl.lightblocks.model.Gameboard;
 import de.golfgl.lightblocks.model.MultiplayerModel;
+import de.golfgl.lightblocks.multiplayer.MultiPlayerObjects;
 
 /**
  * Created by Benjamin Schulte on 05.11.2018.
@@ -23,16 +25,18 @@ public class OtherPlayerGameboard extends Group {
     private final Drawable background;
     private final Drawable black;
     private final Drawable white;
-    private int[] shownGameboard;
-    private IntArray fullLines;
+    private final int[] shownGameboard;
+    private final boolean[] fullLines;
     private float blinkTime;
+    // sequence of the last applied GameboardRows message, -1 while waiting for a full board
+    private int lastSequence = -1;
 
     public OtherPlayerGameboard(LightBlocksGame app) {
         this.app = app;
 
         shownGameboard = new int[Gameboard.GAMEBOARD_NORMALROWS * Gameboard.GAMEBOARD_COLUMNS];
-        fullLines = new IntArray();
-        setGameboardInfo("");
+        fullLines = new boolean[Gameboard.GAMEBOARD_NORMALROWS];
+        Arrays.fill(shownGameboard, Gameboard.SQUARE_EMPTY);
 
         background = app.skin.getDrawable("window");
         black = app.skin.getDrawable("black");
@@ -68,7 +72,7 @@ public class OtherPlayerGameboard extends Group {
             if (shownGameboard[i] == SQUARE_ACTIVE_PIECE) {
                 batch.setColor(color.r, color.g, color.b, color.a * parentAlpha);
                 black.draw(batch, padx + col * blocksizex, pady + row * blocksizey, blocksizex, blocksizey);
-            } else if (shownGameboard[i] != Gameboard.SQUARE_EMPTY && (blinkTime >= 0 || !fullLines.contains(row))) {
+            } else if (shownGameboard[i] != Gameboard.SQUARE_EMPTY && (blinkTime >= 0 || !fullLines[row])) {
                 batch.setColor(BlockActor.getBlockTypeColor(shownGameboard[i]));
                 white.draw(batch, padx + col * blocksizex, pady + row * blocksizey, blocksizex, blocksizey);
             }
@@ -87,27 +91,40 @@ public class OtherPlayerGameboard extends Group {
                 + background.getLeftWidth() + background.getRightWidth();
     }
 
-    public void setGameboardInfo(String message) {
-        boolean lineIsFull = false;
-        fullLines.clear();
-        for (int i = 0; i < shownGameboard.length; i++) {
-            int posx = i % Gameboard.GAMEBOARD_COLUMNS;
-            if (posx == 0)
-                lineIsFull = true;
-
-            if (i >= message.length()) {
-                shownGameboard[i] = Gameboard.SQUARE_EMPTY;
-            } else if (message.charAt(i) == MultiplayerModel.GAMEBOARD_CHAR_ACTIVE_PIECE)
-                shownGameboard[i] = SQUARE_ACTIVE_PIECE;
-            else
-                shownGameboard[i] = Gameboard.gameboardCharToSquare(message.charAt(i));
-
-            if (shownGameboard[i] == Gameboard.SQUARE_EMPTY)
-                lineIsFull = false;
-
-            if (posx == Gameboard.GAMEBOARD_COLUMNS - 1 && lineIsFull)
-                fullLines.add(i / Gameboard.GAMEBOARD_COLUMNS);
+    /**
+     * applies the changed rows. Messages after a missed one are ignored until the next full board arrives.
+     */
+    public void applyGameboardRows(MultiPlayerObjects.GameboardRows message) {
+        if (message.fullBoard) {
+            Arrays.fill(shownGameboard, Gameboard.SQUARE_EMPTY);
+            Arrays.fill(fullLines, false);
+        } else if (lastSequence < 0 || message.sequence != lastSequence + 1) {
+            lastSequence = -1;
+            return;
+        }
+        lastSequence = message.sequence;
+
+        for (int i = 0; i < message.rowNumbers.length; i++) {
+            int row = message.rowNumbers[i];
+            if (row < 0 || row >= Gameboard.GAMEBOARD_NORMALROWS)
+                continue;
+
+            boolean lineIsFull = true;
+            for (int column = 0; column < Gameboard.GAMEBOARD_COLUMNS; column++) {
+                int square = parseSquare(message.rows.charAt(i * Gameboard.GAMEBOARD_COLUMNS + column));
+                shownGameboard[row * Gameboard.GAMEBOARD_COLUMNS + column] = square;
+                if (square == Gameboard.SQUARE_EMPTY)
+                    lineIsFull = false;
+            }
+            fullLines[row] = lineIsFull;
         }
         blinkTime = BLINK_TIME;
     }
+
+    private static int parseSquare(char square) {
+        if (square == MultiplayerModel.GAMEBOARD_CHAR_ACTIVE_PIECE)
+            return SQUARE_ACTIVE_PIECE;
+        else
+            return Gameboard.gameboardCharToSquare(square);
+    }
 }
@@ -0,0 +1,63 @@
+package de.golfgl.lightblocks.screen;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ScreenAdapter;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+
+import de.golfgl.lightblocks.LightBlocksGame;
+
+/**
+ * Shown while the assets for the menu are loaded. Needs no assets itself, so it is drawn with a ShapeRenderer.
+ * The loading is done by {@link LightBlocksGame#render()}.
+ */
+public class LoadingScreen extends ScreenAdapter {
+    private static final float BAR_HEIGHT = 4;
+    private final LightBlocksGame app;
+    private ShapeRenderer shapeRenderer;
+
+    public LoadingScreen(LightBlocksGame app) {
+        this.app = app;
+    }
+
+    @Override
+    public void show() {
+        shapeRenderer = new ShapeRenderer();
+    }
+
+    @Override
+    public void render(float delta) {
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+        float width = Gdx.graphics.getWidth();
+        float barWidth = width * .6f;
+        float barX = (width - barWidth) / 2;
+        float barY = Gdx.graphics.getHeight() / 2f;
+
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        shapeRenderer.setColor(.2f, .2f, .2f, 1);
+        shapeRenderer.rect(barX, barY, barWidth, BAR_HEIGHT);
+        shapeRenderer.setColor(1, 1, 1, 1);
+        shapeRenderer.rect(barX, barY, barWidth * app.getStartupProgress(), BAR_HEIGHT);
+        shapeRenderer.end();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        shapeRenderer.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
+    }
+
+    @Override
+    public void hide() {
+        dispose();
+    }
+
+    @Override
+    public void dispose() {
+        if (shapeRenderer != null) {
+            shapeRenderer.dispose();
+            shapeRenderer = null;
+        }
+    }
+}
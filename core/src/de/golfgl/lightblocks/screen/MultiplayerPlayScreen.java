@@ -161,10 +161,10 @@ public class MultiplayerPlayScreen extends PlayScreen implements IRoomListener {
     }
 
     @Override
-    public void playersGameboardChanged(MultiPlayerObjects.ChatMessage gameboardInfo) {
+    public void playersGameboardChanged(MultiPlayerObjects.GameboardRows gameboardInfo) {
         if (playerGameboard.containsKey(gameboardInfo.playerId)) {
             OtherPlayerGameboard gameboard = playerGameboard.get(gameboardInfo.playerId);
-            gameboard.setGameboardInfo(gameboardInfo.message);
+            gameboard.applyGameboardRows(gameboardInfo);
         }
     }
 
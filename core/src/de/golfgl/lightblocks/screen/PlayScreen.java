@@ -483,7 +483,7 @@ public class PlayScreen extends AbstractScreen implements OnScreenGamepad.IOnScr
         // only used on multiplayer
     }
 
-    public void playersGameboardChanged(MultiPlayerObjects.ChatMessage gameboardInfo) {
+    public void playersGameboardChanged(MultiPlayerObjects.GameboardRows gameboardInfo) {
         // only used on multiplayer
     }
 
@@ -15,11 +15,12 @@ import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.Align;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Scaling;
 import com.badlogic.gdx.utils.Timer;
 
+import java.util.Arrays;
+
 import javax.annotation.Nullable;
 
 import de.golfgl.lightblocks.LightBlocksGame;
@@ -33,7 +34,9 @@ import de.golfgl.lightblocks.model.Gameboard;
 import de.golfgl.lightblocks.model.IGameModelListener;
 import de.golfgl.lightblocks.model.Tetromino;
 import de.golfgl.lightblocks.scene2d.BlockActor;
+import de.golfgl.lightblocks.scene2d.BlockActorPool;
 import de.golfgl.lightblocks.scene2d.BlockGroup;
+import de.golfgl.lightblocks.scene2d.GameboardRenderer;
 import de.golfgl.lightblocks.scene2d.MotivationLabel;
 import de.golfgl.lightblocks.scene2d.ParticleEffectActor;
 import de.golfgl.lightblocks.scene2d.ScaledLabel;
@@ -62,6 +65,14 @@ public class PlayerArea extends Group implements IGameModelListener {
     private final BlockActor[][] blockMatrix;
     private final BlockActor[] nextTetro;
     private final BlockActor[] holdTetro;
+    // wiederverwendet von moveTetro und rotateTetro
+    private final BlockActor[] movingBlocks = new BlockActor[Tetromino.TETROMINO_BLOCKCOUNT];
+    // removed blocks are reused for new pieces and garbage
+    private final BlockActorPool blockPool;
+    // blocks without running animations, not in blockMatrix
+    private final GameboardRenderer restingBlocks;
+    // wiederverwendet von clearAndInsertLines
+    private final IntArray lineMove = new IntArray(Gameboard.GAMEBOARD_ALLROWS);
     private final MotivationLabel motivatorLabel;
     private final LightBlocksGame app;
     private final PlayScreen playScreen;
@@ -74,6 +85,8 @@ public class PlayerArea extends Group implements IGameModelListener {
     private int currentShownTime;
     private int shownGarbageAmount;
     private float volumeFactor = 1f;
+    // scheduled moves still reference their block actors
+    private int pendingDelayedMoves;
 
     public PlayerArea(LightBlocksGame app, PlayScreen playScreen) {
         this.app = app;
@@ -119,6 +132,7 @@ public class PlayerArea extends Group implements IGameModelListener {
         blockMatrix = new BlockActor[Gameboard.GAMEBOARD_COLUMNS][Gameboard.GAMEBOARD_ALLROWS];
         nextTetro = new BlockActor[Tetromino.TETROMINO_BLOCKCOUNT];
         holdTetro = new BlockActor[Tetromino.TETROMINO_BLOCKCOUNT];
+        blockPool = new BlockActorPool(app, true);
 
         // Block group holds all blocks, it is the main gameboard
         blockGroup = new BlockGroup(app, true);
@@ -126,6 +140,7 @@ public class PlayerArea extends Group implements IGameModelListener {
         blockGroup.getColor().a = .4f;
 
         blockGroup.setPosition(getWidth() / 2, getHeight() / 2, Align.center);
+        restingBlocks = blockGroup.addGameboardRenderer();
         addActor(blockGroup);
 
         // borders around main gameboard area
@@ -248,6 +263,8 @@ public class PlayerArea extends Group implements IGameModelListener {
     public void mergeFullInformation(int[][] gameboard, Integer[][] activePiecePos, int activePieceType, Integer[][] nextPiecePos,
                                      int nextPieceType, Integer[][] holdPiecePos, int holdPieceType, String gameTypeLabel) {
         blockGroup.removeAllBlocks();
+        for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++)
+            Arrays.fill(blockMatrix[x], null);
 
         int blocksset = 0;
         for (int y = 0; y < Gameboard.GAMEBOARD_ALLROWS; y++) {
@@ -281,7 +298,7 @@ public class PlayerArea extends Group implements IGameModelListener {
 
     @Override
     public void insertNewBlock(int x, int y, int blockType) {
-        BlockActor block = new BlockActor(app, blockType, true);
+        BlockActor block = blockPool.obtain(blockType);
         insertBlock(x, y, block);
     }
 
@@ -292,20 +309,72 @@ public class PlayerArea extends Group implements IGameModelListener {
         blockMatrix[x][y] = block;
     }
 
+    /**
+     * @return the block actor at the position. A resting block is taken back from the gameboard renderer.
+     */
+    private BlockActor getBlock(int x, int y) {
+        BlockActor block = blockMatrix[x][y];
+        if (block == null) {
+            int blockType = restingBlocks.remove(x, y);
+            if (blockType != Gameboard.SQUARE_EMPTY) {
+                block = blockPool.obtain(blockType);
+                insertBlock(x, y, block);
+            }
+        }
+        return block;
+    }
+
+    /**
+     * takes back all resting blocks from row fromY upwards, before they get moved
+     */
+    private void getBlocksFromRow(int fromY) {
+        for (int y = fromY; y < Gameboard.GAMEBOARD_ALLROWS; y++)
+            for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++)
+                getBlock(x, y);
+    }
+
+    /**
+     * hands blocks without running animations over to the gameboard renderer
+     */
+    private void restBlocks() {
+        if (pendingDelayedMoves > 0)
+            return;
+
+        for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++)
+            for (int y = 0; y < Gameboard.GAMEBOARD_ALLROWS; y++) {
+                BlockActor block = blockMatrix[x][y];
+                if (block != null && !block.isEnlightened() && !block.isAnimating()
+                        && block.getParent() == blockGroup && block.getColor().a >= 1f
+                        && MathUtils.isEqual(block.getX(), x * BlockActor.blockWidth, 1f)
+                        && MathUtils.isEqual(block.getY(), y * BlockActor.blockWidth, 1f)) {
+                    restingBlocks.set(x, y, block);
+                    blockMatrix[x][y] = null;
+                    block.remove();
+                    blockPool.free(block);
+                }
+            }
+    }
+
     @Override
-    public void moveTetro(Integer[][] v, int dx, int dy, int ghostPieceDistance) {
+    public void act(float delta) {
+        super.act(delta);
+        restBlocks();
+    }
+
+    @Override
+    public void moveTetro(int[] v, int dx, int dy, int ghostPieceDistance) {
         if (dx != 0 && app.localPrefs.isPlaySounds() && app.theme.horizontalMoveSound != null)
             app.theme.horizontalMoveSound.play(volumeFactor);
 
         if (dx != 0 || dy != 0) {
             // remove every block from gameboard at first...
-            Array<BlockActor> blocks = removeBlockActorsFromMatrix(v);
+            removeBlockActorsFromMatrix(v);
 
             //... and then put them back
-            for (int i = 0; i < v.length; i++) {
-                BlockActor block = blocks.get(i);
-                int x = v[i][0];
-                int y = v[i][1];
+            for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+                BlockActor block = movingBlocks[i];
+                int x = v[i * 2];
+                int y = v[i * 2 + 1];
                 block.setMoveAction(Actions.moveTo((x + dx) * BlockActor.blockWidth, (y + dy) * BlockActor
                         .blockWidth, DURATION_TETRO_MOVE));
                 blockMatrix[x + dx][y + dy] = block;
@@ -314,32 +383,35 @@ public class PlayerArea extends Group implements IGameModelListener {
         }
     }
 
-    private Array<BlockActor> removeBlockActorsFromMatrix(Integer[][] v) {
-        Array<BlockActor> blocks = new Array<>(v.length);
-
-        for (Integer[] xy : v) {
-            if (blockMatrix[xy[0]][xy[1]] == null)
-                Gdx.app.error("BLOCKS", "Block null at " + xy[0].toString() + " " + xy[1].toString());
-
-            blocks.add(blockMatrix[xy[0]][xy[1]]);
-            blockMatrix[xy[0]][xy[1]] = null;
+    /**
+     * removes the blocks at the given positions from the matrix and puts them into movingBlocks
+     */
+    private void removeBlockActorsFromMatrix(int[] v) {
+        for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+            int x = v[i * 2];
+            int y = v[i * 2 + 1];
+            BlockActor block = getBlock(x, y);
+            if (block == null)
+                Gdx.app.error("BLOCKS", "Block null at " + x + " " + y);
+
+            movingBlocks[i] = block;
+            blockMatrix[x][y] = null;
         }
-        return blocks;
     }
 
     @Override
-    public void rotateTetro(Integer[][] vOld, Integer[][] vNew, int ghostPieceDistance) {
+    public void rotateTetro(int[] vOld, int[] vNew, int ghostPieceDistance) {
         if (app.localPrefs.isPlaySounds() && app.theme.rotateSound != null)
             app.theme.rotateSound.play(volumeFactor);
 
         // remove every block from gameboard at first...
-        Array<BlockActor> blocks = removeBlockActorsFromMatrix(vOld);
+        removeBlockActorsFromMatrix(vOld);
 
         //... and then put them back
-        for (int i = 0; i < vOld.length; i++) {
-            BlockActor block = blocks.get(i);
-            int newx = vNew[i][0];
-            int newy = vNew[i][1];
+        for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+            BlockActor block = movingBlocks[i];
+            int newx = vNew[i * 2];
+            int newy = vNew[i * 2 + 1];
             block.setMoveAction(Actions.moveTo((newx) * BlockActor.blockWidth, (newy) * BlockActor.blockWidth, 1 /
                     20f));
             blockMatrix[newx][newy] = block;
@@ -365,12 +437,12 @@ public class PlayerArea extends Group implements IGameModelListener {
 
                 // enlighten and remove all blocks from the line to be removed
                 for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++) {
-                    BlockActor block = blockMatrix[x][y];
+                    BlockActor block = getBlock(x, y);
                     blockMatrix[x][y] = null;
                     block.setEnlightened(true);
 
                     block.addAction(sequence(Actions.delay(5), Actions.fadeOut(2),
-                            Actions.removeActor()));
+                            blockPool.freeAction()));
                     //block.addAction(Actions.moveBy((BlockActor.blockWidth / 2) * (x - 5), 0, 2 + 5));
                 }
             }
@@ -378,8 +450,14 @@ public class PlayerArea extends Group implements IGameModelListener {
             return;
         }
 
+        // every row from the lowest removed one upwards gets animated, garbage moves up all rows
+        int lowestMovedRow = Gameboard.GAMEBOARD_ALLROWS;
+        for (int i = 0; i < linesToRemove.size; i++)
+            lowestMovedRow = Math.min(lowestMovedRow, linesToRemove.get(i));
+        getBlocksFromRow(linesToInsert > 0 ? 0 : lowestMovedRow);
+
         // Prepare to identify the rows that should get replaced
-        IntArray lineMove = new IntArray(Gameboard.GAMEBOARD_ALLROWS);
+        lineMove.clear();
         for (int i = 0; i < Gameboard.GAMEBOARD_ALLROWS; i++)
             lineMove.add(i);
 
@@ -413,7 +491,7 @@ public class PlayerArea extends Group implements IGameModelListener {
                                 BlockActor.blockWidth, GameModel.DURATION_REMOVE_DELAY, Interpolation.fade));
 
                     block.addAction(sequence(Actions.delay(GameModel.DURATION_REMOVE_DELAY), Actions.fadeOut(DURATION_REMOVE_FADEOUT),
-                            Actions.removeActor()));
+                            blockPool.freeAction()));
                 }
 
                 // identify the line that is got to replace the current one
@@ -468,15 +546,17 @@ public class PlayerArea extends Group implements IGameModelListener {
                         // never get touched again
                         if (destinationY >= Gameboard.GAMEBOARD_ALLROWS) {
                             moveSequence.addAction(Actions.fadeOut(DURATION_REMOVE_FADEOUT));
-                            moveSequence.addAction(Actions.removeActor());
+                            moveSequence.addAction(blockPool.freeAction());
                         }
 
                         if (delay > 0) {
                             final BlockActor timedBlock = block;
 
+                            pendingDelayedMoves++;
                             Timer.schedule(new Timer.Task() {
                                 @Override
                                 public void run() {
+                                    pendingDelayedMoves--;
                                     timedBlock.setMoveAction(moveSequence);
                                 }
                             }, delay);
@@ -508,7 +588,7 @@ public class PlayerArea extends Group implements IGameModelListener {
 
                 for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++) {
                     if (x != holePos) {
-                        BlockActor block = new BlockActor(app, Gameboard.SQUARE_GARBAGE, true);
+                        BlockActor block = blockPool.obtain(Gameboard.SQUARE_GARBAGE);
                         block.setX(x * BlockActor.blockWidth);
                         block.setY((y - linesToInsert) * BlockActor.blockWidth);
                         block.setEnlightened(true, true);
@@ -531,6 +611,8 @@ public class PlayerArea extends Group implements IGameModelListener {
         if (playSoundAndMove && app.localPrefs.isPlaySounds() && app.theme.cleanFreezedSound != null)
             app.theme.cleanFreezedSound.play(volumeFactor);
 
+        getBlocksFromRow(0);
+
         // enlighten full rows
         for (int i = 0; i < fullLines.size; i++) {
             int y = fullLines.get(i);
@@ -575,9 +657,11 @@ public class PlayerArea extends Group implements IGameModelListener {
                     if (block != null) {
                         // little delay needed, because when a hard drop is done the active actor
                         // might not be in place yet
+                        pendingDelayedMoves++;
                         Timer.schedule(new Timer.Task() {
                             @Override
                             public void run() {
+                                pendingDelayedMoves--;
                                 block.setMoveAction(Actions.moveTo(xf * BlockActor.blockWidth, yf *
                                         BlockActor.blockWidth, .3f));
                             }
@@ -629,7 +713,7 @@ public class PlayerArea extends Group implements IGameModelListener {
         final float offsetY = getNextPieceYPos();
 
         for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
-            nextTetro[i] = new BlockActor(app, blockType, true);
+            nextTetro[i] = blockPool.obtain(blockType);
             nextTetro[i].setPosition((i == 0 || i == 2) ? -BlockActor.blockWidth : LightBlocksGame.nativeGameWidth +
                             BlockActor.blockWidth,
                     (i >= 2) ? 0 : LightBlocksGame.nativeGameHeight);
@@ -663,7 +747,7 @@ public class PlayerArea extends Group implements IGameModelListener {
             if (block == null) {
                 // null at game start, animations make no sense then. So just insert right at the
                 // correct position.
-                block = new BlockActor(app, blockType, true);
+                block = blockPool.obtain(blockType);
                 insertBlock(x, y, block);
             } else {
                 nextTetro[i] = null;
@@ -700,12 +784,12 @@ public class PlayerArea extends Group implements IGameModelListener {
                 final int oldX = oldActivePiecePositions[i][0];
                 final int oldY = oldActivePiecePositions[i][1];
 
-                holdTetro[i] = blockMatrix[oldX][oldY];
+                holdTetro[i] = getBlock(oldX, oldY);
                 blockMatrix[oldX][oldY] = null;
                 fadeOutDuration = .5f;
             } else {
                 // add when game state is loaded
-                holdTetro[i] = new BlockActor(app, holdBlockType, true);
+                holdTetro[i] = blockPool.obtain(holdBlockType);
                 blockGroup.addActor(holdTetro[i]);
                 fadeOutDuration = 0f;
             }
@@ -777,14 +861,14 @@ public class PlayerArea extends Group implements IGameModelListener {
         playScreen.inputAdapter.vibrate(VibrationType.DROP, gameModel.getFixedInputId());
 
         for (Integer[] vAfterMove : currentBlockPositions) {
-            BlockActor activePieceBlock = blockMatrix[vAfterMove[0]][vAfterMove[1]];
+            BlockActor activePieceBlock = getBlock(vAfterMove[0], vAfterMove[1]);
             activePieceBlock.setEnlightened(false);
         }
     }
 
     @Override
     public void markConflict(int x, int y) {
-        BlockActor block = blockMatrix[x][y];
+        BlockActor block = getBlock(x, y);
         block.showConflictTouch();
     }
 
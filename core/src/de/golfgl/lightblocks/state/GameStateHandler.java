@@ -38,10 +38,13 @@ public class GameStateHandler {
     private String futureUseFromCloudSaveGame;
     private BestScore.BestScoreMap bestScores;
     private Preferences prefs;
+    // gehört LocalPrefs, dort wird auf ausstehende Speichervorgänge gewartet
+    private final PersistenceWorker persistenceWorker;
 
     public GameStateHandler(LightBlocksGame app, Preferences prefs) {
         this.app = app;
         this.prefs = prefs;
+        this.persistenceWorker = app.localPrefs.getPersistenceWorker();
     }
 
     public static String encode(String s, String key) {
@@ -63,7 +66,7 @@ public class GameStateHandler {
 
     public boolean hasSavedGame() {
         if (Gdx.files.isLocalStorageAvailable())
-            return Gdx.files.local(FILENAME_SAVEGAME).exists();
+            return persistenceWorker.exists(FILENAME_SAVEGAME);
         else
             return prefs.contains(FILENAME_SAVEGAME);
     }
@@ -83,9 +86,10 @@ public class GameStateHandler {
             throw new IndexOutOfBoundsException("cannot load game");
 
         try {
-            return decode(Gdx.files.isLocalStorageAvailable() ?
-                    Gdx.files.local(FILENAME_SAVEGAME).readString()
-                    : prefs.getString(FILENAME_SAVEGAME), SAVEGAMEKEY);
+            if (Gdx.files.isLocalStorageAvailable())
+                return persistenceWorker.readString(FILENAME_SAVEGAME, SAVEGAMEKEY);
+            else
+                return decode(prefs.getString(FILENAME_SAVEGAME), SAVEGAMEKEY);
         } catch (Throwable t) {
             return null;
         }
@@ -93,7 +97,7 @@ public class GameStateHandler {
     }
 
     /**
-     * Saves the string to the savegamefile. If null, savegame is resetted
+     * Saves the string to the savegamefile. If null, savegame is resetted. The file is written in background.
      *
      * @return true when successful
      */
@@ -105,11 +109,10 @@ public class GameStateHandler {
             System.out.println(jsonString);
 
         try {
-            String encoded = encode(jsonString, SAVEGAMEKEY);
             if (Gdx.files.isLocalStorageAvailable()) {
-                Gdx.files.local(FILENAME_SAVEGAME).writeString(encoded, false);
+                persistenceWorker.write(FILENAME_SAVEGAME, jsonString, SAVEGAMEKEY);
             } else {
-                prefs.putString(FILENAME_SAVEGAME, encoded);
+                prefs.putString(FILENAME_SAVEGAME, encode(jsonString, SAVEGAMEKEY));
                 prefs.flush();
             }
             return true;
@@ -120,9 +123,10 @@ public class GameStateHandler {
 
     public boolean resetGame() {
         try {
-            if (Gdx.files.isLocalStorageAvailable())
-                return Gdx.files.local(FILENAME_SAVEGAME).delete();
-            else {
+            if (Gdx.files.isLocalStorageAvailable()) {
+                persistenceWorker.delete(FILENAME_SAVEGAME);
+                return true;
+            } else {
                 prefs.remove(FILENAME_SAVEGAME);
                 prefs.flush();
                 return true;
@@ -149,7 +153,7 @@ public class GameStateHandler {
      */
     public boolean hasGameState() {
         if (Gdx.files.isLocalStorageAvailable())
-            return Gdx.files.local(FILENAME_TOTALSCORE).exists();
+            return persistenceWorker.exists(FILENAME_TOTALSCORE);
         else
             return prefs.contains(FILENAME_TOTALSCORE);
     }
@@ -162,7 +166,8 @@ public class GameStateHandler {
                 Json json = new Json();
                 try {
                     if (Gdx.files.isLocalStorageAvailable())
-                        totalScore = json.fromJson(TotalScore.class, Gdx.files.local(FILENAME_TOTALSCORE));
+                        totalScore = json.fromJson(TotalScore.class,
+                                persistenceWorker.readString(FILENAME_TOTALSCORE, null));
                     else
                         totalScore = json.fromJson(TotalScore.class, prefs.getString(FILENAME_TOTALSCORE));
                     // es kann unter Umständen direkt beim Start vorkommen, dass null zurückgegeben wird?
@@ -178,14 +183,14 @@ public class GameStateHandler {
     }
 
     /**
-     * saves the total score to file. Does not save it to cloud storage.
+     * saves the total score to file in background. Does not save it to cloud storage.
      */
     public void saveTotalScore() {
         synchronized (gameStateMonitor) {
             Json json = new Json();
             json.setOutputType(JsonWriter.OutputType.json);
             if (Gdx.files.isLocalStorageAvailable())
-                json.toJson(totalScore, Gdx.files.local(FILENAME_TOTALSCORE));
+                persistenceWorker.write(FILENAME_TOTALSCORE, json.toJson(totalScore), null);
             else {
                 prefs.putString(FILENAME_TOTALSCORE, json.toJson(totalScore));
                 prefs.flush();
@@ -345,7 +350,7 @@ public class GameStateHandler {
             return;
 
         synchronized (gameStateMonitor) {
-            if (!(Gdx.files.isLocalStorageAvailable() ? Gdx.files.local(FILENAME_BESTSCORES).exists()
+            if (!(Gdx.files.isLocalStorageAvailable() ? persistenceWorker.exists(FILENAME_BESTSCORES)
                     : prefs.contains(FILENAME_BESTSCORES))) {
                 Gdx.app.log("Gamestate", "No scores found.");
                 bestScores = new BestScore.BestScoreMap();
@@ -354,7 +359,7 @@ public class GameStateHandler {
                 try {
                     String decoded;
                     if (Gdx.files.isLocalStorageAvailable())
-                        decoded = decode(Gdx.files.local(FILENAME_BESTSCORES).readString(), SAVEGAMEKEY);
+                        decoded = persistenceWorker.readString(FILENAME_BESTSCORES, SAVEGAMEKEY);
                     else
                         decoded = decode(prefs.getString(FILENAME_BESTSCORES), SAVEGAMEKEY);
                     bestScores = json.fromJson(BestScore.BestScoreMap.class, decoded);
@@ -370,15 +375,18 @@ public class GameStateHandler {
         }
     }
 
+    /**
+     * saves the best scores to file in background
+     */
     public void saveBestScores() {
         synchronized (gameStateMonitor) {
             Json json = new Json();
             json.setOutputType(JsonWriter.OutputType.minimal);
-            String encoded = encode(json.toJson(bestScores), SAVEGAMEKEY);
+            String jsonString = json.toJson(bestScores);
             if (Gdx.files.isLocalStorageAvailable())
-                Gdx.files.local(FILENAME_BESTSCORES).writeString(encoded, false);
+                persistenceWorker.write(FILENAME_BESTSCORES, jsonString, SAVEGAMEKEY);
             else {
-                prefs.putString(FILENAME_BESTSCORES, encoded);
+                prefs.putString(FILENAME_BESTSCORES, encode(jsonString, SAVEGAMEKEY));
                 prefs.flush();
             }
         }
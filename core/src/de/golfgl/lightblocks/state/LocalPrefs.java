@@ -1,13 +1,21 @@
 package de.golfgl.lightblocks.state;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
 import com.badlogic.gdx.utils.TimeUtils;
 
+import java.util.Comparator;
+
 import javax.annotation.Nonnull;
 
 import de.golfgl.lightblocks.LightBlocksGame;
+import de.golfgl.lightblocks.backend.BackendScore;
 import de.golfgl.lightblocks.backend.MatchTurnRequestInfo;
 import de.golfgl.lightblocks.menu.DonationDialog;
 import de.golfgl.lightblocks.menu.SettingsScreen;
@@ -54,6 +62,7 @@ public class LocalPrefs {
     private static final String PREF_KEY_BACKEND_PASS = "backendPassKey";
     private static final String PREF_KEY_BACKEND_NICK = "backendNickname";
     private static final String PREF_KEY_TURN_TO_UPLOAD = "turnTouUpload";
+    private static final String PREF_KEY_SCORES_TO_UPLOAD = "scoresToUpload";
     private static final String PREF_KEY_LAST_WELCOME_REQUEST = "lastWelcomeRequest";
     private static final String PREF_KEY_BATTLE_LEVEL = "battleLevel";
     private static final String PREF_KEY_PUSH_TOKEN = "pushToken";
@@ -62,7 +71,15 @@ public class LocalPrefs {
     private static final String PREF_KEY_VIB_HAPTICFEEDBACK = "vib_haptic";
     private static final String PREF_KEY_VIB_ENABLED = "vib_enabled";
     private static final String PREF_KEY_VIB_ONLYCONTROLLER = "vib_onlycontroller";
+    // geänderte Einstellungen werden spätestens nach dieser Zeit geschrieben
+    static final long FLUSH_DELAY_MS = 3000;
+    // eine Datei pro Score, damit eine Änderung der Queue nicht alle Replays neu schreibt
+    private static final String DIR_SCORES_TO_UPLOAD = "data/upload/";
+    // frühere Versionen: alle Scores in einer Datei
+    private static final String FILENAME_SCORES_TO_UPLOAD = "data/scores_upload.json";
     private final Preferences prefs;
+    private boolean dirty;
+    private long dirtySinceMs;
     private Boolean playMusic;
     private Boolean playSounds;
     private Boolean showTouchPanel;
@@ -93,11 +110,42 @@ public class LocalPrefs {
     private Boolean vibrationEnabled;
     private Boolean vibrationHaptic;
     private Boolean vibrationOnlyController;
+    private PersistenceWorker persistenceWorker;
+    // nur ohne lokale Dateien (Web), dann in den Preferences gespeichert
+    private Array<BackendScore> scoresToUploadInPrefs;
 
     public LocalPrefs(Preferences prefs) {
         this.prefs = prefs;
     }
 
+    /**
+     * Setter schreiben nur in die Preferences im Speicher, das Flush auf den Datenträger (auf Android das komplette
+     * XML) erfolgt gesammelt über {@link #update()} oder {@link #commit()}
+     */
+    private void markDirty() {
+        if (!dirty) {
+            dirty = true;
+            dirtySinceMs = TimeUtils.millis();
+        }
+    }
+
+    /**
+     * schreibt die Einstellungen sofort, auch ohne vorheriges markDirty(). Aufzurufen bei pause/dispose und für
+     * Werte, die nicht verloren gehen dürfen
+     */
+    public void commit() {
+        dirty = false;
+        prefs.flush();
+    }
+
+    /**
+     * einmal pro Frame aufzurufen, schreibt geänderte Einstellungen wenn die Verzögerung abgelaufen ist
+     */
+    public void update() {
+        if (dirty && TimeUtils.timeSinceMillis(dirtySinceMs) >= FLUSH_DELAY_MS)
+            commit();
+    }
+
     public Boolean getGpgsAutoLogin() {
         if (gpgsAutoLogin == null)
             gpgsAutoLogin = prefs.getBoolean("gpgsAutoLogin", true);
@@ -108,7 +156,7 @@ public class LocalPrefs {
     public void setGpgsAutoLogin(Boolean gpgsAutoLogin) {
         if (gpgsAutoLogin != this.gpgsAutoLogin) {
             prefs.putBoolean("gpgsAutoLogin", gpgsAutoLogin);
-            prefs.flush();
+            markDirty();
         }
         this.gpgsAutoLogin = gpgsAutoLogin;
     }
@@ -124,7 +172,7 @@ public class LocalPrefs {
         if (this.playMusic != playMusic) {
             this.playMusic = playMusic;
             prefs.putBoolean("musicPlayback", playMusic);
-            prefs.flush();
+            markDirty();
         }
     }
 
@@ -146,7 +194,7 @@ public class LocalPrefs {
         if (this.playSounds != playSounds) {
             this.playSounds = playSounds;
             prefs.putBoolean("soundPlayback", playSounds);
-            prefs.flush();
+            markDirty();
         }
     }
 
@@ -161,7 +209,7 @@ public class LocalPrefs {
         if (this.blockColorMode != blockColorMode) {
             this.blockColorMode = blockColorMode;
             prefs.putInteger("blockColorMode", blockColorMode);
-            prefs.flush();
+            markDirty();
             BlockActor.initColor(blockColorMode);
         }
     }
@@ -177,7 +225,7 @@ public class LocalPrefs {
         if (this.showGhostpiece != showGhostpiece) {
             this.showGhostpiece = showGhostpiece;
             prefs.putBoolean(KEY_SHOW_GHOSTPIECE, showGhostpiece);
-            prefs.flush();
+            markDirty();
         }
     }
 
@@ -193,7 +241,7 @@ public class LocalPrefs {
             this.showTouchPanel = showTouchPanel;
 
             prefs.putBoolean("showTouchPanel", showTouchPanel);
-            prefs.flush();
+            markDirty();
         }
     }
 
@@ -204,7 +252,7 @@ public class LocalPrefs {
 
     public void setTouchPanelSize(int touchPanelSize) {
         prefs.putInteger("touchPanelSize", touchPanelSize);
-        prefs.flush();
+        markDirty();
     }
 
     public String loadControllerMappings() {
@@ -213,7 +261,7 @@ public class LocalPrefs {
 
     public void saveControllerMappings(String json) {
         prefs.putString("controllerMappings", json);
-        prefs.flush();
+        markDirty();
     }
 
     public Boolean getDontAskForRating() {
@@ -226,7 +274,7 @@ public class LocalPrefs {
     public void setDontAskForRating(Boolean dontAskForRating) {
         this.dontAskForRating = dontAskForRating;
         prefs.putBoolean("dontAskForRating", dontAskForRating);
-        prefs.flush();
+        markDirty();
     }
 
     public int getSwipeUpType() {
@@ -239,7 +287,7 @@ public class LocalPrefs {
     public void setSwipeUpType(Integer swipeUpType) {
         this.swipeUpType = swipeUpType;
         prefs.putInteger("swipeUpType", swipeUpType);
-        prefs.flush();
+        markDirty();
     }
 
     public float getGridIntensity() {
@@ -252,7 +300,7 @@ public class LocalPrefs {
     public void setGridIntensity(float gridIntensity) {
         this.gridIntensity = gridIntensity;
         prefs.putFloat("gridIntensity", gridIntensity);
-        prefs.flush();
+        markDirty();
     }
 
     public TouchControlType getUsedTouchControls() {
@@ -265,7 +313,7 @@ public class LocalPrefs {
     public void setUsedTouchControls(TouchControlType type) {
         this.touchControlType = type;
         prefs.putInteger(PREF_KEY_TOUCHCONTROLTYPE, type.toInteger());
-        prefs.flush();
+        markDirty();
     }
 
     public boolean isDisableTouchWhenGamepad() {
@@ -278,7 +326,7 @@ public class LocalPrefs {
     public void setDisableTouchWhenGamepad(boolean disableTouchWhenGamepad) {
         this.disableTouchWhenGamepad = disableTouchWhenGamepad;
         prefs.putBoolean(PREF_KEY_DISABLETOUCH, disableTouchWhenGamepad);
-        prefs.flush();
+        markDirty();
     }
 
     public int getMarathonBeginningLevel() {
@@ -292,7 +340,7 @@ public class LocalPrefs {
     public void saveMarathonLevelAndType(int beginningLevel, int selectedType) {
         prefs.putInteger(PREF_KEY_MARATHON_TYPE, selectedType);
         prefs.putInteger(PREF_KEY_LEVEL, beginningLevel);
-        prefs.flush();
+        markDirty();
     }
 
     public int getLastUsedModeType() {
@@ -301,12 +349,12 @@ public class LocalPrefs {
 
     public void saveLastUsedModeType(int selectedType) {
         prefs.putInteger(PREF_KEY_MODE_TYPE, selectedType);
-        prefs.flush();
+        markDirty();
     }
 
     public void saveMarathonLevel(int beginningLevel) {
         prefs.putInteger(PREF_KEY_LEVEL, beginningLevel);
-        prefs.flush();
+        markDirty();
     }
 
     public int getBattleBeginningLevel() {
@@ -315,7 +363,7 @@ public class LocalPrefs {
 
     public void saveBattleBeginningLevel(int beginningLevel) {
         prefs.putInteger(PREF_KEY_BATTLE_LEVEL, beginningLevel);
-        prefs.flush();
+        markDirty();
     }
 
     public int getFreezeDifficulty() {
@@ -324,7 +372,7 @@ public class LocalPrefs {
 
     public void saveFreezeDifficulty(int difficulty) {
         prefs.putInteger(PREF_KEY_FREEZE_DIFFICULTY, difficulty);
-        prefs.flush();
+        markDirty();
     }
 
     public int getLastSinglePlayerMenuPage() {
@@ -333,7 +381,7 @@ public class LocalPrefs {
 
     public void saveLastUsedSinglePlayerMenuPage(int pageIdx) {
         prefs.putInteger(PREF_KEY_SPACTIVEPAGE, pageIdx);
-        prefs.flush();
+        markDirty();
     }
 
     public int getLastMultiPlayerMenuPage() {
@@ -342,7 +390,7 @@ public class LocalPrefs {
 
     public void saveLastUsedMultiPlayerMenuPage(int currentPageIndex) {
         prefs.putInteger(PREF_KEY_MPACTIVEPAGE, currentPageIndex);
-        prefs.flush();
+        markDirty();
     }
 
     public int getScreenLastShownVersion(String screenKey, int defaultVersion) {
@@ -356,7 +404,7 @@ public class LocalPrefs {
      */
     public void setScreenShownInThisVersion(String screenKey) {
         prefs.putInteger(KEY_SCREENSHOWNPREFIX + screenKey, LightBlocksGame.GAME_VERSIONNUMBER);
-        prefs.flush();
+        markDirty();
     }
 
     /**
@@ -366,7 +414,7 @@ public class LocalPrefs {
         if (lastUsedVersion == null) {
             lastUsedVersion = prefs.getInteger(KEY_LASTSTARTEDVERSION, 0);
             prefs.putInteger(KEY_LASTSTARTEDVERSION, LightBlocksGame.GAME_VERSIONNUMBER);
-            prefs.flush();
+            markDirty();
         }
 
         return lastUsedVersion;
@@ -381,7 +429,7 @@ public class LocalPrefs {
             long millis = TimeUtils.millis();
 
             prefs.putLong(KEY_LASTSTARTTIME, millis);
-            prefs.flush();
+            markDirty();
 
             if (lastStartedMs < millis - (1000 * 60 * 60 * 24 * 365))
                 daysSinceLastStart = -1;
@@ -431,7 +479,7 @@ public class LocalPrefs {
         prefs.putInteger(TVREMOTE_ROTATE_CC, tvRemoteKeyConfig.keyCodeRotateCounterclock);
         prefs.putInteger(TVREMOTE_HOLD, tvRemoteKeyConfig.keyCodeHold);
         prefs.putInteger(TVREMOTE_FREEZE, tvRemoteKeyConfig.keyCodeFreeze);
-        prefs.flush();
+        markDirty();
     }
 
     public void resetTvRemoteConfig() {
@@ -444,7 +492,7 @@ public class LocalPrefs {
         prefs.remove(TVREMOTE_ROTATE_CC);
         prefs.remove(TVREMOTE_HOLD);
         prefs.remove(TVREMOTE_FREEZE);
-        prefs.flush();
+        markDirty();
 
     }
 
@@ -506,7 +554,7 @@ public class LocalPrefs {
             decryptedLevel = decryptedLevel + "|" + sku;
 
         prefs.putString(SUPPORTLEVEL, GameStateHandler.encode(decryptedLevel, CRYPTOKEY));
-        prefs.flush();
+        commit();
         // Neuauswertung auslösen
         supportLevel = null;
     }
@@ -522,7 +570,7 @@ public class LocalPrefs {
         this.nextDonationReminder = nextDonationReminder;
 
         prefs.putLong(PREF_KEY_DONATIONREMINDER, nextDonationReminder);
-        prefs.flush();
+        markDirty();
     }
 
     public boolean isShowTouchHoldButton() {
@@ -537,7 +585,7 @@ public class LocalPrefs {
         this.showTouchHoldButton = showTouchHoldButton;
 
         prefs.putBoolean(PREF_KEY_SHOW_TOUCH_HOLD, showTouchHoldButton);
-        prefs.flush();
+        markDirty();
     }
 
     public boolean isInvertGesturesRotation() {
@@ -552,7 +600,7 @@ public class LocalPrefs {
         this.invertGesturesRotation = invertGesturesRotation;
 
         prefs.putBoolean(PREF_KEY_INVERT_GEST_ROTATION, invertGesturesRotation);
-        prefs.flush();
+        markDirty();
     }
 
     public boolean isShowHardDropButtonOnScreenGamepad() {
@@ -567,7 +615,7 @@ public class LocalPrefs {
         this.showHardDropButtonOnScreenGamepad = showHardDropButtonOnScreenGamepad;
 
         prefs.putBoolean(PREF_KEY_OSG_HARDDROP_BUTTON, showHardDropButtonOnScreenGamepad);
-        prefs.flush();
+        markDirty();
     }
 
     public boolean isShowDpadOnScreenGamepad() {
@@ -582,7 +630,7 @@ public class LocalPrefs {
         this.showDpadOnScreenGamepad = showDpadButtonOnScreenGamepad;
 
         prefs.putBoolean(PREF_KEY_OSG_DPAD, showDpadButtonOnScreenGamepad);
-        prefs.flush();
+        markDirty();
     }
 
     public int getOnScreenGamepadOpacity() {
@@ -596,7 +644,7 @@ public class LocalPrefs {
     public void setOnScreenGamepadOpacity(int onScreenGamepadOpacity) {
         this.onScreenGamepadOpacity = onScreenGamepadOpacity;
         prefs.putInteger(PREF_KEY_OSG_OPACITY, onScreenGamepadOpacity);
-        prefs.flush();
+        markDirty();
     }
 
     public boolean getVibrationEnabled() {
@@ -610,7 +658,7 @@ public class LocalPrefs {
     public void setVibrationEnabled(boolean vibrationEnabled) {
         this.vibrationEnabled = vibrationEnabled;
         prefs.putBoolean(PREF_KEY_VIB_ENABLED, vibrationEnabled);
-        prefs.flush();
+        markDirty();
     }
 
     public boolean getVibrationHaptic() {
@@ -624,7 +672,7 @@ public class LocalPrefs {
     public void setVibrationHaptic(boolean vibrationHaptic) {
         this.vibrationHaptic = vibrationHaptic;
         prefs.putBoolean(PREF_KEY_VIB_HAPTICFEEDBACK, vibrationHaptic);
-        prefs.flush();
+        markDirty();
     }
 
     public boolean getVibrationOnlyController() {
@@ -638,7 +686,7 @@ public class LocalPrefs {
     public void setVibrationOnlyController(boolean vibrationOnlyController) {
         this.vibrationOnlyController = vibrationOnlyController;
         prefs.putBoolean(PREF_KEY_VIB_ONLYCONTROLLER, vibrationOnlyController);
-        prefs.flush();
+        markDirty();
     }
 
     public String getBackendUserId() {
@@ -657,7 +705,7 @@ public class LocalPrefs {
             prefs.putString(PREF_KEY_BACKEND_USERID, userId);
             prefs.putString(PREF_KEY_BACKEND_PASS, passKey);
         }
-        prefs.flush();
+        commit();
     }
 
     public String getBackendNickname() {
@@ -672,7 +720,7 @@ public class LocalPrefs {
         if (this.nickName == null || !this.nickName.equals(nickName)) {
             prefs.putString(PREF_KEY_BACKEND_NICK, nickName);
             this.nickName = nickName;
-            prefs.flush();
+            markDirty();
         }
     }
 
@@ -691,7 +739,7 @@ public class LocalPrefs {
             this.pushToken = pushToken;
             readPushToken = true;
             prefs.putString(PREF_KEY_PUSH_TOKEN, pushToken);
-            prefs.flush();
+            markDirty();
         }
     }
 
@@ -710,7 +758,162 @@ public class LocalPrefs {
         else
             prefs.remove(PREF_KEY_TURN_TO_UPLOAD);
 
-        prefs.flush();
+        commit();
+    }
+
+    /**
+     * lädt die noch nicht hochgeladenen Scores im Hintergrund
+     *
+     * @param listener wird im Render-Thread aufgerufen, mit den Scores nach Alter sortiert
+     */
+    public void loadScoresToUpload(final ScoresToUploadListener listener) {
+        // von früheren Versionen und ohne lokale Dateien in den Preferences
+        final String prefsJson = prefs.getString(PREF_KEY_SCORES_TO_UPLOAD, null);
+
+        if (!Gdx.files.isLocalStorageAvailable()) {
+            scoresToUploadInPrefs = parseScores(prefsJson);
+            listener.onScoresLoaded(new Array<>(scoresToUploadInPrefs));
+            return;
+        }
+
+        getPersistenceWorker().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Array<BackendScore> scores = readScoresToUpload(prefsJson);
+                Gdx.app.postRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        // erst jetzt, da die Scores in eigene Dateien übernommen sind
+                        if (prefsJson != null) {
+                            prefs.remove(PREF_KEY_SCORES_TO_UPLOAD);
+                            commit();
+                        }
+                        listener.onScoresLoaded(scores);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * läuft im Thread des PersistenceWorker
+     */
+    private Array<BackendScore> readScoresToUpload(String prefsJson) {
+        Array<BackendScore> scores = new Array<>();
+        FileHandle[] files = Gdx.files.local(DIR_SCORES_TO_UPLOAD).list();
+        for (FileHandle file : files) {
+            BackendScore score = null;
+            try {
+                score = BackendScore.fromPersistJson(new JsonReader().parse(file.readString()));
+            } catch (Throwable t) {
+                // beim Schreiben abgebrochen
+            }
+            if (score != null)
+                scores.add(score);
+            else
+                file.delete();
+        }
+
+        // frühere Versionen in eigene Dateien übernehmen
+        Array<BackendScore> legacyScores = parseScores(prefsJson);
+        FileHandle legacyFile = Gdx.files.local(FILENAME_SCORES_TO_UPLOAD);
+        if (legacyFile.exists())
+            legacyScores.addAll(parseScores(legacyFile.readString()));
+        for (BackendScore score : legacyScores) {
+            FileHandle scoreFile = Gdx.files.local(getScoreFileName(score));
+            if (scoreFile.exists())
+                continue;
+            scoreFile.writeString(score.toPersistJson().toJson(JsonWriter.OutputType.json), false);
+            scores.add(score);
+        }
+        legacyFile.delete();
+
+        scores.sort(new Comparator<BackendScore>() {
+            @Override
+            public int compare(BackendScore o1, BackendScore o2) {
+                return Long.compare(o1.scoreGainedMillis, o2.scoreGainedMillis);
+            }
+        });
+        return scores;
+    }
+
+    private static Array<BackendScore> parseScores(String scoresJson) {
+        Array<BackendScore> scores = new Array<>();
+        if (scoresJson != null) {
+            try {
+                for (JsonValue scoreJson = new JsonReader().parse(scoresJson).child; scoreJson != null;
+                     scoreJson = scoreJson.next) {
+                    BackendScore score = BackendScore.fromPersistJson(scoreJson);
+                    if (score != null)
+                        scores.add(score);
+                }
+            } catch (Throwable t) {
+                // dann eben leer
+            }
+        }
+        return scores;
+    }
+
+    private static String getScoreFileName(BackendScore score) {
+        return DIR_SCORES_TO_UPLOAD + Long.toHexString(score.scoreGainedMillis) + "_"
+                + Integer.toHexString(score.gameMode.hashCode()) + ".json";
+    }
+
+    /**
+     * speichert einen eingereihten Score, damit er einen Neustart überlebt. scoreGainedMillis muss gesetzt sein
+     */
+    public void addScoreToUpload(BackendScore score) {
+        if (scoresToUploadInPrefs != null) {
+            scoresToUploadInPrefs.add(score);
+            saveScoresToUploadInPrefs();
+        } else
+            getPersistenceWorker().write(getScoreFileName(score), score.toPersistJson());
+    }
+
+    /**
+     * entfernt einen hochgeladenen oder verworfenen Score
+     */
+    public void removeScoreToUpload(BackendScore score) {
+        if (scoresToUploadInPrefs != null) {
+            scoresToUploadInPrefs.removeValue(score, true);
+            saveScoresToUploadInPrefs();
+        } else
+            getPersistenceWorker().delete(getScoreFileName(score));
+    }
+
+    private void saveScoresToUploadInPrefs() {
+        if (scoresToUploadInPrefs.size > 0) {
+            JsonValue root = new JsonValue(JsonValue.ValueType.array);
+            for (BackendScore score : scoresToUploadInPrefs)
+                root.addChild(score.toPersistJson());
+            prefs.putString(PREF_KEY_SCORES_TO_UPLOAD, root.toJson(JsonWriter.OutputType.json));
+        } else
+            prefs.remove(PREF_KEY_SCORES_TO_UPLOAD);
+
+        commit();
+    }
+
+    /**
+     * der Thread zum Schreiben lokaler Dateien, auch für die Spielstände des {@link GameStateHandler}
+     */
+    PersistenceWorker getPersistenceWorker() {
+        if (persistenceWorker == null)
+            persistenceWorker = new PersistenceWorker();
+
+        return persistenceWorker;
+    }
+
+    /**
+     * wartet bis die im Hintergrund geschriebenen Dateien fertig sind, auch die Spielstände. Für pause
+     */
+    public void waitForPendingWrites() {
+        if (persistenceWorker != null)
+            persistenceWorker.waitForPendingWrites();
+    }
+
+    public void dispose() {
+        if (persistenceWorker != null)
+            persistenceWorker.dispose();
     }
 
     /**
@@ -720,7 +923,7 @@ public class LocalPrefs {
         long retVal = prefs.getLong(PREF_KEY_LAST_WELCOME_REQUEST, 0);
 
         prefs.putLong(PREF_KEY_LAST_WELCOME_REQUEST, TimeUtils.millis());
-        prefs.flush();
+        markDirty();
 
         return retVal;
     }
@@ -746,14 +949,14 @@ public class LocalPrefs {
         this.onScreenGamepadConfigLandscape = config;
 
         prefs.putString(PREF_KEY_OSG_LANDSCAPE, config.toJson());
-        prefs.flush();
+        markDirty();
     }
 
     public void saveGamepadConfigPortrait(OnScreenGamepadConfig config) {
         this.onScreenGamepadConfigPortrait = config;
 
         prefs.putString(PREF_KEY_OSG_PORTRAIT, config.toJson());
-        prefs.flush();
+        markDirty();
     }
 
     public enum TouchControlType {
@@ -803,4 +1006,8 @@ public class LocalPrefs {
         public int keyCodeHold;
         public int keyCodeFreeze;
     }
+
+    public interface ScoresToUploadListener {
+        void onScoresLoaded(Array<BackendScore> scores);
+    }
 }
@@ -0,0 +1,192 @@
+package de.golfgl.lightblocks.state;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
+
+/**
+ * Schreibt lokale Dateien in einem eigenen Thread, damit das Speichern keinen Frame blockiert. Die Aufträge laufen
+ * in der Reihenfolge ab, in der sie eingereicht wurden. Wird eine Datei erneut gespeichert bevor sie geschrieben
+ * wurde, wird nur der letzte Stand geschrieben.
+ * <p>
+ * Der Inhalt wird beim Einreichen übergeben (Snapshot), das Verschlüsseln und Schreiben erfolgt im Thread. Lesen
+ * über diese Klasse berücksichtigt noch nicht geschriebene Stände.
+ */
+class PersistenceWorker implements Disposable {
+    private static final String LOG_TAG = "Gamestate";
+
+    private final AsyncExecutor executor = new AsyncExecutor(1, "Persistence");
+    // Dateiname -> noch nicht geschriebener Stand
+    private final ObjectMap<String, PendingWrite> pendingWrites = new ObjectMap<String, PendingWrite>();
+    // Aufträge können aus verschiedenen Threads eingereicht und abgewartet werden
+    private volatile AsyncResult<Void> lastResult;
+
+    /**
+     * @param encodeKey Schlüssel für {@link GameStateHandler#encode(String, String)}, null für Klartext
+     */
+    void write(String fileName, String content, String encodeKey) {
+        enqueue(fileName, content, null, encodeKey);
+    }
+
+    /**
+     * wie {@link #write(String, String, String)}, das JSON wird aber erst im Thread zum Text. Der JsonValue darf
+     * danach nicht mehr geändert werden
+     */
+    void write(String fileName, JsonValue json) {
+        enqueue(fileName, null, json, null);
+    }
+
+    void delete(String fileName) {
+        enqueue(fileName, null, null, null);
+    }
+
+    /**
+     * führt die Aufgabe im Thread aus, nachdem alle vorher eingereichten Aufträge geschrieben sind
+     */
+    void execute(final Runnable task) {
+        lastResult = executor.submit(new AsyncTask<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    Gdx.app.error(LOG_TAG, "Error in background task", t);
+                }
+                return null;
+            }
+        });
+    }
+
+    boolean exists(String fileName) {
+        synchronized (pendingWrites) {
+            PendingWrite pending = pendingWrites.get(fileName);
+            if (pending != null)
+                return !pending.isDelete();
+        }
+        return Gdx.files.local(fileName).exists();
+    }
+
+    /**
+     * @param decodeKey Schlüssel für {@link GameStateHandler#decode(String, String)}, null für Klartext
+     * @return Inhalt der Datei oder null, wenn sie gelöscht werden soll
+     */
+    String readString(String fileName, String decodeKey) {
+        synchronized (pendingWrites) {
+            PendingWrite pending = pendingWrites.get(fileName);
+            if (pending != null)
+                return pending.getContent();
+        }
+        String content = Gdx.files.local(fileName).readString();
+        return decodeKey != null ? GameStateHandler.decode(content, decodeKey) : content;
+    }
+
+    /**
+     * wartet bis alle eingereichten Aufträge geschrieben sind. Für pause, wenn die App danach beendet werden kann
+     */
+    void waitForPendingWrites() {
+        // nicht zurücksetzen, sonst geht ein inzwischen eingereichter Auftrag verloren
+        AsyncResult<Void> result = lastResult;
+        if (result == null)
+            return;
+
+        try {
+            result.get();
+        } catch (GdxRuntimeException e) {
+            Gdx.app.error(LOG_TAG, "Error waiting for pending writes", e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        // wartet auf die ausstehenden Aufträge
+        executor.dispose();
+        lastResult = null;
+    }
+
+    private void enqueue(final String fileName, String content, JsonValue json, String encodeKey) {
+        synchronized (pendingWrites) {
+            PendingWrite pending = pendingWrites.get(fileName);
+            if (pending == null) {
+                pending = new PendingWrite();
+                pendingWrites.put(fileName, pending);
+            }
+            pending.content = content;
+            pending.json = json;
+            pending.encodeKey = encodeKey;
+            pending.version++;
+
+            if (pending.scheduled)
+                return;
+            pending.scheduled = true;
+        }
+
+        lastResult = executor.submit(new AsyncTask<Void>() {
+            @Override
+            public Void call() {
+                process(fileName);
+                return null;
+            }
+        });
+    }
+
+    private void process(String fileName) {
+        PendingWrite pending;
+        String content;
+        JsonValue json;
+        String encodeKey;
+        int version;
+        synchronized (pendingWrites) {
+            pending = pendingWrites.get(fileName);
+            if (pending == null)
+                return;
+            content = pending.content;
+            json = pending.json;
+            encodeKey = pending.encodeKey;
+            version = pending.version;
+            // ab jetzt eingereichte Stände brauchen einen neuen Auftrag
+            pending.scheduled = false;
+        }
+
+        try {
+            if (json != null)
+                content = json.toJson(JsonWriter.OutputType.json);
+
+            if (content == null)
+                Gdx.files.local(fileName).delete();
+            else
+                Gdx.files.local(fileName).writeString(encodeKey != null ? GameStateHandler.encode(content, encodeKey)
+                        : content, false);
+        } catch (Throwable t) {
+            Gdx.app.error(LOG_TAG, "Error writing " + fileName, t);
+        }
+
+        synchronized (pendingWrites) {
+            // erst nach dem Schreiben entfernen, damit Lesende nie eine halb geschriebene Datei sehen
+            if (pendingWrites.get(fileName) == pending && pending.version == version)
+                pendingWrites.remove(fileName);
+        }
+    }
+
+    private static class PendingWrite {
+        // beide null zum Löschen
+        String content;
+        JsonValue json;
+        String encodeKey;
+        int version;
+        boolean scheduled;
+
+        boolean isDelete() {
+            return content == null && json == null;
+        }
+
+        String getContent() {
+            return json != null ? json.toJson(JsonWriter.OutputType.json) : content;
+        }
+    }
+}
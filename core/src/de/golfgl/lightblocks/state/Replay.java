@@ -1,9 +1,10 @@
 package de.golfgl.lightblocks.state;
 
+import com.badlogic.gdx.utils.Base64Coder;
+import com.badlogic.gdx.utils.ByteArray;
 import com.badlogic.gdx.utils.StringBuilder;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 import de.golfgl.lightblocks.model.Gameboard;
 import de.golfgl.lightblocks.model.Tetromino;
@@ -21,15 +22,25 @@ public class Replay {
     private static final char SEP_DEFAULT = ':';
     private static final char SEP_MAJOR = '#';
     private static final String KEY_VERSION = "1";
-    private LinkedList<ReplayStep> replaySteps;
+    private static final String KEY_VERSION_BINARY = "2";
+    // die aufgezeichneten Steps kompakt kodiert, damit lange Spiele nicht den Speicher füllen. Der
+    // zuletzt hinzugefügte Step wird erst kodiert, wenn der nächste kommt, da er noch geändert werden kann
+    private BinaryCodec recording;
+    private ReplayStep pendingStep;
+    // im Replay-Mode dekodiert
     private ArrayList<ReplayStep> arraySteps;
     private ArrayList<AdditionalInformation> arrayAdditional;
+    // Index für die Suche nach Zeit: alle Steps mit Position des aktiven Blocks, aufsteigend nach Zeit
+    private int[] keyframeStepIdx;
+    private int[] keyframeTimeMs;
+    private int keyframeCount;
+    // je Step der Index des letzten Steps mit Spielfeld, -1 wenn es keinen gibt
+    private int[] gameboardStepIdx;
     private boolean isValid;
     private int currentReplayStepIdx;
-    private int lastGameboardStepIdx;
 
     public Replay() {
-        this.replaySteps = new LinkedList<ReplayStep>();
+        this.recording = new BinaryCodec();
         isValid = true;
     }
 
@@ -50,30 +61,57 @@ public class Replay {
     }
 
     /**
-     * setzt den Replay-Mode: Umkopieren in Array, setzen der aktuellen Position
+     * setzt den Replay-Mode: Berechnen der Zusatzinfos und des Index, setzen der aktuellen Position
      */
     private void setReplayMode() {
         if (arraySteps == null) {
-            arraySteps = new ArrayList<ReplayStep>(replaySteps);
-
-            if (!isValid())
-                arraySteps.clear();
+            arraySteps = isValid() ? decodeSteps() : new ArrayList<ReplayStep>();
 
             calcAdditionalInformation();
 
             currentReplayStepIdx = -1;
-            lastGameboardStepIdx = arraySteps.size() + 1;
         }
     }
 
+    private ArrayList<ReplayStep> decodeSteps() {
+        ArrayList<ReplayStep> steps = new ArrayList<ReplayStep>();
+        BinaryCodec reader = new BinaryCodec(recording.bytes.items, recording.bytes.size);
+        while (reader.hasMore()) {
+            ReplayStep step = reader.readStep();
+            if (step == null)
+                break;
+            steps.add(step);
+        }
+
+        if (pendingStep != null)
+            steps.add(pendingStep);
+
+        return steps;
+    }
+
+    private void addStep(ReplayStep step) {
+        if (pendingStep != null)
+            recording.writeStep(pendingStep);
+
+        pendingStep = step;
+        setChanged();
+    }
+
     /**
      * Berechnet die Infos, die nicht explizit im Replay stehen
      */
     private void calcAdditionalInformation() {
         int numBlocks = 0;
         int cleared = 0;
+        int score = 0;
         byte[] gameboard = null;
+        int lastGameboardStep = -1;
+        int maxTimeMs = 0;
         arrayAdditional = new ArrayList<>(arraySteps.size());
+        gameboardStepIdx = new int[arraySteps.size()];
+        keyframeStepIdx = new int[arraySteps.size()];
+        keyframeTimeMs = new int[arraySteps.size()];
+        keyframeCount = 0;
 
         // einmal von vorn nach hinten...
         for (int step = 0; step < arraySteps.size(); step++) {
@@ -81,8 +119,19 @@ public class Replay {
             AdditionalInformation add = new AdditionalInformation();
             arrayAdditional.add(add);
 
-            if (currentStep instanceof ReplayGameboardStep)
+            if (currentStep instanceof ReplayGameboardStep) {
                 gameboard = ((ReplayGameboardStep) currentStep).gameboard;
+                lastGameboardStep = step;
+            }
+            gameboardStepIdx[step] = lastGameboardStep;
+
+            if (currentStep.hasActivePiecePosition()) {
+                // Zeitstempel sind nicht zwingend monoton, für die binäre Suche das Maximum nehmen
+                maxTimeMs = Math.max(maxTimeMs, currentStep.timeMs);
+                keyframeStepIdx[keyframeCount] = step;
+                keyframeTimeMs[keyframeCount] = maxTimeMs;
+                keyframeCount++;
+            }
 
             // gezogene Blöcke
             if (currentStep.isNextPieceStep())
@@ -113,8 +162,13 @@ public class Replay {
                 }
             }
 
+            // wie bisher zählt der Score des ersten Steps nicht
+            if (currentStep.isDropStep() && step > 0)
+                score = ((ReplayDropPieceStep) currentStep).score;
+
             add.blockNum = numBlocks;
             add.clearedLines = cleared;
+            add.score = score;
         }
 
         // und nochmal zurück!
@@ -176,17 +230,33 @@ public class Replay {
             return getCurrentStep();
     }
 
+    /**
+     * @return Index im Keyframe-Index des ersten Steps mit Zeit >= timeMs, keyframeCount wenn es keinen gibt
+     */
+    private int findKeyframe(int timeMs) {
+        int low = 0;
+        int high = keyframeCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyframeTimeMs[mid] < timeMs)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
     private ReplayStep seekForwardToTimePos(int timeMs) {
-        while (getCurrentStep() != null && (getCurrentStep().timeMs < timeMs || !getCurrentStep()
-                .hasActivePiecePosition()))
-            seekToNextStep();
+        // erster Step mit aktivem Block ab timeMs
+        int keyframe = findKeyframe(timeMs);
+        currentReplayStepIdx = keyframe < keyframeCount ? keyframeStepIdx[keyframe] : arraySteps.size();
         return getCurrentStep();
     }
 
     private ReplayStep seekBackwardToTimePos(int timeMs) {
-        while (getCurrentStep() != null && (getCurrentStep().timeMs > timeMs || !getCurrentStep()
-                .hasActivePiecePosition()))
-            seekToPreviousStep();
+        // letzter Step mit aktivem Block bis timeMs
+        int keyframe = findKeyframe(timeMs + 1) - 1;
+        currentReplayStepIdx = keyframe >= 0 ? keyframeStepIdx[keyframe] : 0;
         return getCurrentStep();
     }
 
@@ -201,20 +271,9 @@ public class Replay {
     public ReplayStep getCurrentStep() {
         setReplayMode();
 
-        if (currentReplayStepIdx >= 0 && currentReplayStepIdx < arraySteps.size()) {
-            ReplayStep replayStep = arraySteps.get(currentReplayStepIdx);
-            if (replayStep instanceof ReplayGameboardStep)
-                lastGameboardStepIdx = currentReplayStepIdx;
-            else if (lastGameboardStepIdx > currentReplayStepIdx) {
-                lastGameboardStepIdx = currentReplayStepIdx;
-                while (lastGameboardStepIdx >= 0 && !(arraySteps.get(lastGameboardStepIdx) instanceof
-                        ReplayGameboardStep)) {
-                    lastGameboardStepIdx--;
-                }
-            }
-
-            return replayStep;
-        } else
+        if (currentReplayStepIdx >= 0 && currentReplayStepIdx < arraySteps.size())
+            return arraySteps.get(currentReplayStepIdx);
+        else
             return null;
     }
 
@@ -229,8 +288,11 @@ public class Replay {
     public byte[] getCurrentGameboard() {
         setReplayMode();
 
-        if (lastGameboardStepIdx >= 0 && lastGameboardStepIdx < arraySteps.size())
-            return ((ReplayGameboardStep) arraySteps.get(lastGameboardStepIdx)).gameboard;
+        // am Ende bleibt das letzte Spielfeld stehen
+        int stepIdx = Math.min(currentReplayStepIdx, arraySteps.size() - 1);
+        int gameboardStep = stepIdx >= 0 ? gameboardStepIdx[stepIdx] : -1;
+        if (gameboardStep >= 0)
+            return ((ReplayGameboardStep) arraySteps.get(gameboardStep)).gameboard;
         else
             return null;
     }
@@ -238,12 +300,8 @@ public class Replay {
     public int getCurrentScore() {
         setReplayMode();
         int scoreStep = Math.min(currentReplayStepIdx, arraySteps.size() - 1);
-        while (scoreStep > 0) {
-            ReplayStep replayStep = arraySteps.get(scoreStep);
-            if (replayStep.isDropStep())
-                return ((ReplayDropPieceStep) replayStep).score;
-            scoreStep--;
-        }
+        if (scoreStep > 0)
+            return arrayAdditional.get(scoreStep).score;
 
         return 0;
     }
@@ -259,8 +317,7 @@ public class Replay {
         // das Aktive Piece speichern
         currStep.saveActivePiecePos(activeTetromino);
 
-        replaySteps.add(currStep);
-        setChanged();
+        addStep(currStep);
 
         return currStep;
     }
@@ -270,16 +327,14 @@ public class Replay {
         currStep.timeMs = timeMs;
         currStep.saveGameboard(gameboard);
         currStep.saveActivePiecePos(activeTetromino);
-        replaySteps.add(currStep);
-        setChanged();
+        addStep(currStep);
     }
 
     public void addRotatePieceStep(int timeMs, Tetromino activeTetroMino) {
         RotateActivePieceStep currStep = new RotateActivePieceStep();
         currStep.timeMs = timeMs;
         currStep.saveActivePiecePos(activeTetroMino);
-        replaySteps.add(currStep);
-        setChanged();
+        addStep(currStep);
     }
 
     public void addMovePieceStep(int timeMs, boolean horizontal, byte distance) {
@@ -290,15 +345,14 @@ public class Replay {
             currStep = new VerticalMovePieceStep();
         currStep.timeMs = timeMs;
         currStep.moveDistance = distance;
-        replaySteps.add(currStep);
-        setChanged();
+        addStep(currStep);
     }
 
     public ReplayStep getLastAddedStep() {
-        if (arraySteps != null || replaySteps == null || replaySteps.isEmpty())
+        if (arraySteps != null)
             return null;
 
-        return replaySteps.getLast();
+        return pendingStep;
     }
 
     @Override
@@ -310,7 +364,7 @@ public class Replay {
         stringBuilder.append(KEY_VERSION);
         stringBuilder.append(SEP_MAJOR);
         int lastTimeStamp = 0;
-        for (ReplayStep step : replaySteps) {
+        for (ReplayStep step : arraySteps != null ? arraySteps : decodeSteps()) {
             step.appendTo(stringBuilder, lastTimeStamp);
             stringBuilder.append(SEP_MAJOR);
             lastTimeStamp = step.timeMs;
@@ -318,8 +372,31 @@ public class Replay {
         return stringBuilder.toString();
     }
 
+    /**
+     * Kompaktes Format (Version 2): Binär kodierte Steps als Base64. Zeitstempel als varint, Spielfelder
+     * als Differenz zum vorherigen Spielfeld. Wird von fromString() erkannt.
+     */
+    public String toCompactString() {
+        if (!isValid)
+            return "NV#";
+
+        // der noch offene Step wird nur für die Ausgabe kodiert
+        recording.mark();
+        if (pendingStep != null)
+            recording.writeStep(pendingStep);
+
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(KEY_VERSION_BINARY);
+        stringBuilder.append(SEP_MAJOR);
+        stringBuilder.append(Base64Coder.encode(recording.bytes.items, recording.bytes.size));
+
+        recording.resetToMark();
+        return stringBuilder.toString();
+    }
+
     public boolean fromString(String toParse) {
-        replaySteps.clear();
+        recording = new BinaryCodec();
+        pendingStep = null;
         isValid = false;
         setChanged();
 
@@ -329,6 +406,8 @@ public class Replay {
         int currentPos = findEndSeperator(0, toParse.length() - 1, toParse, SEP_MAJOR);
 
         String versionCode = toParse.substring(0, currentPos);
+        if (versionCode.equals(KEY_VERSION_BINARY))
+            return fromCompactString(toParse.substring(currentPos + 1));
         if (!versionCode.equals(KEY_VERSION))
             return false;
 
@@ -365,7 +444,7 @@ public class Replay {
             int nextMajorSep = findEndSeperator(currentPos, toParse.length() - 1, toParse, SEP_MAJOR);
 
             step.fromString(currentPos, toParse, nextMajorSep, lastTimeStamp);
-            replaySteps.add(step);
+            addStep(step);
             lastTimeStamp = step.timeMs;
 
             currentPos = nextMajorSep + 1;
@@ -375,6 +454,236 @@ public class Replay {
         return isValid;
     }
 
+    private boolean fromCompactString(String encoded) {
+        BinaryCodec codec;
+        try {
+            byte[] decoded = Base64Coder.decode(encoded);
+            codec = new BinaryCodec(decoded, decoded.length);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        // einmal komplett lesen, um die Daten zu prüfen und den Zustand zum Weiterschreiben herzustellen
+        try {
+            while (codec.hasMore()) {
+                if (codec.readStep() == null)
+                    return false;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // abgeschnittene Daten
+            return false;
+        }
+
+        recording = codec;
+        isValid = true;
+        return isValid;
+    }
+
+    /**
+     * Puffer für das kompakte Format. Merkt sich zusätzlich das zuletzt geschriebene bzw. gelesene
+     * Spielfeld, da Spielfelder als Differenz dazu gespeichert werden.
+     */
+    private static class BinaryCodec {
+        private final ByteArray bytes;
+        private final byte[] lastGameboard = new byte[Gameboard.GAMEBOARD_ALLROWS * Gameboard.GAMEBOARD_COLUMNS];
+        private int lastTimeStamp;
+        private int readPos;
+        // Zustand für mark() und resetToMark()
+        private final byte[] markedGameboard = new byte[lastGameboard.length];
+        private int markedSize;
+        private int markedTimeStamp;
+
+        BinaryCodec() {
+            bytes = new ByteArray(1024);
+            resetGameboard();
+        }
+
+        BinaryCodec(byte[] data, int length) {
+            bytes = new ByteArray(true, data, 0, length);
+            resetGameboard();
+        }
+
+        private void resetGameboard() {
+            for (int i = 0; i < lastGameboard.length; i++)
+                lastGameboard[i] = Gameboard.SQUARE_EMPTY;
+        }
+
+        boolean hasMore() {
+            return readPos < bytes.size;
+        }
+
+        void writeStep(ReplayStep step) {
+            step.writeTo(this, lastTimeStamp);
+            lastTimeStamp = step.timeMs;
+        }
+
+        /**
+         * @return der gelesene Step, null bei unbekanntem Typ
+         */
+        ReplayStep readStep() {
+            ReplayStep step;
+            switch (readByte()) {
+                case KEY_DROP_PIECE:
+                    step = new ReplayDropPieceStep();
+                    break;
+                case KEY_ROTATE_PIECE:
+                    step = new RotateActivePieceStep();
+                    break;
+                case KEY_NEXT_PIECE:
+                    step = new ReplayNextPieceStep();
+                    break;
+                case KEY_HORIZONTAL_MOVE:
+                    step = new HorizontalMovePieceStep();
+                    break;
+                case KEY_VERTICAL_MOVE:
+                    step = new VerticalMovePieceStep();
+                    break;
+                default:
+                    return null;
+            }
+
+            step.readFrom(this, lastTimeStamp);
+            lastTimeStamp = step.timeMs;
+            return step;
+        }
+
+        /**
+         * merkt sich den aktuellen Schreibstand, siehe resetToMark()
+         */
+        void mark() {
+            markedSize = bytes.size;
+            markedTimeStamp = lastTimeStamp;
+            System.arraycopy(lastGameboard, 0, markedGameboard, 0, lastGameboard.length);
+        }
+
+        /**
+         * verwirft alles, was seit mark() geschrieben wurde
+         */
+        void resetToMark() {
+            bytes.size = markedSize;
+            lastTimeStamp = markedTimeStamp;
+            System.arraycopy(markedGameboard, 0, lastGameboard, 0, lastGameboard.length);
+        }
+
+        void writeByte(int b) {
+            bytes.add((byte) b);
+        }
+
+        int readByte() {
+            if (readPos >= bytes.size)
+                throw new ArrayIndexOutOfBoundsException(readPos);
+            return bytes.get(readPos++) & 0xff;
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7f) != 0) {
+                writeByte((value & 0x7f) | 0x80);
+                value = value >>> 7;
+            }
+            writeByte(value);
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = readByte();
+                value = value | ((b & 0x7f) << shift);
+                shift += 7;
+            } while ((b & 0x80) != 0 && shift < 35);
+            return value;
+        }
+
+        void writeSignedVarInt(int value) {
+            // zigzag, damit kleine negative Werte auch kurz bleiben
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        int readSignedVarInt() {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Geänderte Reihen als Bitmaske, danach je geänderter Reihe die belegten Spalten als
+         * Bitmaske und die Blocktypen als Nibbles
+         */
+        void writeGameboard(byte[] gameboard) {
+            int changedRows = 0;
+            for (int row = 0; row < Gameboard.GAMEBOARD_ALLROWS; row++) {
+                for (int col = 0; col < Gameboard.GAMEBOARD_COLUMNS; col++) {
+                    int pos = row * Gameboard.GAMEBOARD_COLUMNS + col;
+                    if (gameboard[pos] != lastGameboard[pos]) {
+                        changedRows = changedRows | (1 << row);
+                        break;
+                    }
+                }
+            }
+            writeVarInt(changedRows);
+
+            for (int row = 0; row < Gameboard.GAMEBOARD_ALLROWS; row++) {
+                if ((changedRows & (1 << row)) == 0)
+                    continue;
+
+                int rowStart = row * Gameboard.GAMEBOARD_COLUMNS;
+                int occupied = 0;
+                for (int col = 0; col < Gameboard.GAMEBOARD_COLUMNS; col++)
+                    if (gameboard[rowStart + col] != Gameboard.SQUARE_EMPTY)
+                        occupied = occupied | (1 << col);
+                writeVarInt(occupied);
+
+                int pendingNibble = -1;
+                for (int col = 0; col < Gameboard.GAMEBOARD_COLUMNS; col++) {
+                    if ((occupied & (1 << col)) == 0)
+                        continue;
+                    int square = gameboard[rowStart + col] & 0xf;
+                    if (pendingNibble < 0)
+                        pendingNibble = square;
+                    else {
+                        writeByte(pendingNibble | (square << 4));
+                        pendingNibble = -1;
+                    }
+                }
+                if (pendingNibble >= 0)
+                    writeByte(pendingNibble);
+            }
+
+            System.arraycopy(gameboard, 0, lastGameboard, 0, lastGameboard.length);
+        }
+
+        byte[] readGameboard() {
+            int changedRows = readVarInt();
+
+            for (int row = 0; row < Gameboard.GAMEBOARD_ALLROWS; row++) {
+                if ((changedRows & (1 << row)) == 0)
+                    continue;
+
+                int rowStart = row * Gameboard.GAMEBOARD_COLUMNS;
+                int occupied = readVarInt();
+                int nibbles = 0;
+                int nibbleCount = 0;
+                for (int col = 0; col < Gameboard.GAMEBOARD_COLUMNS; col++) {
+                    if ((occupied & (1 << col)) == 0) {
+                        lastGameboard[rowStart + col] = Gameboard.SQUARE_EMPTY;
+                        continue;
+                    }
+                    if (nibbleCount == 0) {
+                        nibbles = readByte();
+                        nibbleCount = 2;
+                    }
+                    lastGameboard[rowStart + col] = (byte) (nibbles & 0xf);
+                    nibbles = nibbles >> 4;
+                    nibbleCount--;
+                }
+            }
+
+            byte[] gameboard = new byte[lastGameboard.length];
+            System.arraycopy(lastGameboard, 0, gameboard, 0, lastGameboard.length);
+            return gameboard;
+        }
+    }
+
     /**
      * Beliebiger Step, nur mit Timestamp
      */
@@ -393,6 +702,14 @@ public class Replay {
             return currentPos;
         }
 
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            codec.writeSignedVarInt(timeMs - lastTimeStamp);
+        }
+
+        void readFrom(BinaryCodec codec, int lastTimeStamp) {
+            timeMs = lastTimeStamp + codec.readSignedVarInt();
+        }
+
         public int getMoveX() {
             return 0;
         }
@@ -471,6 +788,21 @@ public class Replay {
             return currentPos;
         }
 
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            super.writeTo(codec, lastTimeStamp);
+            for (int i = 0; i < activePiecePosition.length; i++)
+                codec.writeByte(activePiecePosition[i]);
+        }
+
+        @Override
+        void readFrom(BinaryCodec codec, int lastTimeStamp) {
+            super.readFrom(codec, lastTimeStamp);
+            activePiecePosition = new int[Tetromino.TETROMINO_BLOCKCOUNT];
+            for (int i = 0; i < activePiecePosition.length; i++)
+                activePiecePosition[i] = codec.readByte();
+        }
+
         @Override
         public int[] getActivePiecePosition() {
             return activePiecePosition;
@@ -530,6 +862,18 @@ public class Replay {
             }
             return currentPos;
         }
+
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            super.writeTo(codec, lastTimeStamp);
+            codec.writeGameboard(gameboard);
+        }
+
+        @Override
+        void readFrom(BinaryCodec codec, int lastTimeStamp) {
+            super.readFrom(codec, lastTimeStamp);
+            gameboard = codec.readGameboard();
+        }
     }
 
     /**
@@ -542,6 +886,12 @@ public class Replay {
             super.appendTo(stringBuilder, lastTimeStamp);
         }
 
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            codec.writeByte(KEY_NEXT_PIECE);
+            super.writeTo(codec, lastTimeStamp);
+        }
+
         @Override
         public boolean isNextPieceStep() {
             return true;
@@ -586,6 +936,22 @@ public class Replay {
             return currentPos;
         }
 
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            codec.writeByte(KEY_DROP_PIECE);
+            super.writeTo(codec, lastTimeStamp);
+            codec.writeVarInt(score);
+            // -1 für unbekannt wird zu 0
+            codec.writeVarInt(removedLines + 1);
+        }
+
+        @Override
+        void readFrom(BinaryCodec codec, int lastTimeStamp) {
+            super.readFrom(codec, lastTimeStamp);
+            score = codec.readVarInt();
+            removedLines = codec.readVarInt() - 1;
+        }
+
         @Override
         public boolean isDropStep() {
             return true;
@@ -616,6 +982,12 @@ public class Replay {
             stringBuilder.append(KEY_ROTATE_PIECE);
             super.appendTo(stringBuilder, lastTimeStamp);
         }
+
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            codec.writeByte(KEY_ROTATE_PIECE);
+            super.writeTo(codec, lastTimeStamp);
+        }
     }
 
     /**
@@ -636,6 +1008,18 @@ public class Replay {
             moveDistance = Integer.parseInt(toParse.substring(currentPos, maxPos));
             return maxPos;
         }
+
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            super.writeTo(codec, lastTimeStamp);
+            codec.writeSignedVarInt(moveDistance);
+        }
+
+        @Override
+        void readFrom(BinaryCodec codec, int lastTimeStamp) {
+            super.readFrom(codec, lastTimeStamp);
+            moveDistance = codec.readSignedVarInt();
+        }
     }
 
     private static class HorizontalMovePieceStep extends MovePieceStep {
@@ -645,6 +1029,12 @@ public class Replay {
             super.appendTo(stringBuilder, lastTimeStamp);
         }
 
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            codec.writeByte(KEY_HORIZONTAL_MOVE);
+            super.writeTo(codec, lastTimeStamp);
+        }
+
         @Override
         public int getMoveX() {
             return moveDistance;
@@ -658,6 +1048,12 @@ public class Replay {
             super.appendTo(stringBuilder, lastTimeStamp);
         }
 
+        @Override
+        void writeTo(BinaryCodec codec, int lastTimeStamp) {
+            codec.writeByte(KEY_VERTICAL_MOVE);
+            super.writeTo(codec, lastTimeStamp);
+        }
+
         @Override
         public int getMoveY() {
             return moveDistance;
@@ -667,6 +1063,7 @@ public class Replay {
     public class AdditionalInformation {
         public int blockNum;
         public int clearedLines;
+        public int score;
         public int[] nextPiece;
     }
 }
@@ -1,6 +1,11 @@
 package de.golfgl.lightblocks.state;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetErrorListener;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.ParticleEffectLoader;
+import com.badlogic.gdx.assets.loaders.resolvers.LocalFileHandleResolver;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
@@ -36,6 +41,8 @@ public class Theme {
     public static final String THEME_FILE_NAME = FOLDER_NAME + ".json";
     public static final String PEFFECT_FILE_NAME = FOLDER_NAME + ".p";
     public static final int ANIMATION_FRAME_LENGTH_DEFAULT = 100;
+    private static final String[] SOUND_NODES = new String[]{"rotate", "drop", "normalclear", "gameover",
+            "specialclear", "freezedclear", "freezestart", "achievement", "garbage", "horizontalmove"};
     private final LightBlocksGame app;
     public Drawable blockNormalL;
     public Drawable blockNormalJ;
@@ -94,6 +101,11 @@ public class Theme {
     public String slowMusicFilename;
     public String fastMusicFilename;
     private ParticleEffect particleEffect;
+    private JsonValue themeSoundNode;
+    // Atlas, Sounds und Partikeleffekt des Themes, aus dem lokalen Speicher
+    private AssetManager themeAssets;
+    // gesetzt, solange die Assets des Themes geladen werden
+    private JsonValue queuedThemeConfig;
     private boolean themePresent;
     private String themeName;
     private String themeAuthor;
@@ -101,10 +113,13 @@ public class Theme {
     private int targetVersion;
     private String lastLoadThemeErrorMessage;
 
+    /**
+     * initializes the defaults only, an installed theme is loaded by {@link #queueThemeIfPresent()}
+     */
     public Theme(LightBlocksGame app) {
         this.app = app;
 
-        loadThemeIfPresent();
+        initDefaults();
     }
 
     public static Drawable tintDrawableIfPossible(Drawable drawable, Color color) {
@@ -225,12 +240,51 @@ public class Theme {
         unlockedSound = app.unlockedSound;
         garbageSound = app.garbageSound;
         horizontalMoveSound = null;
+        themeSoundNode = null;
 
         usesDefaultSounds = true;
     }
 
+    /**
+     * takes over the game's default sounds that were not loaded yet when the theme was initialized
+     */
+    public void setDefaultSounds() {
+        rotateSound = getDefaultSound(rotateSound, "rotate", app.rotateSound);
+        dropSound = getDefaultSound(dropSound, "drop", app.dropSound);
+        removeSound = getDefaultSound(removeSound, "normalclear", app.removeSound);
+        gameOverSound = getDefaultSound(gameOverSound, "gameover", app.gameOverSound);
+        cleanSpecialSound = getDefaultSound(cleanSpecialSound, "specialclear", app.cleanSpecialSound);
+        cleanFreezedSound = getDefaultSound(cleanFreezedSound, "freezedclear", app.cleanFreezedSound);
+        freezeBeginSound = getDefaultSound(freezeBeginSound, "freezestart", app.freezeBeginSound);
+        unlockedSound = getDefaultSound(unlockedSound, "achievement", app.unlockedSound);
+        garbageSound = getDefaultSound(garbageSound, "garbage", app.garbageSound);
+    }
+
+    private Sound getDefaultSound(Sound sound, String nodeName, Sound defaultSound) {
+        // vom Theme gesetzte Sounds bleiben, auch wenn sie nicht geladen werden konnten
+        if (sound != null || themeSoundNode != null && themeSoundNode.has(nodeName))
+            return sound;
+        return defaultSound;
+    }
+
+    /**
+     * loads an installed theme synchronously, e.g. right after it was installed
+     */
     public void loadThemeIfPresent() {
+        queueThemeIfPresent();
+
+        if (queuedThemeConfig != null) {
+            themeAssets.finishLoading();
+            initQueuedTheme();
+        }
+    }
+
+    /**
+     * queues the assets of an installed theme, they are loaded by {@link #updateLoading(int)}
+     */
+    public void queueThemeIfPresent() {
         initDefaults();
+        queuedThemeConfig = null;
 
         if (!Gdx.files.isLocalStorageAvailable())
             return;
@@ -242,54 +296,129 @@ public class Theme {
 
                 JsonValue themeConfigJson = new JsonReader().parse(jsonFile);
                 if (themeConfigJson != null) {
-
-                    FileHandle atlasFile = Gdx.files.local(FOLDER_NAME + "/" + ATLAS_FILE_NAME);
-                    TextureAtlas themeAtlas;
-                    if (atlasFile.exists())
-                        themeAtlas = new TextureAtlas(atlasFile);
-                    else
-                        themeAtlas = new TextureAtlas();
-
                     int minVersionToUse = themeConfigJson.getInt("minBuildNumber", 0);
 
                     if (minVersionToUse > LightBlocksGame.GAME_VERSIONNUMBER)
                         throw new RuntimeException("You need a newer Lightblocks version to use this theme.");
 
-                    themeName = themeConfigJson.getString("name", null);
+                    if (themeAssets == null) {
+                        themeAssets = new AssetManager(new LocalFileHandleResolver());
+                        // fehlende oder kaputte Dateien werden beim Übernehmen behandelt
+                        themeAssets.setErrorListener(new AssetErrorListener() {
+                            @Override
+                            public void error(AssetDescriptor asset, Throwable throwable) {
+                                Gdx.app.error(LOG_TAG, "Could not load " + asset.fileName + ": "
+                                        + throwable.getMessage());
+                            }
+                        });
+                    } else
+                        // ein vorher geladenes Theme wird ersetzt
+                        themeAssets.clear();
+
+                    queueAssets(themeConfigJson);
+                    queuedThemeConfig = themeConfigJson;
+                }
+            }
 
-                    if (themeName == null || themeName.isEmpty())
-                        themeName = "unnamed Theme";
+        } catch (Throwable t) {
+            onLoadThemeError(t);
+        }
+    }
 
-                    themeAuthor = themeConfigJson.getString("author", null);
-                    themeVersion = themeConfigJson.getInt("version", 0);
-                    targetVersion = themeConfigJson.getInt("targetBuildNumber", 0);
+    /**
+     * continues loading the queued theme for the given time
+     *
+     * @return true when the theme is ready to use (or there is none)
+     */
+    public boolean updateLoading(int millis) {
+        if (queuedThemeConfig == null)
+            return true;
 
-                    // Blöcke laden
-                    loadBlocks(themeAtlas, themeConfigJson);
-                    loadScreen(themeAtlas, themeConfigJson);
-                    loadMusic(themeConfigJson);
-                    loadSounds(themeConfigJson);
-                    loadParticleEffect(themeAtlas, themeConfigJson);
+        if (!themeAssets.update(millis))
+            return false;
 
-                    themePresent = true;
-                }
+        initQueuedTheme();
+        return true;
+    }
+
+    private void queueAssets(JsonValue themeConfigJson) {
+        String atlasFileName = FOLDER_NAME + "/" + ATLAS_FILE_NAME;
+        boolean hasAtlas = Gdx.files.local(atlasFileName).exists();
+        if (hasAtlas)
+            themeAssets.load(atlasFileName, TextureAtlas.class);
+
+        JsonValue soundNode = themeConfigJson.get("sounds");
+        if (soundNode != null)
+            for (String nodeName : SOUND_NODES) {
+                JsonValue soundFileNode = soundNode.get(nodeName);
+                if (soundFileNode != null && soundFileNode.isString())
+                    themeAssets.load(FOLDER_NAME + "/" + soundFileNode.asString(), Sound.class);
             }
 
+        // der Partikeleffekt braucht die Bilder aus dem Atlas, ohne wird der Standard genommen
+        if (hasAtlas && Gdx.files.local(FOLDER_NAME + "/" + PEFFECT_FILE_NAME).exists()) {
+            ParticleEffectLoader.ParticleEffectParameter effectParameter =
+                    new ParticleEffectLoader.ParticleEffectParameter();
+            effectParameter.atlasFile = atlasFileName;
+            themeAssets.load(FOLDER_NAME + "/" + PEFFECT_FILE_NAME, ParticleEffect.class, effectParameter);
+        }
+    }
+
+    private void initQueuedTheme() {
+        JsonValue themeConfigJson = queuedThemeConfig;
+        queuedThemeConfig = null;
+
+        try {
+            String atlasFileName = FOLDER_NAME + "/" + ATLAS_FILE_NAME;
+            TextureAtlas themeAtlas;
+            if (themeAssets.isLoaded(atlasFileName, TextureAtlas.class))
+                themeAtlas = themeAssets.get(atlasFileName, TextureAtlas.class);
+            else if (Gdx.files.local(atlasFileName).exists())
+                throw new RuntimeException("Could not load " + ATLAS_FILE_NAME);
+            else
+                themeAtlas = new TextureAtlas();
+
+            themeName = themeConfigJson.getString("name", null);
+
+            if (themeName == null || themeName.isEmpty())
+                themeName = "unnamed Theme";
+
+            themeAuthor = themeConfigJson.getString("author", null);
+            themeVersion = themeConfigJson.getInt("version", 0);
+            targetVersion = themeConfigJson.getInt("targetBuildNumber", 0);
+
+            // Blöcke laden
+            loadBlocks(themeAtlas, themeConfigJson);
+            loadScreen(themeAtlas, themeConfigJson);
+            loadMusic(themeConfigJson);
+            loadSounds(themeConfigJson);
+            loadParticleEffect(themeConfigJson);
+
+            themePresent = true;
+
         } catch (Throwable t) {
-            // sicherheitshalber eventuelle Änderungen zurücksetzen
-            Gdx.app.error(LOG_TAG, t.getMessage());
-            initDefaults();
-            lastLoadThemeErrorMessage = t.getMessage();
+            onLoadThemeError(t);
         }
+    }
 
+    private void onLoadThemeError(Throwable t) {
+        // sicherheitshalber eventuelle Änderungen zurücksetzen
+        Gdx.app.error(LOG_TAG, t.getMessage());
+        initDefaults();
+        queuedThemeConfig = null;
+        if (themeAssets != null)
+            themeAssets.clear();
+        lastLoadThemeErrorMessage = t.getMessage();
     }
 
-    protected void loadParticleEffect(TextureAtlas themeAtlas, JsonValue themeConfigJson) {
-        if (Gdx.files.local(FOLDER_NAME + "/" + PEFFECT_FILE_NAME).exists()) {
+    protected void loadParticleEffect(JsonValue themeConfigJson) {
+        String effectFileName = FOLDER_NAME + "/" + PEFFECT_FILE_NAME;
+        if (Gdx.files.local(effectFileName).exists()) {
             usesParticleEffect = true;
             particleEffectReset = false;
-            particleEffect = new ParticleEffect();
-            particleEffect.load(Gdx.files.local(FOLDER_NAME + "/" + PEFFECT_FILE_NAME), themeAtlas);
+            // konnte er nicht geladen werden, bleibt es beim Standard
+            if (themeAssets.isLoaded(effectFileName, ParticleEffect.class))
+                particleEffect = themeAssets.get(effectFileName, ParticleEffect.class);
 
             JsonValue effectNode = themeConfigJson.get("effect");
             if (effectNode != null) {
@@ -331,6 +460,7 @@ public class Theme {
         JsonValue soundNode = themeConfigJson.get("sounds");
         if (soundNode != null) {
             usesDefaultSounds = false;
+            themeSoundNode = soundNode;
             rotateSound = loadOptionalSound(soundNode, "rotate", app.rotateSound);
             dropSound = loadOptionalSound(soundNode, "drop", app.dropSound);
             removeSound = loadOptionalSound(soundNode, "normalclear", app.removeSound);
@@ -344,15 +474,14 @@ public class Theme {
         }
     }
 
+    /**
+     * @return a new instance of the theme's or the default particle effect, both are loaded during startup
+     */
     public ParticleEffect getParticleEffect() {
-        ParticleEffect particleEffect;
-        if (themePresent && this.particleEffect != null) {
-            particleEffect = new ParticleEffect(this.particleEffect);
-        } else {
-            particleEffect = new ParticleEffect();
-            particleEffect.load(Gdx.files.internal("raw/explode.p"), app.skin.getAtlas());
-        }
-        return particleEffect;
+        if (themePresent && this.particleEffect != null)
+            return new ParticleEffect(this.particleEffect);
+        else
+            return new ParticleEffect(app.explodeEffect);
     }
 
     private Sound loadOptionalSound(JsonValue parentNode, String nodeName, Sound defaultSound) {
@@ -360,7 +489,10 @@ public class Theme {
             return defaultSound;
 
         else try {
-            return Gdx.audio.newSound(Gdx.files.local(FOLDER_NAME + "/" + parentNode.getString(nodeName)));
+            String soundFileName = FOLDER_NAME + "/" + parentNode.getString(nodeName);
+            // nicht geladene Sounds wurden schon beim Laden gemeldet
+            return themeAssets.isLoaded(soundFileName, Sound.class) ? themeAssets.get(soundFileName, Sound.class)
+                    : null;
 
         } catch (Throwable t) {
             Gdx.app.error(LOG_TAG, t.getMessage());
@@ -660,6 +792,11 @@ public class Theme {
             return Color.WHITE;
     }
 
+    public void dispose() {
+        if (themeAssets != null)
+            themeAssets.dispose();
+    }
+
     public void resetTheme() {
         Gdx.files.local(Theme.FOLDER_NAME).deleteDirectory();
         initDefaults();
@@ -0,0 +1,106 @@
+package de.golfgl.lightblocks.backend;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the client side throughput of scoreboard fetching against the {@link LocalBackendServer}: uncached, from
+ * the disk cache and coalesced. Score posting is not part of the open source client, so it is not measured here.
+ * <p>
+ * Arguments: --requests=200 --latency=20
+ * <p>
+ * gradlew core:backendBenchmark -Pargs="--requests=500 --latency=50"
+ */
+public class BackendBenchmark {
+    // fits into the disk cache
+    private static final int CACHED_SCOREBOARDS = 40;
+    private final LocalBackendServer server;
+    private final int requests;
+
+    public BackendBenchmark(LocalBackendServer server, int requests) {
+        this.server = server;
+        this.requests = requests;
+    }
+
+    public static void main(String[] arg) throws IOException, InterruptedException {
+        new HeadlessApplication(new ApplicationAdapter() {
+        });
+
+        LocalBackendServer server = new LocalBackendServer();
+        server.setLatencyMs(findInt(arg, "latency", 20));
+        server.start();
+
+        try {
+            new BackendBenchmark(server, findInt(arg, "requests", 200)).run();
+        } finally {
+            server.stop();
+            Gdx.app.exit();
+        }
+    }
+
+    private static int findInt(String[] args, String name, int defaultVal) {
+        int retVal = defaultVal;
+        for (String arg : args) {
+            if (arg.startsWith("--" + name + "=")) {
+                retVal = Integer.parseInt(arg.substring(name.length() + 3));
+            }
+        }
+        return retVal;
+    }
+
+    public void run() throws InterruptedException {
+        Gdx.files.local("cache/backend").deleteDirectory();
+        BackendClient backendClient = new BackendClient(server.getBaseUrl());
+
+        // every scoreboard once: cache misses
+        measure("uncached", backendClient, requests);
+        // the last fetched scoreboards again, answered from the disk cache
+        measure("cached", backendClient, Math.min(requests, CACHED_SCOREBOARDS));
+
+        Gdx.files.local("cache/backend").deleteDirectory();
+        backendClient = new BackendClient(server.getBaseUrl());
+        // all callers ask for the same scoreboard at once
+        measure("coalesced", backendClient, 1);
+
+        Gdx.files.local("cache/backend").deleteDirectory();
+    }
+
+    private void measure(String name, BackendClient backendClient, int scoreboardCount) throws InterruptedException {
+        server.resetStatistics();
+        final CountDownLatch latch = new CountDownLatch(requests);
+        final AtomicInteger failed = new AtomicInteger();
+
+        BackendClient.IBackendResponse<List<ScoreListEntry>> callback =
+                new BackendClient.IBackendResponse<List<ScoreListEntry>>() {
+                    @Override
+                    public void onFail(int statusCode, String errorMsg) {
+                        failed.incrementAndGet();
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onSuccess(List<ScoreListEntry> retrievedData) {
+                        latch.countDown();
+                    }
+                };
+
+        long startNs = System.nanoTime();
+        for (int i = 0; i < requests; i++)
+            backendClient.fetchBestScores("benchmark" + (requests - 1 - i) % scoreboardCount, callback);
+
+        if (!latch.await(5, TimeUnit.MINUTES))
+            System.out.println(name + ": timed out");
+        long durationNs = System.nanoTime() - startNs;
+
+        System.out.println(String.format("%-10s %6d fetches in %7.1f ms, %8.1f fetches/s, %d http requests, %d failed",
+                name, requests, durationNs / 1000000d, requests * 1000000000d / durationNs,
+                server.getRequestCount(), failed.get()));
+    }
+}
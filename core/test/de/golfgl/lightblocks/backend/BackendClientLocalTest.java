@@ -0,0 +1,238 @@
+package de.golfgl.lightblocks.backend;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.files.FileHandle;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests caching, coalescing and the request limit of the {@link BackendClient} against the {@link LocalBackendServer},
+ * without network access
+ */
+public class BackendClientLocalTest {
+    private static LocalBackendServer server;
+    private static Files headlessFiles;
+    private static File tempDir;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        Gdx.app = new HeadlessApplication(new ApplicationAdapter() {
+        });
+        headlessFiles = Gdx.files;
+        tempDir = java.nio.file.Files.createTempDirectory("lightblocks").toFile();
+
+        server = new LocalBackendServer();
+        server.start();
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        server.stop();
+        Gdx.files = headlessFiles;
+        new FileHandle(tempDir).deleteDirectory();
+    }
+
+    @Before
+    public void resetServer() throws IOException {
+        server.setLatencyMs(0);
+        server.setFailureRate(0);
+        server.setDropRate(0);
+        server.resetStatistics();
+        // an empty cache for every test, writes of the previous test's cache thread can't interfere
+        Gdx.files = new TempLocalFiles(headlessFiles,
+                java.nio.file.Files.createTempDirectory(tempDir.toPath(), "local").toFile());
+    }
+
+    @Test
+    public void testFetchScores() throws InterruptedException {
+        BackendClient backendClient = new BackendClient(server.getBaseUrl());
+
+        WaitForResponseListener<List<ScoreListEntry>> scores = new WaitForResponseListener<>();
+        backendClient.fetchBestScores("practice", scores);
+        scores.await();
+
+        Assert.assertTrue(scores.successful);
+        Assert.assertEquals(LocalBackendServer.SCORES_PER_LIST, scores.retrievedData.size());
+        Assert.assertEquals("practice", scores.retrievedData.get(0).gameMode);
+    }
+
+    @Test
+    public void testCachedResponseNeedsNoRequest() throws InterruptedException {
+        BackendClient backendClient = new BackendClient(server.getBaseUrl());
+
+        WaitForResponseListener<PlayerDetails> first = new WaitForResponseListener<>();
+        backendClient.fetchPlayerDetails("cached", first);
+        first.await();
+
+        WaitForResponseListener<PlayerDetails> second = new WaitForResponseListener<>();
+        backendClient.fetchPlayerDetails("cached", second);
+        second.await();
+
+        Assert.assertTrue(second.successful);
+        Assert.assertEquals("cached", second.retrievedData.uuid);
+        Assert.assertEquals(1, server.getRequestCount("/v1/player/cached"));
+    }
+
+    @Test
+    public void testIdenticalRequestsAreCoalesced() throws InterruptedException {
+        BackendClient backendClient = new BackendClient(server.getBaseUrl());
+        server.setLatencyMs(200);
+
+        WaitForResponseListener<List<ScoreListEntry>> first = new WaitForResponseListener<>();
+        WaitForResponseListener<List<ScoreListEntry>> second = new WaitForResponseListener<>();
+        backendClient.fetchLatestScores("marathon1", first);
+        backendClient.fetchLatestScores("marathon1", second);
+        first.await();
+        second.await();
+
+        Assert.assertTrue(first.successful);
+        Assert.assertTrue(second.successful);
+        Assert.assertEquals(1, server.getRequestCount("/v1/scores/marathon1/latest"));
+    }
+
+    @Test
+    public void testConcurrentRequestsAreLimited() throws InterruptedException {
+        BackendClient backendClient = new BackendClient(server.getBaseUrl());
+        server.setLatencyMs(100);
+
+        List<WaitForResponseListener<PlayerDetails>> listeners = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            WaitForResponseListener<PlayerDetails> listener = new WaitForResponseListener<>();
+            listeners.add(listener);
+            backendClient.fetchPlayerDetails("limited" + i, listener);
+        }
+
+        for (WaitForResponseListener<PlayerDetails> listener : listeners) {
+            listener.await();
+            Assert.assertTrue(listener.successful);
+        }
+        Assert.assertEquals(listeners.size(), server.getRequestCount());
+        Assert.assertTrue("max running " + server.getMaxRunningCount(), server.getMaxRunningCount() <= 2);
+    }
+
+    @Test
+    public void testFailureIsReported() throws InterruptedException {
+        BackendClient backendClient = new BackendClient(server.getBaseUrl());
+        server.setFailureRate(1);
+
+        WaitForResponseListener<List<ScoreListEntry>> scores = new WaitForResponseListener<>();
+        backendClient.fetchBestScores("failing", scores);
+        scores.await();
+
+        Assert.assertFalse(scores.successful);
+        Assert.assertEquals(503, scores.lastCode);
+
+        server.setFailureRate(0);
+        server.setDropRate(1);
+        WaitForResponseListener<List<ScoreListEntry>> dropped = new WaitForResponseListener<>();
+        backendClient.fetchBestScores("dropped", dropped);
+        dropped.await();
+
+        Assert.assertFalse(dropped.successful);
+        // no http status
+        Assert.assertTrue(dropped.lastCode <= BackendClient.SC_NO_CONNECTION);
+    }
+
+    static class WaitForResponseListener<T> implements BackendClient.IBackendResponse<T> {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        volatile T retrievedData;
+        volatile boolean successful;
+        volatile int lastCode;
+
+        void await() throws InterruptedException {
+            Assert.assertTrue("no response", latch.await(10, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public void onFail(int statusCode, String errorMsg) {
+            successful = false;
+            lastCode = statusCode;
+            latch.countDown();
+        }
+
+        @Override
+        public void onSuccess(T retrievedData) {
+            this.retrievedData = retrievedData;
+            successful = true;
+            lastCode = 0;
+            latch.countDown();
+        }
+    }
+
+    /**
+     * local files in a temp directory instead of the working directory
+     */
+    private static class TempLocalFiles implements Files {
+        private final Files files;
+        private final File localDir;
+
+        TempLocalFiles(Files files, File localDir) {
+            this.files = files;
+            this.localDir = localDir;
+        }
+
+        @Override
+        public FileHandle getFileHandle(String path, FileType type) {
+            return type == FileType.Local ? local(path) : files.getFileHandle(path, type);
+        }
+
+        @Override
+        public FileHandle classpath(String path) {
+            return files.classpath(path);
+        }
+
+        @Override
+        public FileHandle internal(String path) {
+            return files.internal(path);
+        }
+
+        @Override
+        public FileHandle external(String path) {
+            return files.external(path);
+        }
+
+        @Override
+        public FileHandle absolute(String path) {
+            return files.absolute(path);
+        }
+
+        @Override
+        public FileHandle local(String path) {
+            return new FileHandle(new File(localDir, path));
+        }
+
+        @Override
+        public String getExternalStoragePath() {
+            return files.getExternalStoragePath();
+        }
+
+        @Override
+        public boolean isExternalStorageAvailable() {
+            return files.isExternalStorageAvailable();
+        }
+
+        @Override
+        public String getLocalStoragePath() {
+            return localDir.getAbsolutePath() + File.separator;
+        }
+
+        @Override
+        public boolean isLocalStorageAvailable() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package de.golfgl.lightblocks.backend;
+
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for the backend, to test and benchmark the {@link BackendClient} without network access.
+ * Answers the requests the client sends with generated data, supports ETag revalidation and injects latency and
+ * failures.
+ * <p>
+ * Use with new BackendClient(server.getBaseUrl()).
+ */
+public class LocalBackendServer {
+    public static final int SCORES_PER_LIST = 50;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+    private final AtomicInteger runningCount = new AtomicInteger();
+    private final AtomicInteger maxRunningCount = new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicInteger> requestsByPath = new ConcurrentHashMap<>();
+    // changes the generated data, so that ETags change
+    private final ConcurrentHashMap<String, Integer> dataVersion = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+    private volatile int latencyMs;
+    private volatile float failureRate;
+    private volatile float dropRate;
+
+    public LocalBackendServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "LocalBackendServer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/", new RequestHandler());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * delay before every response
+     */
+    public void setLatencyMs(int latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * share of requests answered with 503
+     */
+    public void setFailureRate(float failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * share of requests where the connection is closed without response
+     */
+    public void setDropRate(float dropRate) {
+        this.dropRate = dropRate;
+    }
+
+    /**
+     * lets the data of the path change, e.g. "/v1/scores/practice/best"
+     */
+    public void changeData(String path) {
+        Integer version = dataVersion.get(path);
+        dataVersion.put(path, version == null ? 1 : version + 1);
+    }
+
+    public void resetStatistics() {
+        requestCount.set(0);
+        notModifiedCount.set(0);
+        maxRunningCount.set(0);
+        requestsByPath.clear();
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public int getRequestCount(String path) {
+        AtomicInteger count = requestsByPath.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    public int getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * @return maximum of requests handled at the same time since the last reset
+     */
+    public int getMaxRunningCount() {
+        return maxRunningCount.get();
+    }
+
+    private boolean randomHit(float rate) {
+        if (rate <= 0)
+            return false;
+        synchronized (random) {
+            return random.nextFloat() < rate;
+        }
+    }
+
+    private JsonValue buildResponse(String[] path) {
+        // path[0] is empty, path[1] is "v1"
+        String endpoint = path.length > 2 ? path[2] : "";
+
+        if (endpoint.equals("scores") && path.length == 5)
+            return buildScoreList(path[3], path[4].equals("latest"));
+        if (endpoint.equals("player") && path.length == 4)
+            return buildPlayer(path[3], true);
+        if (endpoint.equals("nickname") && path.length == 4)
+            return buildPlayerList(path[3], false);
+        if (endpoint.equals("matches") && path.length >= 4 && path[3].equals("strongestPlayers"))
+            return buildPlayerList("strong", false);
+        if (endpoint.equals("matches") && path.length == 5 && path[3].equals("similarStrengthPlayers"))
+            return buildPlayerList("similar", true);
+        if (endpoint.equals("replay") && path.length == 4) {
+            JsonValue replay = new JsonValue(JsonValue.ValueType.object);
+            replay.addChild("replay", new JsonValue("1#" + path[3]));
+            return replay;
+        }
+        if (endpoint.equals("listservers")) {
+            JsonValue servers = new JsonValue(JsonValue.ValueType.array);
+            JsonValue server = new JsonValue(JsonValue.ValueType.object);
+            server.addChild("name", new JsonValue("Local"));
+            server.addChild("address", new JsonValue("ws://127.0.0.1:8887"));
+            servers.addChild(server);
+            JsonValue root = new JsonValue(JsonValue.ValueType.object);
+            root.addChild("serverList", servers);
+            return root;
+        }
+
+        return null;
+    }
+
+    private JsonValue buildScoreList(String gameMode, boolean latest) {
+        JsonValue list = new JsonValue(JsonValue.ValueType.array);
+        for (int i = 0; i < SCORES_PER_LIST; i++)
+            list.addChild(buildScore(gameMode, latest, i));
+        return list;
+    }
+
+    private JsonValue buildScore(String gameMode, boolean latest, int i) {
+        int score = latest ? 1000 + i * 37 % 500 : 100000 - i * 1000;
+        JsonValue entry = new JsonValue(JsonValue.ValueType.object);
+        entry.addChild("sortValue", new JsonValue(score));
+        entry.addChild("userId", new JsonValue("user" + i));
+        entry.addChild("nickName", new JsonValue("Player " + i));
+        entry.addChild("country", new JsonValue("de"));
+        entry.addChild("platform", new JsonValue("desktop"));
+        entry.addChild("inputType", new JsonValue("keyboard"));
+        entry.addChild("params", new JsonValue(""));
+        entry.addChild("drawnBlocks", new JsonValue(score / 100));
+        entry.addChild("scoreGainedTime", new JsonValue(1546300800000L + i * 60000L));
+        entry.addChild("score", new JsonValue(score));
+        entry.addChild("lines", new JsonValue(score / 400));
+        entry.addChild("timePlayedMs", new JsonValue(score * 10));
+        entry.addChild("rank", new JsonValue(i + 1));
+        entry.addChild("gameMode", new JsonValue(gameMode));
+        entry.addChild("replay", new JsonValue(gameMode + "_" + i));
+        return entry;
+    }
+
+    private JsonValue buildPlayer(String playerId, boolean withHighscores) {
+        JsonValue player = new JsonValue(JsonValue.ValueType.object);
+        player.addChild("id", new JsonValue(playerId));
+        player.addChild("nickName", new JsonValue("Player " + playerId));
+        player.addChild("lastActivity", new JsonValue(1546300800000L));
+        player.addChild("memberSince", new JsonValue(1514764800000L));
+        player.addChild("countTotalBlocks", new JsonValue(12345));
+        player.addChild("experience", new JsonValue(42));
+        player.addChild("country", new JsonValue("de"));
+
+        if (withHighscores) {
+            JsonValue highscores = new JsonValue(JsonValue.ValueType.array);
+            for (int i = 0; i < 5; i++)
+                highscores.addChild(buildScore("marathon1", false, i));
+            player.addChild("highscores", highscores);
+        }
+        return player;
+    }
+
+    private JsonValue buildPlayerList(String prefix, boolean ranked) {
+        JsonValue list = new JsonValue(JsonValue.ValueType.array);
+        for (int i = 0; i < 10; i++) {
+            JsonValue player = buildPlayer(prefix + i, false);
+            if (ranked)
+                player.addChild("rank", new JsonValue(i + 1));
+            list.addChild(player);
+        }
+        return list;
+    }
+
+    private class RequestHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            requestCount.incrementAndGet();
+            AtomicInteger pathCount = requestsByPath.putIfAbsent(path, new AtomicInteger(1));
+            if (pathCount != null)
+                pathCount.incrementAndGet();
+
+            // counted until the response is sent, the client may send the next request right after
+            int running = runningCount.incrementAndGet();
+            int max = maxRunningCount.get();
+            while (running > max && !maxRunningCount.compareAndSet(max, running))
+                max = maxRunningCount.get();
+
+            try {
+                if (latencyMs > 0)
+                    Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                runningCount.decrementAndGet();
+            }
+
+            handleRequest(exchange, path);
+        }
+
+        private void handleRequest(HttpExchange exchange, String path) throws IOException {
+            if (randomHit(dropRate)) {
+                exchange.close();
+                return;
+            }
+
+            if (randomHit(failureRate)) {
+                send(exchange, 503, "Service unavailable");
+                return;
+            }
+
+            JsonValue response = buildResponse(path.split("/"));
+            if (response == null) {
+                send(exchange, 404, "Not found");
+                return;
+            }
+
+            String body = response.toJson(JsonWriter.OutputType.json);
+            Integer version = dataVersion.get(path);
+            String eTag = "\"" + Integer.toHexString(body.hashCode()) + "-" + (version != null ? version : 0)
+                    + "\"";
+
+            if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedCount.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", eTag);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            exchange.getResponseHeaders().set("ETag", eTag);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            send(exchange, 200, body);
+        }
+
+        private void send(HttpExchange exchange, int statusCode, String body) throws IOException {
+            byte[] bytes = body.getBytes("UTF-8");
+            exchange.sendResponseHeaders(statusCode, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        }
+    }
+}
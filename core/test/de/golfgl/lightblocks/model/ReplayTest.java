@@ -0,0 +1,246 @@
+package de.golfgl.lightblocks.model;
+
+import com.badlogic.gdx.utils.Base64Coder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import de.golfgl.lightblocks.state.Replay;
+
+/**
+ * Both replay formats must restore every recorded step, seeking must end where playing from the start ends
+ */
+public class ReplayTest {
+    private static final String VERSION_1 = "1#N0:0304050e:AB C#R64:04050e0f#H32:-1#G10:-2#D20:0a0b1415:c8:1#";
+
+    @Test
+    public void testCompactRoundTrip() {
+        Replay recorded = recordGame();
+        Replay loaded = new Replay();
+
+        Assert.assertTrue(loaded.fromString(recorded.toCompactString()));
+        assertSameSteps(recorded, loaded);
+        Assert.assertEquals(recorded.toString(), loaded.toString());
+    }
+
+    @Test
+    public void testVersion1RoundTrip() {
+        Replay recorded = recordGame();
+        Replay loaded = new Replay();
+
+        Assert.assertTrue(loaded.fromString(recorded.toString()));
+        assertSameSteps(recorded, loaded);
+    }
+
+    @Test
+    public void testParseVersion1() {
+        Replay replay = new Replay();
+        Assert.assertTrue(replay.fromString(VERSION_1));
+
+        Replay.ReplayStep step = replay.seekToFirstStep();
+        Assert.assertTrue(step.isNextPieceStep());
+        Assert.assertEquals(0, step.timeMs);
+        Assert.assertArrayEquals(new int[]{3, 4, 5, 14}, step.getActivePiecePosition());
+        byte[] gameboard = replay.getCurrentGameboard();
+        Assert.assertEquals(0, gameboard[0]);
+        Assert.assertEquals(1, gameboard[1]);
+        Assert.assertEquals(Gameboard.SQUARE_EMPTY, gameboard[2]);
+        Assert.assertEquals(2, gameboard[3]);
+        Assert.assertEquals(Gameboard.SQUARE_EMPTY, gameboard[4]);
+
+        step = replay.seekToNextStep();
+        Assert.assertEquals(100, step.timeMs);
+        Assert.assertArrayEquals(new int[]{4, 5, 14, 15}, step.getActivePiecePosition());
+
+        step = replay.seekToNextStep();
+        Assert.assertEquals(150, step.timeMs);
+        Assert.assertEquals(-1, step.getMoveX());
+
+        step = replay.seekToNextStep();
+        Assert.assertEquals(166, step.timeMs);
+        Assert.assertEquals(-2, step.getMoveY());
+
+        step = replay.seekToNextStep();
+        Assert.assertTrue(step.isDropStep());
+        Assert.assertEquals(198, step.timeMs);
+        Assert.assertArrayEquals(new int[]{10, 11, 20, 21}, step.getActivePiecePosition());
+        Assert.assertEquals(200, ((Replay.ReplayDropPieceStep) step).score);
+        Assert.assertEquals(1, step.getRemovedLines());
+
+        Assert.assertNull(replay.seekToNextStep());
+
+        // and the same in the compact format
+        Replay compact = new Replay();
+        Assert.assertTrue(compact.fromString(replay.toCompactString()));
+        Assert.assertEquals(VERSION_1, compact.toString());
+    }
+
+    @Test
+    public void testPendingStepIsWrittenWithItsLastValues() {
+        Replay replay = recordGame();
+        Gameboard gameboard = new Gameboard();
+        Tetromino piece = new Tetromino(Tetromino.TETRO_IDX_T, false);
+        replay.addNextPieceStep(100000, gameboard, piece);
+        Replay.ReplayDropPieceStep drop = replay.addDropStep(100100, piece);
+        drop.setScore(1234);
+
+        // the pending drop step is only written for the output, and written again after it was changed
+        Replay before = new Replay();
+        Assert.assertTrue(before.fromString(replay.toCompactString()));
+        Assert.assertEquals(1234, ((Replay.ReplayDropPieceStep) before.seekToLastStep()).score);
+
+        drop.setScore(5678);
+        drop.setRemovedLines(2);
+        replay.addMovePieceStep(100200, true, (byte) 1);
+
+        Replay after = new Replay();
+        Assert.assertTrue(after.fromString(replay.toCompactString()));
+        assertSameSteps(replay, after);
+        Assert.assertEquals(countSteps(before) + 1, countSteps(after));
+        after.seekToLastStep();
+        Replay.ReplayStep dropAfter = after.seekToPreviousStep();
+        Assert.assertEquals(5678, ((Replay.ReplayDropPieceStep) dropAfter).score);
+        Assert.assertEquals(2, dropAfter.getRemovedLines());
+    }
+
+    @Test
+    public void testMalformedInputIsInvalid() {
+        String compact = recordGame().toCompactString();
+        byte[] data = Base64Coder.decode(compact.substring(2));
+        String truncated = "2#" + new String(Base64Coder.encode(Arrays.copyOf(data, data.length - 3)));
+        data[0] = 'X';
+        String unknownStep = "2#" + new String(Base64Coder.encode(data));
+
+        String[] malformed = new String[]{null, "", "2", "3#AAAA", "2#not base64!", truncated, unknownStep,
+                "1#X0:00#", "NV#"};
+        for (String input : malformed) {
+            Replay replay = new Replay();
+            Assert.assertFalse(input, replay.fromString(input));
+            Assert.assertFalse(input, replay.isValid());
+            Assert.assertNull(input, replay.seekToFirstStep());
+        }
+    }
+
+    @Test
+    public void testSeekEqualsPlayingFromStart() {
+        String recorded = recordGame().toCompactString();
+        Replay seeking = new Replay();
+        seeking.fromString(recorded);
+        Replay playing = new Replay();
+        playing.fromString(recorded);
+
+        int lastTimeMs = seeking.seekToLastStep().timeMs;
+        for (int timeMs = 0; timeMs <= lastTimeMs; timeMs = timeMs + 7) {
+            // from the start, like the replay screen's slider moving forward
+            seeking.seekToFirstStep();
+            Replay.ReplayStep sought = seeking.seekToTimePos(timeMs);
+
+            Replay.ReplayStep played = playing.seekToFirstStep();
+            while (played != null && (played.timeMs < timeMs || !played.hasActivePiecePosition()))
+                played = playing.seekToNextStep();
+
+            assertSamePosition(playing, played, seeking, sought);
+        }
+
+        // backwards from the end, like the slider moving back: the last step up to the time
+        for (int timeMs = lastTimeMs; timeMs >= 0; timeMs = timeMs - 7) {
+            seeking.seekToLastStep();
+            Replay.ReplayStep sought = seeking.seekToTimePos(timeMs);
+
+            Replay.ReplayStep played = playing.seekToLastStep();
+            while (played.timeMs > timeMs || !played.hasActivePiecePosition())
+                played = playing.seekToPreviousStep();
+
+            assertSamePosition(playing, played, seeking, sought);
+        }
+    }
+
+    private static Replay recordGame() {
+        Replay replay = new Replay();
+        Gameboard gameboard = new Gameboard();
+        int timeMs = 0;
+        int score = 0;
+
+        for (int i = 0; i < 14; i++) {
+            Tetromino piece = new Tetromino(i % 7, i % 2 == 0);
+            replay.addNextPieceStep(timeMs, gameboard, piece);
+
+            timeMs += 120;
+            piece.setRotation(i % 4);
+            replay.addRotatePieceStep(timeMs, piece);
+
+            int move = i % 5 - 2;
+            if (gameboard.getGhostPieceDistance(piece, move) >= 0 && move != 0) {
+                timeMs += 80;
+                piece.getPosition().x += move;
+                replay.addMovePieceStep(timeMs, true, (byte) move);
+            }
+
+            int distance = gameboard.getGhostPieceDistance(piece, 0);
+            timeMs += 1000;
+            piece.getPosition().y -= distance;
+            replay.addMovePieceStep(timeMs, false, (byte) -distance);
+
+            Replay.ReplayDropPieceStep drop = replay.addDropStep(timeMs, piece);
+            score += 10 + i;
+            drop.setScore(score);
+            drop.setRemovedLines(0);
+            gameboard.pinTetromino(piece);
+
+            // a long pause needs more bytes for the time
+            if (i == 7)
+                timeMs += 200000;
+        }
+        return replay;
+    }
+
+    private static int countSteps(Replay replay) {
+        int count = 0;
+        for (Replay.ReplayStep step = replay.seekToFirstStep(); step != null; step = replay.seekToNextStep())
+            count++;
+        return count;
+    }
+
+    private static void assertSameSteps(Replay expected, Replay actual) {
+        Replay.ReplayStep expectedStep = expected.seekToFirstStep();
+        Replay.ReplayStep actualStep = actual.seekToFirstStep();
+        int stepNum = 0;
+        while (expectedStep != null) {
+            String message = "step " + stepNum;
+            Assert.assertNotNull(message, actualStep);
+            Assert.assertEquals(message, expectedStep.getClass(), actualStep.getClass());
+            Assert.assertEquals(message, expectedStep.timeMs, actualStep.timeMs);
+            Assert.assertArrayEquals(message, expectedStep.getActivePiecePosition(), actualStep.getActivePiecePosition());
+            Assert.assertEquals(message, expectedStep.getMoveX(), actualStep.getMoveX());
+            Assert.assertEquals(message, expectedStep.getMoveY(), actualStep.getMoveY());
+            Assert.assertEquals(message, expectedStep.getRemovedLines(), actualStep.getRemovedLines());
+            if (expectedStep.isDropStep())
+                Assert.assertEquals(message, ((Replay.ReplayDropPieceStep) expectedStep).score,
+                        ((Replay.ReplayDropPieceStep) actualStep).score);
+            Assert.assertArrayEquals(message, expected.getCurrentGameboard(), actual.getCurrentGameboard());
+
+            expectedStep = expected.seekToNextStep();
+            actualStep = actual.seekToNextStep();
+            stepNum++;
+        }
+        Assert.assertNull(actualStep);
+    }
+
+    private static void assertSamePosition(Replay expected, Replay.ReplayStep expectedStep,
+                                           Replay actual, Replay.ReplayStep actualStep) {
+        if (expectedStep == null) {
+            Assert.assertNull(actualStep);
+            return;
+        }
+        String message = "time " + expectedStep.timeMs;
+        Assert.assertNotNull(message, actualStep);
+        Assert.assertEquals(message, expectedStep.timeMs, actualStep.timeMs);
+        Assert.assertArrayEquals(message, expectedStep.getActivePiecePosition(), actualStep.getActivePiecePosition());
+        Assert.assertArrayEquals(message, expected.getCurrentGameboard(), actual.getCurrentGameboard());
+        Assert.assertEquals(message, expected.getCurrentScore(), actual.getCurrentScore());
+        Assert.assertEquals(message, expected.getCurrentAdditionalInformation().blockNum,
+                actual.getCurrentAdditionalInformation().blockNum);
+    }
+}
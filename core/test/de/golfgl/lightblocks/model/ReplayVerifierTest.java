@@ -0,0 +1,109 @@
+package de.golfgl.lightblocks.model;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.golfgl.lightblocks.state.Replay;
+
+/**
+ * Rotations and holds must follow the game rules, the recorded positions alone are not enough
+ */
+public class ReplayVerifierTest {
+    private final ReplayVerifier verifier = new ReplayVerifier();
+    private final Gameboard gameboard = new Gameboard();
+    private Replay replay;
+
+    @Before
+    public void init() {
+        replay = new Replay();
+    }
+
+    @Test
+    public void testRotationIsValid() {
+        Tetromino piece = new Tetromino(Tetromino.TETRO_IDX_T, false);
+        replay.addNextPieceStep(0, gameboard, piece);
+        piece.setRotation(1);
+        replay.addRotatePieceStep(100, piece);
+        piece.setRotation(0);
+        replay.addRotatePieceStep(200, piece);
+
+        Assert.assertTrue(verify().valid);
+    }
+
+    @Test
+    public void testSrsWallkickIsValid() {
+        Tetromino piece = new Tetromino(Tetromino.TETRO_IDX_I, true);
+        replay.addNextPieceStep(0, gameboard, piece);
+        piece.getPosition().set(piece.getWallkickPosition(0, true));
+        piece.setRotation(1);
+        replay.addRotatePieceStep(100, piece);
+
+        Assert.assertTrue(verify().valid);
+    }
+
+    @Test
+    public void testTeleportIsInvalid() {
+        Tetromino piece = new Tetromino(Tetromino.TETRO_IDX_T, false);
+        replay.addNextPieceStep(0, gameboard, piece);
+        piece.getPosition().set(0, 3);
+        replay.addRotatePieceStep(100, piece);
+
+        ReplayVerifier.Result result = verify();
+        Assert.assertFalse(result.valid);
+        Assert.assertEquals(1, result.errorStep);
+    }
+
+    @Test
+    public void testShapeChangeIsInvalid() {
+        replay.addNextPieceStep(0, gameboard, new Tetromino(Tetromino.TETRO_IDX_T, false));
+        replay.addRotatePieceStep(100, new Tetromino(Tetromino.TETRO_IDX_L, false));
+
+        Assert.assertFalse(verify().valid);
+    }
+
+    @Test
+    public void testHoldSwapsToHeldPiece() {
+        replay.addNextPieceStep(0, gameboard, new Tetromino(Tetromino.TETRO_IDX_T, false));
+        // first hold: T is put aside, the next piece comes without a drop
+        replay.addNextPieceStep(100, gameboard, new Tetromino(Tetromino.TETRO_IDX_L, false));
+        dropActivePiece(new Tetromino(Tetromino.TETRO_IDX_L, false), 200);
+        replay.addNextPieceStep(300, gameboard, new Tetromino(Tetromino.TETRO_IDX_I, false));
+        // swap brings back the T
+        replay.addRotatePieceStep(400, new Tetromino(Tetromino.TETRO_IDX_T, false));
+
+        Assert.assertTrue(verify().valid);
+    }
+
+    @Test
+    public void testHoldToOtherPieceIsInvalid() {
+        replay.addNextPieceStep(0, gameboard, new Tetromino(Tetromino.TETRO_IDX_T, false));
+        replay.addNextPieceStep(100, gameboard, new Tetromino(Tetromino.TETRO_IDX_L, false));
+        dropActivePiece(new Tetromino(Tetromino.TETRO_IDX_L, false), 200);
+        replay.addNextPieceStep(300, gameboard, new Tetromino(Tetromino.TETRO_IDX_I, false));
+        replay.addRotatePieceStep(400, new Tetromino(Tetromino.TETRO_IDX_S, false));
+
+        Assert.assertFalse(verify().valid);
+    }
+
+    @Test
+    public void testSecondHoldBeforeDropIsInvalid() {
+        replay.addNextPieceStep(0, gameboard, new Tetromino(Tetromino.TETRO_IDX_T, false));
+        replay.addNextPieceStep(100, gameboard, new Tetromino(Tetromino.TETRO_IDX_L, false));
+        replay.addRotatePieceStep(200, new Tetromino(Tetromino.TETRO_IDX_T, false));
+
+        Assert.assertFalse(verify().valid);
+    }
+
+    private void dropActivePiece(Tetromino piece, int timeMs) {
+        int distance = gameboard.getGhostPieceDistance(piece, 0);
+        piece.getPosition().y -= distance;
+        replay.addMovePieceStep(timeMs, false, (byte) distance);
+        replay.addDropStep(timeMs, piece);
+        gameboard.pinTetromino(piece);
+    }
+
+    private ReplayVerifier.Result verify() {
+        return verifier.verify(replay, -1, -1, -1);
+    }
+}
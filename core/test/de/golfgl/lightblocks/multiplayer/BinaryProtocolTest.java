@@ -0,0 +1,134 @@
+package de.golfgl.lightblocks.multiplayer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.golfgl.lightblocks.model.Gameboard;
+
+/**
+ * Everything the writer encodes must be read back unchanged, client and server rely on the same bytes
+ */
+public class BinaryProtocolTest {
+    private static final int[] INTS = new int[]{0, 1, -1, 63, -64, 64, -65, 127, 128, 300, -300, 16384,
+            Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    @Test
+    public void testIntRoundTrip() {
+        BinaryProtocol.Writer writer = new BinaryProtocol.Writer();
+        for (int value : INTS)
+            writer.writeInt(value);
+
+        BinaryProtocol.Reader reader = new BinaryProtocol.Reader(writer.toArray());
+        for (int value : INTS)
+            Assert.assertEquals(value, reader.readInt());
+        Assert.assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    public void testSmallIntsNeedOneByte() {
+        BinaryProtocol.Writer writer = new BinaryProtocol.Writer();
+        writer.writeInt(-64);
+        Assert.assertEquals(1, writer.getLength());
+        writer.writeInt(63);
+        Assert.assertEquals(2, writer.getLength());
+        writer.writeInt(64);
+        Assert.assertEquals(4, writer.getLength());
+        writer.reset();
+        writer.writeInt(Integer.MIN_VALUE);
+        Assert.assertEquals(5, writer.getLength());
+    }
+
+    @Test
+    public void testMessageRoundTrip() {
+        Integer[][] piecePos = new Integer[][]{{0, 0}, {9, 0}, {4, 21}, {9, Gameboard.GAMEBOARD_ALLROWS - 1}};
+        int[] blockPositions = new int[]{1, 2, 3, 2, 4, 2, 4, 3};
+
+        BinaryProtocol.Writer writer = new BinaryProtocol.Writer();
+        writer.writeByte(BinaryProtocol.OP_PIN | BinaryProtocol.FLAG_OPPONENT)
+                .writePiecePositions(piecePos)
+                .writeBoolean(true)
+                .writeByte(BinaryProtocol.OP_SCORE)
+                .writeInt(123456)
+                .writeBoolean(false)
+                .writeByte(BinaryProtocol.OP_MOVE)
+                .writePiecePositions(blockPositions);
+
+        BinaryProtocol.Reader reader = new BinaryProtocol.Reader(writer.toArray());
+        int opcode = reader.readByte();
+        Assert.assertEquals(BinaryProtocol.OP_PIN, opcode & ~BinaryProtocol.FLAG_OPPONENT);
+        Assert.assertTrue((opcode & BinaryProtocol.FLAG_OPPONENT) != 0);
+        Integer[][] readPos = reader.readPiecePositions();
+        for (int i = 0; i < piecePos.length; i++)
+            Assert.assertArrayEquals(piecePos[i], readPos[i]);
+        Assert.assertTrue(reader.readBoolean());
+
+        Assert.assertEquals(BinaryProtocol.OP_SCORE, reader.readByte());
+        Assert.assertEquals(123456, reader.readInt());
+        Assert.assertFalse(reader.readBoolean());
+
+        Assert.assertEquals(BinaryProtocol.OP_MOVE, reader.readByte());
+        readPos = reader.readPiecePositions();
+        for (int i = 0; i < readPos.length; i++) {
+            Assert.assertEquals(blockPositions[i * 2], (int) readPos[i][0]);
+            Assert.assertEquals(blockPositions[i * 2 + 1], (int) readPos[i][1]);
+        }
+        Assert.assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    public void testWriterGrowsAndResets() {
+        BinaryProtocol.Writer writer = new BinaryProtocol.Writer();
+        for (int i = 0; i < 1000; i++)
+            writer.writeByte(i);
+        Assert.assertEquals(1000, writer.getLength());
+
+        byte[] data = writer.toArray();
+        Assert.assertEquals(1000, data.length);
+        BinaryProtocol.Reader reader = new BinaryProtocol.Reader();
+        reader.setData(data, 500, 10);
+        Assert.assertEquals(500 & 0xff, reader.readByte());
+
+        writer.reset();
+        Assert.assertEquals(0, writer.getLength());
+        Assert.assertEquals(0, writer.toArray().length);
+    }
+
+    @Test
+    public void testReadingPastTheEndFails() {
+        BinaryProtocol.Writer writer = new BinaryProtocol.Writer();
+        writer.writeInt(100000);
+        byte[] data = writer.toArray();
+
+        // last varint byte is missing
+        BinaryProtocol.Reader reader = new BinaryProtocol.Reader();
+        reader.setData(data, 0, data.length - 1);
+        try {
+            reader.readInt();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        reader.setData(new byte[]{BinaryProtocol.OP_PIN, 1, 2}, 0, 3);
+        reader.readByte();
+        try {
+            reader.readPiecePositions();
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInputOpcodes() {
+        String[] messages = new String[]{"SML", "SMR", "SMH", "HAT", "ROR", "ROL", "DRN", "DRS", "DRH"};
+        for (String message : messages) {
+            byte opcode = BinaryProtocol.getInputOpcode(message);
+            Assert.assertTrue(message, opcode > 0 && (opcode & BinaryProtocol.FLAG_OPPONENT) == 0);
+            Assert.assertEquals(message, BinaryProtocol.getInputMessage(opcode));
+        }
+        Assert.assertEquals(0, BinaryProtocol.getInputOpcode("XXX"));
+        Assert.assertNull(BinaryProtocol.getInputMessage(0));
+        Assert.assertNull(BinaryProtocol.getInputMessage(messages.length + 1));
+    }
+}
@@ -0,0 +1,204 @@
+package de.golfgl.lightblocks.state;
+
+import com.badlogic.gdx.Preferences;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import de.golfgl.lightblocks.backend.MatchTurnRequestInfo;
+
+/**
+ * Values that must not get lost are flushed right away, even if nothing else was changed before
+ */
+public class LocalPrefsTest {
+    private CountingPreferences prefs;
+    private LocalPrefs localPrefs;
+
+    @Before
+    public void init() {
+        prefs = new CountingPreferences();
+        localPrefs = new LocalPrefs(prefs);
+    }
+
+    @Test
+    public void testBackendUserIsFlushed() {
+        localPrefs.saveBackendUser("user", "pass");
+        Assert.assertEquals(1, prefs.flushCount);
+        Assert.assertEquals("pass", localPrefs.getBackendUserPassKey());
+
+        localPrefs.saveBackendUser(null, null);
+        Assert.assertEquals(2, prefs.flushCount);
+    }
+
+    @Test
+    public void testSupportLevelIsFlushed() {
+        localPrefs.addSupportLevel("sku");
+        Assert.assertEquals(1, prefs.flushCount);
+    }
+
+    @Test
+    public void testTurnToUploadIsFlushed() {
+        MatchTurnRequestInfo turn = new MatchTurnRequestInfo();
+        turn.matchId = "match";
+        turn.turnKey = "turn";
+        localPrefs.saveTurnToUpload(turn);
+        Assert.assertEquals(1, prefs.flushCount);
+        Assert.assertEquals("match", localPrefs.getTurnToUpload().matchId);
+    }
+
+    @Test
+    public void testCommitFlushesWithoutChanges() {
+        localPrefs.commit();
+        Assert.assertEquals(1, prefs.flushCount);
+    }
+
+    @Test
+    public void testSettersAreFlushedByUpdateOnly() {
+        localPrefs.setBackendNickname("nick");
+        localPrefs.update();
+        Assert.assertEquals(0, prefs.flushCount);
+    }
+
+    @Test
+    public void testSettersAreCoalescedIntoOneFlush() throws InterruptedException {
+        localPrefs.setBackendNickname("nick");
+        localPrefs.setBackendNickname("nick2");
+        localPrefs.setPlaySounds(false);
+        localPrefs.update();
+        Assert.assertEquals(0, prefs.flushCount);
+
+        Thread.sleep(LocalPrefs.FLUSH_DELAY_MS + 50);
+        localPrefs.update();
+        Assert.assertEquals(1, prefs.flushCount);
+        Assert.assertEquals("nick2", localPrefs.getBackendNickname());
+
+        // nothing changed since
+        localPrefs.update();
+        Assert.assertEquals(1, prefs.flushCount);
+
+        // a new change waits for its own delay
+        localPrefs.setPlaySounds(true);
+        localPrefs.update();
+        Assert.assertEquals(1, prefs.flushCount);
+    }
+
+    private static class CountingPreferences implements Preferences {
+        private final Map<String, Object> values = new HashMap<>();
+        private int flushCount;
+
+        @Override
+        public Preferences putBoolean(String key, boolean val) {
+            values.put(key, val);
+            return this;
+        }
+
+        @Override
+        public Preferences putInteger(String key, int val) {
+            values.put(key, val);
+            return this;
+        }
+
+        @Override
+        public Preferences putLong(String key, long val) {
+            values.put(key, val);
+            return this;
+        }
+
+        @Override
+        public Preferences putFloat(String key, float val) {
+            values.put(key, val);
+            return this;
+        }
+
+        @Override
+        public Preferences putString(String key, String val) {
+            values.put(key, val);
+            return this;
+        }
+
+        @Override
+        public Preferences put(Map<String, ?> vals) {
+            values.putAll(vals);
+            return this;
+        }
+
+        @Override
+        public boolean getBoolean(String key) {
+            return getBoolean(key, false);
+        }
+
+        @Override
+        public int getInteger(String key) {
+            return getInteger(key, 0);
+        }
+
+        @Override
+        public long getLong(String key) {
+            return getLong(key, 0);
+        }
+
+        @Override
+        public float getFloat(String key) {
+            return getFloat(key, 0);
+        }
+
+        @Override
+        public String getString(String key) {
+            return getString(key, "");
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return values.containsKey(key) ? (Boolean) values.get(key) : defValue;
+        }
+
+        @Override
+        public int getInteger(String key, int defValue) {
+            return values.containsKey(key) ? (Integer) values.get(key) : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return values.containsKey(key) ? (Long) values.get(key) : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return values.containsKey(key) ? (Float) values.get(key) : defValue;
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+
+        @Override
+        public Map<String, ?> get() {
+            return values;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public void clear() {
+            values.clear();
+        }
+
+        @Override
+        public void remove(String key) {
+            values.remove(key);
+        }
+
+        @Override
+        public void flush() {
+            flushCount++;
+        }
+    }
+}
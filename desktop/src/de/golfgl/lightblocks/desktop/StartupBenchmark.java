@@ -0,0 +1,170 @@
+package de.golfgl.lightblocks.desktop;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
+import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+import de.golfgl.lightblocks.LightBlocksGame;
+import de.golfgl.lightblocks.StartupTimings;
+import de.golfgl.lightblocks.multiplayer.MultiplayerLightblocks;
+
+/**
+ * Measures cold starts: starts the game repeatedly, every time in a new JVM, and reports percentiles of the
+ * {@link StartupTimings} phases. Every run needs a GL context for the skin, so it opens a small window and closes it
+ * as soon as the startup is finished.
+ * <p>
+ * Arguments: --runs=10
+ * <p>
+ * gradlew desktop:startupBenchmark -Pargs="--runs=20"
+ */
+public class StartupBenchmark {
+    private static final String ARG_CHILD = "--child";
+    private static final String TIMING_PREFIX = "TIMING ";
+    private static final long RUN_TIMEOUT_SECONDS = 60;
+
+    // phase name => durations and elapsed times of all runs
+    private final Map<String, List<Float>> phaseMs = new LinkedHashMap<>();
+    private final Map<String, List<Float>> elapsedMs = new LinkedHashMap<>();
+    private int failedRuns;
+
+    public static void main(String[] arg) throws IOException, InterruptedException {
+        for (String a : arg) {
+            if (a.equals(ARG_CHILD)) {
+                runChild();
+                return;
+            }
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark();
+        int runs = findInt(arg, "runs", 10);
+        for (int i = 0; i < runs; i++)
+            benchmark.runOnce();
+
+        benchmark.printSummary(runs);
+    }
+
+    private static int findInt(String[] args, String name, int defaultVal) {
+        int retVal = defaultVal;
+        for (String arg : args) {
+            if (arg.startsWith("--" + name + "=")) {
+                retVal = Integer.parseInt(arg.substring(name.length() + 3));
+            }
+        }
+        return retVal;
+    }
+
+    /**
+     * starts the game in this JVM and prints the timings to stdout when the startup is finished
+     */
+    private static void runChild() {
+        // a hanging startup must not stop the benchmark
+        new Timer(true).schedule(new TimerTask() {
+            @Override
+            public void run() {
+                System.exit(1);
+            }
+        }, TimeUnit.SECONDS.toMillis(RUN_TIMEOUT_SECONDS));
+
+        LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
+        config.width = LightBlocksGame.nativeGameWidth / 4;
+        config.height = LightBlocksGame.nativeGameHeight / 4;
+        config.title = "StartupBenchmark";
+
+        LightBlocksGame game = new MultiplayerLightblocks() {
+            private boolean reported;
+
+            @Override
+            public void render() {
+                super.render();
+
+                if (startupTimings.isFinished() && !reported) {
+                    reported = true;
+                    for (int i = 0; i < startupTimings.getPhaseCount(); i++)
+                        System.out.println(TIMING_PREFIX + startupTimings.getPhaseName(i) + " "
+                                + startupTimings.getPhaseMs(i) + " " + startupTimings.getElapsedMs(i));
+                    System.out.flush();
+                    Gdx.app.exit();
+                }
+            }
+        };
+        game.nsdHelper = new DesktopNsdHelper();
+        new LwjglApplication(game, config);
+    }
+
+    private static float percentile(List<Float> sortedValues, int percent) {
+        int idx = (int) Math.ceil(percent / 100f * sortedValues.size()) - 1;
+        return sortedValues.get(Math.max(0, idx));
+    }
+
+    private void runOnce() throws IOException, InterruptedException {
+        String javaBin = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder processBuilder = new ProcessBuilder(javaBin, "-cp", System.getProperty("java.class.path"),
+                StartupBenchmark.class.getName(), ARG_CHILD);
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
+
+        boolean reported = false;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(TIMING_PREFIX))
+                    continue;
+
+                String[] fields = line.substring(TIMING_PREFIX.length()).split(" ");
+                add(phaseMs, fields[0], Float.parseFloat(fields[1]));
+                add(elapsedMs, fields[0], Float.parseFloat(fields[2]));
+                reported = true;
+            }
+        } finally {
+            reader.close();
+        }
+
+        int exitCode = process.waitFor();
+        if (!reported) {
+            failedRuns++;
+            System.out.println("Run without timings, exit code " + exitCode);
+        }
+    }
+
+    private void add(Map<String, List<Float>> map, String phase, float value) {
+        List<Float> values = map.get(phase);
+        if (values == null) {
+            values = new ArrayList<>();
+            map.put(phase, values);
+        }
+        values.add(value);
+    }
+
+    private void printSummary(int runs) {
+        System.out.println("Runs: " + runs + ", failed: " + failedRuns);
+        System.out.println(String.format("%-14s %5s %9s %9s %9s %12s %12s", "phase", "runs", "p50 ms", "p90 ms",
+                "max ms", "p50 at ms", "p90 at ms"));
+
+        for (String phase : phaseMs.keySet()) {
+            List<Float> durations = phaseMs.get(phase);
+            List<Float> elapsed = elapsedMs.get(phase);
+            Collections.sort(durations);
+            Collections.sort(elapsed);
+            System.out.println(String.format("%-14s %5d %9.1f %9.1f %9.1f %12.1f %12.1f", phase,
+                    durations.size(), percentile(durations, 50), percentile(durations, 90), durations.get(durations.size() - 1),
+                    percentile(elapsed, 50), percentile(elapsed, 90)));
+        }
+
+        if (!phaseMs.containsKey(StartupTimings.PHASE_WELCOME))
+            System.out.println(StartupTimings.PHASE_WELCOME + ": not measured, no welcome request was answered");
+    }
+}
@@ -0,0 +1,99 @@
+package de.golfgl.lightblocks.desktop;
+
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import de.golfgl.lightblocks.model.ReplayVerifier;
+import de.golfgl.lightblocks.state.Replay;
+
+/**
+ * Batch verification of replays, without UI. Reads files with one score per line, as json with the fields of
+ * BackendScore: score, lines, drawnBlocks and replay.
+ * <p>
+ * gradlew desktop:verifyReplays -Pargs="scores1.json scores2.json"
+ */
+public class VerifyReplays {
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private final ReplayVerifier verifier = new ReplayVerifier();
+    private final JsonReader jsonReader = new JsonReader();
+    private int validNum;
+    private int invalidNum;
+    private int skippedNum;
+    private long verifyNanos;
+
+    public static void main(String[] arg) throws IOException {
+        if (arg.length == 0) {
+            System.out.println("Usage: VerifyReplays file...");
+            return;
+        }
+
+        VerifyReplays verifyReplays = new VerifyReplays();
+        for (String fileName : arg)
+            verifyReplays.verifyFile(fileName);
+
+        verifyReplays.printSummary();
+    }
+
+    private void verifyFile(String fileName) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"));
+        try {
+            int lineNum = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNum++;
+                if (line.trim().isEmpty())
+                    continue;
+                verifyLine(fileName + ":" + lineNum, line);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void verifyLine(String location, String line) {
+        JsonValue json;
+        try {
+            json = jsonReader.parse(line);
+        } catch (Throwable t) {
+            skippedNum++;
+            return;
+        }
+
+        String replayString = json.getString("replay", null);
+        if (replayString == null) {
+            skippedNum++;
+            return;
+        }
+
+        long start = System.nanoTime();
+        Replay replay = new Replay();
+        ReplayVerifier.Result result;
+        if (replay.fromString(replayString))
+            result = verifier.verify(replay, json.getInt("score", -1), json.getInt("lines", -1),
+                    json.getInt("drawnBlocks", -1));
+        else
+            result = verifier.verify(null, -1, -1, -1);
+        verifyNanos += System.nanoTime() - start;
+
+        if (result.valid)
+            validNum++;
+        else {
+            invalidNum++;
+            if (invalidNum <= MAX_REPORTED_ERRORS)
+                System.out.println(location + " " + result);
+        }
+    }
+
+    private void printSummary() {
+        int verifiedNum = validNum + invalidNum;
+        System.out.println("Valid: " + validNum + ", invalid: " + invalidNum + ", skipped: " + skippedNum);
+        if (verifiedNum > 0 && verifyNanos > 0)
+            System.out.println("Replays per second: " + (long) (verifiedNum * 1000000000d / verifyNanos));
+    }
+}
@@ -68,6 +68,8 @@ public class MultiplayerLightblocks extends LightBlocksGame {
         kryo.register(MultiPlayerObjects.WatchPlayActivateNextTetro.class);
         kryo.register(MultiPlayerObjects.WatchPlayPinTetromino.class);
         kryo.register(MultiPlayerObjects.WatchPlayMarkConflict.class);
+
+        kryo.register(MultiPlayerObjects.GameboardRows.class);
     }
 
     @Override
@@ -0,0 +1,315 @@
+package de.golfgl.lightblocks.server.loadtest;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+import de.golfgl.lightblocks.multiplayer.BinaryProtocol;
+import de.golfgl.lightblocks.server.Player;
+import de.golfgl.lightblocks.server.Serializer;
+
+/**
+ * A simulated player speaking the server protocol. Inputs are produced by a local
+ * {@link BotGameModel}. The time from sending an input until the server's answer to it arrives
+ * is recorded as echo latency: a move to the same side for SML/SMR, a rotation for ROL/ROR, a
+ * hold for HAT and a pin for DRH. Other inputs have no distinguishable answer and are not
+ * measured.
+ * <p>
+ * Inputs the server rejects are not answered. So an input is only measured if no input with the
+ * same kind of answer is still unanswered, otherwise its answer could belong to the earlier one.
+ */
+public class BotClient extends WebSocketClient {
+    private static final long KEEP_ALIVE_MS = 1500;
+    private static final long MAX_ECHO_WAIT_NS = 1000000000L;
+    private static final int ECHO_NONE = -1;
+    private static final int ECHO_MOVE_LEFT = 0;
+    private static final int ECHO_MOVE_RIGHT = 1;
+    private static final int ECHO_ROTATE = 2;
+    private static final int ECHO_HOLD = 3;
+    private static final int ECHO_PIN = 4;
+
+    private final LoadTest loadTest;
+    private final int botNum;
+    private final int modeType;
+    // guarded by this: unanswered inputs and time of the last input per kind of answer
+    private final int[] unansweredInputs = new int[ECHO_PIN + 1];
+    private final long[] lastInputNs = new long[ECHO_PIN + 1];
+    // the measured input, sampleEcho is ECHO_NONE if there is none
+    private int sampleEcho = ECHO_NONE;
+    private long sampleSentNs;
+    private final BinaryProtocol.Reader binaryReader = new BinaryProtocol.Reader();
+    private volatile boolean matched;
+    private volatile boolean closed;
+    private boolean useBinaryProtocol;
+    private BotGameModel gameModel;
+    private volatile long lastMessageSentMs;
+
+    public BotClient(LoadTest loadTest, URI serverUri, int botNum, int modeType) {
+        super(serverUri);
+        this.loadTest = loadTest;
+        this.botNum = botNum;
+        this.modeType = modeType;
+    }
+
+    /**
+     * called on the load test's render thread
+     */
+    public void update(float delta) {
+        if (closed || !matched)
+            return;
+
+        if (gameModel == null || gameModel.isGameOver())
+            gameModel = new BotGameModel(this, modeType);
+
+        // the first player's model updates the second one
+        gameModel.update(delta);
+
+        if (TimeUtils.timeSinceMillis(lastMessageSentMs) > KEEP_ALIVE_MS)
+            sendText("");
+    }
+
+    public boolean isMatched() {
+        return matched;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    void sendInput(String inGameMessage) {
+        if (!isOpen())
+            return;
+
+        inputSent(getExpectedEcho(inGameMessage), System.nanoTime());
+
+        if (useBinaryProtocol)
+            send(new byte[]{BinaryProtocol.getInputOpcode(inGameMessage)});
+        else
+            sendText(Serializer.ID_IN_GAME_MSG + inGameMessage);
+        loadTest.inputsSent.incrementAndGet();
+    }
+
+    private static int getExpectedEcho(String inGameMessage) {
+        switch (inGameMessage) {
+            case "SML":
+                return ECHO_MOVE_LEFT;
+            case "SMR":
+                return ECHO_MOVE_RIGHT;
+            case "ROL":
+            case "ROR":
+                return ECHO_ROTATE;
+            case "HAT":
+                return ECHO_HOLD;
+            case "DRH":
+                return ECHO_PIN;
+            default:
+                return ECHO_NONE;
+        }
+    }
+
+    private synchronized void inputSent(int echo, long now) {
+        // rejected inputs are never answered
+        if (sampleEcho != ECHO_NONE && now - sampleSentNs > MAX_ECHO_WAIT_NS)
+            sampleEcho = ECHO_NONE;
+        if (echo == ECHO_NONE)
+            return;
+
+        if (now - lastInputNs[echo] > MAX_ECHO_WAIT_NS)
+            unansweredInputs[echo] = 0;
+        if (unansweredInputs[echo] == 0 && sampleEcho == ECHO_NONE) {
+            sampleEcho = echo;
+            sampleSentNs = now;
+        } else if (sampleEcho == echo) {
+            // the answer could belong to either input
+            sampleEcho = ECHO_NONE;
+        }
+        unansweredInputs[echo]++;
+        lastInputNs[echo] = now;
+    }
+
+    private synchronized void echoReceived(int echo) {
+        if (echo == ECHO_NONE)
+            return;
+
+        if (unansweredInputs[echo] > 0)
+            unansweredInputs[echo]--;
+        if (sampleEcho == echo) {
+            sampleEcho = ECHO_NONE;
+            loadTest.echoLatency.record((System.nanoTime() - sampleSentNs) / 1000000d);
+        }
+    }
+
+    private void sendText(String message) {
+        if (isOpen()) {
+            send(message);
+            lastMessageSentMs = TimeUtils.millis();
+        }
+    }
+
+    @Override
+    public void send(byte[] data) {
+        super.send(data);
+        lastMessageSentMs = TimeUtils.millis();
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshakedata) {
+        // wait for the server info
+    }
+
+    @Override
+    public void onMessage(String message) {
+        loadTest.messagesReceived.incrementAndGet();
+        if (message.startsWith(Serializer.ID_SERVERINFO)) {
+            sendPlayerInfo(message.substring(Serializer.ID_SERVERINFO.length()));
+            return;
+        }
+
+        int start = 0;
+        int separator = message.indexOf(Player.BATCH_SEPARATOR);
+        while (separator >= 0) {
+            handleTextMessage(message.substring(start, separator));
+            start = separator + 1;
+            separator = message.indexOf(Player.BATCH_SEPARATOR, start);
+        }
+        handleTextMessage(start == 0 ? message : message.substring(start));
+    }
+
+    private void handleTextMessage(String message) {
+        if (message.startsWith("MCH")) {
+            matched = true;
+        } else if (message.startsWith("YMOV|")) {
+            // YMOV|-1|0|18
+            int dx = Integer.parseInt(message.substring(5, message.indexOf('|', 5)));
+            if (dx != 0)
+                echoReceived(dx < 0 ? ECHO_MOVE_LEFT : ECHO_MOVE_RIGHT);
+        } else if (message.startsWith("YROT")) {
+            echoReceived(ECHO_ROTATE);
+        } else if (message.startsWith("YHLD")) {
+            echoReceived(ECHO_HOLD);
+        } else if (message.startsWith("YPIN")) {
+            echoReceived(ECHO_PIN);
+        }
+    }
+
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        loadTest.messagesReceived.incrementAndGet();
+        byte[] frame = new byte[bytes.remaining()];
+        bytes.get(frame);
+        binaryReader.setData(frame, 0, frame.length);
+
+        // batched frames mix messages of both gameboards, every message has to be looked at
+        try {
+            while (binaryReader.hasRemaining()) {
+                int opcode = binaryReader.readByte();
+                int echo = readBinaryMessage(opcode & ~BinaryProtocol.FLAG_OPPONENT, binaryReader);
+                if ((opcode & BinaryProtocol.FLAG_OPPONENT) == 0)
+                    echoReceived(echo);
+            }
+        } catch (IllegalArgumentException e) {
+            Gdx.app.error("LoadTest", "Bot" + botNum + " got illegible frame: " + e.getMessage());
+        }
+    }
+
+    /**
+     * reads the message's payload
+     *
+     * @return the kind of input the message answers, or ECHO_NONE
+     */
+    private static int readBinaryMessage(int opcode, BinaryProtocol.Reader reader) {
+        switch (opcode) {
+            case BinaryProtocol.OP_MOVE:
+                int dx = reader.readInt();
+                reader.readInt();
+                reader.readInt();
+                return dx < 0 ? ECHO_MOVE_LEFT : dx > 0 ? ECHO_MOVE_RIGHT : ECHO_NONE;
+            case BinaryProtocol.OP_ROTATE:
+                reader.readPiecePositions();
+                reader.readInt();
+                return ECHO_ROTATE;
+            case BinaryProtocol.OP_CLEAR_INSERT:
+                int linesToRemoveCount = reader.readInt();
+                for (int i = 0; i < linesToRemoveCount; i++)
+                    reader.readInt();
+                reader.readBoolean();
+                int garbageHoleCount = reader.readInt();
+                for (int i = 0; i < garbageHoleCount; i++)
+                    reader.readInt();
+                return ECHO_NONE;
+            case BinaryProtocol.OP_GAME_OVER:
+                reader.readBoolean();
+                return ECHO_NONE;
+            case BinaryProtocol.OP_NEXT_PIECE:
+                reader.readPiecePositions();
+                reader.readInt();
+                return ECHO_NONE;
+            case BinaryProtocol.OP_ACTIVATE_NEXT:
+                reader.readPiecePositions();
+                reader.readInt();
+                reader.readInt();
+                return ECHO_NONE;
+            case BinaryProtocol.OP_HOLD:
+                reader.readPiecePositions();
+                reader.readInt();
+                if (reader.readBoolean())
+                    reader.readPiecePositions();
+                return ECHO_HOLD;
+            case BinaryProtocol.OP_PIN:
+                return ECHO_PIN;
+            case BinaryProtocol.OP_SCORE:
+                reader.readInt();
+                reader.readInt();
+                reader.readInt();
+                return ECHO_NONE;
+            case BinaryProtocol.OP_CONFLICT:
+                reader.readInt();
+                reader.readInt();
+                return ECHO_NONE;
+            case BinaryProtocol.OP_GARBAGE:
+                reader.readInt();
+                return ECHO_NONE;
+            default:
+                throw new IllegalArgumentException("unknown opcode " + opcode);
+        }
+    }
+
+    private void sendPlayerInfo(String serverInfoJson) {
+        JsonValue serverInfo = new JsonReader().parse(serverInfoJson);
+        useBinaryProtocol = loadTest.useBinaryProtocol && serverInfo.getInt("binaryProtocol", 0) > 0;
+        boolean batching = loadTest.useBatching && serverInfo.getBoolean("batching", false);
+
+        JsonValue playerInfo = new JsonValue(JsonValue.ValueType.object);
+        playerInfo.addChild("nickName", new JsonValue("Bot" + botNum));
+        playerInfo.addChild("clientVersion", new JsonValue(0));
+        if (useBinaryProtocol)
+            playerInfo.addChild("binaryProtocol", new JsonValue(BinaryProtocol.VERSION));
+        if (batching)
+            playerInfo.addChild("batching", new JsonValue(true));
+
+        sendText(Serializer.ID_PLAYERINFO + playerInfo.toJson(JsonWriter.OutputType.json));
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        closed = true;
+        if (code != CloseFrame.NORMAL && !loadTest.isFinished()) {
+            loadTest.droppedConnections.incrementAndGet();
+            Gdx.app.log("LoadTest", "Bot" + botNum + " dropped: " + code + " " + reason);
+        }
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        Gdx.app.error("LoadTest", "Bot" + botNum + " error: " + ex.getMessage());
+    }
+}
@@ -0,0 +1,128 @@
+package de.golfgl.lightblocks.server.loadtest;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.IntArray;
+
+import javax.annotation.Nullable;
+
+import de.golfgl.lightblocks.input.InputIdentifier;
+import de.golfgl.lightblocks.model.GameModel;
+import de.golfgl.lightblocks.model.GameScore;
+import de.golfgl.lightblocks.model.IGameModelListener;
+import de.golfgl.lightblocks.model.ServerMultiplayerModel;
+import de.golfgl.lightblocks.multiplayer.ai.ArtificialPlayer;
+import de.golfgl.lightblocks.state.InitGameParameters;
+
+/**
+ * Local game model played by two artificial players. The inputs of the first player are
+ * forwarded to the server, so the bot produces inputs at the pace and with the mix of a real
+ * player. The local game is not synchronized with the server's game.
+ */
+public class BotGameModel extends ServerMultiplayerModel {
+    private final BotClient client;
+
+    public BotGameModel(BotClient client, int modeType) {
+        this.client = client;
+        InitGameParameters gameParams = new InitGameParameters();
+        gameParams.setModeType(modeType);
+        startNewGame(gameParams);
+
+        ServerMultiplayerModel secondGameModel = getSecondGameModel();
+        setAiPlayer(new ArtificialPlayer(this, secondGameModel));
+        secondGameModel.setAiPlayer(new ArtificialPlayer(secondGameModel, this));
+        setUserInterface(new NoOpListener());
+        secondGameModel.setUserInterface(new NoOpListener());
+    }
+
+    @Override
+    public void inputDoOneHorizontalMove(InputIdentifier inputId, boolean isLeft) {
+        super.inputDoOneHorizontalMove(inputId, isLeft);
+        client.sendInput(isLeft ? "SML" : "SMR");
+        client.sendInput("SMH");
+    }
+
+    @Override
+    public void inputRotate(InputIdentifier inputId, boolean clockwise) {
+        super.inputRotate(inputId, clockwise);
+        client.sendInput(clockwise ? "ROR" : "ROL");
+    }
+
+    @Override
+    public void inputSetSoftDropFactor(InputIdentifier inputId, float newVal) {
+        super.inputSetSoftDropFactor(inputId, newVal);
+        if (MathUtils.isEqual(GameModel.FACTOR_HARD_DROP, newVal))
+            client.sendInput("DRH");
+    }
+
+    @Override
+    public boolean inputHoldActiveTetromino(InputIdentifier inputId) {
+        client.sendInput("HAT");
+        return super.inputHoldActiveTetromino(inputId);
+    }
+
+    private static class NoOpListener implements IGameModelListener {
+        @Override
+        public void insertNewBlock(int x, int y, int blockType) {
+        }
+
+        @Override
+        public void moveTetro(int[] v, int dx, int dy, int ghostPieceDistance) {
+        }
+
+        @Override
+        public void rotateTetro(int[] vOld, int[] vNew, int ghostPieceDistance) {
+        }
+
+        @Override
+        public void clearAndInsertLines(IntArray linesToRemove, boolean special, int[] garbageHolePosition) {
+        }
+
+        @Override
+        public void markAndMoveFreezedLines(boolean playSoundAndMove, IntArray removedLines, IntArray fullLines) {
+        }
+
+        @Override
+        public void setGameOver() {
+        }
+
+        @Override
+        public void showNextTetro(Integer[][] relativeBlockPositions, int blockType) {
+        }
+
+        @Override
+        public void activateNextTetro(Integer[][] boardBlockPositions, int blockType, int ghostPieceDistance) {
+        }
+
+        @Override
+        public void swapHoldAndActivePiece(Integer[][] newHoldPiecePositions, Integer[][] oldActivePiecePositions, Integer[][] newActivePiecePositions, int ghostPieceDistance, int holdBlockType) {
+        }
+
+        @Override
+        public void pinTetromino(Integer[][] currentBlockPositions) {
+        }
+
+        @Override
+        public void updateScore(GameScore score, int gainedScore) {
+        }
+
+        @Override
+        public void markConflict(int x, int y) {
+        }
+
+        @Override
+        public void showMotivation(MotivationTypes achievement, @Nullable String extra) {
+        }
+
+        @Override
+        public void showGarbageAmount(int lines) {
+        }
+
+        @Override
+        public void showComboHeight(int comboHeight) {
+        }
+
+        @Override
+        public void emphasizeTimeLabel() {
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package de.golfgl.lightblocks.server.loadtest;
+
+import com.badlogic.gdx.ApplicationListener;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.golfgl.lightblocks.server.Histogram;
+import de.golfgl.lightblocks.state.InitGameParameters;
+
+/**
+ * Headless load test for the Lightblocks server. Connects a configurable number of bots playing
+ * with artificial players and reports echo latency percentiles, dropped connections and the
+ * server cpu time spent per match-second, as reported by the server's STATS query.
+ * <p>
+ * Arguments: --url=ws://localhost:8887 --clients=100 --rampUp=10 --duration=60 --binary=1 --batching=1
+ * <p>
+ * Add /classic or /modern to the url to choose the game mode.
+ */
+public class LoadTest implements ApplicationListener {
+    public static final double[] LATENCY_BOUNDS_MS = new double[]{1, 2, 5, 10, 20, 35, 50, 75, 100, 150,
+            250, 500, 1000};
+    private static final long STATS_INTERVAL_MS = 1000;
+
+    final Histogram echoLatency = new Histogram(LATENCY_BOUNDS_MS);
+    final AtomicLong inputsSent = new AtomicLong();
+    final AtomicLong messagesReceived = new AtomicLong();
+    final AtomicLong droppedConnections = new AtomicLong();
+    final boolean useBinaryProtocol;
+    final boolean useBatching;
+
+    private final URI serverUri;
+    private final int clientNum;
+    private final int rampUpSeconds;
+    private final int durationSeconds;
+    private final int modeType;
+    private final Array<BotClient> bots = new Array<>();
+    private StatsClient statsClient;
+    private long startMs;
+    private long lastStatsRequestMs;
+    private volatile boolean finished;
+
+    public LoadTest(URI serverUri, int clientNum, int rampUpSeconds, int durationSeconds,
+                    boolean useBinaryProtocol, boolean useBatching) {
+        this.serverUri = serverUri;
+        this.clientNum = clientNum;
+        this.rampUpSeconds = rampUpSeconds;
+        this.durationSeconds = durationSeconds;
+        this.useBinaryProtocol = useBinaryProtocol;
+        this.useBatching = useBatching;
+        modeType = serverUri.getPath().contains("/modern") ? InitGameParameters.TYPE_MODERN
+                : InitGameParameters.TYPE_CLASSIC;
+    }
+
+    public static void main(String[] arg) throws URISyntaxException {
+        LoadTest loadTest = new LoadTest(new URI(findString(arg, "url", "ws://localhost:8887")),
+                findInt(arg, "clients", 100), findInt(arg, "rampUp", 10), findInt(arg, "duration", 60),
+                findInt(arg, "binary", 1) > 0, findInt(arg, "batching", 1) > 0);
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        new HeadlessApplication(loadTest, config);
+    }
+
+    private static String findString(String[] args, String name, String defaultVal) {
+        String retVal = defaultVal;
+        for (String arg : args) {
+            if (arg.startsWith("--" + name + "=")) {
+                retVal = arg.substring(name.length() + 3);
+            }
+        }
+        return retVal;
+    }
+
+    private static int findInt(String[] args, String name, int defaultVal) {
+        try {
+            return Integer.parseInt(findString(args, name, String.valueOf(defaultVal)));
+        } catch (NumberFormatException e) {
+            return defaultVal;
+        }
+    }
+
+    boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void create() {
+        Gdx.app.log("LoadTest", "Connecting " + clientNum + " bots to " + serverUri + " within " + rampUpSeconds
+                + "s, running for " + durationSeconds + "s after ramp up");
+        statsClient = new StatsClient(serverUri);
+        statsClient.connect();
+        startMs = TimeUtils.millis();
+    }
+
+    @Override
+    public void render() {
+        if (finished)
+            return;
+
+        long runningMs = TimeUtils.timeSinceMillis(startMs);
+
+        // ramp up
+        int botsToStart = rampUpSeconds <= 0 ? clientNum
+                : (int) Math.min(clientNum, clientNum * runningMs / (rampUpSeconds * 1000L) + 1);
+        while (bots.size < botsToStart) {
+            BotClient bot = new BotClient(this, serverUri, bots.size + 1, modeType);
+            bot.setTcpNoDelay(true);
+            bot.connect();
+            bots.add(bot);
+        }
+
+        float delta = Gdx.graphics.getDeltaTime();
+        for (int i = 0; i < bots.size; i++)
+            bots.get(i).update(delta);
+
+        if (TimeUtils.timeSinceMillis(lastStatsRequestMs) >= STATS_INTERVAL_MS && statsClient.isOpen()) {
+            lastStatsRequestMs = TimeUtils.millis();
+            statsClient.send("STATS");
+        }
+
+        if (runningMs > (rampUpSeconds + durationSeconds) * 1000L) {
+            finished = true;
+            report(runningMs);
+            Gdx.app.exit();
+        }
+    }
+
+    private void report(long runningMs) {
+        int matched = 0;
+        int open = 0;
+        for (int i = 0; i < bots.size; i++) {
+            BotClient bot = bots.get(i);
+            if (bot.isMatched())
+                matched++;
+            if (!bot.isClosed())
+                open++;
+        }
+
+        float runningSeconds = runningMs / 1000f;
+        StringBuilder report = new StringBuilder();
+        report.append("\n=== Load test report ===\n");
+        report.append("Bots started: ").append(bots.size).append(", matched: ").append(matched)
+                .append(", open at end: ").append(open).append(", dropped: ").append(droppedConnections.get()).append('\n');
+        report.append("Inputs sent: ").append(inputsSent.get())
+                .append(" (").append((int) (inputsSent.get() / runningSeconds)).append("/s), messages received: ")
+                .append(messagesReceived.get())
+                .append(" (").append((int) (messagesReceived.get() / runningSeconds)).append("/s)\n");
+        report.append("Echo latency ms: p50 <= ").append(echoLatency.getPercentile(50))
+                .append(", p90 <= ").append(echoLatency.getPercentile(90))
+                .append(", p99 <= ").append(echoLatency.getPercentile(99))
+                .append(", avg ").append(echoLatency.getCount() > 0 ? Math.round(echoLatency.getSum() / echoLatency.getCount()) : 0)
+                .append(" (").append(echoLatency.getCount()).append(" samples)\n");
+        statsClient.appendReport(report);
+        Gdx.app.log("LoadTest", report.toString());
+    }
+
+    @Override
+    public void resize(int width, int height) {
+    }
+
+    @Override
+    public void pause() {
+    }
+
+    @Override
+    public void resume() {
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 0; i < bots.size; i++)
+            bots.get(i).close();
+        if (statsClient != null)
+            statsClient.close();
+    }
+
+    /**
+     * Polls the server's STATS query to sum up match-seconds and server cpu time
+     */
+    private static class StatsClient extends WebSocketClient {
+        private final JsonReader jsonReader = new JsonReader();
+        private long lastStatsMs;
+        private long firstCpuTimeMs = -1;
+        private long lastCpuTimeMs = -1;
+        private double matchSeconds;
+        private int maxMatches;
+
+        public StatsClient(URI serverUri) {
+            super(serverUri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshakedata) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            if (!message.startsWith("STATS"))
+                return;
+
+            JsonValue stats = jsonReader.parse(message.substring("STATS".length()));
+            int matches = stats.getInt("matches", 0);
+            long cpuTimeMs = stats.getLong("cpuTimeMs", -1);
+            long now = TimeUtils.millis();
+            synchronized (this) {
+                if (lastStatsMs > 0)
+                    matchSeconds = matchSeconds + matches * (now - lastStatsMs) / 1000d;
+                lastStatsMs = now;
+                maxMatches = Math.max(maxMatches, matches);
+                if (firstCpuTimeMs < 0)
+                    firstCpuTimeMs = cpuTimeMs;
+                lastCpuTimeMs = cpuTimeMs;
+            }
+        }
+
+        synchronized void appendReport(StringBuilder report) {
+            report.append("Server matches max: ").append(maxMatches)
+                    .append(", match-seconds: ").append((int) matchSeconds).append('\n');
+            if (firstCpuTimeMs >= 0 && matchSeconds > 0) {
+                long cpuMs = lastCpuTimeMs - firstCpuTimeMs;
+                report.append("Server cpu time: ").append(cpuMs).append(" ms, ")
+                        .append(String.format("%.2f", cpuMs / matchSeconds)).append(" ms per match-second\n");
+            } else {
+                report.append("Server cpu time: not reported\n");
+            }
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+            Gdx.app.error("LoadTest", "Stats connection error: " + ex.getMessage());
+        }
+    }
+}
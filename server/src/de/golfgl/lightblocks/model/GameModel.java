@@ -68,6 +68,9 @@ public abstract class GameModel implements AiAcessibleGameModel {
 
     // von removeLines geschrieben, für ui.clearAndInsertLines aufbewahrt
     private final IntArray removedLines;
+    // Puffer für die Blockpositionen bei Bewegung und Rotation, um Allokationen zu vermeiden
+    private final int[] blockPositions = new int[Tetromino.BLOCK_POSITIONS_SIZE];
+    private final int[] oldBlockPositions = new int[Tetromino.BLOCK_POSITIONS_SIZE];
     private int[] garbageLines;
     private boolean removeWasSpecial;
 
@@ -86,6 +89,11 @@ public abstract class GameModel implements AiAcessibleGameModel {
         return nextTetromino;
     }
 
+    @Override
+    public int getQueuedTetrominoTypes(int[] out) {
+        return drawyer.getQueuedTetrominoTypes(out);
+    }
+
     public void update(float delta) {
 
         if (isGameOver) return;
@@ -164,7 +172,7 @@ public abstract class GameModel implements AiAcessibleGameModel {
 
         if (maxDistance > 0) {
             int ghostPieceDistance = gameboard.getGhostPieceDistance(activeTetromino, 0);
-            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(), 0, -maxDistance,
+            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(blockPositions), 0, -maxDistance,
                     ghostPieceDistance);
             activeTetromino.getPosition().y -= maxDistance;
             activeTetromino.setLastMovementType(0);
@@ -428,7 +436,7 @@ public abstract class GameModel implements AiAcessibleGameModel {
 
         if (maxDistance != 0) {
             int ghostPieceDistance = gameboard.getGhostPieceDistance(activeTetromino, maxDistance);
-            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(), maxDistance, 0,
+            uiGameboard.moveTetro(activeTetromino.getCurrentBlockPositions(blockPositions), maxDistance, 0,
                     ghostPieceDistance);
             activeTetromino.getPosition().x += maxDistance;
             activeTetromino.setLastMovementType(0);
@@ -439,9 +447,10 @@ public abstract class GameModel implements AiAcessibleGameModel {
         if (maxDistance != distance) {
             int signum = (distance > 0 ? 1 : -1);
 
-            for (Integer[] coord : activeTetromino.getCurrentBlockPositions()) {
-                if (gameboard.isValidCoordinate(coord[0] + signum, coord[1]) == 1)
-                    uiGameboard.markConflict(coord[0] + signum, coord[1]);
+            activeTetromino.getCurrentBlockPositions(blockPositions);
+            for (int i = 0; i < Tetromino.BLOCK_POSITIONS_SIZE; i = i + 2) {
+                if (gameboard.isValidCoordinate(blockPositions[i] + signum, blockPositions[i + 1]) == 1)
+                    uiGameboard.markConflict(blockPositions[i] + signum, blockPositions[i + 1]);
             }
         }
 
@@ -465,16 +474,15 @@ public abstract class GameModel implements AiAcessibleGameModel {
 
         if (foundValidPosition) {
 
-            // Die Position und auch die Einzelteile darin muss geclonet werden, um nicht
-            // durch die Rotation verloren zu gehen
-            Integer[][] oldBlockPositionsNewArray = cloneDoubleIntegerArray(activeTetromino.getCurrentBlockPositions());
+            // Die Position muss vor der Rotation gesichert werden
+            activeTetromino.getCurrentBlockPositions(oldBlockPositions);
 
             if (wallkickPos != null)
                 activeTetromino.getPosition().set(wallkickPos);
             activeTetromino.setRotation(newRotation);
 
             int ghostPieceDistance = gameboard.getGhostPieceDistance(activeTetromino, 0);
-            uiGameboard.rotateTetro(oldBlockPositionsNewArray, activeTetromino.getCurrentBlockPositions(),
+            uiGameboard.rotateTetro(oldBlockPositions, activeTetromino.getCurrentBlockPositions(blockPositions),
                     ghostPieceDistance);
             lastMovementMs = score.getTimeMs();
             activeTetromino.incLockDelayCount(1);
@@ -6,6 +6,8 @@ import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
 
+import java.util.Arrays;
+
 /**
  * Created by Benjamin Schulte on 23.01.2017.
  */
@@ -18,21 +20,20 @@ public class Gameboard implements Json.Serializable {
     public static final int GAMEBOARD_COLUMNS = 10;
     public static final int SQUARE_EMPTY = -1;
     public static final int SQUARE_GARBAGE = 9;
+    private static final int FULL_ROW = (1 << GAMEBOARD_COLUMNS) - 1;
 
     // Der Tetromino-Index an dieser Position (y/x)
     private final int[][] gameboardSquare;
-    Vector2 tempPos;
+    // belegte Felder je Zeile als Bitmaske (Bit x = Spalte x), für die Kollisionsprüfung.
+    // Muss immer zu gameboardSquare passen, daher nur über setSquare() ändern
+    private final int[] rowBits;
 
     Gameboard() {
         gameboardSquare = new int[GAMEBOARD_ALLROWS][GAMEBOARD_COLUMNS];
         for (int i = 0; i < GAMEBOARD_ALLROWS; i++) {
-            for (int j = 0; j < GAMEBOARD_COLUMNS; j++) {
-                gameboardSquare[i][j] = SQUARE_EMPTY;
-            }
+            Arrays.fill(gameboardSquare[i], SQUARE_EMPTY);
         }
-
-        tempPos = new Vector2();
-
+        rowBits = new int[GAMEBOARD_ALLROWS];
     }
 
     public static char gameboardSquareToChar(int gameboardSquare) {
@@ -49,16 +50,36 @@ public class Gameboard implements Json.Serializable {
             return ((int) block) - 65;
     }
 
+    /**
+     * @return the squares, read only. Row arrays are swapped when lines are cleared or inserted, so don't hold
+     * references to them
+     */
     public int[][] getGameboardSquares() {
         return gameboardSquare;
     }
 
+    /**
+     * @return occupied squares of the row as bitmask, bit x is column x
+     */
+    public int getRowBits(int row) {
+        return rowBits[row];
+    }
+
+    private void setSquare(int x, int y, int square) {
+        gameboardSquare[y][x] = square;
+        if (square == SQUARE_EMPTY)
+            rowBits[y] = rowBits[y] & ~(1 << x);
+        else
+            rowBits[y] = rowBits[y] | (1 << x);
+    }
+
     public int getGhostPieceDistance(Tetromino activeTetromino, int horizontalMove) {
+        Vector2[] blocks = activeTetromino.getCurrentRotationVectors();
+        int posX = (int) activeTetromino.getPosition().x + horizontalMove;
+        int posY = (int) activeTetromino.getPosition().y;
         int i;
         for (i = 1; i <= GAMEBOARD_ALLROWS; i++) {
-            tempPos.set(activeTetromino.getPosition().x + horizontalMove,
-                    activeTetromino.getPosition().y - i);
-            if (!isValidPosition(activeTetromino, tempPos, activeTetromino.getCurrentRotation())) {
+            if (collides(blocks, posX, posY - i)) {
                 break;
             }
         }
@@ -75,11 +96,12 @@ public class Gameboard implements Json.Serializable {
         boolean canMove = true;
         int i;
         int signum = (distance < 0 ? -1 : 1);
+        Vector2[] blocks = activeTetromino.getCurrentRotationVectors();
+        int posX = (int) activeTetromino.getPosition().x;
+        int posY = (int) activeTetromino.getPosition().y;
 
         for (i = 1; i <= Math.abs(distance); i++) {
-            tempPos.set(activeTetromino.getPosition().x + i * (horizontal ? signum : 0),
-                    activeTetromino.getPosition().y + i * (!horizontal ? signum : 0));
-            if (!isValidPosition(activeTetromino, tempPos, activeTetromino.getCurrentRotation())) {
+            if (collides(blocks, posX + i * (horizontal ? signum : 0), posY + i * (!horizontal ? signum : 0))) {
                 canMove = false;
                 break;
             }
@@ -95,23 +117,24 @@ public class Gameboard implements Json.Serializable {
      * mit der übergebenen Rotation eine valide Position hätte
      */
     public boolean isValidPosition(Tetromino tetromino, Vector2 testPosition, int testRotation) {
-        for (Integer[] coord : tetromino.getBlockPositions(testPosition, testRotation)) {
-            if (isValidCoordinate(coord[0], coord[1]) != 0) {
-                return false;
-            }
-        }
-
-        return true;
+        return !collides(tetromino.getRotationVectors(testRotation), (int) testPosition.x, (int) testPosition.y);
     }
 
-    public boolean isRowFull(int row) {
-        for (int j = 0; j < GAMEBOARD_COLUMNS; j++) {
-            if (gameboardSquare[row][j] == SQUARE_EMPTY) {
-                return false;
-            }
+    /**
+     * @return true if one of the blocks at the given position is outside the gameboard or on an occupied square
+     */
+    private boolean collides(Vector2[] blocks, int posX, int posY) {
+        for (int i = 0; i < blocks.length; i++) {
+            int x = posX + (int) blocks[i].x;
+            int y = posY + (int) blocks[i].y;
+            if (x < 0 || x >= GAMEBOARD_COLUMNS || y < 0 || y >= GAMEBOARD_ALLROWS || (rowBits[y] & (1 << x)) != 0)
+                return true;
         }
+        return false;
+    }
 
-        return true;
+    public boolean isRowFull(int row) {
+        return rowBits[row] == FULL_ROW;
     }
 
     /**
@@ -128,29 +151,30 @@ public class Gameboard implements Json.Serializable {
             return -1;
         }
 
-        return (gameboardSquare[y][x] == SQUARE_EMPTY ? 0 : 1);
+        return ((rowBits[y] & (1 << x)) == 0 ? 0 : 1);
     }
 
     public void pinTetromino(Tetromino activeTetromino) {
         for (Vector2 coord : activeTetromino.getRotationVectors(activeTetromino.getCurrentRotation())) {
             int x = (int) activeTetromino.getPosition().x + (int) coord.x;
             int y = (int) activeTetromino.getPosition().y + (int) coord.y;
-            gameboardSquare[y][x] = activeTetromino.getTetrominoType();
+            setSquare(x, y, activeTetromino.getTetrominoType());
         }
 
     }
 
     public void clearLines(IntArray linesToRemove) {
         for (int i = linesToRemove.size - 1; i >= 0; i--) {
-
-            for (int y = linesToRemove.get(i); y < GAMEBOARD_ALLROWS; y++) {
-                for (int x = 0; x < GAMEBOARD_COLUMNS; x++) {
-                    if (y == GAMEBOARD_ALLROWS - 1)
-                        gameboardSquare[y][x] = SQUARE_EMPTY;
-                    else
-                        gameboardSquare[y][x] = gameboardSquare[y + 1][x];
-                }
-            }
+            int line = linesToRemove.get(i);
+            int rowsAbove = GAMEBOARD_ALLROWS - 1 - line;
+
+            // die Zeilen darüber rutschen nach unten, die gelöschte Zeile wird oben leer wiederverwendet
+            int[] clearedRow = gameboardSquare[line];
+            System.arraycopy(gameboardSquare, line + 1, gameboardSquare, line, rowsAbove);
+            System.arraycopy(rowBits, line + 1, rowBits, line, rowsAbove);
+            Arrays.fill(clearedRow, SQUARE_EMPTY);
+            gameboardSquare[GAMEBOARD_ALLROWS - 1] = clearedRow;
+            rowBits[GAMEBOARD_ALLROWS - 1] = 0;
         }
     }
 
@@ -161,17 +185,21 @@ public class Gameboard implements Json.Serializable {
     public void insertLines(int[] holePosition) {
         final int numberOfLines = holePosition.length;
 
-        // die Zeilen weiter oben hochziehen
-        for (int y = GAMEBOARD_ALLROWS - 1; y >= numberOfLines; y--) {
-            for (int x = 0; x < GAMEBOARD_COLUMNS; x++)
-                gameboardSquare[y][x] = gameboardSquare[y - numberOfLines][x];
+        // die Zeilen weiter oben hochziehen, die oben herausfallenden Zeilen werden unten wiederverwendet
+        for (int i = 0; i < numberOfLines; i++) {
+            int[] topRow = gameboardSquare[GAMEBOARD_ALLROWS - 1];
+            System.arraycopy(gameboardSquare, 0, gameboardSquare, 1, GAMEBOARD_ALLROWS - 1);
+            System.arraycopy(rowBits, 0, rowBits, 1, GAMEBOARD_ALLROWS - 1);
+            gameboardSquare[0] = topRow;
         }
 
         // und unten nun die neuen rein
         for (int y = numberOfLines - 1; y >= 0; y--) {
             int lineIndex = numberOfLines - 1 - y;
+            int holeX = holePosition[lineIndex];
             for (int x = 0; x < GAMEBOARD_COLUMNS; x++)
-                gameboardSquare[y][x] = (holePosition[lineIndex] == x ? SQUARE_EMPTY : SQUARE_GARBAGE);
+                gameboardSquare[y][x] = (holeX == x ? SQUARE_EMPTY : SQUARE_GARBAGE);
+            rowBits[y] = holeX >= 0 && holeX < GAMEBOARD_COLUMNS ? FULL_ROW & ~(1 << holeX) : FULL_ROW;
         }
     }
 
@@ -185,7 +213,7 @@ public class Gameboard implements Json.Serializable {
         for (int x = 0; x < GAMEBOARD_COLUMNS; x++) {
             int y = GAMEBOARD_NORMALROWS - 1;
 
-            while (y >= 0 && gameboardSquare[y][x] == SQUARE_EMPTY) {
+            while (y >= 0 && (rowBits[y] & (1 << x)) == 0) {
                 y--;
                 retVal--;
             }
@@ -214,7 +242,7 @@ public class Gameboard implements Json.Serializable {
         String jsonString = jsonData.getString("fields");
         for (int y = 0; y < GAMEBOARD_ALLROWS; y++) {
             for (int x = 0; x < GAMEBOARD_COLUMNS; x++) {
-                gameboardSquare[y][x] = gameboardCharToSquare(jsonString.charAt(y * GAMEBOARD_COLUMNS + x));
+                setSquare(x, y, gameboardCharToSquare(jsonString.charAt(y * GAMEBOARD_COLUMNS + x)));
             }
         }
 
@@ -223,7 +251,7 @@ public class Gameboard implements Json.Serializable {
     protected void readFromReplay(byte[] gameboard) {
         for (int y = 0; y < GAMEBOARD_ALLROWS; y++) {
             for (int x = 0; x < GAMEBOARD_COLUMNS; x++) {
-                gameboardSquare[y][x] = gameboard[y * GAMEBOARD_COLUMNS + x];
+                setSquare(x, y, gameboard[y * GAMEBOARD_COLUMNS + x]);
             }
         }
     }
@@ -240,7 +268,7 @@ public class Gameboard implements Json.Serializable {
             boolean hasGap = false;
             for (int x = 0; x < GAMEBOARD_COLUMNS; x++) {
                 if (MathUtils.randomBoolean() && (hasGap || x < GAMEBOARD_COLUMNS - 1))
-                    gameboardSquare[y][x] = SQUARE_GARBAGE;
+                    setSquare(x, y, SQUARE_GARBAGE);
                 else
                     hasGap = true;
             }
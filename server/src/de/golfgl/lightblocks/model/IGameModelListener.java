@@ -12,9 +12,17 @@ public interface IGameModelListener {
 
     void insertNewBlock(int x, int y, int blockType);
 
-    void moveTetro(Integer[][] v, int dx, int dy, int ghostPieceDistance);
+    /**
+     * @param v Blockpositionen vor der Bewegung, x und y abwechselnd (siehe Tetromino.getBlockPositions).
+     *          Das Array wird vom Model wiederverwendet, also keine Referenz darauf halten
+     */
+    void moveTetro(int[] v, int dx, int dy, int ghostPieceDistance);
 
-    void rotateTetro(Integer[][] vOld, Integer[][] vNew, int ghostPieceDistance);
+    /**
+     * @param vOld Blockpositionen vor der Rotation, wie bei moveTetro
+     * @param vNew Blockpositionen nach der Rotation, wie bei moveTetro
+     */
+    void rotateTetro(int[] vOld, int[] vNew, int ghostPieceDistance);
 
     /**
      * entfernt die im Array angegebenen Zeilen mit Effekt
@@ -13,6 +13,8 @@ public class Tetromino {
     public static final int TETROMINO_NUMBER = 7;
     // und jeder besteht aus vier Blöcken
     public static final int TETROMINO_BLOCKCOUNT = 4;
+    // Länge der Arrays für getBlockPositions(int, int, int, int[])
+    public static final int BLOCK_POSITIONS_SIZE = TETROMINO_BLOCKCOUNT * 2;
 
     public static final int TETRO_IDX_I = 0;
     public static final int TETRO_IDX_T = 1;
@@ -118,6 +120,7 @@ public class Tetromino {
     // wird immer wieder verwendet um Garbage Collection zu verhindern
     // also aufpassen und ggf. kopieren
     private transient final Integer[][] blockPosition;
+    private transient final int[] blockPositionBuffer;
     private int currentRotation;
     // letzte Bewegung rotation (1) oder Positionsänderung (0)?
     private int lastMovementType;
@@ -130,6 +133,7 @@ public class Tetromino {
         tetrominoTemplates = srs ? srsTemplates : nrsTemplates;
         this.tetrominoIndex = index;
         this.blockPosition = new Integer[TETROMINO_BLOCKCOUNT][2];
+        this.blockPositionBuffer = new int[BLOCK_POSITIONS_SIZE];
 
         // Die Startposition jedes Tetrominos
         this.position = new Vector2(GAMEBOARD_COLUMNS / 2 - 2, GAMEBOARD_NORMALROWS - 2);
@@ -139,6 +143,13 @@ public class Tetromino {
         wallkickPos = srs ? new Vector2() : null;
     }
 
+    /**
+     * @return all rotations of the given tetromino, the array index is the rotation
+     */
+    public static Vector2[][] getRotationTemplates(int tetrominoIndex, boolean srs) {
+        return (srs ? srsTemplates : nrsTemplates)[tetrominoIndex];
+    }
+
     public Vector2[] getRotationVectors(int rotation) {
         rotation = normalizeRotation(rotation);
         return tetrominoTemplates[tetrominoIndex][rotation];
@@ -183,18 +194,55 @@ public class Tetromino {
     }
 
     public Integer[][] getRelativeBlockPositions() {
-        return getBlockPositions(new Vector2(0, 0), 0);
+        return toIntegerArray(getBlockPositions(0, 0, 0, blockPositionBuffer));
     }
 
     protected Integer[][] getBlockPositions(Vector2 position, int rotation) {
-        int i = 0;
-        for (Vector2 v : getRotationVectors(rotation)) {
-            blockPosition[i][0] = ((int) v.x + (int) position.x);
-            blockPosition[i][1] = ((int) v.y + (int) position.y);
-            i++;
+        return toIntegerArray(getBlockPositions((int) position.x, (int) position.y, rotation, blockPositionBuffer));
+    }
+
+    private Integer[][] toIntegerArray(int[] blockPositions) {
+        for (int i = 0; i < TETROMINO_BLOCKCOUNT; i++) {
+            blockPosition[i][0] = blockPositions[i * 2];
+            blockPosition[i][1] = blockPositions[i * 2 + 1];
         }
         return blockPosition;
+    }
 
+    /**
+     * Schreibt die Positionen der Blöcke ohne Allokation in das übergebene Array
+     *
+     * @param out Array mit mindestens BLOCK_POSITIONS_SIZE Einträgen, bekommt x und y abwechselnd: x0, y0, x1, y1...
+     * @return out
+     */
+    public int[] getBlockPositions(int posX, int posY, int rotation, int[] out) {
+        Vector2[] rotationVectors = getRotationVectors(rotation);
+        for (int i = 0; i < rotationVectors.length; i++) {
+            out[i * 2] = (int) rotationVectors[i].x + posX;
+            out[i * 2 + 1] = (int) rotationVectors[i].y + posY;
+        }
+        return out;
+    }
+
+    public int[] getCurrentBlockPositions(int[] out) {
+        return getBlockPositions((int) position.x, (int) position.y, currentRotation, out);
+    }
+
+    public int[] getRelativeBlockPositions(int[] out) {
+        return getBlockPositions(0, 0, 0, out);
+    }
+
+    /**
+     * @param blockPositions 4x2 Array wie von getCurrentBlockPositions()
+     * @param out            Array mit mindestens BLOCK_POSITIONS_SIZE Einträgen
+     * @return out
+     */
+    public static int[] toBlockPositions(Integer[][] blockPositions, int[] out) {
+        for (int i = 0; i < TETROMINO_BLOCKCOUNT; i++) {
+            out[i * 2] = blockPositions[i][0];
+            out[i * 2 + 1] = blockPositions[i][1];
+        }
+        return out;
     }
 
     public int setRotation(int newRotation) {
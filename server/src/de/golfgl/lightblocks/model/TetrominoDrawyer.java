@@ -60,6 +60,20 @@ class TetrominoDrawyer implements Json.Serializable {
         return new IntArray(drawyer);
     }
 
+    /**
+     * copies the types of the tetrominos drawn after the next one, without removing them
+     *
+     * @return number of types written to out
+     */
+    public int getQueuedTetrominoTypes(int[] out) {
+        synchronized (drawyer) {
+            int count = Math.min(out.length, drawyer.size);
+            for (int i = 0; i < count; i++)
+                out[i] = drawyer.get(i);
+            return count;
+        }
+    }
+
     @Override
     public void write(Json json) {
         // da es nur von 0 bis 6 geht, einfach in einen String
@@ -7,6 +7,11 @@ import de.golfgl.lightblocks.model.Tetromino;
 public interface AiAcessibleGameModel {
     Tetromino getNextTetromino();
 
+    /**
+     * @return number of tetromino types drawn after the next tetromino written to out
+     */
+    int getQueuedTetrominoTypes(int[] out);
+
     Tetromino getHoldTetromino();
 
     boolean isHoldMoveAllowedByModel();
@@ -0,0 +1,47 @@
+package de.golfgl.lightblocks.multiplayer.ai;
+
+/**
+ * How hard the {@link ArtificialPlayer} thinks. Level 0 is the classic exhaustive search over the
+ * active and the next piece, higher levels use a {@link BudgetedSearch} looking further into the
+ * queue.
+ */
+public class AiStrength {
+    public static final int MAX_LEVEL = 3;
+    public static final AiStrength DEFAULT = new AiStrength(2, 0, 0);
+
+    /**
+     * number of pieces to place: active piece, next piece and the queued pieces
+     */
+    public final int maxPieces;
+    /**
+     * time budget per move in microseconds, 0 for the classic search
+     */
+    public final int budgetMicros;
+    /**
+     * number of gameboards kept per searched piece
+     */
+    public final int beamWidth;
+
+    public AiStrength(int maxPieces, int budgetMicros, int beamWidth) {
+        this.maxPieces = maxPieces;
+        this.budgetMicros = budgetMicros;
+        this.beamWidth = beamWidth;
+    }
+
+    public static AiStrength forLevel(int level) {
+        switch (Math.min(level, MAX_LEVEL)) {
+            case 1:
+                return new AiStrength(3, 2000, 8);
+            case 2:
+                return new AiStrength(4, 5000, 12);
+            case 3:
+                return new AiStrength(6, 10000, 16);
+            default:
+                return DEFAULT;
+        }
+    }
+
+    public boolean isBudgeted() {
+        return budgetMicros > 0;
+    }
+}
@@ -6,6 +6,13 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Queue;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
 import de.golfgl.lightblocks.model.GameModel;
 import de.golfgl.lightblocks.model.Gameboard;
 import de.golfgl.lightblocks.model.Tetromino;
@@ -16,10 +23,27 @@ import de.golfgl.lightblocks.model.Tetromino;
  * arranged with the intent to let the opponent human have fun
  */
 public class ArtificialPlayer {
+    private static final int MAX_SEARCH_PIECES = 2;
+    // pos weight 0123454321 => 1.0, 1.07, 1.14, ...
+    // the more the column is centered, the more it is avoided drop pieces
+    private static final float[] COLUMN_HEIGHT_WEIGHT = new float[Gameboard.GAMEBOARD_COLUMNS];
+    // log2 of the number of blocks above a hole
+    private static final float[] LOG2 = new float[Gameboard.GAMEBOARD_ALLROWS + 1];
+
+    static {
+        for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++)
+            COLUMN_HEIGHT_WEIGHT[x] = 1f + Math.abs(Math.abs(x - (Gameboard.GAMEBOARD_COLUMNS / 2f)) - Gameboard.GAMEBOARD_COLUMNS / 2f) / 15f;
+        for (int numFull = 1; numFull <= Gameboard.GAMEBOARD_ALLROWS; numFull++)
+            LOG2[numFull] = MathUtils.log2(numFull);
+    }
+
     private final AiAcessibleGameModel aiGameModel;
     private final AiAcessibleGameModel opponentGameModel;
 
-    private final Vector2 tempPos = new Vector2();
+    // search state, allocated once: the pieces to place, their shapes per rotation and a board per search depth
+    private final Array<Tetromino> nextPieces = new Array<>(MAX_SEARCH_PIECES);
+    private final PieceShape[][] pieceShapes = new PieceShape[MAX_SEARCH_PIECES][4];
+    private final AiGameboard[] searchBoards = new AiGameboard[MAX_SEARCH_PIECES + 1];
     private final Queue<Movement> movementArrayList = new Queue<>();
     private final Queue<Movement> holdArrayList = new Queue<>();
     private final float heightFactor;
@@ -29,6 +53,21 @@ public class ArtificialPlayer {
     private float slowDown;
     private int drawnTetrominoBaseDifference;
 
+    // budgeted search, see setStrength()
+    private AiStrength strength = AiStrength.DEFAULT;
+    private BudgetedSearch budgetedSearch;
+    private Executor searchExecutor;
+    private int searchGeneration;
+    private final AtomicReference<BudgetedSearch.Request> pendingRequest = new AtomicReference<>();
+    private final AtomicReference<BudgetedSearch.Request> finishedRequest = new AtomicReference<>();
+    private final AtomicBoolean searchScheduled = new AtomicBoolean();
+    private final Runnable searchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drainPendingRequests();
+        }
+    };
+
     public ArtificialPlayer(AiAcessibleGameModel aiGameModel, AiAcessibleGameModel opponentGameModel) {
         this.aiGameModel = aiGameModel;
         this.opponentGameModel = opponentGameModel;
@@ -39,12 +78,44 @@ public class ArtificialPlayer {
         holesFactor = 3.66f;
         bumpinessFactor = 1.8f;
 
+        for (int i = 0; i < MAX_SEARCH_PIECES; i++)
+            for (int rotation = 0; rotation < 4; rotation++)
+                pieceShapes[i][rotation] = new PieceShape();
+        for (int i = 0; i < searchBoards.length; i++)
+            searchBoards[i] = new AiGameboard();
+
         setDrawnTetrominoBaseDiff();
     }
 
+    /**
+     * sets how far the AI looks ahead. Budgeted searches run on the given executor, or synchronously
+     * on the calling thread if it is null
+     */
+    public void setStrength(AiStrength strength, @Nullable Executor searchExecutor) {
+        this.strength = strength;
+        this.searchExecutor = searchExecutor;
+        budgetedSearch = strength.isBudgeted() ? new BudgetedSearch(this, strength) : null;
+    }
+
     public void onNextPiece(Gameboard gameboard, Tetromino activePiece) {
         // we have a new active piece. check how to place it best and add the needed movements to
         // the movement queue
+        searchGeneration++;
+
+        if (budgetedSearch != null) {
+            movementArrayList.clear();
+            slowDown = .2f;
+            BudgetedSearch.Request request = newSearchRequest(gameboard, activePiece);
+
+            if (searchExecutor == null) {
+                budgetedSearch.search(request);
+                applySearchResult(request);
+            } else {
+                pendingRequest.set(request);
+                scheduleSearch();
+            }
+            return;
+        }
 
         // future AI improvement possibilities:
         // - take waiting garbage into account by adding it to board for next piece, but not for clears (when modern)
@@ -55,11 +126,15 @@ public class ArtificialPlayer {
 
         Tetromino nextPiece = aiGameModel.getNextTetromino();
 
-        Array<Tetromino> nextPieces = new Array<>();
+        AiGameboard aiGameboard = searchBoards[0];
+        aiGameboard.set(gameboard);
+
+        nextPieces.clear();
         nextPieces.add(activePiece);
         nextPieces.add(nextPiece);
+        preparePieceShapes();
 
-        bestScore = checkAllRotationsAndDropPlaces(new AiGameboard(gameboard), nextPieces, 0, bestScore, movementArrayList);
+        bestScore = checkAllRotationsAndDropPlaces(aiGameboard, 0, bestScore, movementArrayList);
 
         if (aiGameModel.isHoldMoveAllowedByModel()) {
             // compare found best movement with hold piece
@@ -70,8 +145,10 @@ public class ArtificialPlayer {
                 nextPieces.add(holdTetromino);
             }
             nextPieces.add(nextPiece);
+            preparePieceShapes();
 
-            float holdMoveScore = checkAllRotationsAndDropPlaces(new AiGameboard(gameboard), nextPieces, 0, bestScore, holdArrayList);
+            // the search does not change the board of depth 0, so it can be reused
+            float holdMoveScore = checkAllRotationsAndDropPlaces(aiGameboard, 0, bestScore, holdArrayList);
 
             if (holdMoveScore > bestScore) {
                 Gdx.app.debug("AI", "Hold the piece");
@@ -84,8 +161,21 @@ public class ArtificialPlayer {
         slowDown = .2f;
     }
 
-    private float checkAllRotationsAndDropPlaces(AiGameboard gameboard, Array<Tetromino> nextPieces, int depth, float overallBestScore, Queue<Movement> movementArrayList) {
+    private void preparePieceShapes() {
+        for (int i = 0; i < nextPieces.size; i++) {
+            Tetromino piece = nextPieces.get(i);
+            for (int rotation = 0; rotation < 4; rotation++) {
+                if (piece.hasRotation(rotation))
+                    pieceShapes[i][rotation].set(piece.getRotationVectors(rotation));
+            }
+        }
+    }
+
+    private float checkAllRotationsAndDropPlaces(AiGameboard gameboard, int depth, float overallBestScore, Queue<Movement> movementArrayList) {
         Tetromino activePiece = nextPieces.get(depth);
+        int startX = (int) activePiece.getPosition().x;
+        int startY = (int) activePiece.getPosition().y;
+        AiGameboard aiGameboard = searchBoards[depth + 1];
         int bestRotation = 0;
         int bestHorizontalMove = 0;
         float bestScore = Float.NEGATIVE_INFINITY;
@@ -93,33 +183,26 @@ public class ArtificialPlayer {
         // check all rotations and all drop places
         for (int rotation = 0; rotation < 4; rotation++) {
             if (activePiece.hasRotation(rotation)) {
+                PieceShape shape = pieceShapes[depth][rotation];
                 for (int horizontalMove = -Gameboard.GAMEBOARD_COLUMNS; horizontalMove <= Gameboard.GAMEBOARD_COLUMNS; horizontalMove++) {
-                    AiGameboard aiGameboard = new AiGameboard(gameboard);
-                    int dropVerticalMove = -1;
-
-                    for (int verticalMove = 0; verticalMove <= Gameboard.GAMEBOARD_ALLROWS &&
-                            dropVerticalMove + 1 == verticalMove; verticalMove++) {
-                        tempPos.set(activePiece.getPosition().x + horizontalMove,
-                                activePiece.getPosition().y - verticalMove);
-                        if (aiGameboard.isValidPosition(activePiece, tempPos, rotation)) {
-                            dropVerticalMove = verticalMove;
-                        }
-                    }
+                    int posX = startX + horizontalMove;
+                    if (posX + shape.minX < 0 || posX + shape.maxX >= Gameboard.GAMEBOARD_COLUMNS)
+                        continue;
+
+                    int dropVerticalMove = gameboard.getDropDistance(shape, posX, startY);
 
                     if (dropVerticalMove >= 0) {
                         // we have found the drop position for the current rotation
                         // and pretend to pin the tetromino here
-                        for (Vector2 coord : activePiece.getRotationVectors(rotation)) {
-                            int x = (int) activePiece.getPosition().x + (int) coord.x + horizontalMove;
-                            int y = (int) activePiece.getPosition().y + (int) coord.y - dropVerticalMove;
-                            aiGameboard.setPosition(x, y, true);
-                        }
+                        aiGameboard.set(gameboard);
+                        aiGameboard.pin(shape, posX, startY - dropVerticalMove);
 
                         float score;
                         if (depth == nextPieces.size - 1) {
                             score = calculateScoreOfPosition(aiGameboard);
                         } else {
-                            score = checkAllRotationsAndDropPlaces(aiGameboard, nextPieces, depth + 1, 0, null);
+                            aiGameboard.updateColumnHeights();
+                            score = checkAllRotationsAndDropPlaces(aiGameboard, depth + 1, 0, null);
                         }
 
                         if (score > bestScore ||
@@ -142,44 +225,56 @@ public class ArtificialPlayer {
         if (movementArrayList != null && bestScore > overallBestScore) {
             Gdx.app.debug("AI", "Move: h " + bestHorizontalMove + ", rotate " + bestRotation);
             movementArrayList.clear();
+            addMovements(movementArrayList, bestRotation, bestHorizontalMove);
+        }
 
-            switch (bestRotation) {
-                case 2:
-                    movementArrayList.addLast(Movement.ROTATE_RIGHT);
-                    movementArrayList.addLast(Movement.ROTATE_RIGHT);
-                    break;
-                case 1:
-                    movementArrayList.addLast(Movement.ROTATE_RIGHT);
-                    break;
-                case 3:
-                    movementArrayList.addLast(Movement.ROTATE_LEFT);
-                    break;
-            }
+        return bestScore;
+    }
 
-            for (int i = 0; i < Math.abs(bestHorizontalMove); i++) {
-                movementArrayList.addLast(bestHorizontalMove < 0 ? Movement.MOVE_LEFT : Movement.MOVE_RIGHT);
-            }
+    private void addMovements(Queue<Movement> movementArrayList, int rotation, int horizontalMove) {
+        switch (rotation) {
+            case 2:
+                movementArrayList.addLast(Movement.ROTATE_RIGHT);
+                movementArrayList.addLast(Movement.ROTATE_RIGHT);
+                break;
+            case 1:
+                movementArrayList.addLast(Movement.ROTATE_RIGHT);
+                break;
+            case 3:
+                movementArrayList.addLast(Movement.ROTATE_LEFT);
+                break;
+        }
 
-            movementArrayList.addLast(Movement.DROP);
+        for (int i = 0; i < Math.abs(horizontalMove); i++) {
+            movementArrayList.addLast(horizontalMove < 0 ? Movement.MOVE_LEFT : Movement.MOVE_RIGHT);
         }
 
-        return bestScore;
+        movementArrayList.addLast(Movement.DROP);
     }
 
     private float calculateScoreOfPosition(AiGameboard gameboard) {
 
         // calculate the different dimensions
         int completedLines = gameboard.clearFullLines();
+        gameboard.updateColumnHeights();
 
-        float completedLinesVal;
+        return evaluate(gameboard, getCompletedLinesValue(completedLines));
+    }
+
+    static float getCompletedLinesValue(int completedLines) {
         if (completedLines == 1) {
             // we don't want to go for single lines, but they are rewarded because of lower height
             // of 10. So counterbalance this here
-            completedLinesVal = -10;
+            return -10;
         } else {
-            completedLinesVal = Math.max(0, (completedLines - 1) * (completedLines - 1));
+            return Math.max(0, (completedLines - 1) * (completedLines - 1));
         }
+    }
 
+    /**
+     * scores a gameboard with cleared lines and updated column heights. Thread safe
+     */
+    float evaluate(AiGameboard gameboard, float completedLinesVal) {
         float aggregatedHeight = aggregateWeightedHeight(gameboard);
         float countHoles = countHoles(gameboard);
         int bumpiness = computeBumpiness(gameboard);
@@ -187,6 +282,69 @@ public class ArtificialPlayer {
         return -heightFactor * aggregatedHeight + completeLinesFactor * completedLinesVal - holesFactor * countHoles - bumpinessFactor * bumpiness;
     }
 
+    private BudgetedSearch.Request newSearchRequest(Gameboard gameboard, Tetromino activePiece) {
+        BudgetedSearch.Request request = new BudgetedSearch.Request(searchGeneration, strength.maxPieces - 2);
+        for (int y = 0; y < Gameboard.GAMEBOARD_ALLROWS; y++)
+            request.rows[y] = gameboard.getRowBits(y);
+        request.srs = aiGameModel.isModernRotation();
+        request.activePieceType = activePiece.getTetrominoType();
+        request.activePosX = (int) activePiece.getPosition().x;
+        request.activePosY = (int) activePiece.getPosition().y;
+
+        Tetromino nextPiece = aiGameModel.getNextTetromino();
+        request.nextPieceType = nextPiece.getTetrominoType();
+        request.spawnPosX = (int) nextPiece.getPosition().x;
+        request.spawnPosY = (int) nextPiece.getPosition().y;
+        request.queueLength = aiGameModel.getQueuedTetrominoTypes(request.queue);
+
+        request.holdAllowed = aiGameModel.isHoldMoveAllowedByModel();
+        if (request.holdAllowed) {
+            Tetromino holdTetromino = aiGameModel.getHoldTetromino();
+            request.holdPieceType = holdTetromino != null ? holdTetromino.getTetrominoType() : -1;
+        }
+        return request;
+    }
+
+    private void scheduleSearch() {
+        if (searchScheduled.compareAndSet(false, true)) {
+            try {
+                searchExecutor.execute(searchRunnable);
+            } catch (RejectedExecutionException e) {
+                // executor is shut down, server is exiting
+                searchScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * runs on the search executor, one thread at a time
+     */
+    private void drainPendingRequests() {
+        BudgetedSearch.Request request = pendingRequest.getAndSet(null);
+        while (request != null) {
+            budgetedSearch.search(request);
+            finishedRequest.set(request);
+            request = pendingRequest.getAndSet(null);
+        }
+        searchScheduled.set(false);
+
+        // a request could have been set after the last check and before resetting the flag
+        if (pendingRequest.get() != null)
+            scheduleSearch();
+    }
+
+    private void applySearchResult(BudgetedSearch.Request request) {
+        if (request.generation != searchGeneration || !request.resultValid)
+            return;
+
+        Gdx.app.debug("AI", "Move: h " + request.resultHorizontalMove + ", rotate " + request.resultRotation
+                + ", hold " + request.resultHold + ", depth " + request.resultDepth);
+        movementArrayList.clear();
+        if (request.resultHold)
+            movementArrayList.addLast(Movement.HOLD);
+        addMovements(movementArrayList, request.resultRotation, request.resultHorizontalMove);
+    }
+
     private int computeBumpiness(AiGameboard gameboard) {
         int bumpiness = 0;
         int lastHeight = 0;
@@ -208,14 +366,14 @@ public class ArtificialPlayer {
         for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++) {
             // multiply holes with the number of blocks above the holes
             // this takes into account that it is more difficult to fill them the more to clear there is
+            // there are no blocks above the column height
             int numFull = 0;
 
-            for (int y = Gameboard.GAMEBOARD_ALLROWS - 1; y >= 0; y--) {
+            for (int y = gameboard.getColumnHeight(x) - 1; y >= 0; y--) {
                 if (gameboard.isPositionFull(x, y))
                     numFull++;
-
-                if (!gameboard.isPositionFull(x, y) && numFull > 0)
-                    holes = holes + 1 + (MathUtils.log2(numFull));
+                else
+                    holes = holes + 1 + LOG2[numFull];
             }
         }
 
@@ -237,12 +395,9 @@ public class ArtificialPlayer {
         float aggregateHeight = 0;
 
         for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++) {
-            // pos weight 0123454321 => 1.0, 1.07, 1.14, ...
-            // the more the column is centered, the more it is avoided drop pieces
-            float posWeight = 1f + Math.abs(Math.abs(x - (Gameboard.GAMEBOARD_COLUMNS / 2f)) - Gameboard.GAMEBOARD_COLUMNS / 2f) / 15f;
             int y = gameboard.getColumnHeight(x);
 
-            aggregateHeight = aggregateHeight + y * posWeight;
+            aggregateHeight = aggregateHeight + y * COLUMN_HEIGHT_WEIGHT[x];
         }
 
         return aggregateHeight;
@@ -251,6 +406,10 @@ public class ArtificialPlayer {
     public void update(float delta, Tetromino activePiece) {
         // process the queue, but slow down
 
+        BudgetedSearch.Request finished = finishedRequest.getAndSet(null);
+        if (finished != null)
+            applySearchResult(finished);
+
         slowDown -= delta;
 
         if (slowDown < 0 && !movementArrayList.isEmpty()) {
@@ -291,92 +450,154 @@ public class ArtificialPlayer {
 
     enum Movement {MOVE_LEFT, MOVE_RIGHT, ROTATE_LEFT, ROTATE_RIGHT, DROP, HOLD}
 
-    static class AiGameboard {
-        final boolean[][] fullSquares = new boolean[Gameboard.GAMEBOARD_ALLROWS][Gameboard.GAMEBOARD_COLUMNS];
-
-        AiGameboard(Gameboard gameboard) {
-            int[][] gameboardSquares = gameboard.getGameboardSquares();
-            for (int i = 0; i < Gameboard.GAMEBOARD_ALLROWS; i++) {
-                for (int j = 0; j < Gameboard.GAMEBOARD_COLUMNS; j++) {
-                    fullSquares[i][j] = gameboardSquares[i][j] != Gameboard.SQUARE_EMPTY;
-                }
+    /**
+     * Rotation of a piece as bitmasks per row, relative to the piece's position
+     */
+    static class PieceShape {
+        int minX;
+        int maxX;
+        int minY;
+        int rowCount;
+        // rowMasks[i] are the blocks of row minY + i, bit 0 is column minX
+        final int[] rowMasks = new int[Tetromino.TETROMINO_BLOCKCOUNT];
+        // lowest y of the blocks of column minX + i
+        final int[] columnBottom = new int[Tetromino.TETROMINO_BLOCKCOUNT];
+
+        void set(Vector2[] rotationVectors) {
+            minX = Integer.MAX_VALUE;
+            maxX = Integer.MIN_VALUE;
+            minY = Integer.MAX_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            for (Vector2 v : rotationVectors) {
+                minX = Math.min(minX, (int) v.x);
+                maxX = Math.max(maxX, (int) v.x);
+                minY = Math.min(minY, (int) v.y);
+                maxY = Math.max(maxY, (int) v.y);
             }
-        }
+            rowCount = maxY - minY + 1;
 
-        AiGameboard(AiGameboard gameboard) {
-            for (int y = 0; y < Gameboard.GAMEBOARD_ALLROWS; y++) {
-                for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++) {
-                    fullSquares[y][x] = gameboard.isPositionFull(x, y);
-                }
+            for (int i = 0; i < Tetromino.TETROMINO_BLOCKCOUNT; i++) {
+                rowMasks[i] = 0;
+                columnBottom[i] = Integer.MAX_VALUE;
+            }
+            for (Vector2 v : rotationVectors) {
+                int column = (int) v.x - minX;
+                rowMasks[(int) v.y - minY] |= 1 << column;
+                columnBottom[column] = Math.min(columnBottom[column], (int) v.y);
             }
         }
+    }
 
-        boolean isPositionFull(int x, int y) {
-            return fullSquares[y][x];
-        }
+    /**
+     * Gameboard for the AI search: occupied squares as a bitmask per row and the column heights
+     */
+    static class AiGameboard {
+        private static final int FULL_ROW = (1 << Gameboard.GAMEBOARD_COLUMNS) - 1;
 
-        boolean isValidCoordinate(int x, int y) {
-            if (x < 0 || x >= Gameboard.GAMEBOARD_COLUMNS) {
-                return false;
-            }
+        final int[] rows = new int[Gameboard.GAMEBOARD_ALLROWS];
+        // valid after updateColumnHeights()
+        final int[] columnHeights = new int[Gameboard.GAMEBOARD_COLUMNS];
 
-            if (y < 0 || y >= Gameboard.GAMEBOARD_ALLROWS) {
-                return false;
-            }
+        void set(Gameboard gameboard) {
+            for (int y = 0; y < Gameboard.GAMEBOARD_ALLROWS; y++)
+                rows[y] = gameboard.getRowBits(y);
+            updateColumnHeights();
+        }
 
-            return (!isPositionFull(x, y));
+        void set(AiGameboard gameboard) {
+            System.arraycopy(gameboard.rows, 0, rows, 0, Gameboard.GAMEBOARD_ALLROWS);
+            System.arraycopy(gameboard.columnHeights, 0, columnHeights, 0, Gameboard.GAMEBOARD_COLUMNS);
         }
 
-        public boolean isValidPosition(Tetromino tetromino, Vector2 testPosition, int testRotation) {
-            for (Vector2 v : tetromino.getRotationVectors(testRotation)) {
-                int posX = ((int) v.x + (int) testPosition.x);
-                int posY = ((int) v.y + (int) testPosition.y);
+        void set(int[] rowBits) {
+            System.arraycopy(rowBits, 0, rows, 0, Gameboard.GAMEBOARD_ALLROWS);
+            updateColumnHeights();
+        }
 
-                if (!isValidCoordinate(posX, posY)) {
-                    return false;
-                }
+        boolean isPositionFull(int x, int y) {
+            return (rows[y] & (1 << x)) != 0;
+        }
+
+        /**
+         * @return true if the shape at the given position is out of the gameboard or overlaps blocks. The
+         * horizontal range is checked by the caller
+         */
+        boolean collides(PieceShape shape, int posX, int posY) {
+            int bottomRow = posY + shape.minY;
+            if (bottomRow < 0 || bottomRow + shape.rowCount > Gameboard.GAMEBOARD_ALLROWS)
+                return true;
+
+            int shift = posX + shape.minX;
+            for (int i = 0; i < shape.rowCount; i++) {
+                if ((rows[bottomRow + i] & (shape.rowMasks[i] << shift)) != 0)
+                    return true;
             }
+            return false;
+        }
 
-            return true;
+        /**
+         * @return how far the shape can drop from the given position, -1 if the position itself is not valid
+         */
+        int getDropDistance(PieceShape shape, int posX, int posY) {
+            if (collides(shape, posX, posY))
+                return -1;
+
+            // if the piece is above all blocks of its columns, the column heights tell where it lands
+            int dropDistance = Integer.MAX_VALUE;
+            for (int i = 0; i <= shape.maxX - shape.minX && dropDistance >= 0; i++) {
+                if (shape.columnBottom[i] != Integer.MAX_VALUE)
+                    dropDistance = Math.min(dropDistance, posY + shape.columnBottom[i] - columnHeights[posX + shape.minX + i]);
+            }
+            if (dropDistance >= 0)
+                return dropDistance;
+
+            // otherwise it is below an overhang, go down step by step
+            dropDistance = 0;
+            while (!collides(shape, posX, posY - dropDistance - 1))
+                dropDistance++;
+            return dropDistance;
         }
 
-        void setPosition(int x, int y, boolean full) {
-            fullSquares[y][x] = full;
+        void pin(PieceShape shape, int posX, int posY) {
+            int bottomRow = posY + shape.minY;
+            int shift = posX + shape.minX;
+            for (int i = 0; i < shape.rowCount; i++)
+                rows[bottomRow + i] |= shape.rowMasks[i] << shift;
         }
 
         int clearFullLines() {
             int fullLines = 0;
             for (int y = Gameboard.GAMEBOARD_ALLROWS - 1; y >= 0; y--) {
-                boolean hasBlank = false;
-                for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS && !hasBlank; x++) {
-                    if (!isPositionFull(x, y))
-                        hasBlank = true;
-                }
-                if (!hasBlank) {
+                if (rows[y] == FULL_ROW) {
                     fullLines++;
 
                     // move everything down
-                    for (int y2 = y; y2 < Gameboard.GAMEBOARD_ALLROWS; y2++) {
-                        for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++) {
-                            if (y2 < Gameboard.GAMEBOARD_ALLROWS - 1) {
-                                fullSquares[y2][x] = fullSquares[y2 + 1][x];
-                            } else {
-                                fullSquares[y2][x] = false;
-
-                            }
-                        }
-                    }
+                    System.arraycopy(rows, y + 1, rows, y, Gameboard.GAMEBOARD_ALLROWS - 1 - y);
+                    rows[Gameboard.GAMEBOARD_ALLROWS - 1] = 0;
                 }
             }
 
             return fullLines;
         }
 
+        void updateColumnHeights() {
+            int columnsFound = 0;
+            for (int x = 0; x < Gameboard.GAMEBOARD_COLUMNS; x++)
+                columnHeights[x] = 0;
+
+            for (int y = Gameboard.GAMEBOARD_ALLROWS - 1; y >= 0 && columnsFound != FULL_ROW; y--) {
+                int newColumns = rows[y] & ~columnsFound;
+                for (int x = 0; newColumns != 0; x++) {
+                    if ((newColumns & 1) != 0)
+                        columnHeights[x] = y + 1;
+                    newColumns = newColumns >>> 1;
+                }
+                columnsFound |= rows[y];
+            }
+        }
+
         public int getColumnHeight(int x) {
-            int y = Gameboard.GAMEBOARD_ALLROWS;
-            while (y > 0 && !isPositionFull(x, y - 1))
-                y--;
-            return y;
+            return columnHeights[x];
         }
     }
 }
@@ -0,0 +1,343 @@
+package de.golfgl.lightblocks.multiplayer.ai;
+
+import com.badlogic.gdx.math.Vector2;
+
+import de.golfgl.lightblocks.model.Gameboard;
+import de.golfgl.lightblocks.model.Tetromino;
+import de.golfgl.lightblocks.multiplayer.ai.ArtificialPlayer.AiGameboard;
+import de.golfgl.lightblocks.multiplayer.ai.ArtificialPlayer.PieceShape;
+
+/**
+ * Beam search over the active piece, the next piece and the queued pieces. The search is deepened
+ * one piece after another as long as the time budget allows, the result of the deepest completed
+ * search is used.
+ * <p>
+ * Works on a snapshot of the game state ({@link Request}), so it can run on any thread. An instance
+ * must only be used by one thread at a time.
+ */
+class BudgetedSearch {
+    private static final int MAX_PLACEMENTS = 4 * Gameboard.GAMEBOARD_COLUMNS;
+
+    private final ArtificialPlayer ai;
+    private final AiStrength strength;
+
+    // the pieces of the searched sequence
+    private final PieceSequence withoutHold;
+    private final PieceSequence withHold;
+
+    // current and next beam
+    private AiGameboard[] beam;
+    private AiGameboard[] nextBeam;
+    private float[] beamLinesValue;
+    private float[] nextBeamLinesValue;
+    private int[] beamFirstRotation;
+    private int[] nextBeamFirstRotation;
+    private int[] beamFirstPosX;
+    private int[] nextBeamFirstPosX;
+    private int beamSize;
+
+    // all placements of the current piece for all boards of the beam
+    private final int[] candidateParent;
+    private final int[] candidateRotation;
+    private final int[] candidatePosX;
+    private final int[] candidatePosY;
+    private final float[] candidateLinesValue;
+    private final float[] candidateScore;
+    private int candidateCount;
+    private final AiGameboard scratchBoard = new AiGameboard();
+
+    // result of the last beamSearch()
+    private float bestScore;
+    private int bestRotation;
+    private int bestPosX;
+
+    BudgetedSearch(ArtificialPlayer ai, AiStrength strength) {
+        this.ai = ai;
+        this.strength = strength;
+        withoutHold = new PieceSequence(strength.maxPieces);
+        withHold = new PieceSequence(strength.maxPieces);
+
+        int beamWidth = Math.max(1, strength.beamWidth);
+        beam = newBoards(beamWidth);
+        nextBeam = newBoards(beamWidth);
+        beamLinesValue = new float[beamWidth];
+        nextBeamLinesValue = new float[beamWidth];
+        beamFirstRotation = new int[beamWidth];
+        nextBeamFirstRotation = new int[beamWidth];
+        beamFirstPosX = new int[beamWidth];
+        nextBeamFirstPosX = new int[beamWidth];
+
+        int maxCandidates = beamWidth * MAX_PLACEMENTS;
+        candidateParent = new int[maxCandidates];
+        candidateRotation = new int[maxCandidates];
+        candidatePosX = new int[maxCandidates];
+        candidatePosY = new int[maxCandidates];
+        candidateLinesValue = new float[maxCandidates];
+        candidateScore = new float[maxCandidates];
+    }
+
+    private static AiGameboard[] newBoards(int num) {
+        AiGameboard[] boards = new AiGameboard[num];
+        for (int i = 0; i < num; i++)
+            boards[i] = new AiGameboard();
+        return boards;
+    }
+
+    /**
+     * searches the best move for the request and writes it to the request's result fields
+     */
+    void search(Request request) {
+        long deadlineNs = System.nanoTime() + strength.budgetMicros * 1000L;
+
+        withoutHold.clear();
+        withoutHold.add(request.activePieceType, request.srs, request.activePosX, request.activePosY);
+        withoutHold.add(request.nextPieceType, request.srs, request.spawnPosX, request.spawnPosY);
+
+        withHold.clear();
+        if (request.holdAllowed) {
+            if (request.holdPieceType >= 0)
+                withHold.add(request.holdPieceType, request.srs, request.spawnPosX, request.spawnPosY);
+            withHold.add(request.nextPieceType, request.srs, request.spawnPosX, request.spawnPosY);
+        }
+
+        for (int i = 0; i < request.queueLength; i++) {
+            withoutHold.add(request.queue[i], request.srs, request.spawnPosX, request.spawnPosY);
+            if (request.holdAllowed)
+                withHold.add(request.queue[i], request.srs, request.spawnPosX, request.spawnPosY);
+        }
+
+        int maxDepth = Math.min(strength.maxPieces, withoutHold.size);
+        if (request.holdAllowed)
+            maxDepth = Math.min(maxDepth, withHold.size);
+
+        request.resultValid = false;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            // the first depth is always searched completely, so that there is a result at all
+            long depthDeadlineNs = depth == 1 ? Long.MAX_VALUE : deadlineNs;
+
+            if (!beamSearch(request.rows, withoutHold, depth, depthDeadlineNs))
+                break;
+            boolean valid = bestScore > Float.NEGATIVE_INFINITY;
+            float score = bestScore;
+            int rotation = bestRotation;
+            int horizontalMove = bestPosX - request.activePosX;
+            boolean hold = false;
+
+            if (request.holdAllowed) {
+                if (!beamSearch(request.rows, withHold, depth, depthDeadlineNs))
+                    break;
+                if (bestScore > score) {
+                    valid = true;
+                    score = bestScore;
+                    rotation = bestRotation;
+                    horizontalMove = bestPosX - request.spawnPosX;
+                    hold = true;
+                }
+            }
+
+            if (!valid)
+                break;
+
+            request.resultValid = true;
+            request.resultHold = hold;
+            request.resultRotation = rotation;
+            request.resultHorizontalMove = horizontalMove;
+            request.resultDepth = depth;
+        }
+    }
+
+    /**
+     * @return false if the deadline was reached before the search was complete
+     */
+    private boolean beamSearch(int[] rows, PieceSequence sequence, int depth, long deadlineNs) {
+        bestScore = Float.NEGATIVE_INFINITY;
+
+        beam[0].set(rows);
+        beamLinesValue[0] = 0;
+        beamSize = 1;
+
+        for (int ply = 0; ply < depth; ply++) {
+            candidateCount = 0;
+            for (int parent = 0; parent < beamSize; parent++) {
+                addCandidates(parent, sequence, ply);
+                if (System.nanoTime() > deadlineNs)
+                    return false;
+            }
+
+            if (candidateCount == 0) {
+                // no piece can be placed on any board
+                return true;
+            }
+
+            selectBestCandidates();
+
+            for (int i = 0; i < beamSize; i++) {
+                int parent = candidateParent[i];
+                AiGameboard board = nextBeam[i];
+                board.set(beam[parent]);
+                board.pin(sequence.shapes[ply][candidateRotation[i]], candidatePosX[i], candidatePosY[i]);
+                board.clearFullLines();
+                board.updateColumnHeights();
+                nextBeamLinesValue[i] = candidateLinesValue[i];
+                nextBeamFirstRotation[i] = ply == 0 ? candidateRotation[i] : beamFirstRotation[parent];
+                nextBeamFirstPosX[i] = ply == 0 ? candidatePosX[i] : beamFirstPosX[parent];
+            }
+            swapBeams();
+        }
+
+        // the candidates are sorted best first
+        bestScore = candidateScore[0];
+        bestRotation = beamFirstRotation[0];
+        bestPosX = beamFirstPosX[0];
+        return true;
+    }
+
+    private void addCandidates(int parent, PieceSequence sequence, int ply) {
+        AiGameboard parentBoard = beam[parent];
+        int startPosX = sequence.startPosX[ply];
+        int startPosY = sequence.startPosY[ply];
+
+        for (int rotation = 0; rotation < sequence.rotationCount[ply]; rotation++) {
+            PieceShape shape = sequence.shapes[ply][rotation];
+            for (int posX = -shape.minX; posX + shape.maxX < Gameboard.GAMEBOARD_COLUMNS; posX++) {
+                int dropDistance = parentBoard.getDropDistance(shape, posX, startPosY);
+                if (dropDistance < 0)
+                    continue;
+
+                int posY = startPosY - dropDistance;
+                scratchBoard.set(parentBoard);
+                scratchBoard.pin(shape, posX, posY);
+                int completedLines = scratchBoard.clearFullLines();
+                scratchBoard.updateColumnHeights();
+
+                float linesValue = beamLinesValue[parent] + ArtificialPlayer.getCompletedLinesValue(completedLines);
+                float score = ai.evaluate(scratchBoard, linesValue);
+
+                candidateParent[candidateCount] = parent;
+                candidateRotation[candidateCount] = rotation;
+                candidatePosX[candidateCount] = posX;
+                candidatePosY[candidateCount] = posY;
+                candidateLinesValue[candidateCount] = linesValue;
+                candidateScore[candidateCount] = score;
+                candidateCount++;
+            }
+        }
+    }
+
+    /**
+     * moves the best candidates to the front, sorted by score, and sets the beam size
+     */
+    private void selectBestCandidates() {
+        beamSize = Math.min(beam.length, candidateCount);
+        for (int i = 0; i < beamSize; i++) {
+            int best = i;
+            for (int j = i + 1; j < candidateCount; j++) {
+                if (candidateScore[j] > candidateScore[best])
+                    best = j;
+            }
+            if (best != i)
+                swapCandidates(i, best);
+        }
+    }
+
+    private void swapCandidates(int i, int j) {
+        int parent = candidateParent[i];
+        candidateParent[i] = candidateParent[j];
+        candidateParent[j] = parent;
+        int rotation = candidateRotation[i];
+        candidateRotation[i] = candidateRotation[j];
+        candidateRotation[j] = rotation;
+        int posX = candidatePosX[i];
+        candidatePosX[i] = candidatePosX[j];
+        candidatePosX[j] = posX;
+        int posY = candidatePosY[i];
+        candidatePosY[i] = candidatePosY[j];
+        candidatePosY[j] = posY;
+        float linesValue = candidateLinesValue[i];
+        candidateLinesValue[i] = candidateLinesValue[j];
+        candidateLinesValue[j] = linesValue;
+        float score = candidateScore[i];
+        candidateScore[i] = candidateScore[j];
+        candidateScore[j] = score;
+    }
+
+    private void swapBeams() {
+        AiGameboard[] boards = beam;
+        beam = nextBeam;
+        nextBeam = boards;
+        float[] linesValue = beamLinesValue;
+        beamLinesValue = nextBeamLinesValue;
+        nextBeamLinesValue = linesValue;
+        int[] firstRotation = beamFirstRotation;
+        beamFirstRotation = nextBeamFirstRotation;
+        nextBeamFirstRotation = firstRotation;
+        int[] firstPosX = beamFirstPosX;
+        beamFirstPosX = nextBeamFirstPosX;
+        nextBeamFirstPosX = firstPosX;
+    }
+
+    private static class PieceSequence {
+        final PieceShape[][] shapes;
+        final int[] rotationCount;
+        final int[] startPosX;
+        final int[] startPosY;
+        int size;
+
+        PieceSequence(int maxPieces) {
+            shapes = new PieceShape[maxPieces][4];
+            for (int i = 0; i < maxPieces; i++)
+                for (int rotation = 0; rotation < 4; rotation++)
+                    shapes[i][rotation] = new PieceShape();
+            rotationCount = new int[maxPieces];
+            startPosX = new int[maxPieces];
+            startPosY = new int[maxPieces];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int pieceType, boolean srs, int posX, int posY) {
+            if (size >= shapes.length)
+                return;
+
+            Vector2[][] rotations = Tetromino.getRotationTemplates(pieceType, srs);
+            for (int rotation = 0; rotation < rotations.length; rotation++)
+                shapes[size][rotation].set(rotations[rotation]);
+            rotationCount[size] = rotations.length;
+            startPosX[size] = posX;
+            startPosY[size] = posY;
+            size++;
+        }
+    }
+
+    /**
+     * Snapshot of the game state to search a move for, and the search result
+     */
+    static class Request {
+        final int generation;
+        final int[] rows = new int[Gameboard.GAMEBOARD_ALLROWS];
+        final int[] queue;
+        int queueLength;
+        boolean srs;
+        int activePieceType;
+        int activePosX;
+        int activePosY;
+        int nextPieceType;
+        int spawnPosX;
+        int spawnPosY;
+        int holdPieceType = -1;
+        boolean holdAllowed;
+
+        boolean resultValid;
+        boolean resultHold;
+        int resultRotation;
+        int resultHorizontalMove;
+        int resultDepth;
+
+        Request(int generation, int maxQueueLength) {
+            this.generation = generation;
+            queue = new int[Math.max(0, maxQueueLength)];
+        }
+    }
+}
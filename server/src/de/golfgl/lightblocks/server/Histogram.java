@@ -0,0 +1,80 @@
+package de.golfgl.lightblocks.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram with fixed bucket bounds. Values are recorded in milliseconds.
+ */
+public class Histogram {
+    public static final double[] TICK_BOUNDS_MS = new double[]{0.25, 0.5, 1, 2, 4, 8, 16, 33, 66, 133};
+    public static final double[] WAIT_BOUNDS_MS = new double[]{10, 50, 100, 250, 500, 1000, 2500, 5000,
+            10000, 30000, 60000};
+
+    private final double[] upperBounds;
+    // last bucket holds the values greater than the highest bound
+    private final AtomicLongArray buckets;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+
+    public Histogram(double[] upperBounds) {
+        this.upperBounds = upperBounds;
+        buckets = new AtomicLongArray(upperBounds.length + 1);
+    }
+
+    public void record(double valueMs) {
+        int bucket = 0;
+        while (bucket < upperBounds.length && valueMs > upperBounds[bucket])
+            bucket++;
+
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        sumMicros.addAndGet((long) (valueMs * 1000));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getSum() {
+        return sumMicros.get() / 1000d;
+    }
+
+    /**
+     * @return upper bound of the bucket holding the given percentile, or the highest bound if the
+     * percentile is above it. 0 if nothing was recorded yet.
+     */
+    public double getPercentile(double percentile) {
+        long count = this.count.get();
+        if (count == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(count * percentile / 100d);
+        long cumulated = 0;
+        for (int i = 0; i < upperBounds.length; i++) {
+            cumulated = cumulated + buckets.get(i);
+            if (cumulated >= rank)
+                return upperBounds[i];
+        }
+        return upperBounds[upperBounds.length - 1];
+    }
+
+    /**
+     * appends the histogram in Prometheus text format
+     *
+     * @param labels labels to add to every line, e.g. thread="Render1", or empty string
+     */
+    public void writePrometheus(StringBuilder builder, String name, String labels) {
+        String labelPrefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulated = 0;
+        for (int i = 0; i <= upperBounds.length; i++) {
+            cumulated = cumulated + buckets.get(i);
+            builder.append(name).append("_bucket{").append(labelPrefix).append("le=\"")
+                    .append(i < upperBounds.length ? String.valueOf(upperBounds[i]) : "+Inf")
+                    .append("\"} ").append(cumulated).append('\n');
+        }
+        String labelBlock = labels.isEmpty() ? "" : "{" + labels + "}";
+        builder.append(name).append("_sum").append(labelBlock).append(' ').append(getSum()).append('\n');
+        builder.append(name).append("_count").append(labelBlock).append(' ').append(getCount()).append('\n');
+    }
+}
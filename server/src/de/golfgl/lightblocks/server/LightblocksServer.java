@@ -5,11 +5,9 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.backends.headless.HeadlessApplication;
 import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
 import com.badlogic.gdx.backends.headless.mock.graphics.MockGraphics;
-import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.JsonValue;
 import com.badlogic.gdx.utils.JsonWriter;
 import com.badlogic.gdx.utils.Queue;
-import com.badlogic.gdx.utils.TimeUtils;
 
 import org.java_websocket.WebSocket;
 import org.java_websocket.handshake.ClientHandshake;
@@ -19,11 +17,19 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceInfo;
 
+import de.golfgl.lightblocks.multiplayer.BinaryProtocol;
+import de.golfgl.lightblocks.server.model.InGameMessage;
 import de.golfgl.lightblocks.server.model.ServerInfo;
+import de.golfgl.lightblocks.state.InitGameParameters;
 
 public class LightblocksServer extends WebSocketServer implements ApplicationListener {
     public static final int SERVER_VERSION = 2112; // reported to the clients, don't mess with it
@@ -32,8 +38,13 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
     final ServerConfiguration serverConfig;
     final Serializer serializer = new Serializer();
     final ServerStats serverStats = new ServerStats();
+    final ServerMetrics serverMetrics = new ServerMetrics(this);
     private final ServerInfo serverInfo;
-    private final Match[] matches;
+    final MatchPool matchPool;
+    // runs the budgeted AI searches, so they don't delay the match ticks
+    final ExecutorService aiExecutor;
+    // sends batched messages when the flush interval ended before the next match tick
+    final ScheduledExecutorService flushExecutor;
     private final Queue<Player> playerToConnectQueue = new Queue<>();
     private boolean running = true;
     private JmDNS jmdns;
@@ -42,7 +53,25 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
         super(address, Math.max(1, serverConfiguration.threadNum / 2), null);
         this.serverConfig = serverConfiguration;
         this.serverInfo = serverConfiguration.getServerInfo();
-        this.matches = new Match[serverConfig.threadNum - 1];
+        this.matchPool = new MatchPool(this, serverConfig.threadNum - 1, serverConfig.maxMatches);
+        this.aiExecutor = Executors.newFixedThreadPool(serverConfig.aiThreads, new ThreadFactory() {
+            private final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "AI" + threadNum.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Flush");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     public static void main(String[] arg) {
@@ -58,6 +87,9 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
                 if (server.jmdns != null) {
                     server.jmdns.unregisterAllServices();
                 }
+                server.serverMetrics.stop();
+                server.aiExecutor.shutdownNow();
+                server.flushExecutor.shutdownNow();
                 super.exit();
             }
         };
@@ -72,47 +104,12 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
     }
 
     private void startThreads() {
-        // thread 1 was started by HeadlessApplication - start up the other threads
-        final long renderInterval = ((MockGraphics) Gdx.graphics).getTargetRenderInterval();
-        for (int i = 1; i < serverConfig.threadNum; i++) {
-            final int threadNum = i;
-            matches[i - 1] = new Match(this);
-            new Thread("Render" + i) {
-                @Override
-                public void run() {
-                    try {
-                        long lastTime = TimeUtils.nanoTime();
-                        long nextTime = TimeUtils.nanoTime() + renderInterval;
-                        if (renderInterval >= 0f) {
-                            while (running) {
-                                final long n = TimeUtils.nanoTime();
-                                if (nextTime > n) {
-                                    try {
-                                        long sleep = nextTime - n;
-                                        Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
-                                    } catch (InterruptedException ignored) {
-                                    }
-                                    nextTime = nextTime + renderInterval;
-                                } else {
-                                    nextTime = n + renderInterval;
-                                }
-
-                                long now = System.nanoTime();
-                                float deltaTime = (now - lastTime) / 1000000000.0f;
-                                lastTime = now;
-
-                                renderThread(threadNum, deltaTime);
-                            }
-                        }
-                    } catch (Throwable t) {
-                        if (t instanceof RuntimeException)
-                            throw (RuntimeException) t;
-                        else
-                            throw new GdxRuntimeException(t);
-                    }
-                }
-            }.start();
-        }
+        // thread 1 was started by HeadlessApplication - start up the render threads ticking the matches
+        matchPool.start(((MockGraphics) Gdx.graphics).getTargetRenderInterval());
+    }
+
+    boolean isRunning() {
+        return running;
     }
 
     @Override
@@ -136,6 +133,9 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
             }
         }
 
+        if (serverConfig.metricsPort > 0)
+            serverMetrics.start(serverConfig.metricsHost, serverConfig.metricsPort);
+
         Gdx.app.log("Server", "Server version: " + SERVER_VERSION);
     }
 
@@ -151,16 +151,7 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
             connectWaitingPlayers();
 
             serverStats.outputAndResetAfter(60 * 60 * STATS_AGGREGATION_TIME_HRS);
-        } catch (Throwable t) {
-            Gdx.app.error("Server", "Uncaught error ", t);
-        }
-    }
-
-    public void renderThread(int thread, float delta) {
-        try {
-            // update corresponding game model
-            // Gdx.app.debug("Match" + thread, "update with delta " + delta);
-            matches[thread - 1].update(delta);
+            serverStats.updateRates();
         } catch (Throwable t) {
             Gdx.app.error("Server", "Uncaught error ", t);
         }
@@ -174,78 +165,87 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
         }
     }
 
+    public int getMatchmakingQueueLength() {
+        synchronized (playerToConnectQueue) {
+            return playerToConnectQueue.size;
+        }
+    }
+
     private void connectWaitingPlayers() {
         synchronized (playerToConnectQueue) {
-            if (playerToConnectQueue.isEmpty())
-                return;
+            // drain the whole queue in one pass. Players that cannot be placed right now are
+            // enqueued again so they don't block the players behind them
+            int waitingPlayers = playerToConnectQueue.size;
+            for (int i = 0; i < waitingPlayers; i++) {
+                Player player = playerToConnectQueue.removeFirst();
+                if (player.state != Player.ConnectionState.WAITING) {
+                    Gdx.app.log("Server", "Removed player in state " + player.state + " from connect queue");
+                    continue;
+                }
 
-            Player first = playerToConnectQueue.first();
-            if (first.state != Player.ConnectionState.WAITING) {
-                playerToConnectQueue.removeFirst();
-                Gdx.app.log("Server", "Removed player in state " + first.state + " from connect queue");
-                return;
-            }
+                boolean connected;
+                if (serverInfo.privateRooms && player.roomName != null) {
+                    // connect to a private room
+                    connected = connectPlayerToPrivateRoom(player);
 
-            boolean connected;
-            if (serverInfo.privateRooms && first.roomName != null) {
-                // connect to a private room
-                connected = connectPlayerToPrivateRoom(first);
+                } else {
+                    // try to connect to occupied matches first...
+                    connected = connectWaitingPlayer(player);
+                    //... if not successful, open a new match
+                    if (!connected)
+                        connected = connectToNewMatch(player);
+                }
 
-            } else {
-                // try to connect to occupied matches first...
-                connected = connectWaitingPlayer(first, false);
-                //... if not successful, use empty matches
                 if (!connected)
-                    connected = connectWaitingPlayer(first, true);
+                    playerToConnectQueue.addLast(player);
             }
-
-            if (connected)
-                playerToConnectQueue.removeFirst();
         }
     }
 
     private boolean connectPlayerToPrivateRoom(Player player) {
-        boolean connected = false;
         // is there a room with the name?
-        int roomNum = -1;
-        for (int i = 1; i < serverConfig.threadNum; i++) {
-            if (!connected && roomNum < 0 && player.roomName.equalsIgnoreCase(matches[i - 1].roomName)) {
-                roomNum = i - 1;
-                if (matches[i - 1].checkIfPlayerFitsMatch(player) && matches[i - 1].connectPlayer(player)) {
-                    Gdx.app.log("Server", "Connected " + player.nickName + " to room on match " + i);
-                    connected = true;
-                } else {
-                    Gdx.app.log("Server", "Room requested by " + player.nickName + " not connected.");
-                }
-            }
-        }
+        Match room = matchPool.findRoom(player.roomName);
 
-        if (!connected && roomNum < 0) {
-            // room does not exist yet, assign a fitting and empty room
-            for (int i = 1; i < serverConfig.threadNum; i++) {
-                if (!connected && matches[i - 1].getConnectedPlayerNum() == 0
-                        && matches[i - 1].checkIfPlayerFitsMatch(player)
-                        && matches[i - 1].connectPlayer(player)) {
-                    Gdx.app.log("Server", "Created room and connected " + player.nickName + " on match " + i);
-                    matches[i - 1].roomName = player.roomName;
-                    connected = true;
-                }
+        if (room != null) {
+            if (room.checkIfPlayerFitsMatch(player) && room.connectPlayer(player)) {
+                Gdx.app.log("Server", "Connected " + player.nickName + " to room on match " + room.matchId);
+                return true;
             }
+            Gdx.app.log("Server", "Room requested by " + player.nickName + " not connected.");
+            return false;
         }
-        return connected;
+
+        // room does not exist yet, open a new match for it
+        room = matchPool.openMatch(player, getModeTypeForPlayer(player), player.roomName);
+        if (room != null)
+            Gdx.app.log("Server", "Created room and connected " + player.nickName + " on match " + room.matchId);
+        return room != null;
     }
 
-    private boolean connectWaitingPlayer(Player player, boolean useEmptyMatches) {
-        boolean connected = false;
-        for (int i = 1; i < serverConfig.threadNum; i++) {
-            if (!connected && (useEmptyMatches || matches[i - 1].getConnectedPlayerNum() > 0)
-                    && matches[i - 1].checkIfPlayerFitsMatch(player)
-                    && matches[i - 1].connectPlayer(player)) {
-                Gdx.app.log("Server", "Connected " + player.nickName + " to match " + i);
-                connected = true;
-            }
+    private boolean connectWaitingPlayer(Player player) {
+        Match match = matchPool.findHalfFullMatch(player);
+        if (match != null && match.connectPlayer(player)) {
+            Gdx.app.log("Server", "Connected " + player.nickName + " to match " + match.matchId);
+            return true;
         }
-        return connected;
+        return false;
+    }
+
+    private boolean connectToNewMatch(Player player) {
+        Match match = matchPool.openMatch(player, getModeTypeForPlayer(player), null);
+        if (match != null)
+            Gdx.app.log("Server", "Connected " + player.nickName + " to new match " + match.matchId);
+        return match != null;
+    }
+
+    /**
+     * @return the mode type a new match should be opened with for the given player
+     */
+    private int getModeTypeForPlayer(Player player) {
+        int modeType = serverConfig.modeType;
+        if (modeType == InitGameParameters.TYPE_MIX)
+            modeType = player.requestedModeType;
+        return modeType;
     }
 
     @Override
@@ -298,6 +298,8 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
                 Gdx.app.error("Server", "Could not detect client version: " + message);
             }
             conn.send("PONG" + sendServerStats(clientVersion));
+        } else if (message.equals("STATS")) {
+            conn.send("STATS" + serverMetrics.getStatsJson());
         } else if (conn.getAttachment() != null) {
             Object object = serializer.deserialize(message);
             if (object != null) try {
@@ -321,6 +323,27 @@ public class LightblocksServer extends WebSocketServer implements ApplicationLis
     @Override
     public void onMessage(WebSocket conn, ByteBuffer message) {
         Gdx.app.debug("Server", "received ByteBuffer from " + conn.getRemoteSocketAddress());
+        Player player = conn.getAttachment();
+        if (player == null || !player.usesBinaryProtocol()) {
+            conn.close(4101, "Message unexpected.");
+            return;
+        }
+
+        // binary frames hold in-game input, one opcode per byte
+        while (message.hasRemaining()) {
+            String inGameMessage = BinaryProtocol.getInputMessage(message.get());
+            if (inGameMessage == null) {
+                conn.close(4101, "Message illegible.");
+                return;
+            }
+            try {
+                player.onMessage(new InGameMessage(inGameMessage));
+            } catch (Player.UnexpectedException e) {
+                Gdx.app.error("Server", "Unexpected binary message for player: " + inGameMessage);
+                conn.close(4101, "Message unexpected.");
+                return;
+            }
+        }
     }
 
     @Override
@@ -13,6 +13,8 @@ import de.golfgl.lightblocks.model.GameScore;
 import de.golfgl.lightblocks.model.IGameModelListener;
 import de.golfgl.lightblocks.model.ServerMultiplayerModel;
 import de.golfgl.lightblocks.model.Tetromino;
+import de.golfgl.lightblocks.multiplayer.BinaryProtocol;
+import de.golfgl.lightblocks.multiplayer.ai.AiStrength;
 import de.golfgl.lightblocks.multiplayer.ai.ArtificialPlayer;
 import de.golfgl.lightblocks.server.model.InGameMessage;
 import de.golfgl.lightblocks.server.model.MatchInfo;
@@ -29,28 +31,35 @@ public class Match {
     private final LightblocksServer server;
     private final ConcurrentLinkedQueue<InGameMessage> p1IncomingQueue = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<InGameMessage> p2IncomingQueue = new ConcurrentLinkedQueue<>();
+    final int matchId;
+    // guarded by the match pool
+    boolean inHalfFullIndex;
     String roomName;
+    int aiLevel;
     private Player player1;
     private float player1WaitTime;
     private Player player2;
     private float player2WaitTime;
     private ServerMultiplayerModel gameModel;
     private float waitGameOver = WAIT_TIME_GAME_OVER;
+    private boolean retired;
 
-    public Match(LightblocksServer server) {
+    public Match(LightblocksServer server, int matchId, int modeType) {
         this.server = server;
+        this.matchId = matchId;
         gameParams = new InitGameParameters();
         gameParams.setBeginningLevel(server.serverConfig.beginningLevel);
-        int modeType = server.serverConfig.modeType;
         if (modeType == InitGameParameters.TYPE_MIX) {
             modeType = MathUtils.randomBoolean() ? InitGameParameters.TYPE_CLASSIC : InitGameParameters.TYPE_MODERN;
         }
         gameParams.setModeType(modeType);
+        aiLevel = server.serverConfig.aiLevel;
     }
 
     public void update(float delta) {
         if (getConnectedPlayerNum() == 0) {
             roomName = null;
+            aiLevel = server.serverConfig.aiLevel;
             if (server.serverConfig.resetEmptyRooms)
                 gameModel = null;
             return;
@@ -213,8 +222,13 @@ public class Match {
         gameModel.startNewGame(gameParams);
         ServerMultiplayerModel secondGameModel = gameModel.getSecondGameModel();
 
-        gameModel.setAiPlayer(new ArtificialPlayer(gameModel, secondGameModel));
-        secondGameModel.setAiPlayer(new ArtificialPlayer(secondGameModel, gameModel));
+        AiStrength aiStrength = AiStrength.forLevel(aiLevel);
+        ArtificialPlayer aiPlayer = new ArtificialPlayer(gameModel, secondGameModel);
+        aiPlayer.setStrength(aiStrength, server.aiExecutor);
+        gameModel.setAiPlayer(aiPlayer);
+        ArtificialPlayer secondAiPlayer = new ArtificialPlayer(secondGameModel, gameModel);
+        secondAiPlayer.setStrength(aiStrength, server.aiExecutor);
+        secondGameModel.setAiPlayer(secondAiPlayer);
 
         gameModel.setUserInterface(new Listener(true));
         secondGameModel.setUserInterface(new Listener(false));
@@ -228,9 +242,7 @@ public class Match {
 
     public boolean checkIfPlayerFitsMatch(Player player) {
         // check if player has special needs for the mode
-        String playerParams = player.params;
-        if (playerParams.contains("/modern") && gameParams.getModeType() != InitGameParameters.TYPE_MODERN
-                || playerParams.contains("/classic") && gameParams.getModeType() != InitGameParameters.TYPE_CLASSIC)
+        if (player.requestedModeType != InitGameParameters.TYPE_MIX && player.requestedModeType != gameParams.getModeType())
             return false;
 
         // check if we have a room name
@@ -243,7 +255,9 @@ public class Match {
     public boolean connectPlayer(Player player) {
         synchronized (this) {
             boolean connected = false;
-            if (player1 == null) {
+            if (retired) {
+                // match is not ticked anymore
+            } else if (player1 == null) {
                 player1 = player;
                 player1WaitTime = WAIT_TIME_START_PLAYNG;
                 connected = true;
@@ -258,8 +272,12 @@ public class Match {
                 sendFullInformation();
             }
 
-            return connected;
+            if (!connected)
+                return false;
         }
+
+        server.matchPool.playerCountChanged(this);
+        return true;
     }
 
     public void playerDisconnected(Player player) {
@@ -271,6 +289,35 @@ public class Match {
             }
             sendFullInformation();
         }
+        server.matchPool.playerCountChanged(this);
+    }
+
+    /**
+     * marks the match as retired if no player is connected, so no player can connect anymore
+     *
+     * @return true if the match is retired and should not be updated anymore
+     */
+    boolean retireIfEmpty() {
+        synchronized (this) {
+            if (!retired && getConnectedPlayerNum() == 0)
+                retired = true;
+            return retired;
+        }
+    }
+
+    /**
+     * @return true if there is exactly one player in a match not bound to a private room
+     */
+    boolean isWaitingForOpponent() {
+        return !retired && roomName == null && getConnectedPlayerNum() == 1;
+    }
+
+    public int getIncomingQueueSize() {
+        return p1IncomingQueue.size() + p2IncomingQueue.size();
+    }
+
+    public int getModeType() {
+        return gameParams.getModeType();
     }
 
     public int getConnectedPlayerNum() {
@@ -339,6 +386,12 @@ public class Match {
         }
     }
 
+    protected void sendPiecePositions(int[] piecePos, StringBuilder builder) {
+        for (int i = 0; i < Tetromino.BLOCK_POSITIONS_SIZE; i = i + 2) {
+            builder.append(piecePos[i]).append('-').append(piecePos[i + 1]).append('-');
+        }
+    }
+
     public void gotMessage(Player player, InGameMessage igm) {
         if (player == player1)
             p1IncomingQueue.add(igm);
@@ -349,7 +402,10 @@ public class Match {
     private class Listener implements IGameModelListener {
         private final boolean first;
         private int lastGarbageAmountReported = 0;
-        private String lastSentScore;
+        private int lastSentScore = -1;
+        private int lastSentLevel;
+        private int lastSentLines;
+        private final BinaryProtocol.Writer binaryWriter = new BinaryProtocol.Writer();
         private boolean hasWon = false;
 
         public Listener(boolean first) {
@@ -357,44 +413,82 @@ public class Match {
         }
 
         private void sendPlayer(String msg) {
-            if (first) {
-                if (player1 != null)
-                    player1.enqueueMessage("Y" + msg);
-                if (player2 != null)
-                    player2.enqueueMessage("O" + msg);
-            } else {
-                if (player1 != null)
-                    player1.enqueueMessage("O" + msg);
-                if (player2 != null)
-                    player2.enqueueMessage("Y" + msg);
-            }
+            Player player1 = Match.this.player1;
+            Player player2 = Match.this.player2;
+            if (player1 != null && !player1.usesBinaryProtocol())
+                player1.enqueueMessage((first ? "Y" : "O") + msg);
+            if (player2 != null && !player2.usesBinaryProtocol())
+                player2.enqueueMessage((first ? "O" : "Y") + msg);
+        }
+
+        /**
+         * sends the message as text to all players, also to those using the binary protocol
+         */
+        private void sendPlayerAsText(String msg) {
+            Player player1 = Match.this.player1;
+            Player player2 = Match.this.player2;
+            if (player1 != null)
+                player1.enqueueMessage((first ? "Y" : "O") + msg);
+            if (player2 != null)
+                player2.enqueueMessage((first ? "O" : "Y") + msg);
+        }
+
+        private BinaryProtocol.Writer beginBinary(int opcode) {
+            binaryWriter.reset();
+            return binaryWriter.writeByte(opcode);
+        }
+
+        private void sendPlayer(BinaryProtocol.Writer msg) {
+            Player player1 = Match.this.player1;
+            Player player2 = Match.this.player2;
+            if (player1 != null && player1.usesBinaryProtocol())
+                player1.enqueueMessage(msg, !first);
+            if (player2 != null && player2.usesBinaryProtocol())
+                player2.enqueueMessage(msg, first);
         }
 
         private boolean hasPlayer() {
             return player1 != null || player2 != null;
         }
 
+        private boolean hasTextPlayer() {
+            Player player1 = Match.this.player1;
+            Player player2 = Match.this.player2;
+            return player1 != null && !player1.usesBinaryProtocol()
+                    || player2 != null && !player2.usesBinaryProtocol();
+        }
+
+        private boolean hasBinaryPlayer() {
+            Player player1 = Match.this.player1;
+            Player player2 = Match.this.player2;
+            return player1 != null && player1.usesBinaryProtocol()
+                    || player2 != null && player2.usesBinaryProtocol();
+        }
+
         @Override
         public void insertNewBlock(int x, int y, int blockType) {
             // only used on game start, sendFullInformation will handle this
         }
 
         @Override
-        public void moveTetro(Integer[][] v, int dx, int dy, int ghostPieceDistance) {
-            if (hasPlayer()) {
+        public void moveTetro(int[] v, int dx, int dy, int ghostPieceDistance) {
+            if (hasTextPlayer())
                 sendPlayer("MOV|" + dx + "|" + dy + "|" + ghostPieceDistance);
-            }
+            if (hasBinaryPlayer())
+                sendPlayer(beginBinary(BinaryProtocol.OP_MOVE).writeInt(dx).writeInt(dy).writeInt(ghostPieceDistance));
         }
 
         @Override
-        public void rotateTetro(Integer[][] vOld, Integer[][] vNew, int ghostPieceDistance) {
-            if (hasPlayer()) {
+        public void rotateTetro(int[] vOld, int[] vNew, int ghostPieceDistance) {
+            if (hasTextPlayer()) {
                 StringBuilder builder = new StringBuilder();
                 builder.append("ROT-");
                 sendPiecePositions(vNew, builder);
                 builder.append(ghostPieceDistance);
                 sendPlayer(builder.toString());
             }
+            if (hasBinaryPlayer())
+                sendPlayer(beginBinary(BinaryProtocol.OP_ROTATE).writePiecePositions(vNew).writeInt(ghostPieceDistance));
         }
 
         @Override
@@ -403,7 +497,7 @@ public class Match {
             if (linesToRemove.size <= 0 && linesToInsert <= 0)
                 return;
 
-            if (hasPlayer()) {
+            if (hasTextPlayer()) {
                 StringBuilder builder = new StringBuilder();
                 builder.append("CLR-");
                 for (int i = 0; i < linesToRemove.size; i++) {
@@ -417,6 +511,17 @@ public class Match {
                 }
                 sendPlayer(builder.toString());
             }
+            if (hasBinaryPlayer()) {
+                BinaryProtocol.Writer writer = beginBinary(BinaryProtocol.OP_CLEAR_INSERT);
+                writer.writeInt(linesToRemove.size);
+                for (int i = 0; i < linesToRemove.size; i++)
+                    writer.writeInt(linesToRemove.get(i));
+                writer.writeBoolean(special);
+                writer.writeInt(linesToInsert);
+                for (int i = 0; i < linesToInsert; i++)
+                    writer.writeInt(garbageHolePosition[i]);
+                sendPlayer(writer);
+            }
         }
 
         @Override
@@ -426,36 +531,42 @@ public class Match {
 
         @Override
         public void setGameOver() {
-            if (hasPlayer()) {
+            if (hasTextPlayer())
                 sendPlayer("GOV-" + (hasWon ? "1" : "0"));
-            }
+            if (hasBinaryPlayer())
+                sendPlayer(beginBinary(BinaryProtocol.OP_GAME_OVER).writeBoolean(hasWon));
         }
 
         @Override
         public void showNextTetro(Integer[][] relativeBlockPositions, int blockType) {
-            if (hasPlayer()) {
+            if (hasTextPlayer()) {
                 StringBuilder builder = new StringBuilder();
                 builder.append("NXT-");
                 sendPiecePositions(relativeBlockPositions, builder);
                 builder.append(blockType);
                 sendPlayer(builder.toString());
             }
+            if (hasBinaryPlayer())
+                sendPlayer(beginBinary(BinaryProtocol.OP_NEXT_PIECE).writePiecePositions(relativeBlockPositions).writeInt(blockType));
         }
 
         @Override
         public void activateNextTetro(Integer[][] boardBlockPositions, int blockType, int ghostPieceDistance) {
-            if (hasPlayer()) {
+            if (hasTextPlayer()) {
                 StringBuilder builder = new StringBuilder();
                 builder.append("ANT-");
                 sendPiecePositions(boardBlockPositions, builder);
                 builder.append(blockType).append('-').append(ghostPieceDistance);
                 sendPlayer(builder.toString());
             }
+            if (hasBinaryPlayer())
+                sendPlayer(beginBinary(BinaryProtocol.OP_ACTIVATE_NEXT).writePiecePositions(boardBlockPositions)
+                        .writeInt(blockType).writeInt(ghostPieceDistance));
         }
 
         @Override
         public void swapHoldAndActivePiece(Integer[][] newHoldPiecePositions, Integer[][] oldActivePiecePositions, Integer[][] newActivePiecePositions, int ghostPieceDistance, int holdBlockType) {
-            if (hasPlayer()) {
+            if (hasTextPlayer()) {
                 StringBuilder builder = new StringBuilder();
                 builder.append("HLD-");
                 sendPiecePositions(newHoldPiecePositions, builder);
@@ -465,32 +576,48 @@ public class Match {
                 }
                 sendPlayer(builder.toString());
             }
+            if (hasBinaryPlayer()) {
+                BinaryProtocol.Writer writer = beginBinary(BinaryProtocol.OP_HOLD);
+                writer.writePiecePositions(newHoldPiecePositions).writeInt(ghostPieceDistance)
+                        .writeBoolean(newActivePiecePositions != null);
+                if (newActivePiecePositions != null)
+                    writer.writePiecePositions(newActivePiecePositions);
+                sendPlayer(writer);
+            }
         }
 
         @Override
         public void pinTetromino(Integer[][] currentBlockPositions) {
-            if (hasPlayer()) {
+            if (hasTextPlayer())
                 sendPlayer("PIN");
-            }
+            if (hasBinaryPlayer())
+                sendPlayer(beginBinary(BinaryProtocol.OP_PIN));
         }
 
         @Override
         public void updateScore(GameScore score, int gainedScore) {
             if (hasPlayer()) {
-                MatchInfo.ScoreInfo scoreInfo = new MatchInfo.ScoreInfo(score);
-                String serialized = server.serializer.serialize(scoreInfo);
-                if (!serialized.equals(lastSentScore)) {
-                    lastSentScore = serialized;
-                    sendPlayer(serialized);
-                }
+                if (score.getScore() == lastSentScore && score.getCurrentLevel() == lastSentLevel
+                        && score.getClearedLines() == lastSentLines)
+                    return;
+
+                lastSentScore = score.getScore();
+                lastSentLevel = score.getCurrentLevel();
+                lastSentLines = score.getClearedLines();
+                if (hasTextPlayer())
+                    sendPlayer(server.serializer.serialize(new MatchInfo.ScoreInfo(score)));
+                if (hasBinaryPlayer())
+                    sendPlayer(beginBinary(BinaryProtocol.OP_SCORE).writeInt(lastSentScore)
+                            .writeInt(lastSentLevel).writeInt(lastSentLines));
             }
         }
 
         @Override
         public void markConflict(int x, int y) {
-            if (hasPlayer()) {
+            if (hasTextPlayer())
                 sendPlayer("CNF-" + x + "-" + y);
-            }
+            if (hasBinaryPlayer())
+                sendPlayer(beginBinary(BinaryProtocol.OP_CONFLICT).writeInt(x).writeInt(y));
         }
 
         @Override
@@ -518,14 +645,17 @@ public class Match {
                     motivationMessage = null;
             }
             if (motivationMessage != null)
-                sendPlayer("MTV-" + motivationMessage);
+                sendPlayerAsText("MTV-" + motivationMessage);
         }
 
         @Override
         public void showGarbageAmount(int lines) {
             if (hasPlayer()) {
                 if (lines != lastGarbageAmountReported) {
-                    sendPlayer("GBG-" + lines);
+                    if (hasTextPlayer())
+                        sendPlayer("GBG-" + lines);
+                    if (hasBinaryPlayer())
+                        sendPlayer(beginBinary(BinaryProtocol.OP_GARBAGE).writeInt(lines));
                     lastGarbageAmountReported = lines;
                 }
             } else {
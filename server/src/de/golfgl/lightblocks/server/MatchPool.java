@@ -0,0 +1,279 @@
+package de.golfgl.lightblocks.server;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Queue;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import de.golfgl.lightblocks.state.InitGameParameters;
+
+/**
+ * Holds the running matches and ticks them on a fixed number of render threads. Every render
+ * thread owns a shard of matches and updates all of them once per render interval. Matches are
+ * created on demand when a player needs one and retired when they are empty again, so the number
+ * of concurrent matches is independent from the number of threads.
+ * <p>
+ * For matchmaking, the pool keeps an index of the private rooms by name and queues of the
+ * matches waiting for a second player per mode type. The half-full queues are cleaned lazily:
+ * matches that became full or were retired are dropped when they reach the head of the queue.
+ * <p>
+ * All methods are thread safe, {@link #getMatches()} returns a copy.
+ */
+public class MatchPool {
+    private final LightblocksServer server;
+    private final int maxMatches;
+    private final RenderThread[] renderThreads;
+    private final Array<Match> matches = new Array<>();
+    private final ObjectMap<String, Match> rooms = new ObjectMap<>();
+    private final Queue<Match> halfFullClassic = new Queue<>();
+    private final Queue<Match> halfFullModern = new Queue<>();
+    private int lastMatchId;
+
+    public MatchPool(LightblocksServer server, int renderThreadNum, int maxMatches) {
+        this.server = server;
+        this.maxMatches = maxMatches;
+        renderThreads = new RenderThread[Math.max(1, renderThreadNum)];
+        for (int i = 0; i < renderThreads.length; i++) {
+            renderThreads[i] = new RenderThread(i + 1);
+        }
+    }
+
+    public void start(long renderInterval) {
+        for (RenderThread thread : renderThreads) {
+            thread.renderInterval = renderInterval;
+            thread.start();
+        }
+    }
+
+    /**
+     * creates a new match, connects the player to it and schedules it on the render thread with
+     * the fewest matches
+     *
+     * @return the new match, or null if the pool is full or the player could not be connected
+     */
+    @Nullable
+    public Match openMatch(Player player, int modeType, @Nullable String roomName) {
+        Match match;
+        synchronized (this) {
+            if (matches.size >= maxMatches)
+                return null;
+
+            lastMatchId++;
+            match = new Match(server, lastMatchId, modeType);
+            match.roomName = roomName;
+            // only private rooms may choose the AI strength, public matches use the server's
+            if (roomName != null && player.requestedAiLevel >= 0)
+                match.aiLevel = player.requestedAiLevel;
+            if (!match.checkIfPlayerFitsMatch(player) || !match.connectPlayer(player))
+                return null;
+
+            matches.add(match);
+        }
+
+        RenderThread leastBusy = renderThreads[0];
+        for (int i = 1; i < renderThreads.length; i++) {
+            if (renderThreads[i].matchCount.get() < leastBusy.matchCount.get())
+                leastBusy = renderThreads[i];
+        }
+        leastBusy.schedule(match);
+
+        return match;
+    }
+
+    /**
+     * @return the match hosting the private room with the given name, or null if there is none
+     */
+    @Nullable
+    public Match findRoom(String roomName) {
+        synchronized (this) {
+            return rooms.get(roomName.toLowerCase());
+        }
+    }
+
+    /**
+     * @return a match with one player waiting for an opponent the given player fits into, or null
+     */
+    @Nullable
+    public Match findHalfFullMatch(Player player) {
+        synchronized (this) {
+            Match match = null;
+            if (player.requestedModeType != InitGameParameters.TYPE_MODERN)
+                match = pollHalfFullMatch(halfFullClassic, player);
+            if (match == null && player.requestedModeType != InitGameParameters.TYPE_CLASSIC)
+                match = pollHalfFullMatch(halfFullModern, player);
+            return match;
+        }
+    }
+
+    private Match pollHalfFullMatch(Queue<Match> halfFullMatches, Player player) {
+        while (!halfFullMatches.isEmpty()) {
+            Match match = halfFullMatches.first();
+            if (match.isWaitingForOpponent() && match.checkIfPlayerFitsMatch(player))
+                return match;
+
+            // stale entry, it is added again on the next change of its player count
+            halfFullMatches.removeFirst();
+            match.inHalfFullIndex = false;
+        }
+        return null;
+    }
+
+    /**
+     * called by matches after a player connected or disconnected to keep the matchmaking index
+     * up to date. Must not be called while holding the lock on the match.
+     */
+    void playerCountChanged(Match match) {
+        synchronized (this) {
+            int connectedPlayers = match.getConnectedPlayerNum();
+            String roomName = match.roomName;
+            if (roomName != null) {
+                String key = roomName.toLowerCase();
+                if (connectedPlayers > 0 && !rooms.containsKey(key))
+                    rooms.put(key, match);
+                else if (connectedPlayers == 0 && rooms.get(key) == match)
+                    rooms.remove(key);
+            } else if (connectedPlayers == 1 && !match.inHalfFullIndex) {
+                match.inHalfFullIndex = true;
+                if (match.getModeType() == InitGameParameters.TYPE_MODERN)
+                    halfFullModern.addLast(match);
+                else
+                    halfFullClassic.addLast(match);
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the running matches
+     */
+    Array<Match> getMatches() {
+        synchronized (this) {
+            return new Array<>(matches);
+        }
+    }
+
+    public int getMatchCount() {
+        synchronized (this) {
+            return matches.size;
+        }
+    }
+
+    public int getMaxMatches() {
+        return maxMatches;
+    }
+
+    public int getRenderThreadNum() {
+        return renderThreads.length;
+    }
+
+    public String getRenderThreadName(int thread) {
+        return renderThreads[thread].getName();
+    }
+
+    public Histogram getTickDurations(int thread) {
+        return renderThreads[thread].tickDurations;
+    }
+
+    public long getTickOverruns(int thread) {
+        return renderThreads[thread].tickOverruns.get();
+    }
+
+    public int getScheduledMatchCount(int thread) {
+        return renderThreads[thread].matchCount.get();
+    }
+
+    private void retired(Match match) {
+        synchronized (this) {
+            matches.removeValue(match, true);
+            if (match.roomName != null && rooms.get(match.roomName.toLowerCase()) == match)
+                rooms.remove(match.roomName.toLowerCase());
+        }
+        Gdx.app.debug("Server", "Retired match " + match.matchId);
+    }
+
+    private class RenderThread extends Thread {
+        private final ConcurrentLinkedQueue<Match> newMatches = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger matchCount = new AtomicInteger();
+        private final Histogram tickDurations = new Histogram(Histogram.TICK_BOUNDS_MS);
+        private final AtomicLong tickOverruns = new AtomicLong();
+        // only accessed by this thread
+        private final Array<Match> threadMatches = new Array<>();
+        private long renderInterval;
+
+        public RenderThread(int threadNum) {
+            super("Render" + threadNum);
+        }
+
+        void schedule(Match match) {
+            matchCount.incrementAndGet();
+            newMatches.add(match);
+        }
+
+        @Override
+        public void run() {
+            try {
+                long lastTime = TimeUtils.nanoTime();
+                long nextTime = TimeUtils.nanoTime() + renderInterval;
+                if (renderInterval >= 0f) {
+                    while (server.isRunning()) {
+                        final long n = TimeUtils.nanoTime();
+                        if (nextTime > n) {
+                            try {
+                                long sleep = nextTime - n;
+                                Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
+                            } catch (InterruptedException ignored) {
+                            }
+                            nextTime = nextTime + renderInterval;
+                        } else {
+                            nextTime = n + renderInterval;
+                        }
+
+                        long now = System.nanoTime();
+                        float deltaTime = (now - lastTime) / 1000000000.0f;
+                        lastTime = now;
+
+                        tick(deltaTime);
+
+                        long tickDuration = TimeUtils.nanoTime() - now;
+                        tickDurations.record(tickDuration / 1000000d);
+                        if (tickDuration > renderInterval)
+                            tickOverruns.incrementAndGet();
+                    }
+                }
+            } catch (Throwable t) {
+                if (t instanceof RuntimeException)
+                    throw (RuntimeException) t;
+                else
+                    throw new GdxRuntimeException(t);
+            }
+        }
+
+        private void tick(float delta) {
+            Match newMatch;
+            while ((newMatch = newMatches.poll()) != null)
+                threadMatches.add(newMatch);
+
+            for (int i = threadMatches.size - 1; i >= 0; i--) {
+                Match match = threadMatches.get(i);
+                try {
+                    match.update(delta);
+                } catch (Throwable t) {
+                    Gdx.app.error("Server", "Uncaught error ", t);
+                }
+
+                if (match.retireIfEmpty()) {
+                    threadMatches.removeIndex(i);
+                    matchCount.decrementAndGet();
+                    retired(match);
+                }
+            }
+        }
+    }
+}
@@ -6,29 +6,58 @@ import com.badlogic.gdx.utils.TimeUtils;
 
 import org.java_websocket.WebSocket;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import de.golfgl.lightblocks.multiplayer.BinaryProtocol;
+import de.golfgl.lightblocks.multiplayer.ai.AiStrength;
 import de.golfgl.lightblocks.server.model.InGameMessage;
 import de.golfgl.lightblocks.server.model.KeepAliveMessage;
 import de.golfgl.lightblocks.server.model.PlayerInfo;
+import de.golfgl.lightblocks.state.InitGameParameters;
 
 public class Player {
+    public static final char BATCH_SEPARATOR = '\u001e';
     private static final int SECONDS_INACTIVITY_WARNING = 10;
     private static final String GAME_TIMEOUT_WARNING = "Inactive players will be disconnected";
     public final long connectedMs;
     private final LightblocksServer server;
     private final WebSocket conn;
-    private final Queue<String> outgoingQueue = new Queue<>();
+    private final Queue<Object> outgoingQueue = new Queue<>();
     public String nickName;
     public String userId;
     public int clientVersion;
+    public int binaryProtocol;
+    public boolean batchMessages;
     public String token;
     public String params;
     public String roomName;
+    public int requestedModeType = InitGameParameters.TYPE_MIX;
+    // AI strength requested with /ai0 to /ai3, -1 for the server default
+    public int requestedAiLevel = -1;
     public ConnectionState state = ConnectionState.CONNECTED;
     private Match match;
     private long startedPlayingMs;
     private long lastMessageReceived;
     private long lastGameMessageReceived;
     private String lastMessageToPlayer;
+    private long lastFlushMs;
+    private boolean flushScheduled;
+    private long enqueuedForMatchMs;
+    private final StringBuilder textBatch = new StringBuilder();
+    private final BinaryProtocol.Writer binaryBatch = new BinaryProtocol.Writer();
+    private final Runnable scheduledFlush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (outgoingQueue) {
+                flushScheduled = false;
+                if (conn.isOpen() && !outgoingQueue.isEmpty()) {
+                    lastFlushMs = TimeUtils.millis();
+                    sendBatched();
+                }
+            }
+        }
+    };
 
     public Player(LightblocksServer server, WebSocket conn) {
         this.server = server;
@@ -43,18 +72,29 @@ public class Player {
             return;
         }
 
-        nickName = playerInfo.nickName;
+        // the separator would split messages containing the nick name on batching clients
+        nickName = playerInfo.nickName.replace(BATCH_SEPARATOR, ' ');
         clientVersion = playerInfo.clientVersion;
+        binaryProtocol = Math.min(playerInfo.binaryProtocol, BinaryProtocol.VERSION);
+        batchMessages = playerInfo.batching && server.serverConfig.batchMessages;
         userId = playerInfo.userId;
         token = playerInfo.authToken;
         if (playerInfo.gameMode != null) {
             params = params + "/" + playerInfo.gameMode;
         }
+        if (params.contains("/modern"))
+            requestedModeType = InitGameParameters.TYPE_MODERN;
+        else if (params.contains("/classic"))
+            requestedModeType = InitGameParameters.TYPE_CLASSIC;
         if (playerInfo.roomName != null) {
             roomName = playerInfo.roomName;
         }
+        int aiParamPos = params.indexOf("/ai");
+        if (aiParamPos >= 0 && aiParamPos + 3 < params.length() && Character.isDigit(params.charAt(aiParamPos + 3)))
+            requestedAiLevel = Math.min(AiStrength.MAX_LEVEL, params.charAt(aiParamPos + 3) - '0');
 
         state = ConnectionState.WAITING;
+        enqueuedForMatchMs = TimeUtils.millis();
         // this will call addPlayerToMatch eventually
         server.enqueueToFindMatchForPlayer(this);
     }
@@ -65,6 +105,7 @@ public class Player {
             state = ConnectionState.PLAYING;
             server.serverStats.incPlayerConnected();
             startedPlayingMs = TimeUtils.millis();
+            server.serverStats.matchmakingWait.record(startedPlayingMs - enqueuedForMatchMs);
             lastMessageReceived = startedPlayingMs;
             lastGameMessageReceived = startedPlayingMs;
             Gdx.app.log("Player", "Successfully connected " + nickName + "/" + userId
@@ -110,21 +151,118 @@ public class Player {
             conn.send(string);
     }
 
+    public boolean usesBinaryProtocol() {
+        return binaryProtocol > 0;
+    }
+
     public void enqueueMessage(String string) {
         synchronized (outgoingQueue) {
             outgoingQueue.addLast(string);
         }
     }
 
+    /**
+     * enqueues a message of the binary protocol
+     *
+     * @param opponent true if the message belongs to the opponent's gameboard
+     */
+    public void enqueueMessage(BinaryProtocol.Writer message, boolean opponent) {
+        byte[] bytes = message.toArray();
+        if (opponent)
+            bytes[0] = (byte) (bytes[0] | BinaryProtocol.FLAG_OPPONENT);
+        synchronized (outgoingQueue) {
+            outgoingQueue.addLast(bytes);
+        }
+    }
+
     public void sendQueue() {
         synchronized (outgoingQueue) {
-            if (conn.isOpen()) {
+            if (!conn.isOpen()) {
+                outgoingQueue.clear();
+            } else if (!batchMessages) {
                 while (!outgoingQueue.isEmpty()) {
-                    conn.send(outgoingQueue.removeFirst());
+                    Object message = outgoingQueue.removeFirst();
+                    if (message instanceof byte[]) {
+                        conn.send((byte[]) message);
+                        server.serverStats.messagesSent(1, ((byte[]) message).length);
+                    } else {
+                        conn.send((String) message);
+                        server.serverStats.messagesSent(1, getUtf8Length((String) message));
+                    }
+                }
+            } else if (!outgoingQueue.isEmpty()) {
+                long now = TimeUtils.millis();
+                long waitMs = server.serverConfig.flushIntervalMs - (now - lastFlushMs);
+                if (waitMs <= 0) {
+                    lastFlushMs = now;
+                    sendBatched();
+                } else if (!flushScheduled) {
+                    // the batch must not wait for the next tick when it ends after the interval
+                    scheduleFlush(waitMs);
+                }
+            }
+        }
+    }
+
+    private void scheduleFlush(long waitMs) {
+        try {
+            server.flushExecutor.schedule(scheduledFlush, waitMs, TimeUnit.MILLISECONDS);
+            flushScheduled = true;
+        } catch (RejectedExecutionException e) {
+            // server is shutting down
+        }
+    }
+
+    /**
+     * packs all enqueued messages into as few frames as possible. Consecutive text messages are
+     * joined with {@link #BATCH_SEPARATOR}, consecutive binary messages are concatenated. Text and
+     * binary frames keep their order.
+     */
+    private void sendBatched() {
+        while (!outgoingQueue.isEmpty()) {
+            if (outgoingQueue.first() instanceof byte[]) {
+                binaryBatch.reset();
+                int messages = 0;
+                while (!outgoingQueue.isEmpty() && outgoingQueue.first() instanceof byte[]) {
+                    byte[] message = (byte[]) outgoingQueue.removeFirst();
+                    binaryBatch.writeBytes(message, 0, message.length);
+                    messages++;
                 }
+                conn.send(binaryBatch.toArray());
+                server.serverStats.messagesSent(messages, binaryBatch.getLength());
+            } else {
+                textBatch.setLength(0);
+                int messages = 0;
+                while (!outgoingQueue.isEmpty() && !(outgoingQueue.first() instanceof byte[])) {
+                    if (textBatch.length() > 0)
+                        textBatch.append(BATCH_SEPARATOR);
+                    textBatch.append((String) outgoingQueue.removeFirst());
+                    messages++;
+                }
+                conn.send(textBatch.toString());
+                server.serverStats.messagesSent(messages, getUtf8Length(textBatch));
+            }
+        }
+    }
+
+    /**
+     * @return length of the text frame on the wire, without encoding it again
+     */
+    private static int getUtf8Length(CharSequence s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80)
+                length++;
+            else if (c < 0x800)
+                length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
             } else
-                outgoingQueue.clear();
+                length += 3;
         }
+        return length;
     }
 
     public void sendMessageToPlayer(String s) {
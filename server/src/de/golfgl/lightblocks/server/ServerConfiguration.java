@@ -12,6 +12,8 @@ import java.util.ArrayList;
 
 import javax.annotation.Nullable;
 
+import de.golfgl.lightblocks.multiplayer.BinaryProtocol;
+import de.golfgl.lightblocks.multiplayer.ai.AiStrength;
 import de.golfgl.lightblocks.server.model.ServerInfo;
 import de.golfgl.lightblocks.state.InitGameParameters;
 
@@ -25,6 +27,7 @@ public class ServerConfiguration {
     private final String[] args;
     private final Logger logger;
     public int threadNum = 10;
+    public int maxMatches = 500;
     public int port = 8887;
     public int loglevel = Application.LOG_INFO;
     public int beginningLevel = 0;
@@ -33,6 +36,13 @@ public class ServerConfiguration {
     public boolean resetEmptyRooms = true;
     public int secondsInactivity = 25;
     public int secondsTimeout = 5;
+    public boolean batchMessages;
+    public int flushIntervalMs;
+    public int metricsPort;
+    // null for the loopback interface only
+    public String metricsHost;
+    public int aiLevel;
+    public int aiThreads = 2;
     private ServerInfo serverInfo;
 
     public ServerConfiguration(String[] arg) {
@@ -82,6 +92,33 @@ public class ServerConfiguration {
             logger.info("Using " + this.threadNum + " threads. Configure with --server.threads=xxxx");
         }
 
+        int maxMatches = findInt("server.maxMatches", 0);
+        if (maxMatches > 0) {
+            this.maxMatches = maxMatches;
+            logger.info("Hosting up to " + this.maxMatches + " matches.");
+        } else {
+            logger.info("Hosting up to " + this.maxMatches + " matches. Configure with --server.maxMatches=xxxx");
+        }
+
+        batchMessages = 0 != findInt("server.batchMessages", 1);
+        flushIntervalMs = Math.max(0, findInt("server.flushIntervalMs", 0));
+        if (batchMessages && flushIntervalMs > 0)
+            logger.info("Sending batched messages every " + flushIntervalMs + " ms.");
+
+        metricsPort = findInt("server.metricsPort", 0);
+        metricsHost = findString("server.metricsHost", null);
+        if (metricsPort <= 0)
+            logger.info("Metrics endpoint disabled. Enable with --server.metricsPort=xxxx");
+        else if (metricsHost == null)
+            logger.info("Metrics endpoint only reachable from this machine. Bind it with --server.metricsHost=0.0.0.0");
+
+        aiLevel = Math.max(0, Math.min(AiStrength.MAX_LEVEL, findInt("server.aiLevel", 0)));
+        aiThreads = Math.max(1, findInt("server.aiThreads", aiThreads));
+        if (aiLevel > 0)
+            logger.info("AI level " + aiLevel + ", searching on " + aiThreads + " thread(s). Configure with --server.aiThreads=xxxx");
+        else
+            logger.info("Using classic AI. Set a stronger AI with --server.aiLevel=1.." + AiStrength.MAX_LEVEL);
+
         enableNsd = 0 != findInt("enableNsd", 1);
 
         readXml();
@@ -123,6 +160,8 @@ public class ServerConfiguration {
         serverInfo.description = prefs.getString(KEY_XML_SERVER_DESC, "No server description given.");
         serverInfo.privateRooms = prefs.getBoolean(KEY_XML_PRIVATE_ROOMS, false);
         serverInfo.version = LightblocksServer.SERVER_VERSION;
+        serverInfo.binaryProtocol = BinaryProtocol.VERSION;
+        serverInfo.batching = batchMessages;
         serverInfo.modes = new ArrayList<>();
 
         modeType = prefs.getInteger(KEY_XML_GAMEMODES, InitGameParameters.TYPE_MIX);
@@ -0,0 +1,188 @@
+package de.golfgl.lightblocks.server;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Live server metrics: served in Prometheus text format on /metrics if a metrics port is
+ * configured (on the loopback interface unless a host is configured), and as Json for the
+ * STATS query over the WebSocket.
+ */
+public class ServerMetrics implements HttpHandler {
+    private static final String PREFIX = "lightblocks_";
+    private final LightblocksServer server;
+    private HttpServer httpServer;
+
+    public ServerMetrics(LightblocksServer server) {
+        this.server = server;
+    }
+
+    /**
+     * @param host address to bind to, null for the loopback interface
+     */
+    public void start(String host, int port) {
+        try {
+            InetSocketAddress address = host != null ? new InetSocketAddress(host, port)
+                    : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            if (address.isUnresolved()) {
+                Gdx.app.error("Server", "Could not start metrics endpoint, unknown host " + host);
+                return;
+            }
+            httpServer = HttpServer.create(address, 0);
+            httpServer.createContext("/metrics", this);
+            httpServer.start();
+            Gdx.app.log("Server", "Metrics served on " + address.getAddress().getHostAddress() + ":" + port
+                    + " /metrics");
+        } catch (IOException e) {
+            Gdx.app.error("Server", "Could not start metrics endpoint.", e);
+        }
+    }
+
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        byte[] response = getPrometheusText().getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, response.length);
+        OutputStream body = exchange.getResponseBody();
+        body.write(response);
+        body.close();
+    }
+
+    public String getPrometheusText() {
+        ServerStats stats = server.serverStats;
+        MatchPool matchPool = server.matchPool;
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("# TYPE " + PREFIX + "players_connected gauge\n");
+        builder.append(PREFIX + "players_connected ").append(stats.getPlayersCurrentlyConnected()).append('\n');
+        builder.append("# TYPE " + PREFIX + "matches_running gauge\n");
+        builder.append(PREFIX + "matches_running ").append(matchPool.getMatchCount()).append('\n');
+        builder.append("# TYPE " + PREFIX + "matches_max gauge\n");
+        builder.append(PREFIX + "matches_max ").append(matchPool.getMaxMatches()).append('\n');
+        builder.append("# TYPE " + PREFIX + "matchmaking_queue_length gauge\n");
+        builder.append(PREFIX + "matchmaking_queue_length ").append(server.getMatchmakingQueueLength()).append('\n');
+
+        builder.append("# TYPE " + PREFIX + "render_thread_matches gauge\n");
+        for (int i = 0; i < matchPool.getRenderThreadNum(); i++) {
+            builder.append(PREFIX + "render_thread_matches{").append(getThreadLabel(i)).append("} ")
+                    .append(matchPool.getScheduledMatchCount(i)).append('\n');
+        }
+        builder.append("# TYPE " + PREFIX + "tick_duration_ms histogram\n");
+        for (int i = 0; i < matchPool.getRenderThreadNum(); i++) {
+            matchPool.getTickDurations(i).writePrometheus(builder, PREFIX + "tick_duration_ms", getThreadLabel(i));
+        }
+        builder.append("# TYPE " + PREFIX + "tick_overruns_total counter\n");
+        for (int i = 0; i < matchPool.getRenderThreadNum(); i++) {
+            builder.append(PREFIX + "tick_overruns_total{").append(getThreadLabel(i)).append("} ")
+                    .append(matchPool.getTickOverruns(i)).append('\n');
+        }
+
+        int[] queueSizes = getIncomingQueueSizes();
+        builder.append("# TYPE " + PREFIX + "incoming_queue_messages gauge\n");
+        builder.append(PREFIX + "incoming_queue_messages ").append(queueSizes[0]).append('\n');
+        builder.append("# TYPE " + PREFIX + "incoming_queue_messages_max gauge\n");
+        builder.append(PREFIX + "incoming_queue_messages_max ").append(queueSizes[1]).append('\n');
+
+        builder.append("# TYPE " + PREFIX + "outbound_messages_total counter\n");
+        builder.append(PREFIX + "outbound_messages_total ").append(stats.getOutboundMessages()).append('\n');
+        builder.append("# TYPE " + PREFIX + "outbound_bytes_total counter\n");
+        builder.append(PREFIX + "outbound_bytes_total ").append(stats.getOutboundBytes()).append('\n');
+
+        long cpuTimeMs = getProcessCpuTimeMs();
+        if (cpuTimeMs >= 0) {
+            builder.append("# TYPE " + PREFIX + "process_cpu_seconds_total counter\n");
+            builder.append(PREFIX + "process_cpu_seconds_total ").append(cpuTimeMs / 1000d).append('\n');
+        }
+
+        builder.append("# TYPE " + PREFIX + "matchmaking_wait_ms histogram\n");
+        stats.matchmakingWait.writePrometheus(builder, PREFIX + "matchmaking_wait_ms", "");
+
+        return builder.toString();
+    }
+
+    public String getStatsJson() {
+        ServerStats stats = server.serverStats;
+        MatchPool matchPool = server.matchPool;
+        JsonValue json = new JsonValue(JsonValue.ValueType.object);
+        json.addChild("activePlayers", new JsonValue(stats.getPlayersCurrentlyConnected()));
+        json.addChild("matches", new JsonValue(matchPool.getMatchCount()));
+        json.addChild("maxMatches", new JsonValue(matchPool.getMaxMatches()));
+        json.addChild("matchmakingQueue", new JsonValue(server.getMatchmakingQueueLength()));
+
+        JsonValue threads = new JsonValue(JsonValue.ValueType.array);
+        for (int i = 0; i < matchPool.getRenderThreadNum(); i++) {
+            Histogram tickDurations = matchPool.getTickDurations(i);
+            JsonValue thread = new JsonValue(JsonValue.ValueType.object);
+            thread.addChild("name", new JsonValue(matchPool.getRenderThreadName(i)));
+            thread.addChild("matches", new JsonValue(matchPool.getScheduledMatchCount(i)));
+            thread.addChild("tickMsP50", new JsonValue(tickDurations.getPercentile(50)));
+            thread.addChild("tickMsP99", new JsonValue(tickDurations.getPercentile(99)));
+            thread.addChild("tickOverruns", new JsonValue(matchPool.getTickOverruns(i)));
+            threads.addChild(thread);
+        }
+        json.addChild("renderThreads", threads);
+
+        int[] queueSizes = getIncomingQueueSizes();
+        json.addChild("incomingQueue", new JsonValue(queueSizes[0]));
+        json.addChild("incomingQueueMax", new JsonValue(queueSizes[1]));
+
+        json.addChild("outboundMessagesPerSecond", new JsonValue(stats.getOutboundMessagesPerSecond()));
+        json.addChild("outboundBytesPerSecond", new JsonValue(stats.getOutboundBytesPerSecond()));
+
+        json.addChild("matchmakingWaitMsP50", new JsonValue(stats.matchmakingWait.getPercentile(50)));
+        json.addChild("matchmakingWaitMsP90", new JsonValue(stats.matchmakingWait.getPercentile(90)));
+        json.addChild("matchmakingWaitMsP99", new JsonValue(stats.matchmakingWait.getPercentile(99)));
+
+        json.addChild("cpuTimeMs", new JsonValue(getProcessCpuTimeMs()));
+
+        return json.toJson(JsonWriter.OutputType.json);
+    }
+
+    /**
+     * @return cpu time used by the server process in milliseconds, or -1 if not supported by the JVM
+     */
+    public static long getProcessCpuTimeMs() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime() / 1000000;
+        return -1;
+    }
+
+    private String getThreadLabel(int thread) {
+        return "thread=\"" + server.matchPool.getRenderThreadName(thread) + "\"";
+    }
+
+    /**
+     * @return sum and maximum of the incoming message queue sizes over all matches
+     */
+    private int[] getIncomingQueueSizes() {
+        int sum = 0;
+        int max = 0;
+        Array<Match> matches = server.matchPool.getMatches();
+        for (int i = 0; i < matches.size; i++) {
+            int queueSize = matches.get(i).getIncomingQueueSize();
+            sum = sum + queueSize;
+            max = Math.max(max, queueSize);
+        }
+        return new int[]{sum, max};
+    }
+}
@@ -4,11 +4,21 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.TimeUtils;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ServerStats {
     public static final String TAG_LOG = "STATS";
     public int matchesStarted;
     public int matchesEnded;
+    // the following values are not reset, they are exported as metrics
+    public final Histogram matchmakingWait = new Histogram(Histogram.WAIT_BOUNDS_MS);
+    private final AtomicLong outboundMessages = new AtomicLong();
+    private final AtomicLong outboundBytes = new AtomicLong();
+    private long rateSampleMs;
+    private long rateSampleMessages;
+    private long rateSampleBytes;
+    private float outboundMessagesPerSecond;
+    private float outboundBytesPerSecond;
     private int playersConnectedOverall;
     private int playersCurrentlyConnected;
     private long secondsConnectedOverall;
@@ -29,6 +39,45 @@ public class ServerStats {
         }
     }
 
+    public void messagesSent(int messages, int bytes) {
+        outboundMessages.addAndGet(messages);
+        outboundBytes.addAndGet(bytes);
+    }
+
+    public long getOutboundMessages() {
+        return outboundMessages.get();
+    }
+
+    public long getOutboundBytes() {
+        return outboundBytes.get();
+    }
+
+    public float getOutboundMessagesPerSecond() {
+        return outboundMessagesPerSecond;
+    }
+
+    public float getOutboundBytesPerSecond() {
+        return outboundBytesPerSecond;
+    }
+
+    /**
+     * recalculates the outbound rates if the last calculation is at least a second ago
+     */
+    public void updateRates() {
+        long now = TimeUtils.millis();
+        long passedMs = now - rateSampleMs;
+        if (passedMs < 1000)
+            return;
+
+        long messages = outboundMessages.get();
+        long bytes = outboundBytes.get();
+        outboundMessagesPerSecond = (messages - rateSampleMessages) * 1000f / passedMs;
+        outboundBytesPerSecond = (bytes - rateSampleBytes) * 1000f / passedMs;
+        rateSampleMs = now;
+        rateSampleMessages = messages;
+        rateSampleBytes = bytes;
+    }
+
     public void reset() {
         matchesEnded = 0;
         matchesStarted = 0;
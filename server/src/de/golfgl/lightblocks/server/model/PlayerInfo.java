@@ -3,6 +3,8 @@ package de.golfgl.lightblocks.server.model;
 public class PlayerInfo {
     public String nickName;
     public int clientVersion;
+    public int binaryProtocol;
+    public boolean batching;
     public String userId;
     public String authToken;
     public String gameMode;
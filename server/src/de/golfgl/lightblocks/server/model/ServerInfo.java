@@ -10,4 +10,6 @@ public class ServerInfo {
     public boolean authRequired;
     public List<String> modes;
     public boolean privateRooms;
+    public int binaryProtocol;
+    public boolean batching;
 }